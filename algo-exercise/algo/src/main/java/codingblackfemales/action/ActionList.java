@@ -0,0 +1,73 @@
+package codingblackfemales.action;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The actions from one evaluation, up to an optional limit, reused from one evaluation to the next.
+ */
+public class ActionList implements ActionSink {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final List<Action> actions = new ArrayList<>();
+    private int maxActions;
+    private long droppedCount = 0;
+
+    public ActionList() {
+        this(UNLIMITED);
+    }
+
+    public ActionList(final int maxActions) {
+        this.maxActions = maxActions;
+    }
+
+    @Override
+    public boolean add(final Action action) {
+        if (action == null || action == NoAction.NoAction) {
+            return true;
+        }
+        if (actions.size() >= maxActions) {
+            droppedCount++;
+            return false;
+        }
+        actions.add(action);
+        return true;
+    }
+
+    public Action get(final int index) {
+        return actions.get(index);
+    }
+
+    public int size() {
+        return actions.size();
+    }
+
+    public boolean isEmpty() {
+        return actions.isEmpty();
+    }
+
+    public void clear() {
+        actions.clear();
+    }
+
+    public int getMaxActions() {
+        return maxActions;
+    }
+
+    public void setMaxActions(final int maxActions) {
+        this.maxActions = maxActions;
+    }
+
+    /**
+     * Actions refused because an evaluation had already reached the limit.
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ActionList(" + actions + ")";
+    }
+}
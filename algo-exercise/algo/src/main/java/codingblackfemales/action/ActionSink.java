@@ -0,0 +1,13 @@
+package codingblackfemales.action;
+
+/**
+ * Where an algo puts the actions it wants taken in one evaluation, see
+ * {@link codingblackfemales.algo.AlgoLogic#evaluate(codingblackfemales.sotw.SimpleAlgoState, ActionSink)}.
+ */
+public interface ActionSink {
+
+    /**
+     * @return false if the action was not taken because the algo has reached its limit for this evaluation.
+     */
+    boolean add(final Action action);
+}
@@ -0,0 +1,66 @@
+package codingblackfemales.action;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sotw.ChildOrder;
+import messages.order.AmendOrderEncoder;
+import messages.order.MessageHeaderEncoder;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reprice or resize a child order in one message rather than a cancel and a create. Reducing the quantity at the same
+ * price keeps the order's place in the queue, any other change moves it to the back of the queue at the new price.
+ * The child order keeps its price and quantity until the venue acks the amend.
+ */
+public class AmendChildOrder implements Action{
+
+    private final ChildOrder orderToAmend;
+    private final long price;
+    private final long quantity;
+
+    /**
+     * @param quantity the new total quantity of the order, including what has filled already.
+     */
+    public AmendChildOrder(ChildOrder orderToAmend, long price, long quantity) {
+        this.orderToAmend = orderToAmend;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    public ChildOrder getOrder() {
+        return orderToAmend;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "AmendChildOrder(" + orderToAmend + ",price=" + price + ",quantity=" + quantity + ")";
+    }
+
+    @Override
+    public void apply(final Sequencer sequencer) {
+
+        final AmendOrderEncoder encoder = new AmendOrderEncoder();
+        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(1024);
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(byteBuffer);
+        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        headerEncoder.schemaId(AmendOrderEncoder.SCHEMA_ID);
+        headerEncoder.version(AmendOrderEncoder.SCHEMA_VERSION);
+
+        encoder.orderId(orderToAmend.getOrderId());
+        encoder.price(price);
+        encoder.quantity(quantity);
+
+        sequencer.onCommand(directBuffer);
+    }
+}
@@ -4,6 +4,7 @@ import codingblackfemales.sequencer.Sequencer;
 import messages.order.CreateOrderEncoder;
 import messages.order.MessageHeaderEncoder;
 import messages.order.Side;
+import messages.order.TimeInForce;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,17 +19,43 @@ public class CreateChildOrder implements Action {
 
     private final Side side;
 
-
+    private final TimeInForce timeInForce;
 
     public CreateChildOrder(final Side side, final long quantity, final long price) {
+        this(side, quantity, price, TimeInForce.GTC);
+    }
+
+    /**
+     * @param timeInForce whether what does not fill straight away rests (GTC), is cancelled (IOC), or whether the order
+     *                    only trades if all of it fills straight away (FOK). A MARKET order trades at any price and
+     *                    cancels the rest, a POST_ONLY order only rests and is cancelled if it would trade.
+     */
+    public CreateChildOrder(final Side side, final long quantity, final long price, final TimeInForce timeInForce) {
         this.quantity = quantity;
         this.price = price;
         this.side = side;
+        this.timeInForce = timeInForce;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
     }
 
     @Override
     public String toString() {
-        return "CreateChildOrder(side=" + side + ",quantity=" + quantity + ",price=" + price + ")";
+        return "CreateChildOrder(side=" + side + ",quantity=" + quantity + ",price=" + price + ",timeInForce=" + timeInForce + ")";
     }
 
     @Override
@@ -44,6 +71,7 @@ public class CreateChildOrder implements Action {
         encoder.price(price);
         encoder.quantity(quantity);
         encoder.side(side);
+        encoder.timeInForce(timeInForce);
         sequencer.onCommand(directBuffer);
     }
 }
@@ -1,8 +1,19 @@
 package codingblackfemales.algo;
 
 import codingblackfemales.action.Action;
+import codingblackfemales.action.ActionSink;
 import codingblackfemales.sotw.SimpleAlgoState;
 
 public interface AlgoLogic {
     Action evaluate(final SimpleAlgoState state); // state is the parameter of the evaluate method
+
+    /**
+     * Evaluate the algo, adding every action it wants taken to the sink. The actions are sent together as one batch,
+     * so e.g. a market maker can cancel both its quotes and place new ones in a single evaluation. By default this
+     * adds the one action returned by {@link #evaluate(SimpleAlgoState)}; algos which override it can implement that
+     * to return {@link codingblackfemales.action.NoAction#NoAction}.
+     */
+    default void evaluate(final SimpleAlgoState state, final ActionSink actions) {
+        actions.add(evaluate(state));
+    }
 }
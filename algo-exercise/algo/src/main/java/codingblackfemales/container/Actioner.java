@@ -1,7 +1,13 @@
 package codingblackfemales.container;
 
 import codingblackfemales.action.Action;
+import codingblackfemales.action.ActionList;
+import codingblackfemales.action.AmendChildOrder;
+import codingblackfemales.action.CreateChildOrder;
+import codingblackfemales.risk.PreTradeRisk;
+import codingblackfemales.risk.RiskReject;
 import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.batch.BatchingSequencer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,13 +16,100 @@ public class Actioner {
     private static final Logger logger = LoggerFactory.getLogger(Actioner.class);
 
     private final Sequencer sequencer;
+    private final BatchingSequencer batchingSequencer;
+    private PreTradeRisk risk;
 
     public Actioner(Sequencer sequencer) {
+        this(sequencer, null);
+    }
+
+    /**
+     * Check each order created or amended against the pre-trade risk limits before it is sent, those which fail are dropped.
+     */
+    public Actioner(Sequencer sequencer, PreTradeRisk risk) {
         this.sequencer = sequencer;
+        this.batchingSequencer = new BatchingSequencer(sequencer);
+        this.risk = risk;
+    }
+
+    /**
+     * Check orders against these limits from now on, or stop checking them with null.
+     */
+    public void setRisk(PreTradeRisk risk) {
+        this.risk = risk;
+    }
+
+    public PreTradeRisk getRisk() {
+        return risk;
     }
 
     public void processAction(final Action action){
-        logger.info("[ALGO] Actioner, sending action:" + action);
-        action.apply(sequencer);
+        if (passesRisk(action)) {
+            logger.info("[ALGO] Actioner, sending action:" + action);
+            try {
+                action.apply(sequencer);
+            } finally {
+                clearPendingRisk();
+            }
+        }
+    }
+
+    /**
+     * Send the actions from one evaluation as one sequenced batch, in the order they were added. Each order is checked
+     * against the risk limits counting the orders accepted before it in the batch. The list is cleared before the batch
+     * is sent, as sending it can run the algo again, and is cleared even if an action fails.
+     */
+    public void processActions(final ActionList actions){
+        if (actions.size() <= 1) {
+            if (!actions.isEmpty()) {
+                final Action action = actions.get(0);
+                actions.clear();
+                processAction(action);
+            }
+            return;
+        }
+
+        batchingSequencer.begin();
+        try {
+            for (int i = 0; i < actions.size(); i++) {
+                final Action action = actions.get(i);
+                if (passesRisk(action)) {
+                    logger.info("[ALGO] Actioner, batching action:" + action);
+                    action.apply(batchingSequencer);
+                }
+            }
+        } finally {
+            actions.clear();
+            try {
+                batchingSequencer.flush();
+            } finally {
+                clearPendingRisk();
+            }
+        }
+    }
+
+    private void clearPendingRisk(){
+        if (risk != null) {
+            risk.clearPending();
+        }
+    }
+
+    private boolean passesRisk(final Action action){
+        if (risk == null) {
+            return true;
+        }
+        final int reject;
+        if (action instanceof CreateChildOrder) {
+            reject = risk.check((CreateChildOrder) action);
+        } else if (action instanceof AmendChildOrder) {
+            reject = risk.check((AmendChildOrder) action);
+        } else {
+            return true;
+        }
+        if (reject != RiskReject.NONE) {
+            logger.warn("[ALGO] Actioner, risk rejected action:" + action + " reason:" + RiskReject.name(reject));
+            return false;
+        }
+        return true;
     }
 }
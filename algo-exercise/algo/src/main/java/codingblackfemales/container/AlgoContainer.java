@@ -1,20 +1,30 @@
 package codingblackfemales.container;
 
-import codingblackfemales.action.NoAction;
+import codingblackfemales.action.ActionList;
 import codingblackfemales.algo.AlgoLogic;
-import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.risk.PreTradeRisk;
+import codingblackfemales.risk.RiskLimits;
+import codingblackfemales.sequencer.batch.MessageBatch;
+import codingblackfemales.sequencer.net.BatchConsumer;
 import codingblackfemales.service.MarketDataService;
 import codingblackfemales.service.OrderService;
+import codingblackfemales.service.PositionService;
 import codingblackfemales.sotw.SimpleAlgoState;
 import codingblackfemales.sotw.SimpleAlgoStateImpl;
+import codingblackfemales.timer.HierarchicalTimerWheel;
 import org.agrona.DirectBuffer;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.SystemEpochClock;
 
-public class AlgoContainer implements Consumer {
+public class AlgoContainer implements BatchConsumer {
 
     private final MarketDataService marketDataService;
     private final OrderService orderService;
+    private final PositionService positionService;
     private final RunTrigger runTrigger;
     private final Actioner actioner;
+    private final HierarchicalTimerWheel timerWheel;
+    private final ActionList actions = new ActionList();
 
     private AlgoLogic logic;
 
@@ -24,11 +34,21 @@ public class AlgoContainer implements Consumer {
                          final OrderService orderService,
                          final RunTrigger runTrigger,
                          final Actioner actioner) {
+        this(marketDataService, orderService, runTrigger, actioner, SystemEpochClock.INSTANCE);
+    }
+
+    public AlgoContainer(final MarketDataService marketDataService,
+                         final OrderService orderService,
+                         final RunTrigger runTrigger,
+                         final Actioner actioner,
+                         final EpochClock clock) {
         this.marketDataService = marketDataService;
         this.orderService = orderService;
         this.runTrigger = runTrigger;
         this.actioner = actioner;
-        this.state = new SimpleAlgoStateImpl(marketDataService, orderService);
+        this.timerWheel = new HierarchicalTimerWheel(clock);
+        this.positionService = new PositionService(marketDataService);
+        this.state = new SimpleAlgoStateImpl(marketDataService, orderService, timerWheel, positionService);
     }
 
     public MarketDataService getMarketDataService(){
@@ -39,12 +59,37 @@ public class AlgoContainer implements Consumer {
         return orderService;
     }
 
+    public PositionService getPositionService(){
+        return positionService;
+    }
+
     public void setLogic(AlgoLogic logic){
         this.logic = logic;
     }
 
+    /**
+     * Cap the actions the algo can take in one evaluation, any more are dropped and counted.
+     */
+    public void setMaxActionsPerEvaluation(int maxActions){
+        actions.setMaxActions(maxActions);
+    }
+
+    /**
+     * Hold the orders the algo creates to the limits, checked against this container's own order and position state.
+     */
+    public void setRiskLimits(RiskLimits limits){
+        actioner.setRisk(new PreTradeRisk(limits, marketDataService, orderService, positionService));
+    }
+
+    public ActionList getActions(){
+        return actions;
+    }
+
     @Override
     public void onMessage(DirectBuffer buffer){
+        // fed here rather than added to the network, so positions are kept wherever the container is
+        positionService.onMessage(buffer);
+        expireTimers();
         if(runTrigger.shouldRun()){
             runAlgoLogic();
 
@@ -53,14 +98,46 @@ public class AlgoContainer implements Consumer {
         }
     }
 
+    /**
+     * Apply every message of a batch, e.g. the fills from a match and the book after them, before running the algo
+     * logic once, so it never acts on a book which is only part way through changing.
+     */
+    @Override
+    public void onBatch(MessageBatch batch){
+        batch.forEach(positionService);
+        expireTimers();
+        if(runTrigger.shouldRun()){
+            runAlgoLogic();
+        }
+    }
+
+    /**
+     * Fire any timers that are due without waiting for a message, e.g. from a duty cycle or a test.
+     * The algo logic is run if a timer fired or a message arrived since it last ran.
+     */
+    public void pollTimers(){
+        expireTimers();
+        if(runTrigger.shouldRun()){
+            runAlgoLogic();
+        }
+    }
+
+    private void expireTimers(){
+        if(timerWheel.poll() > 0){
+            runTrigger.triggerRun();
+        }
+    }
+
     private void runAlgoLogic(){
-        final var action = logic.evaluate(state); // what does this line mean?
+        logic.evaluate(state, actions); // what does this line mean?
 
         runTrigger.hasRun();
 
-        if(action !=null && (!action.equals(NoAction.NoAction))){
-            actioner.processAction(action);
-        }
+        actioner.processActions(actions);
+    }
+
+    public HierarchicalTimerWheel getTimerWheel() {
+        return timerWheel;
     }
 
     public SimpleAlgoState getState() {
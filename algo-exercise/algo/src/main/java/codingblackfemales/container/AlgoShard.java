@@ -0,0 +1,61 @@
+package codingblackfemales.container;
+
+import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.sotw.SimpleAlgoState;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+
+/**
+ * One worker of a {@link ShardedAlgoRunner}. Owns a {@link MultiAlgoContainer} (and so its own market data, order
+ * and algo state) for the instruments hashed to it, fed from its inbound ring buffer. Actions go back to the
+ * sequencer thread through the shared command ring buffer.
+ */
+public class AlgoShard implements Agent {
+
+    private final int shardId;
+    private final RingBuffer inbound;
+    private final MultiAlgoContainer container;
+
+    private final UnsafeBuffer messageView = new UnsafeBuffer(0, 0);
+    private final MessageHandler onFrame = this::onFrame;
+
+    public AlgoShard(final int shardId,
+                     final RingBuffer inbound,
+                     final RingBuffer commands,
+                     final IdleStrategy commandIdleStrategy,
+                     final EpochClock clock) {
+        this.shardId = shardId;
+        this.inbound = inbound;
+        this.container = new MultiAlgoContainer(new RingBufferSequencer(commands, commandIdleStrategy), clock);
+    }
+
+    SimpleAlgoState addAlgo(final long parentOrderId, final long instrumentId, final AlgoLogic logic) {
+        return container.addAlgo(parentOrderId, instrumentId, logic);
+    }
+
+    public MultiAlgoContainer getContainer() {
+        return container;
+    }
+
+    @Override
+    public int doWork() {
+        final int messages = inbound.read(onFrame);
+        container.pollTimers();
+        return messages;
+    }
+
+    private void onFrame(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        messageView.wrap(buffer, index, length);
+        container.onMessage(messageView);
+    }
+
+    @Override
+    public String roleName() {
+        return "algo-shard-" + shardId;
+    }
+}
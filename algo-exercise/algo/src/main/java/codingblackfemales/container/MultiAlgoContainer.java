@@ -0,0 +1,358 @@
+package codingblackfemales.container;
+
+import codingblackfemales.action.ActionList;
+import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.risk.PreTradeRisk;
+import codingblackfemales.risk.RiskLimits;
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import codingblackfemales.service.PositionService;
+import codingblackfemales.sotw.ChildOrder;
+import codingblackfemales.sotw.SimpleAlgoState;
+import codingblackfemales.sotw.SimpleAlgoStateImpl;
+import codingblackfemales.timer.HierarchicalTimerWheel;
+import codingblackfemales.timer.ScopedTimerService;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.TradeDecoder;
+import messages.order.*;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.EpochClock;
+import org.agrona.concurrent.SystemEpochClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hosts many algos (one per parent order) behind a single {@link Consumer}.
+ *
+ * Each message is decoded once. Market data is applied to the one {@link MarketDataService} shared by all algos on
+ * that instrument, order events are routed by child order id to the {@link OrderService} of the algo that created the
+ * order, and only algos whose state changed are evaluated. Child orders are tied back to their algo by the
+ * parentOrderId which each algo's {@link ParentOrderSequencer} stamps on its CreateOrder commands.
+ */
+public class MultiAlgoContainer implements Consumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiAlgoContainer.class);
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+    private final TradeDecoder trade = new TradeDecoder();
+    private final CreateOrderDecoder createOrder = new CreateOrderDecoder();
+    private final CancelOrderDecoder cancelOrder = new CancelOrderDecoder();
+    private final AmendAckedOrderDecoder amendAckedOrder = new AmendAckedOrderDecoder();
+    private final AmendRejectedOrderDecoder amendRejectedOrder = new AmendRejectedOrderDecoder();
+    private final AckedOrderDecoder ackedOrder = new AckedOrderDecoder();
+    private final CancelAckedOrderDecoder cancelAckedOrder = new CancelAckedOrderDecoder();
+    private final PendingOrderDecoder pendingOrder = new PendingOrderDecoder();
+    private final PartialFillOrderDecoder partialFill = new PartialFillOrderDecoder();
+    private final FillOrderDecoder fill = new FillOrderDecoder();
+
+    private final Sequencer sequencer;
+    private final HierarchicalTimerWheel timerWheel;
+
+    private final Long2ObjectHashMap<InstrumentSlot> instruments = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<AlgoSlot> algosByParentOrderId = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<AlgoSlot> algosByChildOrderId = new Long2ObjectHashMap<>();
+    private final ArrayDeque<AlgoSlot> runQueue = new ArrayDeque<>();
+
+    public MultiAlgoContainer(final Sequencer sequencer) {
+        this(sequencer, SystemEpochClock.INSTANCE);
+    }
+
+    public MultiAlgoContainer(final Sequencer sequencer, final EpochClock clock) {
+        this.sequencer = sequencer;
+        this.timerWheel = new HierarchicalTimerWheel(clock);
+    }
+
+    /**
+     * Add an algo working the given parent order on an instrument.
+     *
+     * @return the state the algo will be evaluated with.
+     */
+    public SimpleAlgoState addAlgo(final long parentOrderId, final long instrumentId, final AlgoLogic logic) {
+        return addAlgo(parentOrderId, instrumentId, logic, null);
+    }
+
+    /**
+     * Add an algo working the given parent order on an instrument, whose orders are held to the risk limits.
+     *
+     * @param limits checked against the algo's own orders and position, or null for none.
+     * @return the state the algo will be evaluated with.
+     */
+    public SimpleAlgoState addAlgo(final long parentOrderId, final long instrumentId, final AlgoLogic logic, final RiskLimits limits) {
+        if (algosByParentOrderId.containsKey(parentOrderId)) {
+            throw new IllegalArgumentException("Algo already exists for parent order " + parentOrderId);
+        }
+        InstrumentSlot instrument = instruments.get(instrumentId);
+        if (instrument == null) {
+            instrument = new InstrumentSlot(instrumentId);
+            instruments.put(instrumentId, instrument);
+        }
+
+        final AlgoSlot algo = new AlgoSlot(parentOrderId, instrument, logic);
+        if (limits != null) {
+            algo.actioner.setRisk(new PreTradeRisk(limits, instrument.marketDataService, algo.orderService, algo.positionService));
+        }
+        instrument.algos.add(algo);
+        algosByParentOrderId.put(parentOrderId, algo);
+
+        logger.info("[MULTIALGO] Added algo for parent order:" + parentOrderId + " instrument:" + instrumentId);
+
+        return algo.state;
+    }
+
+    public void removeAlgo(final long parentOrderId) {
+        final AlgoSlot algo = algosByParentOrderId.remove(parentOrderId);
+        if (algo == null) {
+            return;
+        }
+        for (ChildOrder child : algo.orderService.children()) {
+            algosByChildOrderId.remove(child.getOrderId());
+        }
+        algo.instrument.algos.remove(algo);
+        if (algo.instrument.algos.isEmpty()) {
+            instruments.remove(algo.instrument.instrumentId);
+        }
+        runQueue.remove(algo);
+    }
+
+    public SimpleAlgoState getState(final long parentOrderId) {
+        final AlgoSlot algo = algosByParentOrderId.get(parentOrderId);
+        return algo == null ? null : algo.state;
+    }
+
+    public MarketDataService getMarketDataService(final long instrumentId) {
+        final InstrumentSlot instrument = instruments.get(instrumentId);
+        return instrument == null ? null : instrument.marketDataService;
+    }
+
+    public int getAlgoCount() {
+        return algosByParentOrderId.size();
+    }
+
+    public HierarchicalTimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        timerWheel.poll();
+        route(buffer);
+        runQueuedAlgos();
+    }
+
+    /**
+     * Fire any timers that are due and run the algos they belong to, without waiting for a message.
+     */
+    public void pollTimers() {
+        timerWheel.poll();
+        runQueuedAlgos();
+    }
+
+    private void route(final DirectBuffer buffer) {
+        header.wrap(buffer, 0);
+
+        final int schemaId = header.schemaId();
+        final int templateId = header.templateId();
+        final int actingBlockLength = header.blockLength();
+        final int actingVersion = header.version();
+        final int bufferOffset = header.encodedLength();
+
+        if (schemaId == BookUpdateDecoder.SCHEMA_ID) {
+            if (templateId == BookUpdateDecoder.TEMPLATE_ID) {
+                book.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final InstrumentSlot instrument = instruments.get(book.instrumentId());
+                if (instrument != null) {
+                    instrument.marketDataService.onBookUpdate(book);
+                    runAll(instrument);
+                }
+            } else if (templateId == AskBookUpdateDecoder.TEMPLATE_ID) {
+                ask.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final InstrumentSlot instrument = instruments.get(ask.instrumentId());
+                if (instrument != null) {
+                    instrument.marketDataService.onAskBook(ask);
+                    runAll(instrument);
+                }
+            } else if (templateId == BidBookUpdateDecoder.TEMPLATE_ID) {
+                bid.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final InstrumentSlot instrument = instruments.get(bid.instrumentId());
+                if (instrument != null) {
+                    instrument.marketDataService.onBidBook(bid);
+                    runAll(instrument);
+                }
+            } else if (templateId == BookDeltaDecoder.TEMPLATE_ID) {
+                delta.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final InstrumentSlot instrument = instruments.get(delta.instrumentId());
+                if (instrument != null) {
+                    instrument.marketDataService.onBookDelta(delta);
+                    runAll(instrument);
+                }
+            } else if (templateId == TradeDecoder.TEMPLATE_ID) {
+                trade.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final InstrumentSlot instrument = instruments.get(trade.instrumentId());
+                if (instrument != null) {
+                    instrument.marketDataService.onTrade(trade);
+                    runAll(instrument);
+                }
+            }
+        } else if (schemaId == CreateOrderDecoder.SCHEMA_ID) {
+            if (templateId == CreateOrderDecoder.TEMPLATE_ID) {
+                createOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByParentOrderId.get(createOrder.parentOrderId());
+                if (algo != null) {
+                    algosByChildOrderId.put(createOrder.orderId(), algo);
+                    algo.orderService.onCreateOrder(createOrder);
+                    algo.positionService.onCreateOrder(createOrder);
+                    queue(algo);
+                }
+            } else if (templateId == CancelOrderDecoder.TEMPLATE_ID) {
+                cancelOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(cancelOrder.orderId());
+                if (algo != null) {
+                    algo.orderService.onCancelOrder(cancelOrder);
+                    algo.positionService.onCancelOrder(cancelOrder);
+                    queue(algo);
+                }
+            } else if (templateId == AmendAckedOrderDecoder.TEMPLATE_ID) {
+                amendAckedOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(amendAckedOrder.orderId());
+                if (algo != null) {
+                    algo.orderService.onAmendAckedOrder(amendAckedOrder);
+                    algo.positionService.onAmendAckedOrder(amendAckedOrder);
+                    queue(algo);
+                }
+            } else if (templateId == AmendRejectedOrderDecoder.TEMPLATE_ID) {
+                amendRejectedOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(amendRejectedOrder.orderId());
+                if (algo != null) {
+                    algo.orderService.onAmendRejectedOrder(amendRejectedOrder);
+                    queue(algo);
+                }
+            } else if (templateId == AckedOrderDecoder.TEMPLATE_ID) {
+                ackedOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(ackedOrder.orderId());
+                if (algo != null) {
+                    algo.orderService.onAckedOrder(ackedOrder);
+                    queue(algo);
+                }
+            } else if (templateId == CancelAckedOrderDecoder.TEMPLATE_ID) {
+                cancelAckedOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(cancelAckedOrder.orderId());
+                if (algo != null) {
+                    algo.orderService.onCancelAckedOrder(cancelAckedOrder);
+                    algo.positionService.onCancelAckedOrder(cancelAckedOrder);
+                    queue(algo);
+                }
+            } else if (templateId == PendingOrderDecoder.TEMPLATE_ID) {
+                pendingOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(pendingOrder.orderId());
+                if (algo != null) {
+                    algo.orderService.onPendingOrder(pendingOrder);
+                    queue(algo);
+                }
+            } else if (templateId == PartialFillOrderDecoder.TEMPLATE_ID) {
+                partialFill.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(partialFill.orderId());
+                if (algo != null) {
+                    algo.orderService.onPartialFill(partialFill);
+                    algo.positionService.onPartialFill(partialFill);
+                    queue(algo);
+                }
+            } else if (templateId == FillOrderDecoder.TEMPLATE_ID) {
+                fill.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final AlgoSlot algo = algosByChildOrderId.get(fill.orderId());
+                if (algo != null) {
+                    algo.orderService.onFill(fill);
+                    algo.positionService.onFill(fill);
+                    queue(algo);
+                }
+            }
+        }
+    }
+
+    private void runAll(final InstrumentSlot instrument) {
+        instrument.runTrigger.hasRun();
+        final List<AlgoSlot> algos = instrument.algos;
+        for (int i = 0; i < algos.size(); i++) {
+            final AlgoSlot algo = algos.get(i);
+            algo.runTrigger.triggerRun();
+            queue(algo);
+        }
+    }
+
+    private void queue(final AlgoSlot algo) {
+        if (!algo.queued && algo.runTrigger.shouldRun()) {
+            algo.queued = true;
+            runQueue.addLast(algo);
+        }
+    }
+
+    // actions are dispatched synchronously, so this can be re-entered from an algo's own action
+    private void runQueuedAlgos() {
+        AlgoSlot algo;
+        while ((algo = runQueue.pollFirst()) != null) {
+            algo.queued = false;
+            if (algo.runTrigger.shouldRun()) {
+                run(algo);
+            }
+        }
+    }
+
+    private void run(final AlgoSlot algo) {
+        algo.logic.evaluate(algo.state, algo.actions);
+
+        algo.runTrigger.hasRun();
+
+        algo.actioner.processActions(algo.actions);
+    }
+
+    private static final class InstrumentSlot {
+        private final long instrumentId;
+        private final RunTrigger runTrigger = new RunTrigger();
+        private final MarketDataService marketDataService = new MarketDataService(runTrigger);
+        private final List<AlgoSlot> algos = new ArrayList<>();
+
+        private InstrumentSlot(final long instrumentId) {
+            this.instrumentId = instrumentId;
+        }
+    }
+
+    private final class AlgoSlot {
+        private final InstrumentSlot instrument;
+        private final AlgoLogic logic;
+        private final RunTrigger runTrigger = new RunTrigger();
+        private final OrderService orderService = new OrderService(runTrigger);
+        private final PositionService positionService;
+        private final ActionList actions = new ActionList();
+        private final Actioner actioner;
+        private final SimpleAlgoState state;
+        private boolean queued = false;
+
+        private AlgoSlot(final long parentOrderId, final InstrumentSlot instrument, final AlgoLogic logic) {
+            this.instrument = instrument;
+            this.logic = logic;
+            this.positionService = new PositionService(instrument.marketDataService);
+            this.actioner = new Actioner(new ParentOrderSequencer(sequencer, parentOrderId, instrument.instrumentId));
+            final ScopedTimerService timers = new ScopedTimerService(timerWheel, this::onTimerFired);
+            this.state = new SimpleAlgoStateImpl(instrument.marketDataService, orderService, timers, positionService);
+        }
+
+        private void onTimerFired() {
+            runTrigger.triggerRun();
+            queue(this);
+        }
+    }
+}
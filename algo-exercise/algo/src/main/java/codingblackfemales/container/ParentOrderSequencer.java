@@ -0,0 +1,50 @@
+package codingblackfemales.container;
+
+import codingblackfemales.sequencer.Sequencer;
+import messages.order.CreateOrderEncoder;
+import messages.order.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sits between an algo's {@link Actioner} and the real sequencer, stamping the parent order id and instrument on
+ * every CreateOrder the algo sends, so the resulting child order can be routed back to the algo that created it.
+ * Other commands are passed through untouched.
+ */
+public class ParentOrderSequencer implements Sequencer {
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final UnsafeBuffer stampedBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+    private final Sequencer sequencer;
+    private final long parentOrderId;
+    private final long instrumentId;
+
+    public ParentOrderSequencer(final Sequencer sequencer, final long parentOrderId, final long instrumentId) {
+        this.sequencer = sequencer;
+        this.parentOrderId = parentOrderId;
+        this.instrumentId = instrumentId;
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        headerDecoder.wrap(buffer, 0);
+
+        if (headerDecoder.schemaId() == CreateOrderEncoder.SCHEMA_ID && headerDecoder.templateId() == CreateOrderEncoder.TEMPLATE_ID) {
+            final int bodyOffset = headerDecoder.encodedLength();
+            final int length = bodyOffset + headerDecoder.blockLength();
+            stampedBuffer.putBytes(0, buffer, 0, length);
+            stampedBuffer.putLong(bodyOffset + CreateOrderEncoder.instrumentIdEncodingOffset(), instrumentId, CreateOrderEncoder.BYTE_ORDER);
+            stampedBuffer.putLong(bodyOffset + CreateOrderEncoder.parentOrderIdEncodingOffset(), parentOrderId, CreateOrderEncoder.BYTE_ORDER);
+            sequencer.onCommand(stampedBuffer);
+        } else {
+            sequencer.onCommand(buffer);
+        }
+    }
+
+    public long getParentOrderId() {
+        return parentOrderId;
+    }
+}
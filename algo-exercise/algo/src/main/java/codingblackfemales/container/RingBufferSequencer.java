@@ -0,0 +1,36 @@
+package codingblackfemales.container;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.util.MessageLength;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+
+/**
+ * A {@link Sequencer} for algos running off the sequencer thread. Commands are copied into a ring buffer and
+ * sequenced later, when the sequencer thread drains it. If the ring buffer is full the caller idles until there is
+ * space, so size the ring buffer for the largest burst of actions expected. The sequencer thread keeps draining it even
+ * while it waits on the caller's own inbound ring, see {@link ShardedAlgoRunner}.
+ */
+public class RingBufferSequencer implements Sequencer {
+
+    public static final int COMMAND_MSG_TYPE_ID = 1;
+
+    private final MessageLength messageLength = new MessageLength();
+    private final RingBuffer ringBuffer;
+    private final IdleStrategy idleStrategy;
+
+    public RingBufferSequencer(final RingBuffer ringBuffer, final IdleStrategy idleStrategy) {
+        this.ringBuffer = ringBuffer;
+        this.idleStrategy = idleStrategy;
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        final int length = messageLength.of(buffer);
+        idleStrategy.reset();
+        while (!ringBuffer.write(COMMAND_MSG_TYPE_ID, buffer, 0, length)) {
+            idleStrategy.idle();
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package codingblackfemales.container;
+
+import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.util.MessageLength;
+import codingblackfemales.sotw.SimpleAlgoState;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.TradeDecoder;
+import messages.order.*;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Hashing;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.*;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs algos on N worker threads, with instruments hashed onto shards.
+ *
+ * The runner is added to the network as a {@link Consumer} and runs on the sequencer thread: each sequenced message
+ * is copied to the inbound ring buffer of the shard owning its instrument (order events follow the shard their child
+ * order was created on). Each {@link AlgoShard} runs its own {@link MultiAlgoContainer} on its own thread and writes
+ * its actions to a shared command ring buffer, which the sequencer thread drains into the one {@link Sequencer} via
+ * {@link #drainCommands()}, so every message is still sequenced in a single order.
+ *
+ * A child order is forgotten once it is done, i.e. filled or cancelled, so the routing table only holds live orders.
+ *
+ * A full ring buffer blocks its writer, so rings should be sized for the largest expected burst. A shard may itself be
+ * blocked on a full command ring, so while the sequencer thread waits for space in a shard's inbound ring it keeps
+ * draining the command ring. If the shard still takes nothing off its ring for the stall timeout, e.g. its algo is
+ * stuck, or the wait is inside {@link #drainCommands()} where the command ring cannot be drained again, the message
+ * fails with an {@link IllegalStateException} rather than the two threads waiting on each other forever.
+ */
+public class ShardedAlgoRunner implements Consumer, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedAlgoRunner.class);
+
+    public static final int DEFAULT_RING_CAPACITY = 1 << 20;
+    public static final long DEFAULT_STALL_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MESSAGE_MSG_TYPE_ID = 1;
+    private static final int NO_SHARD = -1;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+    private final TradeDecoder trade = new TradeDecoder();
+    private final CreateOrderDecoder createOrder = new CreateOrderDecoder();
+    private final MessageLength messageLength = new MessageLength();
+
+    private final Sequencer sequencer;
+    private final AlgoShard[] shards;
+    private final RingBuffer[] inbound;
+    private final RingBuffer commands;
+    private final IdleStrategy sequencerIdleStrategy = new BusySpinIdleStrategy();
+    private final Supplier<IdleStrategy> idleStrategies;
+    private final AgentRunner[] runners;
+    private final long stallTimeoutNanos;
+
+    private final Long2LongHashMap shardByChildOrderId = new Long2LongHashMap(NO_SHARD);
+    // to tell a fill which completes the order from a partial one
+    private final Long2LongHashMap quantityByChildOrderId = new Long2LongHashMap(0);
+    private final Long2LongHashMap filledByChildOrderId = new Long2LongHashMap(0);
+    private final UnsafeBuffer commandView = new UnsafeBuffer(0, 0);
+    private final MessageHandler onCommand = this::onCommand;
+
+    private boolean started = false;
+    // a command ring read cannot be nested, its records are only released once the outer read returns
+    private boolean draining = false;
+
+    public ShardedAlgoRunner(final Sequencer sequencer, final int shardCount) {
+        this(sequencer, shardCount, DEFAULT_RING_CAPACITY, BackoffIdleStrategy::new, SystemEpochClock.INSTANCE);
+    }
+
+    public ShardedAlgoRunner(final Sequencer sequencer,
+                             final int shardCount,
+                             final int ringCapacity,
+                             final Supplier<IdleStrategy> idleStrategies,
+                             final EpochClock clock) {
+        this(sequencer, shardCount, ringCapacity, idleStrategies, clock, DEFAULT_STALL_TIMEOUT_NANOS);
+    }
+
+    /**
+     * @param stallTimeoutNanos how long the sequencer thread waits for a shard which takes nothing off its full ring.
+     */
+    public ShardedAlgoRunner(final Sequencer sequencer,
+                             final int shardCount,
+                             final int ringCapacity,
+                             final Supplier<IdleStrategy> idleStrategies,
+                             final EpochClock clock,
+                             final long stallTimeoutNanos) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        this.sequencer = sequencer;
+        this.idleStrategies = idleStrategies;
+        this.stallTimeoutNanos = stallTimeoutNanos;
+        this.shards = new AlgoShard[shardCount];
+        this.inbound = new RingBuffer[shardCount];
+        this.runners = new AgentRunner[shardCount];
+        this.commands = new ManyToOneRingBuffer(ringBuffer(ringCapacity));
+
+        for (int i = 0; i < shardCount; i++) {
+            inbound[i] = new OneToOneRingBuffer(ringBuffer(ringCapacity));
+            shards[i] = new AlgoShard(i, inbound[i], commands, idleStrategies.get(), clock);
+        }
+    }
+
+    private static UnsafeBuffer ringBuffer(final int capacity) {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH));
+    }
+
+    /**
+     * Add an algo to the shard owning its instrument. Algos must be added before {@link #start()}.
+     */
+    public SimpleAlgoState addAlgo(final long parentOrderId, final long instrumentId, final AlgoLogic logic) {
+        if (started) {
+            throw new IllegalStateException("Algos must be added before the runner is started");
+        }
+        return shards[shardFor(instrumentId)].addAlgo(parentOrderId, instrumentId, logic);
+    }
+
+    public int shardFor(final long instrumentId) {
+        return Math.floorMod(Hashing.hash(instrumentId), shards.length);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public AlgoShard getShard(final int shardId) {
+        return shards[shardId];
+    }
+
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        for (int i = 0; i < shards.length; i++) {
+            runners[i] = new AgentRunner(idleStrategies.get(), this::onError, null, shards[i]);
+            AgentRunner.startOnThread(runners[i]);
+        }
+        logger.info("[SHARDED] Started " + shards.length + " algo shards");
+    }
+
+    /**
+     * Sequence the actions the shards have written since the last call. Call from the sequencer thread.
+     *
+     * @return the number of commands sequenced.
+     */
+    public int drainCommands() {
+        if (draining) {
+            return 0;
+        }
+        draining = true;
+        try {
+            return commands.read(onCommand);
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void onCommand(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        commandView.wrap(buffer, index, length);
+        sequencer.onCommand(commandView);
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        final int shard = route(buffer);
+        if (shard == NO_SHARD) {
+            return;
+        }
+
+        final int length = messageLength.of(buffer);
+        if (!inbound[shard].write(MESSAGE_MSG_TYPE_ID, buffer, 0, length)) {
+            waitForSpace(shard, buffer, length);
+        }
+    }
+
+    private void waitForSpace(final int shard, final DirectBuffer buffer, final int length) {
+        final RingBuffer ring = inbound[shard];
+        long lastProgress = System.nanoTime();
+        long lastConsumed = ring.consumerPosition();
+        sequencerIdleStrategy.reset();
+        while (!ring.write(MESSAGE_MSG_TYPE_ID, buffer, 0, length)) {
+            // the shard may be waiting for space in the command ring before it can take anything more off its own
+            final int drained = drainCommands();
+            final long now = System.nanoTime();
+            final long consumed = ring.consumerPosition();
+            if (consumed != lastConsumed) {
+                lastConsumed = consumed;
+                lastProgress = now;
+            } else if (now - lastProgress > stallTimeoutNanos) {
+                logger.error("[SHARDED] Shard " + shard + " stalled, nothing taken off its ring for " + TimeUnit.NANOSECONDS.toMillis(now - lastProgress) + "ms");
+                throw new IllegalStateException("algo shard " + shard + " stalled, message not routed");
+            }
+            sequencerIdleStrategy.idle(drained);
+        }
+    }
+
+    private int route(final DirectBuffer buffer) {
+        header.wrap(buffer, 0);
+
+        final int schemaId = header.schemaId();
+        final int templateId = header.templateId();
+        final int actingBlockLength = header.blockLength();
+        final int actingVersion = header.version();
+        final int bufferOffset = header.encodedLength();
+
+        if (schemaId == BookUpdateDecoder.SCHEMA_ID) {
+            if (templateId == BookUpdateDecoder.TEMPLATE_ID) {
+                return shardFor(book.wrap(buffer, bufferOffset, actingBlockLength, actingVersion).instrumentId());
+            } else if (templateId == AskBookUpdateDecoder.TEMPLATE_ID) {
+                return shardFor(ask.wrap(buffer, bufferOffset, actingBlockLength, actingVersion).instrumentId());
+            } else if (templateId == BidBookUpdateDecoder.TEMPLATE_ID) {
+                return shardFor(bid.wrap(buffer, bufferOffset, actingBlockLength, actingVersion).instrumentId());
+            } else if (templateId == BookDeltaDecoder.TEMPLATE_ID) {
+                return shardFor(delta.wrap(buffer, bufferOffset, actingBlockLength, actingVersion).instrumentId());
+            } else if (templateId == TradeDecoder.TEMPLATE_ID) {
+                return shardFor(trade.wrap(buffer, bufferOffset, actingBlockLength, actingVersion).instrumentId());
+            }
+        } else if (schemaId == CreateOrderDecoder.SCHEMA_ID) {
+            if (templateId == CreateOrderDecoder.TEMPLATE_ID) {
+                createOrder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+                final int shard = shardFor(createOrder.instrumentId());
+                shardByChildOrderId.put(createOrder.orderId(), shard);
+                quantityByChildOrderId.put(createOrder.orderId(), createOrder.quantity());
+                return shard;
+            }
+            final int orderIdOffset = orderIdOffset(templateId);
+            if (orderIdOffset >= 0) {
+                final long orderId = buffer.getLong(bufferOffset + orderIdOffset, CreateOrderDecoder.BYTE_ORDER);
+                final int shard = (int) shardByChildOrderId.get(orderId);
+                if (shard != NO_SHARD) {
+                    trackChildOrder(templateId, buffer, bufferOffset, orderId);
+                }
+                return shard;
+            }
+        }
+        return NO_SHARD;
+    }
+
+    /**
+     * Keep the quantity filled so far, forgetting the order once it is filled or cancelled. The message is still routed
+     * to the order's shard, as this is called after its shard is found.
+     */
+    private void trackChildOrder(final int templateId, final DirectBuffer buffer, final int bufferOffset, final long orderId) {
+        switch (templateId) {
+            case PartialFillOrderDecoder.TEMPLATE_ID:
+                onChildFill(orderId, buffer.getLong(bufferOffset + PartialFillOrderDecoder.quantityEncodingOffset(), PartialFillOrderDecoder.BYTE_ORDER));
+                break;
+            case FillOrderDecoder.TEMPLATE_ID:
+                onChildFill(orderId, buffer.getLong(bufferOffset + FillOrderDecoder.quantityEncodingOffset(), FillOrderDecoder.BYTE_ORDER));
+                break;
+            case AmendAckedOrderDecoder.TEMPLATE_ID:
+                quantityByChildOrderId.put(orderId, buffer.getLong(bufferOffset + AmendAckedOrderDecoder.quantityEncodingOffset(), AmendAckedOrderDecoder.BYTE_ORDER));
+                forgetIfFilled(orderId);
+                break;
+            case CancelOrderDecoder.TEMPLATE_ID:
+            case CancelAckedOrderDecoder.TEMPLATE_ID:
+                forget(orderId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onChildFill(final long orderId, final long quantity) {
+        filledByChildOrderId.put(orderId, filledByChildOrderId.get(orderId) + quantity);
+        forgetIfFilled(orderId);
+    }
+
+    private void forgetIfFilled(final long orderId) {
+        if (filledByChildOrderId.get(orderId) >= quantityByChildOrderId.get(orderId)) {
+            forget(orderId);
+        }
+    }
+
+    private void forget(final long orderId) {
+        shardByChildOrderId.remove(orderId);
+        quantityByChildOrderId.remove(orderId);
+        filledByChildOrderId.remove(orderId);
+    }
+
+    /**
+     * @return the number of live child orders the runner is routing events for.
+     */
+    public int getChildOrderCount() {
+        return shardByChildOrderId.size();
+    }
+
+    private static int orderIdOffset(final int templateId) {
+        switch (templateId) {
+            case CancelOrderDecoder.TEMPLATE_ID:
+                return CancelOrderDecoder.orderIdEncodingOffset();
+            case AmendOrderDecoder.TEMPLATE_ID:
+                return AmendOrderDecoder.orderIdEncodingOffset();
+            case AmendAckedOrderDecoder.TEMPLATE_ID:
+                return AmendAckedOrderDecoder.orderIdEncodingOffset();
+            case AmendRejectedOrderDecoder.TEMPLATE_ID:
+                return AmendRejectedOrderDecoder.orderIdEncodingOffset();
+            case AckedOrderDecoder.TEMPLATE_ID:
+                return AckedOrderDecoder.orderIdEncodingOffset();
+            case CancelAckedOrderDecoder.TEMPLATE_ID:
+                return CancelAckedOrderDecoder.orderIdEncodingOffset();
+            case PendingOrderDecoder.TEMPLATE_ID:
+                return PendingOrderDecoder.orderIdEncodingOffset();
+            case PartialFillOrderDecoder.TEMPLATE_ID:
+                return PartialFillOrderDecoder.orderIdEncodingOffset();
+            case FillOrderDecoder.TEMPLATE_ID:
+                return FillOrderDecoder.orderIdEncodingOffset();
+            default:
+                return -1;
+        }
+    }
+
+    private void onError(final Throwable throwable) {
+        logger.error("[SHARDED] Error in algo shard", throwable);
+    }
+
+    @Override
+    public void close() {
+        CloseHelper.closeAll(runners);
+    }
+}
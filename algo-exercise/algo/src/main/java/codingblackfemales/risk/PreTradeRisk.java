@@ -0,0 +1,179 @@
+package codingblackfemales.risk;
+
+import codingblackfemales.action.AmendChildOrder;
+import codingblackfemales.action.CreateChildOrder;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import codingblackfemales.service.PositionService;
+import messages.order.Side;
+import org.agrona.concurrent.NanoClock;
+import org.agrona.concurrent.SystemNanoClock;
+
+/**
+ * Checks each order an algo creates against its {@link RiskLimits} before the {@link codingblackfemales.container.Actioner}
+ * sends it: order rate, open orders, position and a fat-finger band around the touch. Amends are checked the same way,
+ * except they do not open another order and only the quantity they add counts towards the position. Cancels are never
+ * stopped. The position checked is the worst case, what is filled plus everything still open on the order's side plus
+ * the order.
+ *
+ * Every check reads state the services already keep up to date (open order count, position, best prices) and compares
+ * primitives, so a check costs nanoseconds and allocates nothing. The order rate is a token bucket holding up to one
+ * second of orders, refilled continuously.
+ *
+ * Orders which passed but have not reached the services yet, e.g. the earlier orders of a batch still being built,
+ * count as open until {@link #clearPending()} is called once they have been sent.
+ */
+public class PreTradeRisk {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long BPS = 10_000L;
+
+    private final RiskLimits limits;
+    private final MarketDataService marketDataService;
+    private final OrderService orderService;
+    private final PositionService positionService;
+    private final NanoClock clock;
+
+    // in order-nanos: one order is worth NANOS_PER_SECOND, refilled at maxOrdersPerSecond per nanosecond
+    private final long bucketCapacity;
+    private long bucket;
+    private long lastRefillNanos;
+
+    // passed but not yet seen by the order and position services
+    private int pendingOrders;
+    private long pendingBuyQuantity;
+    private long pendingSellQuantity;
+
+    private final long[] rejects = new long[RiskReject.COUNT];
+
+    public PreTradeRisk(final RiskLimits limits,
+                        final MarketDataService marketDataService,
+                        final OrderService orderService,
+                        final PositionService positionService) {
+        this(limits, marketDataService, orderService, positionService, SystemNanoClock.INSTANCE);
+    }
+
+    public PreTradeRisk(final RiskLimits limits,
+                        final MarketDataService marketDataService,
+                        final OrderService orderService,
+                        final PositionService positionService,
+                        final NanoClock clock) {
+        this.limits = limits;
+        this.marketDataService = marketDataService;
+        this.orderService = orderService;
+        this.positionService = positionService;
+        this.clock = clock;
+        this.bucketCapacity = limits.getMaxOrdersPerSecond() * NANOS_PER_SECOND;
+        this.bucket = bucketCapacity;
+        this.lastRefillNanos = clock.nanoTime();
+    }
+
+    /**
+     * @return {@link RiskReject#NONE} if the order may be sent, otherwise why not. An order which passes uses up one
+     * order of the rate limit and is pending until {@link #clearPending()}.
+     */
+    public int check(final CreateChildOrder order) {
+        int reject = rateBreach();
+        if (reject == RiskReject.NONE && orderService.getOpenOrderCount() + pendingOrders >= limits.getMaxOpenOrders()) {
+            reject = RiskReject.OPEN_ORDERS;
+        }
+        if (reject == RiskReject.NONE) {
+            reject = positionAndBandBreach(order.getSide(), order.getQuantity(), order.getPrice());
+        }
+        if (reject == RiskReject.NONE) {
+            pendingOrders++;
+        }
+        return passOrReject(reject, order.getSide(), order.getQuantity());
+    }
+
+    /**
+     * @return {@link RiskReject#NONE} if the amend may be sent, otherwise why not. An amend which passes uses up one
+     * order of the rate limit and any quantity it adds is pending until {@link #clearPending()}.
+     */
+    public int check(final AmendChildOrder amend) {
+        final Side side = amend.getOrder().getSide();
+        // the new quantity is the order's total, so only what it adds to the order can fill on top of the rest
+        final long added = Math.max(0, amend.getQuantity() - amend.getOrder().getQuantity());
+        int reject = rateBreach();
+        if (reject == RiskReject.NONE) {
+            reject = positionAndBandBreach(side, added, amend.getPrice());
+        }
+        return passOrReject(reject, side, added);
+    }
+
+    private int passOrReject(final int reject, final Side side, final long quantity) {
+        if (reject == RiskReject.NONE) {
+            bucket -= NANOS_PER_SECOND;
+            if (side == Side.BUY) {
+                pendingBuyQuantity += quantity;
+            } else {
+                pendingSellQuantity += quantity;
+            }
+        }
+        rejects[reject]++;
+        return reject;
+    }
+
+    /**
+     * The orders which passed have been sent, so the services now count them.
+     */
+    public void clearPending() {
+        pendingOrders = 0;
+        pendingBuyQuantity = 0;
+        pendingSellQuantity = 0;
+    }
+
+    private int rateBreach() {
+        refill();
+        return bucket < NANOS_PER_SECOND ? RiskReject.ORDER_RATE : RiskReject.NONE;
+    }
+
+    private int positionAndBandBreach(final Side side, final long quantity, final long price) {
+        // the worst case: every order open on the same side fills, as well as this one
+        final boolean buy = side == Side.BUY;
+        if (buy) {
+            if (positionService.getNetQuantity() + positionService.getOpenBuyQuantity() + pendingBuyQuantity + quantity > limits.getMaxPosition()) {
+                return RiskReject.POSITION;
+            }
+        } else if (positionService.getNetQuantity() - positionService.getOpenSellQuantity() - pendingSellQuantity - quantity < -limits.getMaxPosition()) {
+            return RiskReject.POSITION;
+        }
+
+        // the band is measured from the far touch: a buy is compared to the best ask, a sell to the best bid
+        if (buy) {
+            if (marketDataService.getAskLength() == 0) {
+                return RiskReject.NO_MARKET;
+            }
+            if (price * BPS > marketDataService.getAskPrices()[0] * (BPS + limits.getPriceBandBps())) {
+                return RiskReject.PRICE_BAND;
+            }
+        } else {
+            if (marketDataService.getBidLength() == 0) {
+                return RiskReject.NO_MARKET;
+            }
+            if (price * BPS < marketDataService.getBidPrices()[0] * (BPS - limits.getPriceBandBps())) {
+                return RiskReject.PRICE_BAND;
+            }
+        }
+        return RiskReject.NONE;
+    }
+
+    private void refill() {
+        final long now = clock.nanoTime();
+        // cap the elapsed time at a second, after which the bucket is full anyway, so the product cannot overflow
+        final long elapsed = Math.min(now - lastRefillNanos, NANOS_PER_SECOND);
+        lastRefillNanos = now;
+        bucket = Math.min(bucketCapacity, bucket + elapsed * limits.getMaxOrdersPerSecond());
+    }
+
+    public RiskLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * How many orders were stopped for the reason, or passed for {@link RiskReject#NONE}.
+     */
+    public long getCount(final int reject) {
+        return rejects[reject];
+    }
+}
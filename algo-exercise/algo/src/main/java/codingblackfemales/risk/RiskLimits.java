@@ -0,0 +1,50 @@
+package codingblackfemales.risk;
+
+/**
+ * The limits {@link PreTradeRisk} holds an algo to.
+ */
+public class RiskLimits {
+
+    private final int maxOrdersPerSecond;
+    private final int maxOpenOrders;
+    private final long maxPosition;
+    private final long priceBandBps;
+
+    /**
+     * @param maxOrdersPerSecond orders created per second, which may also all be sent in one burst.
+     * @param maxOpenOrders child orders neither cancelled nor fully filled.
+     * @param maxPosition absolute net quantity the algo may hold once the order and every other order open on its side fill.
+     * @param priceBandBps how far, in basis points, a buy may be priced above the best ask or a sell below the best bid.
+     */
+    public RiskLimits(final int maxOrdersPerSecond, final int maxOpenOrders, final long maxPosition, final long priceBandBps) {
+        if (maxOrdersPerSecond <= 0) {
+            throw new IllegalArgumentException("maxOrdersPerSecond must be positive: " + maxOrdersPerSecond);
+        }
+        this.maxOrdersPerSecond = maxOrdersPerSecond;
+        this.maxOpenOrders = maxOpenOrders;
+        this.maxPosition = maxPosition;
+        this.priceBandBps = priceBandBps;
+    }
+
+    public int getMaxOrdersPerSecond() {
+        return maxOrdersPerSecond;
+    }
+
+    public int getMaxOpenOrders() {
+        return maxOpenOrders;
+    }
+
+    public long getMaxPosition() {
+        return maxPosition;
+    }
+
+    public long getPriceBandBps() {
+        return priceBandBps;
+    }
+
+    @Override
+    public String toString() {
+        return "RiskLimits(maxOrdersPerSecond=" + maxOrdersPerSecond + ",maxOpenOrders=" + maxOpenOrders
+                + ",maxPosition=" + maxPosition + ",priceBandBps=" + priceBandBps + ")";
+    }
+}
@@ -0,0 +1,35 @@
+package codingblackfemales.risk;
+
+/**
+ * Why {@link PreTradeRisk} stopped an order.
+ */
+public class RiskReject {
+
+    public static final int NONE = 0;
+    public static final int ORDER_RATE = 1;
+    public static final int OPEN_ORDERS = 2;
+    public static final int POSITION = 3;
+    public static final int PRICE_BAND = 4;
+    public static final int NO_MARKET = 5;
+
+    static final int COUNT = 6;
+
+    public static String name(final int reject) {
+        switch (reject) {
+            case NONE:
+                return "NONE";
+            case ORDER_RATE:
+                return "ORDER_RATE";
+            case OPEN_ORDERS:
+                return "OPEN_ORDERS";
+            case POSITION:
+                return "POSITION";
+            case PRICE_BAND:
+                return "PRICE_BAND";
+            case NO_MARKET:
+                return "NO_MARKET";
+            default:
+                return "UNKNOWN(" + reject + ")";
+        }
+    }
+}
@@ -2,15 +2,29 @@ package codingblackfemales.service;
 
 import codingblackfemales.container.RunTrigger;
 import codingblackfemales.sequencer.event.MarketDataEventListener;
+import codingblackfemales.sequencer.snapshot.SnapshotReader;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import codingblackfemales.sequencer.snapshot.Snapshottable;
+import codingblackfemales.sequencer.util.BookLevels;
 import codingblackfemales.sotw.marketdata.AskLevel;
 import codingblackfemales.sotw.marketdata.BidLevel;
+import codingblackfemales.sotw.marketdata.BookSignals;
+import codingblackfemales.sotw.marketdata.TradeTape;
+import messages.marketdata.AggressorSide;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookSide;
 import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.DeltaAction;
+import messages.marketdata.InstrumentStatus;
+import messages.marketdata.TradeDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class MarketDataService extends MarketDataEventListener {
+import java.util.Arrays;
+
+public class MarketDataService extends MarketDataEventListener implements Snapshottable {
 
     private static final Logger logger = LoggerFactory.getLogger(MarketDataService.class);
 
@@ -18,10 +32,20 @@ public class MarketDataService extends MarketDataEventListener {
     private int askLength = 0;
 
     private long instrumentId;
-    private final BidLevel[] bidBook = new BidLevel[15];
-    private final AskLevel[] askBook = new AskLevel[15];
+    private InstrumentStatus instrumentStatus = InstrumentStatus.NULL_VAL;
+    private BidLevel[] bidBook = new BidLevel[15];
+    private AskLevel[] askBook = new AskLevel[15];
     private final RunTrigger runTrigger;
 
+    // the same book as primitive arrays, best level first, for BookAnalytics to scan without chasing level objects
+    private long[] bidPrices = new long[15];
+    private long[] bidQuantities = new long[15];
+    private long[] askPrices = new long[15];
+    private long[] askQuantities = new long[15];
+
+    private final BookSignals signals = new BookSignals();
+    private final TradeTape tradeTape = new TradeTape();
+
     public MarketDataService(RunTrigger runTrigger) {
         this.runTrigger = runTrigger;
     }
@@ -44,6 +68,86 @@ public class MarketDataService extends MarketDataEventListener {
 
     public long getInstrumentId(){return instrumentId;}
 
+    /**
+     * The trading phase from the last full book or delta, NULL_VAL until one says. In an auction the book can be
+     * crossed and nothing trades until it uncrosses.
+     */
+    public InstrumentStatus getInstrumentStatus(){
+        return instrumentStatus;
+    }
+
+    /**
+     * Bid prices best first, only the first {@link #getBidLength()} are valid. The array is reused, do not modify or keep it.
+     */
+    public long[] getBidPrices(){
+        return bidPrices;
+    }
+
+    public long[] getBidQuantities(){
+        return bidQuantities;
+    }
+
+    /**
+     * Ask prices best first, only the first {@link #getAskLength()} are valid. The array is reused, do not modify or keep it.
+     */
+    public long[] getAskPrices(){
+        return askPrices;
+    }
+
+    public long[] getAskQuantities(){
+        return askQuantities;
+    }
+
+    public BookSignals getSignals(){
+        return signals;
+    }
+
+    public TradeTape getTradeTape(){
+        return tradeTape;
+    }
+
+    private void updateSignals(){
+        if (bidLength > 0 && askLength > 0) {
+            signals.onTopOfBook(bidPrices[0], bidQuantities[0], askPrices[0], askQuantities[0]);
+        }
+    }
+
+    private void ensureBidCapacity(int levels){
+        if (levels > bidPrices.length) {
+            final int capacity = bidPrices.length * 2;
+            bidBook = Arrays.copyOf(bidBook, capacity);
+            bidPrices = Arrays.copyOf(bidPrices, capacity);
+            bidQuantities = Arrays.copyOf(bidQuantities, capacity);
+        }
+    }
+
+    private void ensureAskCapacity(int levels){
+        if (levels > askPrices.length) {
+            final int capacity = askPrices.length * 2;
+            askBook = Arrays.copyOf(askBook, capacity);
+            askPrices = Arrays.copyOf(askPrices, capacity);
+            askQuantities = Arrays.copyOf(askQuantities, capacity);
+        }
+    }
+
+    private void setBid(int level, long price, long quantity){
+        ensureBidCapacity(level + 1);
+        bidBook[level] = new BidLevel();
+        bidBook[level].setPrice(price);
+        bidBook[level].setQuantity(quantity);
+        bidPrices[level] = price;
+        bidQuantities[level] = quantity;
+    }
+
+    private void setAsk(int level, long price, long quantity){
+        ensureAskCapacity(level + 1);
+        askBook[level] = new AskLevel();
+        askBook[level].setPrice(price);
+        askBook[level].setQuantity(quantity);
+        askPrices[level] = price;
+        askQuantities[level] = quantity;
+    }
+
     private static void empty(BidLevel[] levels){
         for (int i=0; i<levels.length; i++) {
             levels[i] = null;
@@ -62,15 +166,15 @@ public class MarketDataService extends MarketDataEventListener {
         int bookLevel = 0;
 
         instrumentId = bookUpdate.instrumentId();
+        instrumentStatus = bookUpdate.instrumentStatus();
 
         empty(bidBook);
+        bidLength = 0;
 
         for(BookUpdateDecoder.BidBookDecoder decoder : bookUpdate.bidBook()){
             final long price = decoder.price();
             final long quantity = decoder.size();
-            bidBook[bookLevel] = new BidLevel();
-            bidBook[bookLevel].setPrice(price);
-            bidBook[bookLevel].setQuantity(quantity);
+            setBid(bookLevel, price, quantity);
             logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
 
             bookLevel+= 1;
@@ -79,6 +183,7 @@ public class MarketDataService extends MarketDataEventListener {
         }
 
         empty(askBook);
+        askLength = 0;
 
         bookLevel = 0;
 
@@ -86,9 +191,7 @@ public class MarketDataService extends MarketDataEventListener {
             final long price = decoder.price();
             final long quantity = decoder.size();
 
-            askBook[bookLevel] = new AskLevel();
-            askBook[bookLevel].setPrice(price);
-            askBook[bookLevel].setQuantity(quantity);
+            setAsk(bookLevel, price, quantity);
 
             logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
 
@@ -96,6 +199,7 @@ public class MarketDataService extends MarketDataEventListener {
             askLength = bookLevel;
         }
 
+        updateSignals();
         runTrigger.triggerRun();
     }
 
@@ -105,15 +209,14 @@ public class MarketDataService extends MarketDataEventListener {
         instrumentId = askBookDec.instrumentId();
 
         empty(askBook);
+        askLength = 0;
 
         int bookLevel = 0;
 
         for(AskBookUpdateDecoder.AskBookDecoder decoder : askBookDec.askBook()){
             final long price = decoder.price();
             final long quantity = decoder.size();
-            askBook[bookLevel] = new AskLevel();
-            askBook[bookLevel].setPrice(price);
-            askBook[bookLevel].setQuantity(quantity);
+            setAsk(bookLevel, price, quantity);
             logger.debug("[ALGO] ASK: price:" + price + " quantity:" + quantity);
 
             bookLevel+= 1;
@@ -121,6 +224,7 @@ public class MarketDataService extends MarketDataEventListener {
 
         }
 
+        updateSignals();
         runTrigger.triggerRun();
     }
 
@@ -129,21 +233,135 @@ public class MarketDataService extends MarketDataEventListener {
         int bookLevel = 0;
 
         empty(bidBook);
+        bidLength = 0;
 
         instrumentId = bidBookDec.instrumentId();
 
         for(BidBookUpdateDecoder.BidBookDecoder decoder : bidBookDec.bidBook()){
             final long price = decoder.price();
             final long quantity = decoder.size();
-            bidBook[bookLevel] = new BidLevel();
-            bidBook[bookLevel].setPrice(price);
-            bidBook[bookLevel].setQuantity(quantity);
+            setBid(bookLevel, price, quantity);
             logger.debug("[ALGO] BID: price:" + price + " quantity:" + quantity);
 
             bookLevel+= 1;
             bidLength = bookLevel;
         }
 
+        updateSignals();
+        runTrigger.triggerRun();
+    }
+
+    /**
+     * Apply each changed level in turn to the book built from the last full update, moving only the levels below it.
+     */
+    @Override
+    public void onBookDelta(BookDeltaDecoder bookDelta) {
+        instrumentId = bookDelta.instrumentId();
+        instrumentStatus = bookDelta.instrumentStatus();
+
+        for(BookDeltaDecoder.LevelsDecoder decoder : bookDelta.levels()){
+            final boolean delete = decoder.action() == DeltaAction.DELETE;
+            if(decoder.side() == BookSide.BID){
+                applyBid(delete, decoder.price(), decoder.size());
+            }else{
+                applyAsk(delete, decoder.price(), decoder.size());
+            }
+            logger.debug("[ALGO] DELTA: " + decoder.side() + " " + decoder.action() + " price:" + decoder.price() + " quantity:" + decoder.size());
+        }
+
+        updateSignals();
+        runTrigger.triggerRun();
+    }
+
+    private void applyBid(boolean delete, long price, long quantity){
+        final int index = BookLevels.search(bidPrices, bidLength, price, true);
+        if (index >= 0) {
+            if (delete || quantity == 0) {
+                System.arraycopy(bidBook, index + 1, bidBook, index, bidLength - index - 1);
+                System.arraycopy(bidPrices, index + 1, bidPrices, index, bidLength - index - 1);
+                System.arraycopy(bidQuantities, index + 1, bidQuantities, index, bidLength - index - 1);
+                bidBook[--bidLength] = null;
+            } else {
+                setBid(index, price, quantity);
+            }
+        } else if (!delete && quantity > 0) {
+            final int level = -index - 1;
+            ensureBidCapacity(bidLength + 1);
+            System.arraycopy(bidBook, level, bidBook, level + 1, bidLength - level);
+            System.arraycopy(bidPrices, level, bidPrices, level + 1, bidLength - level);
+            System.arraycopy(bidQuantities, level, bidQuantities, level + 1, bidLength - level);
+            setBid(level, price, quantity);
+            bidLength++;
+        }
+    }
+
+    private void applyAsk(boolean delete, long price, long quantity){
+        final int index = BookLevels.search(askPrices, askLength, price, false);
+        if (index >= 0) {
+            if (delete || quantity == 0) {
+                System.arraycopy(askBook, index + 1, askBook, index, askLength - index - 1);
+                System.arraycopy(askPrices, index + 1, askPrices, index, askLength - index - 1);
+                System.arraycopy(askQuantities, index + 1, askQuantities, index, askLength - index - 1);
+                askBook[--askLength] = null;
+            } else {
+                setAsk(index, price, quantity);
+            }
+        } else if (!delete && quantity > 0) {
+            final int level = -index - 1;
+            ensureAskCapacity(askLength + 1);
+            System.arraycopy(askBook, level, askBook, level + 1, askLength - level);
+            System.arraycopy(askPrices, level, askPrices, level + 1, askLength - level);
+            System.arraycopy(askQuantities, level, askQuantities, level + 1, askLength - level);
+            setAsk(level, price, quantity);
+            askLength++;
+        }
+    }
+
+    @Override
+    public void onTrade(TradeDecoder trade) {
+        instrumentId = trade.instrumentId();
+        tradeTape.onTrade(trade.sequence(), trade.price(), trade.size(), trade.aggressorSide() == AggressorSide.BUY);
+        logger.debug("[ALGO] TRADE: " + trade.aggressorSide() + " price:" + trade.price() + " quantity:" + trade.size());
+
+        runTrigger.triggerRun();
+    }
+
+    @Override
+    public void writeSnapshot(SnapshotWriter writer) {
+        writer.putLong(instrumentId);
+        writer.putByte(instrumentStatus.value());
+
+        writer.putInt(bidLength);
+        for (int i = 0; i < bidLength; i++) {
+            writer.putLong(bidBook[i].getPrice()).putLong(bidBook[i].getQuantity());
+        }
+
+        writer.putInt(askLength);
+        for (int i = 0; i < askLength; i++) {
+            writer.putLong(askBook[i].getPrice()).putLong(askBook[i].getQuantity());
+        }
+    }
+
+    @Override
+    public void readSnapshot(SnapshotReader reader) {
+        instrumentId = reader.getLong();
+        instrumentStatus = InstrumentStatus.get(reader.getByte());
+        signals.reset();
+        tradeTape.reset();
+
+        empty(bidBook);
+        bidLength = reader.getInt();
+        for (int i = 0; i < bidLength; i++) {
+            setBid(i, reader.getLong(), reader.getLong());
+        }
+
+        empty(askBook);
+        askLength = reader.getInt();
+        for (int i = 0; i < askLength; i++) {
+            setAsk(i, reader.getLong(), reader.getLong());
+        }
+
+        updateSignals();
         runTrigger.triggerRun();
     }
 }
@@ -2,6 +2,10 @@ package codingblackfemales.service;
 
 import codingblackfemales.container.RunTrigger;
 import codingblackfemales.sequencer.event.OrderEventListener;
+import codingblackfemales.sequencer.snapshot.SnapshotReader;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import codingblackfemales.sequencer.snapshot.Snapshottable;
+import codingblackfemales.sotw.ChildFill;
 import codingblackfemales.sotw.ChildOrder;
 import codingblackfemales.sotw.OrderState;
 import messages.order.*;
@@ -9,12 +13,15 @@ import messages.order.*;
 import java.util.LinkedList;
 import java.util.List;
 
-public class OrderService extends OrderEventListener {
+public class OrderService extends OrderEventListener implements Snapshottable {
 
     private final RunTrigger runTrigger;
 
     private List<ChildOrder> children = new LinkedList<>();
 
+    // neither cancelled nor fully filled, kept as events arrive so risk checks can read it without walking the children
+    private int openOrderCount = 0;
+
     public OrderService(RunTrigger runTrigger) {
         this.runTrigger = runTrigger;
     }
@@ -28,17 +35,38 @@ public class OrderService extends OrderEventListener {
         return new ChildOrder(create.side(), create.orderId(), create.quantity(), create.price(), OrderState.PENDING);
     }
 
+    private static boolean isOpen(ChildOrder child){
+        return child.getState() != OrderState.CANCELLED && !child.isFullyFilled();
+    }
+
     private void updateState(ChildOrder child, int state){
+        final boolean wasOpen = isOpen(child);
         child.setState(state);
+        updateOpenOrderCount(wasOpen, child);
     }
 
     private void addChildFill(ChildOrder child, long filledQuantity, long filledPrice){
+        final boolean wasOpen = isOpen(child);
         child.addFill(filledQuantity, filledPrice);
+        updateOpenOrderCount(wasOpen, child);
+    }
+
+    private void updateOpenOrderCount(boolean wasOpen, ChildOrder child){
+        final boolean open = isOpen(child);
+        if (wasOpen && !open) {
+            openOrderCount--;
+        } else if (!wasOpen && open) {
+            openOrderCount++;
+        }
     }
 
     @Override
     public void onCreateOrder(final CreateOrderDecoder create) {
-        children.add(createChildOrder(create));
+        final ChildOrder child = createChildOrder(create);
+        children.add(child);
+        if (isOpen(child)) {
+            openOrderCount++;
+        }
         triggerRun();
     }
 
@@ -52,6 +80,21 @@ public class OrderService extends OrderEventListener {
         triggerRun();
     }
 
+    // an amend is only applied once the venue acks it, until then the child keeps the price and quantity it has
+    @Override
+    public void onAmendAckedOrder(final AmendAckedOrderDecoder amendAcked) {
+        final ChildOrder child = find(amendAcked.orderId());
+        final boolean wasOpen = isOpen(child);
+        child.amend(amendAcked.price(), amendAcked.quantity());
+        updateOpenOrderCount(wasOpen, child);
+        triggerRun();
+    }
+
+    @Override
+    public void onAmendRejectedOrder(final AmendRejectedOrderDecoder amendRejected) {
+        triggerRun();
+    }
+
     @Override
     public void onAckedOrder(final AckedOrderDecoder acked) {
         updateState(find(acked.orderId()), OrderState.ACKED);
@@ -74,6 +117,10 @@ public class OrderService extends OrderEventListener {
         return this.children;
     }
 
+    public int getOpenOrderCount(){
+        return openOrderCount;
+    }
+
     @Override
     public void onPartialFill(PartialFillOrderDecoder partialFill) {
         addChildFill(find(partialFill.orderId()), partialFill.quantity(), partialFill.price());
@@ -85,4 +132,49 @@ public class OrderService extends OrderEventListener {
         addChildFill(find(fill.orderId()), fill.quantity(), fill.price());
         triggerRun();
     }
+
+    @Override
+    public void writeSnapshot(SnapshotWriter writer) {
+        writer.putInt(children.size());
+        for (ChildOrder child : children) {
+            writer.putByte(child.getSide().value())
+                    .putLong(child.getOrderId())
+                    .putLong(child.getQuantity())
+                    .putLong(child.getPrice())
+                    .putInt(child.getState());
+
+            writer.putInt(child.getFills().size());
+            for (ChildFill fill : child.getFills()) {
+                writer.putLong(fill.getQuantity()).putLong(fill.getPrice());
+            }
+        }
+    }
+
+    @Override
+    public void readSnapshot(SnapshotReader reader) {
+        children.clear();
+        openOrderCount = 0;
+
+        final int childCount = reader.getInt();
+        for (int i = 0; i < childCount; i++) {
+            final Side side = Side.get(reader.getByte());
+            final long orderId = reader.getLong();
+            final long quantity = reader.getLong();
+            final long price = reader.getLong();
+            final int state = reader.getInt();
+
+            final ChildOrder child = new ChildOrder(side, orderId, quantity, price, state);
+
+            final int fillCount = reader.getInt();
+            for (int j = 0; j < fillCount; j++) {
+                child.addFill(reader.getLong(), reader.getLong());
+            }
+            children.add(child);
+            if (isOpen(child)) {
+                openOrderCount++;
+            }
+        }
+
+        triggerRun();
+    }
 }
@@ -0,0 +1,194 @@
+package codingblackfemales.service;
+
+import codingblackfemales.sequencer.event.OrderEventListener;
+import codingblackfemales.sotw.Position;
+import messages.order.*;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.collections.Long2ObjectHashMap;
+
+import java.util.Collection;
+
+/**
+ * Keeps a {@link Position} per instrument from the fills on the network. Each CreateOrder records which position and
+ * side its fills belong to, so a fill is two hash lookups and a few arithmetic operations. Positions are marked to the
+ * mid of the book in the given {@link MarketDataService}.
+ *
+ * Fills are taken as the quantity filled by that fill, not the running total, as with {@link OrderService}. An order
+ * is forgotten once it is fully filled or cancelled, so only orders which can still fill are held.
+ *
+ * The net quantity and the quantity still open on each side are kept as running totals across instruments, so
+ * {@link codingblackfemales.risk.PreTradeRisk} can read the worst case exposure without walking positions or orders.
+ */
+public class PositionService extends OrderEventListener {
+
+    private final MarketDataService marketDataService;
+
+    private final Long2ObjectHashMap<Position> positions = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<Position> positionByOrderId = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<Side> sideByOrderId = new Long2ObjectHashMap<>();
+    private final Long2LongHashMap quantityByOrderId = new Long2LongHashMap(0);
+    private final Long2LongHashMap filledByOrderId = new Long2LongHashMap(0);
+
+    private long netQuantity = 0;
+    private long openBuyQuantity = 0;
+    private long openSellQuantity = 0;
+
+    public PositionService(MarketDataService marketDataService) {
+        this.marketDataService = marketDataService;
+    }
+
+    @Override
+    public void onCreateOrder(final CreateOrderDecoder create) {
+        final long instrumentId = create.instrumentId();
+        Position position = positions.get(instrumentId);
+        if (position == null) {
+            position = new Position(instrumentId, marketDataService.getSignals());
+            positions.put(instrumentId, position);
+        }
+        positionByOrderId.put(create.orderId(), position);
+        sideByOrderId.put(create.orderId(), create.side());
+        quantityByOrderId.put(create.orderId(), create.quantity());
+        addOpenQuantity(create.side(), create.quantity());
+    }
+
+    @Override
+    public void onPartialFill(final PartialFillOrderDecoder partialFill) {
+        onFill(partialFill.orderId(), partialFill.quantity(), partialFill.price());
+    }
+
+    @Override
+    public void onFill(final FillOrderDecoder fill) {
+        onFill(fill.orderId(), fill.quantity(), fill.price());
+    }
+
+    private void onFill(final long orderId, final long quantity, final long price) {
+        final Position position = positionByOrderId.get(orderId);
+        if (position != null) {
+            final Side side = sideByOrderId.get(orderId);
+            position.onFill(side, quantity, price);
+            netQuantity += side == Side.BUY ? quantity : -quantity;
+            addOpenQuantity(side, -Math.min(quantity, remainingQuantity(orderId)));
+            filledByOrderId.put(orderId, filledByOrderId.get(orderId) + quantity);
+            forgetIfFilled(orderId);
+        }
+    }
+
+    @Override
+    public void onCancelOrder(final CancelOrderDecoder cancel) {
+        forget(cancel.orderId());
+    }
+
+    @Override
+    public void onAmendAckedOrder(final AmendAckedOrderDecoder amendAcked) {
+        final long orderId = amendAcked.orderId();
+        if (positionByOrderId.containsKey(orderId)) {
+            final long remaining = remainingQuantity(orderId);
+            quantityByOrderId.put(orderId, amendAcked.quantity());
+            addOpenQuantity(sideByOrderId.get(orderId), remainingQuantity(orderId) - remaining);
+            forgetIfFilled(orderId);
+        }
+    }
+
+    @Override
+    public void onAckedOrder(final AckedOrderDecoder acked) {
+    }
+
+    @Override
+    public void onCancelAckedOrder(final CancelAckedOrderDecoder cancelAcked) {
+        forget(cancelAcked.orderId());
+    }
+
+    @Override
+    public void onPendingOrder(final PendingOrderDecoder pending) {
+    }
+
+    private long remainingQuantity(final long orderId) {
+        return Math.max(0, quantityByOrderId.get(orderId) - filledByOrderId.get(orderId));
+    }
+
+    private void addOpenQuantity(final Side side, final long quantity) {
+        if (side == Side.BUY) {
+            openBuyQuantity += quantity;
+        } else {
+            openSellQuantity += quantity;
+        }
+    }
+
+    private void forgetIfFilled(final long orderId) {
+        if (filledByOrderId.get(orderId) >= quantityByOrderId.get(orderId)) {
+            forget(orderId);
+        }
+    }
+
+    private void forget(final long orderId) {
+        final Side side = sideByOrderId.get(orderId);
+        if (side == null) {
+            return;
+        }
+        addOpenQuantity(side, -remainingQuantity(orderId));
+        positionByOrderId.remove(orderId);
+        sideByOrderId.remove(orderId);
+        quantityByOrderId.remove(orderId);
+        filledByOrderId.remove(orderId);
+    }
+
+    /**
+     * Orders which can still fill, i.e. neither fully filled nor cancelled.
+     */
+    public int getTrackedOrderCount() {
+        return positionByOrderId.size();
+    }
+
+    /**
+     * @return the position, or null if no order has been created in the instrument.
+     */
+    public Position getPosition(final long instrumentId) {
+        return positions.get(instrumentId);
+    }
+
+    public Collection<Position> getPositions() {
+        return positions.values();
+    }
+
+    /**
+     * Net quantity across every instrument, for an algo trading one instrument simply its position.
+     */
+    public long getNetQuantity() {
+        return netQuantity;
+    }
+
+    /**
+     * Quantity of buy orders still open, i.e. how much the net quantity could still rise by.
+     */
+    public long getOpenBuyQuantity() {
+        return openBuyQuantity;
+    }
+
+    /**
+     * Quantity of sell orders still open, i.e. how much the net quantity could still fall by.
+     */
+    public long getOpenSellQuantity() {
+        return openSellQuantity;
+    }
+
+    public double getRealisedPnl() {
+        double pnl = 0;
+        for (final Position position : positions.values()) {
+            pnl += position.getRealisedPnl();
+        }
+        return pnl;
+    }
+
+    public double getUnrealisedPnl() {
+        double pnl = 0;
+        for (final Position position : positions.values()) {
+            pnl += position.getUnrealisedPnl();
+        }
+        return pnl;
+    }
+
+    @Override
+    public String toString() {
+        return "Positions(realisedPnl=" + getRealisedPnl() + ",unrealisedPnl=" + getUnrealisedPnl() + "," + positions.values() + ")";
+    }
+}
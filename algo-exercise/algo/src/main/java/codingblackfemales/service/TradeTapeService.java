@@ -0,0 +1,62 @@
+package codingblackfemales.service;
+
+import codingblackfemales.sequencer.event.MarketDataEventListener;
+import codingblackfemales.sotw.marketdata.TradeTape;
+import messages.marketdata.AggressorSide;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.TradeDecoder;
+import org.agrona.collections.Long2ObjectHashMap;
+
+/**
+ * Keeps a {@link TradeTape} per instrument from the trades on the network, for a consumer which follows many
+ * instruments. Algos read the tape of their own instrument from {@link MarketDataService#getTradeTape()}.
+ *
+ * Book updates are ignored.
+ */
+public class TradeTapeService extends MarketDataEventListener {
+
+    private final int window;
+    private final Long2ObjectHashMap<TradeTape> tapes = new Long2ObjectHashMap<>();
+
+    public TradeTapeService() {
+        this(TradeTape.DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window number of trades each tape's rolling figures are measured over.
+     */
+    public TradeTapeService(final int window) {
+        this.window = window;
+    }
+
+    @Override
+    public void onTrade(final TradeDecoder trade) {
+        getTape(trade.instrumentId()).onTrade(trade.sequence(), trade.price(), trade.size(), trade.aggressorSide() == AggressorSide.BUY);
+    }
+
+    /**
+     * @return the instrument's tape, an empty one if it has not traded yet.
+     */
+    public TradeTape getTape(final long instrumentId) {
+        TradeTape tape = tapes.get(instrumentId);
+        if (tape == null) {
+            tape = new TradeTape(window);
+            tapes.put(instrumentId, tape);
+        }
+        return tape;
+    }
+
+    @Override
+    public void onBookUpdate(final BookUpdateDecoder bookUpdate) {
+    }
+
+    @Override
+    public void onAskBook(final AskBookUpdateDecoder askBook) {
+    }
+
+    @Override
+    public void onBidBook(final BidBookUpdateDecoder bidBook) {
+    }
+}
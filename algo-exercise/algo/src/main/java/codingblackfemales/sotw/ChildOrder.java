@@ -21,7 +21,7 @@ public class ChildOrder {
         this.orderId = orderId;
         this.quantity = quantity;
         this.price = price;
-
+        this.state = state;
     }
 
     public Side getSide() {
@@ -52,6 +52,18 @@ public class ChildOrder {
         this.state = state;
     }
 
+    /**
+     * Change the price and total quantity in place, a quantity below what has filled already leaves the order filled.
+     */
+    public void amend(long price, long quantity) {
+        this.price = price;
+        this.quantity = Math.max(quantity, getFilledQuantity());
+    }
+
+    public List<ChildFill> getFills() {
+        return fills;
+    }
+
     public void addFill(long filledQuantity, long filledPrice) { // this method allows adding new fills to the order
         this.fills.add(new ChildFill(filledQuantity, filledPrice));
     }
@@ -0,0 +1,104 @@
+package codingblackfemales.sotw;
+
+import codingblackfemales.sotw.marketdata.BookSignals;
+import messages.order.Side;
+
+/**
+ * Net position and P&L in one instrument, built up fill by fill. Unrealised P&L is marked to the mid of the
+ * instrument's book when it is read, so neither fills nor ticks do more than a few arithmetic operations.
+ */
+public class Position {
+
+    private final long instrumentId;
+    private final BookSignals mark;
+
+    private long quantity = 0; // positive long, negative short
+    private double averagePrice = 0;
+    private double realisedPnl = 0;
+    private long boughtQuantity = 0;
+    private long soldQuantity = 0;
+    private long fillCount = 0;
+
+    public Position(final long instrumentId, final BookSignals mark) {
+        this.instrumentId = instrumentId;
+        this.mark = mark;
+    }
+
+    public void onFill(final Side side, final long fillQuantity, final long fillPrice) {
+        final long signed = side == Side.BUY ? fillQuantity : -fillQuantity;
+        fillCount++;
+        if (side == Side.BUY) {
+            boughtQuantity += fillQuantity;
+        } else {
+            soldQuantity += fillQuantity;
+        }
+
+        if (quantity == 0 || Long.signum(quantity) == Long.signum(signed)) {
+            // opening or adding: average the price in
+            final long newQuantity = quantity + signed;
+            averagePrice = (averagePrice * Math.abs(quantity) + (double) fillPrice * fillQuantity) / Math.abs(newQuantity);
+            quantity = newQuantity;
+            return;
+        }
+
+        // reducing: realise the closed part against the average price, any excess opens the other way at the fill price
+        final long closed = Math.min(fillQuantity, Math.abs(quantity));
+        realisedPnl += closed * (fillPrice - averagePrice) * Long.signum(quantity);
+        quantity += signed;
+        if (quantity == 0) {
+            averagePrice = 0;
+        } else if (Long.signum(quantity) == Long.signum(signed)) {
+            averagePrice = fillPrice;
+        }
+    }
+
+    public long getInstrumentId() {
+        return instrumentId;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public double getAveragePrice() {
+        return averagePrice;
+    }
+
+    public double getRealisedPnl() {
+        return realisedPnl;
+    }
+
+    /**
+     * The open quantity marked to the current mid, 0 while flat or before the book has both sides.
+     */
+    public double getUnrealisedPnl() {
+        final double mid = mark.getMid();
+        if (quantity == 0 || Double.isNaN(mid)) {
+            return 0;
+        }
+        return (mid - averagePrice) * quantity;
+    }
+
+    public double getTotalPnl() {
+        return realisedPnl + getUnrealisedPnl();
+    }
+
+    public long getBoughtQuantity() {
+        return boughtQuantity;
+    }
+
+    public long getSoldQuantity() {
+        return soldQuantity;
+    }
+
+    public long getFillCount() {
+        return fillCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Position(instrumentId=" + instrumentId + ",quantity=" + quantity + ",averagePrice=" + averagePrice
+                + ",realisedPnl=" + realisedPnl + ",unrealisedPnl=" + getUnrealisedPnl()
+                + ",bought=" + boughtQuantity + ",sold=" + soldQuantity + ",fills=" + fillCount + ")";
+    }
+}
@@ -1,7 +1,12 @@
 package codingblackfemales.sotw;
 
+import codingblackfemales.service.PositionService;
 import codingblackfemales.sotw.marketdata.AskLevel;
 import codingblackfemales.sotw.marketdata.BidLevel;
+import codingblackfemales.sotw.marketdata.BookSignals;
+import codingblackfemales.sotw.marketdata.TradeTape;
+import codingblackfemales.timer.TimerService;
+import messages.marketdata.InstrumentStatus;
 
 import java.util.Collections;
 import java.util.List;
@@ -16,11 +21,54 @@ public interface SimpleAlgoState { // explore this - contains methods for order
     public BidLevel getBidAt(int index);
     public AskLevel getAskAt(int index);
 
+    // the book as primitive arrays, best level first, for BookAnalytics; only the first getBidLevels()/getAskLevels() are valid
+    public default long[] getBidPrices() {
+        final long[] prices = new long[getBidLevels()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = getBidAt(i).getPrice();
+        }
+        return prices;
+    }
+
+    public default long[] getBidQuantities() {
+        final long[] quantities = new long[getBidLevels()];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = getBidAt(i).getQuantity();
+        }
+        return quantities;
+    }
+
+    public default long[] getAskPrices() {
+        final long[] prices = new long[getAskLevels()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = getAskAt(i).getPrice();
+        }
+        return prices;
+    }
+
+    public default long[] getAskQuantities() {
+        final long[] quantities = new long[getAskLevels()];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = getAskAt(i).getQuantity();
+        }
+        return quantities;
+    }
+
+    public BookSignals getSignals(); // rolling mid, spread, volatility and imbalance, shared by every algo on the instrument
+
+    public InstrumentStatus getInstrumentStatus(); // CONTINUOUS, AUCTION or CLOSED, in an auction orders rest until the book uncrosses
+
+    public TradeTape getTradeTape(); // rolling VWAP and volume of the trades on the instrument, e.g. for a VWAP or POV algo
+
+    public PositionService getPositions(); // position and P&L from this algo's fills
+
     public List<ChildOrder> getChildOrders();
 
     public List<ChildOrder> getActiveChildOrders();
 
     public long getInstrumentId();
 
+    public TimerService getTimerService(); // schedule callbacks, e.g. to cancel an order that has not filled after N millis
+
     }
 
@@ -2,8 +2,14 @@ package codingblackfemales.sotw;
 
 import codingblackfemales.service.MarketDataService;
 import codingblackfemales.service.OrderService;
+import codingblackfemales.service.PositionService;
 import codingblackfemales.sotw.marketdata.AskLevel;
 import codingblackfemales.sotw.marketdata.BidLevel;
+import codingblackfemales.sotw.marketdata.BookSignals;
+import codingblackfemales.sotw.marketdata.TradeTape;
+import codingblackfemales.timer.TimerHandler;
+import codingblackfemales.timer.TimerService;
+import messages.marketdata.InstrumentStatus;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -12,10 +18,29 @@ public class SimpleAlgoStateImpl implements SimpleAlgoState {
 
     public final MarketDataService marketDataService;
     public final OrderService orderService;
+    public final TimerService timerService;
+    public final PositionService positionService;
 
+    /**
+     * A state without timers, for reading the book and orders outside a container. Scheduling a timer fails, as there
+     * is no container clock for it and nothing would poll it.
+     */
     public SimpleAlgoStateImpl(final MarketDataService marketDataService, final OrderService orderService) {
+        this(marketDataService, orderService, NO_TIMERS);
+    }
+
+    /**
+     * @param timerService the container's timers, driven by its clock and polled by it.
+     */
+    public SimpleAlgoStateImpl(final MarketDataService marketDataService, final OrderService orderService, final TimerService timerService) {
+        this(marketDataService, orderService, timerService, new PositionService(marketDataService));
+    }
+
+    public SimpleAlgoStateImpl(final MarketDataService marketDataService, final OrderService orderService, final TimerService timerService, final PositionService positionService) {
         this.marketDataService = marketDataService;
         this.orderService = orderService;
+        this.timerService = timerService;
+        this.positionService = positionService;
     }
 
     @Override
@@ -23,6 +48,11 @@ public class SimpleAlgoStateImpl implements SimpleAlgoState {
         return marketDataService.getInstrumentId();
     }
 
+    @Override
+    public TimerService getTimerService() {
+        return timerService;
+    }
+
     @Override
     public String getSymbol() {
         return null;
@@ -48,6 +78,46 @@ public class SimpleAlgoStateImpl implements SimpleAlgoState {
         return marketDataService.getAskLevel(index);
     }
 
+    @Override
+    public long[] getBidPrices() {
+        return marketDataService.getBidPrices();
+    }
+
+    @Override
+    public long[] getBidQuantities() {
+        return marketDataService.getBidQuantities();
+    }
+
+    @Override
+    public long[] getAskPrices() {
+        return marketDataService.getAskPrices();
+    }
+
+    @Override
+    public long[] getAskQuantities() {
+        return marketDataService.getAskQuantities();
+    }
+
+    @Override
+    public BookSignals getSignals() {
+        return marketDataService.getSignals();
+    }
+
+    @Override
+    public InstrumentStatus getInstrumentStatus() {
+        return marketDataService.getInstrumentStatus();
+    }
+
+    @Override
+    public TradeTape getTradeTape() {
+        return marketDataService.getTradeTape();
+    }
+
+    @Override
+    public PositionService getPositions() {
+        return positionService;
+    }
+
     @Override
     public List<ChildOrder> getChildOrders() {
         return orderService.children();
@@ -57,4 +127,26 @@ public class SimpleAlgoStateImpl implements SimpleAlgoState {
     public List<ChildOrder> getActiveChildOrders() {
         return orderService.children().stream().filter(order -> order.getState() != OrderState.CANCELLED).collect(Collectors.toList());
     }
+
+    private static final TimerService NO_TIMERS = new TimerService() {
+        @Override
+        public long now() {
+            throw new IllegalStateException("No timer service, the state was not created by a container");
+        }
+
+        @Override
+        public long scheduleTimer(final long deadline, final TimerHandler handler, final long correlationId) {
+            throw new IllegalStateException("No timer service, the state was not created by a container");
+        }
+
+        @Override
+        public boolean cancelTimer(final long timerId) {
+            return false;
+        }
+
+        @Override
+        public int timerCount() {
+            return 0;
+        }
+    };
 }
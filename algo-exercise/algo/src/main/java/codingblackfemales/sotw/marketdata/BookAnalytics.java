@@ -0,0 +1,156 @@
+package codingblackfemales.sotw.marketdata;
+
+import codingblackfemales.sotw.SimpleAlgoState;
+
+/**
+ * Book calculations over one side's prices and quantities held in primitive arrays, best level first, as kept by
+ * {@code MarketDataService} and returned by {@link SimpleAlgoState#getBidPrices()} and friends.
+ *
+ * The scans which do not depend on the previous level (totals, quantity to a price, imbalance) are written as plain
+ * counted loops over the arrays without early exits, so that C2 can unroll them and, where it supports the pattern,
+ * vectorise them. The price-to-fill scans carry a running total and stop as soon as the size is reached.
+ */
+public final class BookAnalytics {
+
+    /**
+     * Returned by the price-to-fill scans when the side does not hold enough quantity.
+     */
+    public static final long NO_PRICE = -1;
+
+    private BookAnalytics() {
+    }
+
+    /**
+     * Total quantity in the first {@code levels} levels.
+     */
+    public static long totalQuantity(final long[] quantities, final int levels) {
+        long total = 0;
+        for (int i = 0; i < levels; i++) {
+            total += quantities[i];
+        }
+        return total;
+    }
+
+    /**
+     * Sum of price x quantity over the first {@code levels} levels.
+     */
+    public static long notional(final long[] prices, final long[] quantities, final int levels) {
+        long notional = 0;
+        for (int i = 0; i < levels; i++) {
+            notional += prices[i] * quantities[i];
+        }
+        return notional;
+    }
+
+    /**
+     * Quantity bid at {@code price} or better (higher).
+     */
+    public static long bidQuantityAtOrAbove(final long[] prices, final long[] quantities, final int levels, final long price) {
+        long total = 0;
+        for (int i = 0; i < levels; i++) {
+            total += prices[i] >= price ? quantities[i] : 0;
+        }
+        return total;
+    }
+
+    /**
+     * Quantity offered at {@code price} or better (lower).
+     */
+    public static long askQuantityAtOrBelow(final long[] prices, final long[] quantities, final int levels, final long price) {
+        long total = 0;
+        for (int i = 0; i < levels; i++) {
+            total += prices[i] <= price ? quantities[i] : 0;
+        }
+        return total;
+    }
+
+    /**
+     * The worst price an order for {@code quantity} would trade at sweeping the side from the best level, or
+     * {@link #NO_PRICE} if the side does not hold that much.
+     */
+    public static long priceToFill(final long[] prices, final long[] quantities, final int levels, final long quantity) {
+        long remaining = quantity;
+        for (int i = 0; i < levels; i++) {
+            remaining -= quantities[i];
+            if (remaining <= 0) {
+                return prices[i];
+            }
+        }
+        return NO_PRICE;
+    }
+
+    /**
+     * The average price an order for {@code quantity} would trade at sweeping the side from the best level, or NaN if
+     * the side does not hold that much.
+     */
+    public static double averagePriceToFill(final long[] prices, final long[] quantities, final int levels, final long quantity) {
+        long remaining = quantity;
+        long notional = 0;
+        for (int i = 0; i < levels; i++) {
+            final long taken = Math.min(remaining, quantities[i]);
+            notional += taken * prices[i];
+            remaining -= taken;
+            if (remaining == 0) {
+                return (double) notional / quantity;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Mid of the volume weighted bid and ask over the first {@code levels} levels of each side, each side weighted by
+     * the quantity on the other so the mid leans towards the thinner side, where the price is more likely to move.
+     * With one level this is the usual micro-price. NaN if either side is empty.
+     */
+    public static double depthWeightedMid(final long[] bidPrices, final long[] bidQuantities, final int bidLevels,
+                                          final long[] askPrices, final long[] askQuantities, final int askLevels,
+                                          final int levels) {
+        final int bids = Math.min(bidLevels, levels);
+        final int asks = Math.min(askLevels, levels);
+        final long bidQuantity = totalQuantity(bidQuantities, bids);
+        final long askQuantity = totalQuantity(askQuantities, asks);
+        if (bidQuantity == 0 || askQuantity == 0) {
+            return Double.NaN;
+        }
+
+        final double bidVwap = (double) notional(bidPrices, bidQuantities, bids) / bidQuantity;
+        final double askVwap = (double) notional(askPrices, askQuantities, asks) / askQuantity;
+        return (bidVwap * askQuantity + askVwap * bidQuantity) / (bidQuantity + askQuantity);
+    }
+
+    /**
+     * (bid quantity - ask quantity) / (bid quantity + ask quantity) over the first {@code levels} levels of each side,
+     * from -1 (only offers) to 1 (only bids). 0 for an empty book.
+     */
+    public static double imbalance(final long[] bidQuantities, final int bidLevels,
+                                   final long[] askQuantities, final int askLevels,
+                                   final int levels) {
+        final long bidQuantity = totalQuantity(bidQuantities, Math.min(bidLevels, levels));
+        final long askQuantity = totalQuantity(askQuantities, Math.min(askLevels, levels));
+        final long total = bidQuantity + askQuantity;
+        return total == 0 ? 0.0 : (double) (bidQuantity - askQuantity) / total;
+    }
+
+    public static double depthWeightedMid(final SimpleAlgoState state, final int levels) {
+        return depthWeightedMid(state.getBidPrices(), state.getBidQuantities(), state.getBidLevels(),
+                state.getAskPrices(), state.getAskQuantities(), state.getAskLevels(), levels);
+    }
+
+    public static double imbalance(final SimpleAlgoState state, final int levels) {
+        return imbalance(state.getBidQuantities(), state.getBidLevels(), state.getAskQuantities(), state.getAskLevels(), levels);
+    }
+
+    /**
+     * The worst price a buy order for {@code quantity} would pay sweeping the offers, or {@link #NO_PRICE}.
+     */
+    public static long priceToBuy(final SimpleAlgoState state, final long quantity) {
+        return priceToFill(state.getAskPrices(), state.getAskQuantities(), state.getAskLevels(), quantity);
+    }
+
+    /**
+     * The worst price a sell order for {@code quantity} would receive sweeping the bids, or {@link #NO_PRICE}.
+     */
+    public static long priceToSell(final SimpleAlgoState state, final long quantity) {
+        return priceToFill(state.getBidPrices(), state.getBidQuantities(), state.getBidLevels(), quantity);
+    }
+}
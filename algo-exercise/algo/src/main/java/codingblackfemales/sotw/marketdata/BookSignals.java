@@ -0,0 +1,170 @@
+package codingblackfemales.sotw.marketdata;
+
+/**
+ * Rolling top of book signals for one instrument, updated in constant time as each book update is applied by
+ * {@code MarketDataService}, so algos read them from {@code SimpleAlgoState.getSignals()} instead of each recomputing
+ * them in evaluate.
+ *
+ * Signals are only updated while both sides of the book have a level; a one sided book leaves the last values.
+ * Volatility is of the per-update log returns of the mid, it is not scaled to any time period.
+ */
+public class BookSignals {
+
+    public static final double DEFAULT_EWMA_ALPHA = 0.05;
+    public static final int DEFAULT_VOLATILITY_WINDOW = 100;
+
+    private final double ewmaAlpha;
+    private final double[] returns;
+
+    private boolean hasTop = false;
+    private long bestBid;
+    private long bestAsk;
+    private long bestBidQuantity;
+    private long bestAskQuantity;
+    private double mid = Double.NaN;
+    private double ewmaMid = Double.NaN;
+
+    private int returnCount = 0;
+    private int nextReturn = 0;
+    private double sumOfSquaredReturns = 0;
+
+    private long updateCount = 0;
+    private long tradeThroughsUp = 0;
+    private long tradeThroughsDown = 0;
+
+    public BookSignals() {
+        this(DEFAULT_EWMA_ALPHA, DEFAULT_VOLATILITY_WINDOW);
+    }
+
+    /**
+     * @param ewmaAlpha weight of the newest mid in the moving average, between 0 and 1.
+     * @param volatilityWindow number of mid returns volatility is measured over.
+     */
+    public BookSignals(final double ewmaAlpha, final int volatilityWindow) {
+        if (ewmaAlpha <= 0 || ewmaAlpha > 1) {
+            throw new IllegalArgumentException("ewmaAlpha must be in (0, 1]: " + ewmaAlpha);
+        }
+        if (volatilityWindow <= 0) {
+            throw new IllegalArgumentException("volatilityWindow must be positive: " + volatilityWindow);
+        }
+        this.ewmaAlpha = ewmaAlpha;
+        this.returns = new double[volatilityWindow];
+    }
+
+    /**
+     * Apply the best bid and ask after a book update.
+     */
+    public void onTopOfBook(final long bidPrice, final long bidQuantity, final long askPrice, final long askQuantity) {
+        if (hasTop) {
+            // the new best price on one side has gone through the old best price on the other
+            if (bidPrice >= bestAsk) {
+                tradeThroughsUp++;
+            }
+            if (askPrice <= bestBid) {
+                tradeThroughsDown++;
+            }
+        }
+
+        final double previousMid = mid;
+        hasTop = true;
+        bestBid = bidPrice;
+        bestAsk = askPrice;
+        bestBidQuantity = bidQuantity;
+        bestAskQuantity = askQuantity;
+        mid = (bidPrice + askPrice) / 2.0;
+        ewmaMid = Double.isNaN(ewmaMid) ? mid : ewmaMid + ewmaAlpha * (mid - ewmaMid);
+        updateCount++;
+
+        if (!Double.isNaN(previousMid) && previousMid > 0 && mid > 0) {
+            addReturn(Math.log(mid / previousMid));
+        }
+    }
+
+    private void addReturn(final double logReturn) {
+        final double squared = logReturn * logReturn;
+        if (returnCount == returns.length) {
+            sumOfSquaredReturns -= returns[nextReturn];
+        } else {
+            returnCount++;
+        }
+        returns[nextReturn] = squared;
+        sumOfSquaredReturns += squared;
+        nextReturn = nextReturn + 1 == returns.length ? 0 : nextReturn + 1;
+    }
+
+    /**
+     * Forget everything, e.g. when the book is restored from a snapshot.
+     */
+    public void reset() {
+        hasTop = false;
+        mid = Double.NaN;
+        ewmaMid = Double.NaN;
+        returnCount = 0;
+        nextReturn = 0;
+        sumOfSquaredReturns = 0;
+        updateCount = 0;
+        tradeThroughsUp = 0;
+        tradeThroughsDown = 0;
+    }
+
+    public boolean hasTopOfBook() {
+        return hasTop;
+    }
+
+    public long getBestBid() {
+        return bestBid;
+    }
+
+    public long getBestAsk() {
+        return bestAsk;
+    }
+
+    public long getSpread() {
+        return bestAsk - bestBid;
+    }
+
+    /**
+     * NaN until both sides of the book have had a level.
+     */
+    public double getMid() {
+        return mid;
+    }
+
+    public double getEwmaMid() {
+        return ewmaMid;
+    }
+
+    /**
+     * Root mean square of the log returns of the mid over the window, 0 until the mid has been seen twice.
+     */
+    public double getRealisedVolatility() {
+        // the running sum can drift a hair below zero once every return in the window is 0
+        return returnCount == 0 ? 0.0 : Math.sqrt(Math.max(0.0, sumOfSquaredReturns) / returnCount);
+    }
+
+    /**
+     * (best bid quantity - best ask quantity) / (best bid quantity + best ask quantity), from -1 to 1.
+     */
+    public double getTopOfBookImbalance() {
+        final long total = bestBidQuantity + bestAskQuantity;
+        return total == 0 ? 0.0 : (double) (bestBidQuantity - bestAskQuantity) / total;
+    }
+
+    /**
+     * Updates where the best bid reached or passed the previous best ask.
+     */
+    public long getTradeThroughsUp() {
+        return tradeThroughsUp;
+    }
+
+    /**
+     * Updates where the best ask reached or passed the previous best bid.
+     */
+    public long getTradeThroughsDown() {
+        return tradeThroughsDown;
+    }
+
+    public long getUpdateCount() {
+        return updateCount;
+    }
+}
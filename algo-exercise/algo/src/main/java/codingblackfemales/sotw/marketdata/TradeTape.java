@@ -0,0 +1,140 @@
+package codingblackfemales.sotw.marketdata;
+
+/**
+ * The recent trades in one instrument, kept in a ring buffer with running sums so each trade and each read of the
+ * rolling VWAP and volume is constant time, for algos which follow the volume traded such as a VWAP or POV algo.
+ *
+ * The rolling figures cover the last window trades; the totals cover every trade since the tape was created or reset.
+ */
+public class TradeTape {
+
+    public static final int DEFAULT_WINDOW = 100;
+
+    private final long[] prices;
+    private final long[] sizes;
+    private final boolean[] buys;
+
+    private int count = 0;
+    private int next = 0;
+    private long windowVolume = 0;
+    private long windowBuyVolume = 0;
+    private long windowNotional = 0;
+
+    private long tradeCount = 0;
+    private long totalVolume = 0;
+    private long lastSequence = 0;
+    private long missedTrades = 0;
+
+    public TradeTape() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window number of trades the rolling VWAP and volume are measured over.
+     */
+    public TradeTape(final int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.prices = new long[window];
+        this.sizes = new long[window];
+        this.buys = new boolean[window];
+    }
+
+    /**
+     * @param sequence the trade's sequence in its book, a jump counts the trades in between as missed.
+     * @param buy true if the buyer was the aggressor.
+     */
+    public void onTrade(final long sequence, final long price, final long size, final boolean buy) {
+        if (lastSequence > 0 && sequence > lastSequence + 1) {
+            missedTrades += sequence - lastSequence - 1;
+        }
+        lastSequence = sequence;
+
+        if (count == prices.length) {
+            windowVolume -= sizes[next];
+            windowNotional -= prices[next] * sizes[next];
+            if (buys[next]) {
+                windowBuyVolume -= sizes[next];
+            }
+        } else {
+            count++;
+        }
+        prices[next] = price;
+        sizes[next] = size;
+        buys[next] = buy;
+        windowVolume += size;
+        windowNotional += price * size;
+        if (buy) {
+            windowBuyVolume += size;
+        }
+        next = next + 1 == prices.length ? 0 : next + 1;
+
+        tradeCount++;
+        totalVolume += size;
+    }
+
+    /**
+     * Forget everything, e.g. when the book is restored from a snapshot.
+     */
+    public void reset() {
+        count = 0;
+        next = 0;
+        windowVolume = 0;
+        windowBuyVolume = 0;
+        windowNotional = 0;
+        tradeCount = 0;
+        totalVolume = 0;
+        lastSequence = 0;
+        missedTrades = 0;
+    }
+
+    /**
+     * Volume weighted average price over the window, NaN until there has been a trade.
+     */
+    public double getVwap() {
+        return windowVolume == 0 ? Double.NaN : (double) windowNotional / windowVolume;
+    }
+
+    public long getWindowVolume() {
+        return windowVolume;
+    }
+
+    /**
+     * Share of the window volume where the buyer was the aggressor, from 0 to 1. Auction trades have no aggressor and
+     * count as not bought.
+     */
+    public double getBuyVolumeRatio() {
+        return windowVolume == 0 ? 0.0 : (double) windowBuyVolume / windowVolume;
+    }
+
+    /**
+     * Trades in the window, at most the window size.
+     */
+    public int getWindowTradeCount() {
+        return count;
+    }
+
+    /**
+     * @return the last trade price, 0 until there has been a trade.
+     */
+    public long getLastPrice() {
+        return count == 0 ? 0 : prices[next == 0 ? prices.length - 1 : next - 1];
+    }
+
+    public long getTradeCount() {
+        return tradeCount;
+    }
+
+    public long getTotalVolume() {
+        return totalVolume;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getMissedTrades() {
+        return missedTrades;
+    }
+}
@@ -0,0 +1,301 @@
+package codingblackfemales.timer;
+
+import org.agrona.concurrent.EpochClock;
+
+import java.util.Arrays;
+
+/**
+ * Allocation free hierarchical timing wheel.
+ *
+ * Time is divided into ticks of {@code tickResolution} milliseconds. There are 4 wheels of 64 slots each, wheel 0
+ * holds timers due within the current block of 64 ticks, wheel 1 within the current block of 64*64 ticks and so on.
+ * When the wheel below wraps, the next slot of the wheel above is cascaded down. Timers further out than the top
+ * wheel (64^4 ticks) wait on an overflow list which is re-distributed each time the top wheel wraps.
+ *
+ * Timers are held in parallel arrays indexed by a pooled slot, linked into their wheel slot by int indexes, so
+ * scheduling, cancelling and expiring a timer does not allocate once the pool has grown to the working set.
+ *
+ * Not thread safe, it is meant to be polled from the thread running the algo.
+ */
+public class HierarchicalTimerWheel implements TimerService {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final long SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private static final int OVERFLOW = LEVELS * SLOTS;
+    private static final int EXPIRING = OVERFLOW + 1;
+
+    private static final int NONE = -1;
+    private static final int FREE = -1;
+
+    private final EpochClock clock;
+    private final long tickResolution;
+
+    private final int[] heads = new int[EXPIRING + 1];
+    private final long[] occupancy = new long[LEVELS];
+
+    private long[] deadlineTicks;
+    private long[] correlationIds;
+    private TimerHandler[] handlers;
+    private int[] next;
+    private int[] prev;
+    private int[] list;
+    private int[] generations;
+
+    private int freeHead = NONE;
+    private int count = 0;
+    private long currentTick;
+
+    public HierarchicalTimerWheel(final EpochClock clock) {
+        this(clock, 1, 1024);
+    }
+
+    public HierarchicalTimerWheel(final EpochClock clock, final long tickResolution, final int initialCapacity) {
+        if (tickResolution <= 0) {
+            throw new IllegalArgumentException("tickResolution must be positive: " + tickResolution);
+        }
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        this.clock = clock;
+        this.tickResolution = tickResolution;
+        this.currentTick = clock.time() / tickResolution;
+
+        Arrays.fill(heads, NONE);
+
+        deadlineTicks = new long[0];
+        correlationIds = new long[0];
+        handlers = new TimerHandler[0];
+        next = new int[0];
+        prev = new int[0];
+        list = new int[0];
+        generations = new int[0];
+        grow(initialCapacity);
+    }
+
+    @Override
+    public long now() {
+        return clock.time();
+    }
+
+    @Override
+    public long scheduleTimer(final long deadline, final TimerHandler handler, final long correlationId) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        if (freeHead == NONE) {
+            grow(handlers.length * 2);
+        }
+        final int index = freeHead;
+        freeHead = next[index];
+
+        // round up, so a timer never fires before its deadline
+        deadlineTicks[index] = Math.max(Math.floorDiv(deadline + tickResolution - 1, tickResolution), currentTick);
+        correlationIds[index] = correlationId;
+        handlers[index] = handler;
+        insert(index);
+        count++;
+
+        return timerId(index);
+    }
+
+    @Override
+    public boolean cancelTimer(final long timerId) {
+        final int index = (int) timerId;
+        if (index < 0 || index >= handlers.length || list[index] == FREE || generations[index] != (int) (timerId >>> 32)) {
+            return false;
+        }
+        unlink(index);
+        free(index);
+        count--;
+        return true;
+    }
+
+    @Override
+    public int timerCount() {
+        return count;
+    }
+
+    public int capacity() {
+        return handlers.length;
+    }
+
+    public long tickResolution() {
+        return tickResolution;
+    }
+
+    /**
+     * Expire all timers due at the current clock time.
+     *
+     * @return the number of timers fired.
+     */
+    public int poll() {
+        return poll(clock.time());
+    }
+
+    /**
+     * Expire all timers with a deadline at or before {@code now}. Handlers may schedule or cancel timers.
+     *
+     * @return the number of timers fired.
+     */
+    public int poll(final long now) {
+        final long nowTick = Math.floorDiv(now, tickResolution);
+        int fired = 0;
+
+        while (currentTick <= nowTick) {
+            if (count == 0) {
+                currentTick = nowTick + 1;
+                break;
+            }
+
+            long tick = currentTick;
+            if ((tick & SLOT_MASK) == 0) {
+                cascade(tick);
+            }
+
+            final int slot = (int) (tick & SLOT_MASK);
+            final long pending = occupancy[0] >>> slot;
+            if (pending == 0) {
+                // nothing left in this block of wheel 0, jump to the next cascade point
+                currentTick = Math.min((tick | SLOT_MASK) + 1, nowTick + 1);
+                continue;
+            }
+
+            tick += Long.numberOfTrailingZeros(pending);
+            if (tick > nowTick) {
+                currentTick = nowTick + 1;
+                break;
+            }
+
+            moveToExpiring((int) (tick & SLOT_MASK));
+            currentTick = tick + 1;
+
+            int index;
+            while ((index = heads[EXPIRING]) != NONE) {
+                final long timerId = timerId(index);
+                final long correlationId = correlationIds[index];
+                final TimerHandler handler = handlers[index];
+                unlink(index);
+                free(index);
+                count--;
+                fired++;
+                handler.onTimer(timerId, correlationId, now);
+            }
+        }
+
+        return fired;
+    }
+
+    private void cascade(final long tick) {
+        if ((tick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+            redistribute(OVERFLOW);
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                redistribute(level * SLOTS + (int) ((tick >> (SLOT_BITS * level)) & SLOT_MASK));
+            }
+        }
+    }
+
+    private void redistribute(final int head) {
+        int index = detach(head);
+        while (index != NONE) {
+            final int following = next[index];
+            insert(index);
+            index = following;
+        }
+    }
+
+    private void moveToExpiring(final int slot) {
+        int index = detach(slot);
+        heads[EXPIRING] = index;
+        while (index != NONE) {
+            list[index] = EXPIRING;
+            index = next[index];
+        }
+    }
+
+    private int detach(final int head) {
+        final int first = heads[head];
+        heads[head] = NONE;
+        if (head < OVERFLOW) {
+            occupancy[head >> SLOT_BITS] &= ~(1L << (head & SLOT_MASK));
+        }
+        return first;
+    }
+
+    private void insert(final int index) {
+        final long deadline = deadlineTicks[index];
+        for (int level = 0; level < LEVELS; level++) {
+            final int shift = SLOT_BITS * (level + 1);
+            if ((deadline >> shift) == (currentTick >> shift)) {
+                link(index, level * SLOTS + (int) ((deadline >> (SLOT_BITS * level)) & SLOT_MASK));
+                return;
+            }
+        }
+        link(index, OVERFLOW);
+    }
+
+    private void link(final int index, final int head) {
+        final int first = heads[head];
+        prev[index] = NONE;
+        next[index] = first;
+        if (first != NONE) {
+            prev[first] = index;
+        }
+        heads[head] = index;
+        list[index] = head;
+        if (head < OVERFLOW) {
+            occupancy[head >> SLOT_BITS] |= 1L << (head & SLOT_MASK);
+        }
+    }
+
+    private void unlink(final int index) {
+        final int head = list[index];
+        final int before = prev[index];
+        final int after = next[index];
+        if (before == NONE) {
+            heads[head] = after;
+            if (after == NONE && head < OVERFLOW) {
+                occupancy[head >> SLOT_BITS] &= ~(1L << (head & SLOT_MASK));
+            }
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+    }
+
+    private void free(final int index) {
+        list[index] = FREE;
+        handlers[index] = null;
+        generations[index]++;
+        next[index] = freeHead;
+        freeHead = index;
+    }
+
+    private long timerId(final int index) {
+        return ((long) generations[index] << 32) | (index & 0xFFFF_FFFFL);
+    }
+
+    private void grow(final int newCapacity) {
+        final int oldCapacity = handlers.length;
+
+        deadlineTicks = Arrays.copyOf(deadlineTicks, newCapacity);
+        correlationIds = Arrays.copyOf(correlationIds, newCapacity);
+        handlers = Arrays.copyOf(handlers, newCapacity);
+        next = Arrays.copyOf(next, newCapacity);
+        prev = Arrays.copyOf(prev, newCapacity);
+        list = Arrays.copyOf(list, newCapacity);
+        generations = Arrays.copyOf(generations, newCapacity);
+
+        for (int i = newCapacity - 1; i >= oldCapacity; i--) {
+            list[i] = FREE;
+            next[i] = freeHead;
+            freeHead = i;
+        }
+    }
+}
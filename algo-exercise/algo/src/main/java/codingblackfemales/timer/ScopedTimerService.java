@@ -0,0 +1,120 @@
+package codingblackfemales.timer;
+
+import java.util.Arrays;
+
+/**
+ * A view of a shared {@link TimerService} for one owner, e.g. one algo in a container hosting many. Timers are
+ * scheduled on the shared service with this view as the handler, so the owner can be told its timer fired (and its
+ * algo marked to run) before the caller's handler is invoked. Only timers scheduled through this view can be
+ * cancelled through it.
+ */
+public class ScopedTimerService implements TimerService, TimerHandler {
+
+    private static final int NONE = -1;
+
+    private final TimerService timers;
+    private final Runnable onTimerFired;
+
+    private TimerHandler[] handlers;
+    private long[] correlationIds;
+    private long[] sharedTimerIds;
+    private int[] generations;
+    private int[] nextFree;
+    private int freeHead = NONE;
+    private int count = 0;
+
+    public ScopedTimerService(final TimerService timers, final Runnable onTimerFired) {
+        this(timers, onTimerFired, 16);
+    }
+
+    public ScopedTimerService(final TimerService timers, final Runnable onTimerFired, final int initialCapacity) {
+        this.timers = timers;
+        this.onTimerFired = onTimerFired;
+
+        handlers = new TimerHandler[0];
+        correlationIds = new long[0];
+        sharedTimerIds = new long[0];
+        generations = new int[0];
+        nextFree = new int[0];
+        grow(Math.max(1, initialCapacity));
+    }
+
+    @Override
+    public long now() {
+        return timers.now();
+    }
+
+    @Override
+    public long scheduleTimer(final long deadline, final TimerHandler handler, final long correlationId) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        if (freeHead == NONE) {
+            grow(handlers.length * 2);
+        }
+        final int index = freeHead;
+        freeHead = nextFree[index];
+
+        handlers[index] = handler;
+        correlationIds[index] = correlationId;
+        sharedTimerIds[index] = timers.scheduleTimer(deadline, this, index);
+        count++;
+
+        return timerId(index);
+    }
+
+    @Override
+    public boolean cancelTimer(final long timerId) {
+        final int index = (int) timerId;
+        if (index < 0 || index >= handlers.length || handlers[index] == null || generations[index] != (int) (timerId >>> 32)) {
+            return false;
+        }
+        timers.cancelTimer(sharedTimerIds[index]);
+        free(index);
+        return true;
+    }
+
+    @Override
+    public int timerCount() {
+        return count;
+    }
+
+    @Override
+    public void onTimer(final long sharedTimerId, final long index, final long now) {
+        final int i = (int) index;
+        final TimerHandler handler = handlers[i];
+        final long correlationId = correlationIds[i];
+        final long timerId = timerId(i);
+        free(i);
+
+        onTimerFired.run();
+        handler.onTimer(timerId, correlationId, now);
+    }
+
+    private void free(final int index) {
+        handlers[index] = null;
+        generations[index]++;
+        nextFree[index] = freeHead;
+        freeHead = index;
+        count--;
+    }
+
+    private long timerId(final int index) {
+        return ((long) generations[index] << 32) | (index & 0xFFFF_FFFFL);
+    }
+
+    private void grow(final int newCapacity) {
+        final int oldCapacity = handlers.length;
+
+        handlers = Arrays.copyOf(handlers, newCapacity);
+        correlationIds = Arrays.copyOf(correlationIds, newCapacity);
+        sharedTimerIds = Arrays.copyOf(sharedTimerIds, newCapacity);
+        generations = Arrays.copyOf(generations, newCapacity);
+        nextFree = Arrays.copyOf(nextFree, newCapacity);
+
+        for (int i = newCapacity - 1; i >= oldCapacity; i--) {
+            nextFree[i] = freeHead;
+            freeHead = i;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package codingblackfemales.timer;
+
+/**
+ * Callback invoked by a {@link TimerService} when a scheduled timer expires.
+ */
+@FunctionalInterface
+public interface TimerHandler {
+
+    /**
+     * @param timerId       the id returned when the timer was scheduled
+     * @param correlationId the value passed in when the timer was scheduled, e.g. a child order id
+     * @param now           the clock time at which the timer fired
+     */
+    void onTimer(long timerId, long correlationId, long now);
+}
@@ -0,0 +1,39 @@
+package codingblackfemales.timer;
+
+/**
+ * Schedules callbacks against the container clock, so an algo can act (cancel stale orders, re-quote etc.)
+ * without waiting for the next market data tick.
+ */
+public interface TimerService {
+
+    long NULL_TIMER_ID = -1;
+
+    /**
+     * @return the current time of the clock driving this service, in milliseconds.
+     */
+    long now();
+
+    /**
+     * Schedule a timer to fire at an absolute deadline. Deadlines in the past fire on the next poll.
+     *
+     * @return the timer id, which can be passed to {@link #cancelTimer(long)}.
+     */
+    long scheduleTimer(long deadline, TimerHandler handler, long correlationId);
+
+    /**
+     * Schedule a timer to fire after a delay relative to {@link #now()}.
+     */
+    default long scheduleAfter(long delay, TimerHandler handler, long correlationId) {
+        return scheduleTimer(now() + delay, handler, correlationId);
+    }
+
+    /**
+     * @return true if the timer was outstanding and has been cancelled, false if it had already fired or been cancelled.
+     */
+    boolean cancelTimer(long timerId);
+
+    /**
+     * @return the number of outstanding timers.
+     */
+    int timerCount();
+}
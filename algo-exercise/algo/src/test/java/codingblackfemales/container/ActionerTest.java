@@ -0,0 +1,192 @@
+package codingblackfemales.container;
+
+import codingblackfemales.action.Action;
+import codingblackfemales.action.ActionList;
+import codingblackfemales.action.AmendChildOrder;
+import codingblackfemales.action.CancelChildOrder;
+import codingblackfemales.action.CreateChildOrder;
+import codingblackfemales.action.NoAction;
+import codingblackfemales.risk.PreTradeRisk;
+import codingblackfemales.risk.RiskLimits;
+import codingblackfemales.risk.RiskReject;
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.batch.MessageBatch;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import codingblackfemales.service.PositionService;
+import codingblackfemales.sotw.ChildOrder;
+import codingblackfemales.sotw.OrderState;
+import messages.marketdata.BookUpdateEncoder;
+import messages.order.AmendOrderDecoder;
+import messages.order.CancelOrderDecoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.MessageHeaderDecoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ActionerTest {
+
+    private final RecordingSequencer sequencer = new RecordingSequencer();
+    private final Actioner actioner = new Actioner(sequencer);
+
+    @Test
+    public void severalActionsAreSentAsOneBatchInOrder() {
+        final ActionList actions = new ActionList();
+        actions.add(new CancelChildOrder(new ChildOrder(Side.BUY, 2, 100, 99, OrderState.ACKED)));
+        actions.add(NoAction.NoAction);
+        actions.add(new CancelChildOrder(new ChildOrder(Side.SELL, 3, 100, 103, OrderState.ACKED)));
+        actions.add(new CreateChildOrder(Side.BUY, 100, 100));
+
+        actioner.processActions(actions);
+
+        assertTrue(actions.isEmpty());
+        assertEquals(0, sequencer.singles);
+        assertEquals(1, sequencer.batches);
+        assertEquals(List.of(CancelOrderDecoder.TEMPLATE_ID, CancelOrderDecoder.TEMPLATE_ID, CreateOrderDecoder.TEMPLATE_ID),
+                sequencer.templateIds);
+    }
+
+    @Test
+    public void aSingleActionIsSentOnItsOwn() {
+        final ActionList actions = new ActionList();
+        actions.add(new CreateChildOrder(Side.BUY, 100, 100));
+
+        actioner.processActions(actions);
+        actioner.processActions(actions);
+
+        assertTrue(actions.isEmpty());
+        assertEquals(1, sequencer.singles);
+        assertEquals(0, sequencer.batches);
+    }
+
+    @Test
+    public void actionsOverTheLimitAreDropped() {
+        final ActionList actions = new ActionList(2);
+        assertTrue(actions.add(new CreateChildOrder(Side.BUY, 100, 100)));
+        assertTrue(actions.add(new CreateChildOrder(Side.SELL, 100, 102)));
+        assertFalse(actions.add(new CreateChildOrder(Side.BUY, 100, 99)));
+
+        actioner.processActions(actions);
+
+        assertEquals(1, actions.getDroppedCount());
+        assertEquals(2, sequencer.templateIds.size());
+    }
+
+    @Test
+    public void ordersEarlierInTheBatchCountTowardsTheRiskLimits() {
+        final PreTradeRisk risk = riskOverBook(99, 101);
+        actioner.setRisk(risk);
+
+        final ActionList actions = new ActionList();
+        actions.add(new CreateChildOrder(Side.BUY, 60, 100));
+        actions.add(new CreateChildOrder(Side.BUY, 60, 100));
+        actions.add(new CreateChildOrder(Side.SELL, 60, 100));
+        actions.add(new CreateChildOrder(Side.SELL, 60, 100));
+        actions.add(new CreateChildOrder(Side.BUY, 10, 100));
+        actions.add(new CreateChildOrder(Side.BUY, 10, 100));
+        actioner.processActions(actions);
+
+        // the second buy and sell would each take the position past 100, the last buy is one order too many
+        assertEquals(3, sequencer.templateIds.size());
+        assertEquals(2, risk.getCount(RiskReject.POSITION));
+        assertEquals(1, risk.getCount(RiskReject.OPEN_ORDERS));
+        assertEquals(3, risk.getCount(RiskReject.NONE));
+
+        // once sent, the orders are left to the services to count
+        actions.add(new CreateChildOrder(Side.BUY, 60, 100));
+        actions.add(new CreateChildOrder(Side.SELL, 60, 100));
+        actioner.processActions(actions);
+        assertEquals(5, sequencer.templateIds.size());
+    }
+
+    @Test
+    public void amendsAreCheckedAgainstTheRiskLimits() {
+        final PreTradeRisk risk = riskOverBook(99, 101);
+        actioner.setRisk(risk);
+        final ChildOrder order = new ChildOrder(Side.BUY, 1, 50, 100, OrderState.ACKED);
+
+        final ActionList actions = new ActionList();
+        // growing the order by 110 is past the position limit on its own, 103 is more than 1% through the ask and the
+        // last amend's 60 comes on top of the 50 the one before it added
+        actions.add(new AmendChildOrder(order, 100, 160));
+        actions.add(new AmendChildOrder(order, 103, 50));
+        actions.add(new AmendChildOrder(order, 101, 100));
+        actions.add(new AmendChildOrder(order, 101, 110));
+        actioner.processActions(actions);
+
+        assertEquals(List.of(AmendOrderDecoder.TEMPLATE_ID), sequencer.templateIds);
+        assertEquals(2, risk.getCount(RiskReject.POSITION));
+        assertEquals(1, risk.getCount(RiskReject.PRICE_BAND));
+        assertEquals(1, risk.getCount(RiskReject.NONE));
+    }
+
+    @Test
+    public void actionsAreClearedAndTheBatchSentEvenIfAnActionFails() {
+        final ActionList actions = new ActionList();
+        actions.add(new CreateChildOrder(Side.BUY, 100, 100));
+        actions.add((Action) ignored -> {
+            throw new IllegalStateException("failed");
+        });
+        actions.add(new CreateChildOrder(Side.BUY, 100, 99));
+
+        try {
+            actioner.processActions(actions);
+            fail();
+        } catch (final IllegalStateException expected) {
+            // the action's own failure
+        }
+
+        assertTrue(actions.isEmpty());
+        assertEquals(1, sequencer.batches);
+        assertEquals(List.of(CreateOrderDecoder.TEMPLATE_ID), sequencer.templateIds);
+    }
+
+    private static PreTradeRisk riskOverBook(final long bestBid, final long bestAsk) {
+        final RunTrigger runTrigger = new RunTrigger();
+        final MarketDataService marketDataService = new MarketDataService(runTrigger);
+        final UnsafeBuffer book = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(book, 0, new messages.marketdata.MessageHeaderEncoder()).instrumentId(1);
+        encoder.bidBookCount(1).next().price(bestBid).size(100);
+        encoder.askBookCount(1).next().price(bestAsk).size(100);
+        marketDataService.onMessage(book);
+        return new PreTradeRisk(new RiskLimits(1_000, 3, 100, 100), marketDataService,
+                new OrderService(runTrigger), new PositionService(marketDataService));
+    }
+
+    private static class RecordingSequencer implements Sequencer {
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        private final List<Integer> templateIds = new ArrayList<>();
+        private int singles = 0;
+        private int batches = 0;
+
+        @Override
+        public void onCommand(final DirectBuffer buffer) {
+            singles++;
+            record(buffer, 0);
+        }
+
+        @Override
+        public void onCommands(final MessageBatch batch) {
+            batches++;
+            for (int position = batch.first(); position != MessageBatch.END; position = batch.next(position)) {
+                record(batch.buffer(), batch.messageOffset(position));
+            }
+        }
+
+        private void record(final DirectBuffer buffer, final int offset) {
+            header.wrap(buffer, offset);
+            templateIds.add(header.templateId());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package codingblackfemales.container;
+
+import codingblackfemales.action.Action;
+import codingblackfemales.action.CreateChildOrder;
+import codingblackfemales.action.NoAction;
+import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.risk.RiskLimits;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.consumer.LoggingConsumer;
+import codingblackfemales.sequencer.marketdata.SequencerTestCase;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sotw.SimpleAlgoState;
+import messages.marketdata.*;
+import messages.order.FillOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.CachedEpochClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class MultiAlgoContainerTest extends SequencerTestCase {
+
+    private CachedEpochClock clock;
+
+    private MultiAlgoContainer container;
+
+    @Override
+    public Sequencer getSequencer() {
+        final TestNetwork network = new TestNetwork();
+        final Sequencer sequencer = new DefaultSequencer(network);
+
+        clock = new CachedEpochClock();
+        container = new MultiAlgoContainer(sequencer, clock);
+
+        network.addConsumer(new LoggingConsumer());
+        network.addConsumer(container);
+
+        return sequencer;
+    }
+
+    private UnsafeBuffer createTick(final long instrumentId) {
+        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+        final BookUpdateEncoder encoder = new BookUpdateEncoder();
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.askBookCount(1).next().price(100L).size(101L);
+        encoder.bidBookCount(1).next().price(98L).size(100L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        encoder.source(Source.STREAM);
+
+        return directBuffer;
+    }
+
+    private UnsafeBuffer createFill(final long orderId) {
+        final messages.order.MessageHeaderEncoder headerEncoder = new messages.order.MessageHeaderEncoder();
+        final FillOrderEncoder encoder = new FillOrderEncoder();
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.orderId(orderId).quantity(50).price(98);
+
+        return directBuffer;
+    }
+
+    @Test
+    public void routesMarketDataByInstrumentAndOrdersByParent() throws Exception {
+        final CountingAlgo first = new CountingAlgo();
+        final CountingAlgo second = new CountingAlgo();
+        final CountingAlgo otherInstrument = new CountingAlgo();
+
+        final SimpleAlgoState firstState = container.addAlgo(1, 123, first);
+        final SimpleAlgoState secondState = container.addAlgo(2, 123, second);
+        final SimpleAlgoState otherState = container.addAlgo(3, 456, otherInstrument);
+
+        send(createTick(123));
+
+        assertEquals(1, firstState.getChildOrders().size());
+        assertEquals(1, secondState.getChildOrders().size());
+        assertEquals(0, otherState.getChildOrders().size());
+        assertEquals(0, otherInstrument.evaluations);
+        assertNotEquals(firstState.getChildOrders().get(0).getOrderId(), secondState.getChildOrders().get(0).getOrderId());
+        assertEquals(123, firstState.getInstrumentId());
+
+        final int secondEvaluations = second.evaluations;
+        final int firstEvaluations = first.evaluations;
+
+        send(createFill(firstState.getChildOrders().get(0).getOrderId()));
+
+        assertEquals(50, firstState.getChildOrders().get(0).getFilledQuantity());
+        assertEquals(firstEvaluations + 1, first.evaluations);
+        assertEquals(secondEvaluations, second.evaluations);
+    }
+
+    @Test
+    public void timerRunsOnlyTheAlgoThatScheduledIt() throws Exception {
+        final CountingAlgo withTimer = new CountingAlgo();
+        final CountingAlgo withoutTimer = new CountingAlgo();
+        final SimpleAlgoState state = container.addAlgo(10, 123, withTimer);
+        container.addAlgo(11, 123, withoutTimer);
+
+        state.getTimerService().scheduleAfter(100, (timerId, correlationId, now) -> withTimer.timersFired++, 0);
+
+        clock.advance(99);
+        container.pollTimers();
+        assertEquals(0, withTimer.timersFired);
+
+        clock.advance(1);
+        container.pollTimers();
+        assertEquals(1, withTimer.timersFired);
+        assertEquals(1, withTimer.evaluations);
+        assertEquals(0, withoutTimer.evaluations);
+    }
+
+    @Test
+    public void ordersAreHeldToEachAlgosRiskLimits() throws Exception {
+        final SimpleAlgoState withinLimit = container.addAlgo(20, 123, new CountingAlgo(), new RiskLimits(1_000, 10, 50, 1_000));
+        final SimpleAlgoState overLimit = container.addAlgo(21, 123, new CountingAlgo(), new RiskLimits(1_000, 10, 49, 1_000));
+
+        send(createTick(123));
+
+        assertEquals(1, withinLimit.getChildOrders().size());
+        assertEquals(0, overLimit.getChildOrders().size());
+    }
+
+    private static class CountingAlgo implements AlgoLogic {
+        private int evaluations = 0;
+        private int timersFired = 0;
+
+        @Override
+        public Action evaluate(final SimpleAlgoState state) {
+            evaluations++;
+            if (state.getBidLevels() > 0 && state.getChildOrders().isEmpty()) {
+                return new CreateChildOrder(Side.BUY, 50, state.getBidAt(0).price);
+            }
+            return NoAction.NoAction;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package codingblackfemales.container;
+
+import codingblackfemales.action.Action;
+import codingblackfemales.action.CreateChildOrder;
+import codingblackfemales.action.NoAction;
+import codingblackfemales.algo.AlgoLogic;
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.event.OrderEventListener;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sotw.SimpleAlgoState;
+import messages.marketdata.*;
+import messages.order.AckedOrderDecoder;
+import messages.order.CancelAckedOrderDecoder;
+import messages.order.CancelOrderDecoder;
+import messages.order.CancelOrderEncoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderDecoder;
+import messages.order.FillOrderEncoder;
+import messages.order.PartialFillOrderDecoder;
+import messages.order.PartialFillOrderEncoder;
+import messages.order.PendingOrderDecoder;
+import messages.order.Side;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.SystemEpochClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ShardedAlgoRunnerTest {
+
+    private static final long[] INSTRUMENTS = {1L, 2L, 3L, 4L, 5L, 6L};
+
+    private UnsafeBuffer createTick(final long instrumentId) {
+        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+        final BookUpdateEncoder encoder = new BookUpdateEncoder();
+        final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+
+        encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(instrumentId);
+        encoder.askBookCount(1).next().price(100L).size(101L);
+        encoder.bidBookCount(1).next().price(98L).size(100L);
+        encoder.instrumentStatus(InstrumentStatus.CONTINUOUS);
+        encoder.source(Source.STREAM);
+
+        return directBuffer;
+    }
+
+    @Test
+    public void algosRunOnTheirInstrumentsShardAndActionsAreSequenced() throws Exception {
+        final TestNetwork network = new TestNetwork();
+        final Sequencer sequencer = new DefaultSequencer(network);
+        final CreateOrderCounter counter = new CreateOrderCounter();
+
+        final ShardedAlgoRunner runner = new ShardedAlgoRunner(sequencer, 3, 1 << 16, BusySpinIdleStrategy::new, SystemEpochClock.INSTANCE);
+        network.addConsumer(counter);
+        network.addConsumer(runner);
+
+        final ThreadRecordingAlgo[] algos = new ThreadRecordingAlgo[INSTRUMENTS.length];
+        final SimpleAlgoState[] states = new SimpleAlgoState[INSTRUMENTS.length];
+        for (int i = 0; i < INSTRUMENTS.length; i++) {
+            algos[i] = new ThreadRecordingAlgo();
+            states[i] = runner.addAlgo(100 + i, INSTRUMENTS[i], algos[i]);
+        }
+
+        runner.start();
+        try {
+            for (long instrumentId : INSTRUMENTS) {
+                sequencer.onCommand(createTick(instrumentId));
+            }
+
+            final long deadline = System.currentTimeMillis() + 10_000;
+            while (!allAcknowledged(algos) && System.currentTimeMillis() < deadline) {
+                runner.drainCommands();
+            }
+        } finally {
+            runner.close();
+        }
+
+        assertEquals(INSTRUMENTS.length, counter.created);
+        for (int i = 0; i < INSTRUMENTS.length; i++) {
+            assertEquals(1, states[i].getChildOrders().size());
+            assertEquals(INSTRUMENTS[i], counter.lastInstrumentByParent[i]);
+            assertEquals("algo-shard-" + runner.shardFor(INSTRUMENTS[i]), algos[i].threadName);
+        }
+    }
+
+    @Test
+    public void forgetsChildOrdersOnceFilledOrCancelled() {
+        final ShardedAlgoRunner runner = new ShardedAlgoRunner(new DefaultSequencer(new TestNetwork()), 2, 1 << 16, BusySpinIdleStrategy::new, SystemEpochClock.INSTANCE);
+        final messages.order.MessageHeaderEncoder headerEncoder = new messages.order.MessageHeaderEncoder();
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+
+        for (long orderId = 1; orderId <= 3; orderId++) {
+            new CreateOrderEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder).instrumentId(orderId).orderId(orderId).quantity(100).price(99).side(Side.BUY);
+            runner.onMessage(buffer);
+        }
+        assertEquals(3, runner.getChildOrderCount());
+
+        new PartialFillOrderEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder).orderId(1).quantity(40).price(99);
+        runner.onMessage(buffer);
+        new FillOrderEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder).orderId(2).quantity(40).price(99);
+        runner.onMessage(buffer);
+        assertEquals(3, runner.getChildOrderCount());
+
+        new FillOrderEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder).orderId(1).quantity(60).price(99);
+        runner.onMessage(buffer);
+        new CancelOrderEncoder().wrapAndApplyHeader(buffer, 0, headerEncoder).orderId(3);
+        runner.onMessage(buffer);
+        assertEquals(1, runner.getChildOrderCount());
+    }
+
+    @Test(timeout = 30_000)
+    public void keepsDrainingCommandsWhileAShardsRingIsFull() {
+        final int[] sequenced = new int[1];
+        final ShardedAlgoRunner runner = new ShardedAlgoRunner(command -> sequenced[0]++, 1, 1024, BusySpinIdleStrategy::new, SystemEpochClock.INSTANCE);
+        // an order for every book, so the shard fills the command ring while the books fill its own
+        runner.addAlgo(100, 1, state -> new CreateChildOrder(Side.BUY, 50, 98));
+
+        runner.start();
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                runner.onMessage(createTick(1));
+            }
+            while (sequenced[0] < 2_000) {
+                runner.drainCommands();
+            }
+        } finally {
+            runner.close();
+        }
+
+        assertEquals(2_000, sequenced[0]);
+    }
+
+    @Test(timeout = 30_000)
+    public void givesUpOnAShardWhichStopsTakingMessages() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ShardedAlgoRunner runner = new ShardedAlgoRunner(command -> {}, 1, 1024, BusySpinIdleStrategy::new,
+                SystemEpochClock.INSTANCE, TimeUnit.MILLISECONDS.toNanos(50));
+        runner.addAlgo(100, 1, state -> {
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return NoAction.NoAction;
+        });
+
+        runner.start();
+        try {
+            runner.onMessage(createTick(1));
+            for (int i = 0; i < 1_000; i++) {
+                runner.onMessage(createTick(1));
+            }
+            fail("the shard never took anything off its ring");
+        } catch (final IllegalStateException expected) {
+            // nothing is taking books off the ring, so it never has space
+        } finally {
+            release.countDown();
+            runner.close();
+        }
+    }
+
+    // each algo runs again once its own CreateOrder has come back round to its shard
+    private static boolean allAcknowledged(final ThreadRecordingAlgo[] algos) {
+        for (ThreadRecordingAlgo algo : algos) {
+            if (algo.evaluations < 2) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class ThreadRecordingAlgo implements AlgoLogic {
+        private volatile String threadName;
+        private volatile int evaluations;
+
+        @Override
+        public Action evaluate(final SimpleAlgoState state) {
+            threadName = Thread.currentThread().getName();
+            evaluations++;
+            if (state.getChildOrders().isEmpty()) {
+                return new CreateChildOrder(Side.BUY, 50, state.getBidAt(0).price);
+            }
+            return NoAction.NoAction;
+        }
+    }
+
+    private static class CreateOrderCounter extends OrderEventListener {
+        private int created = 0;
+        private final long[] lastInstrumentByParent = new long[INSTRUMENTS.length];
+
+        @Override
+        public void onCreateOrder(final CreateOrderDecoder create) {
+            created++;
+            lastInstrumentByParent[(int) create.parentOrderId() - 100] = create.instrumentId();
+        }
+
+        @Override
+        public void onCancelOrder(final CancelOrderDecoder cancel) {
+        }
+
+        @Override
+        public void onAckedOrder(final AckedOrderDecoder acked) {
+        }
+
+        @Override
+        public void onCancelAckedOrder(final CancelAckedOrderDecoder cancelAcked) {
+        }
+
+        @Override
+        public void onPendingOrder(final PendingOrderDecoder pending) {
+        }
+
+        @Override
+        public void onPartialFill(final PartialFillOrderDecoder partialFill) {
+        }
+
+        @Override
+        public void onFill(final FillOrderDecoder fill) {
+        }
+    }
+}
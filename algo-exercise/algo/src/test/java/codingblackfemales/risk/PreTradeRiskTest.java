@@ -0,0 +1,159 @@
+package codingblackfemales.risk;
+
+import codingblackfemales.action.CancelChildOrder;
+import codingblackfemales.action.CreateChildOrder;
+import codingblackfemales.container.Actioner;
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import codingblackfemales.service.PositionService;
+import codingblackfemales.sotw.ChildOrder;
+import codingblackfemales.sotw.OrderState;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.CancelOrderEncoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderEncoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreTradeRiskTest {
+
+    private final messages.order.MessageHeaderEncoder orderHeader = new messages.order.MessageHeaderEncoder();
+    private final RunTrigger runTrigger = new RunTrigger();
+    private final MarketDataService marketDataService = new MarketDataService(runTrigger);
+    private final OrderService orderService = new OrderService(runTrigger);
+    private final PositionService positionService = new PositionService(marketDataService);
+
+    private long nanoTime = 0;
+
+    private PreTradeRisk risk(final RiskLimits limits) {
+        return new PreTradeRisk(limits, marketDataService, orderService, positionService, () -> nanoTime);
+    }
+
+    private UnsafeBuffer buffer() {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+    }
+
+    @Before
+    public void book() {
+        final UnsafeBuffer book = buffer();
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(book, 0, new MessageHeaderEncoder()).instrumentId(1);
+        encoder.bidBookCount(1).next().price(100).size(100);
+        encoder.askBookCount(1).next().price(102).size(100);
+        marketDataService.onMessage(book);
+    }
+
+    private void created(final long orderId, final Side side) {
+        final UnsafeBuffer create = buffer();
+        new CreateOrderEncoder().wrapAndApplyHeader(create, 0, orderHeader).orderId(orderId).side(side).price(100).quantity(100);
+        orderService.onMessage(create);
+        positionService.onMessage(create);
+    }
+
+    private void filled(final long orderId, final long quantity) {
+        final UnsafeBuffer fill = buffer();
+        new FillOrderEncoder().wrapAndApplyHeader(fill, 0, orderHeader).orderId(orderId).quantity(quantity).price(100);
+        orderService.onMessage(fill);
+        positionService.onMessage(fill);
+    }
+
+    private void cancelled(final long orderId) {
+        final UnsafeBuffer cancel = buffer();
+        new CancelOrderEncoder().wrapAndApplyHeader(cancel, 0, orderHeader).orderId(orderId);
+        orderService.onMessage(cancel);
+        positionService.onMessage(cancel);
+    }
+
+    // as the actioner does once an order is sent, and the services have seen it
+    private static int sent(final PreTradeRisk risk, final CreateChildOrder order) {
+        final int reject = risk.check(order);
+        risk.clearPending();
+        return reject;
+    }
+
+    @Test
+    public void orderRateIsATokenBucket() {
+        final PreTradeRisk risk = risk(new RiskLimits(2, 100, 10_000, 100));
+        final CreateChildOrder order = new CreateChildOrder(Side.BUY, 10, 100);
+
+        assertEquals(RiskReject.NONE, risk.check(order));
+        assertEquals(RiskReject.NONE, risk.check(order));
+        assertEquals(RiskReject.ORDER_RATE, risk.check(order));
+
+        nanoTime += 500_000_000L;
+        assertEquals(RiskReject.NONE, risk.check(order));
+        assertEquals(RiskReject.ORDER_RATE, risk.check(order));
+
+        nanoTime += 60_000_000_000L;
+        assertEquals(RiskReject.NONE, risk.check(order));
+        assertEquals(RiskReject.NONE, risk.check(order));
+        assertEquals(RiskReject.ORDER_RATE, risk.check(order));
+        assertEquals(3, risk.getCount(RiskReject.ORDER_RATE));
+        assertEquals(5, risk.getCount(RiskReject.NONE));
+    }
+
+    @Test
+    public void openOrdersAndPosition() {
+        final PreTradeRisk risk = risk(new RiskLimits(1_000, 2, 150, 100));
+
+        created(2, Side.BUY);
+        created(3, Side.BUY);
+        assertEquals(RiskReject.OPEN_ORDERS, sent(risk, new CreateChildOrder(Side.BUY, 10, 100)));
+
+        // 100 bought and buy order 3 for 100 still open: any buy could take the position to more than 150
+        filled(2, 100);
+        assertEquals(1, orderService.getOpenOrderCount());
+        assertEquals(RiskReject.POSITION, sent(risk, new CreateChildOrder(Side.BUY, 1, 100)));
+        // open buys cannot fill the other way, so a sell is checked against the filled position alone
+        assertEquals(RiskReject.NONE, sent(risk, new CreateChildOrder(Side.SELL, 250, 100)));
+        assertEquals(RiskReject.POSITION, sent(risk, new CreateChildOrder(Side.SELL, 251, 100)));
+
+        cancelled(3);
+        assertEquals(RiskReject.POSITION, sent(risk, new CreateChildOrder(Side.BUY, 51, 100)));
+        assertEquals(RiskReject.NONE, sent(risk, new CreateChildOrder(Side.BUY, 50, 100)));
+
+        created(4, Side.SELL);
+        filled(4, 40);
+        assertEquals(60, positionService.getNetQuantity());
+        assertEquals(60, positionService.getOpenSellQuantity());
+        assertEquals(RiskReject.NONE, sent(risk, new CreateChildOrder(Side.SELL, 150, 100)));
+        assertEquals(RiskReject.POSITION, sent(risk, new CreateChildOrder(Side.SELL, 151, 100)));
+    }
+
+    @Test
+    public void priceBandAroundTheFarTouch() {
+        // 1% band: buys up to 103.02, sells down to 99
+        final PreTradeRisk risk = risk(new RiskLimits(1_000, 100, 10_000, 100));
+
+        assertEquals(RiskReject.NONE, risk.check(new CreateChildOrder(Side.BUY, 10, 103)));
+        assertEquals(RiskReject.PRICE_BAND, risk.check(new CreateChildOrder(Side.BUY, 10, 104)));
+        assertEquals(RiskReject.NONE, risk.check(new CreateChildOrder(Side.SELL, 10, 99)));
+        assertEquals(RiskReject.PRICE_BAND, risk.check(new CreateChildOrder(Side.SELL, 10, 98)));
+
+        final PreTradeRisk noBook = new PreTradeRisk(new RiskLimits(1_000, 100, 10_000, 100),
+                new MarketDataService(runTrigger), orderService, positionService, () -> nanoTime);
+        assertEquals(RiskReject.NO_MARKET, noBook.check(new CreateChildOrder(Side.BUY, 10, 100)));
+    }
+
+    @Test
+    public void actionerDropsRejectedOrdersButNeverCancels() {
+        final List<DirectBuffer> sent = new ArrayList<>();
+        final Actioner actioner = new Actioner(sent::add, risk(new RiskLimits(1, 100, 10_000, 100)));
+
+        actioner.processAction(new CreateChildOrder(Side.BUY, 10, 100));
+        actioner.processAction(new CreateChildOrder(Side.BUY, 10, 100));
+        actioner.processAction(new CancelChildOrder(new ChildOrder(Side.BUY, 2, 10, 100, OrderState.ACKED)));
+
+        assertEquals(2, sent.size());
+    }
+}
@@ -0,0 +1,70 @@
+package codingblackfemales.service;
+
+import codingblackfemales.action.AmendChildOrder;
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sotw.ChildOrder;
+import messages.order.AmendAckedOrderEncoder;
+import messages.order.AmendRejectedOrderEncoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.PartialFillOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrderServiceTest {
+
+    private final messages.order.MessageHeaderEncoder orderHeader = new messages.order.MessageHeaderEncoder();
+    private final OrderService orders = new OrderService(new RunTrigger());
+
+    private UnsafeBuffer buffer() {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+    }
+
+    private void amendAcked(final long orderId, final long price, final long quantity) {
+        final UnsafeBuffer ack = buffer();
+        new AmendAckedOrderEncoder().wrapAndApplyHeader(ack, 0, orderHeader).orderId(orderId).price(price).quantity(quantity);
+        orders.onMessage(ack);
+    }
+
+    @Test
+    public void amendChangesPriceAndQuantityInPlaceOnceAcked() {
+        final UnsafeBuffer create = buffer();
+        new CreateOrderEncoder().wrapAndApplyHeader(create, 0, orderHeader).orderId(2).side(Side.SELL).price(105).quantity(100);
+        orders.onMessage(create);
+
+        final UnsafeBuffer fill = buffer();
+        new PartialFillOrderEncoder().wrapAndApplyHeader(fill, 0, orderHeader).orderId(2).quantity(30).price(105);
+        orders.onMessage(fill);
+
+        final ChildOrder child = orders.children().get(0);
+        new AmendChildOrder(child, 104, 80).apply(orders::onMessage);
+        assertEquals(105, child.getPrice());
+        assertEquals(100, child.getQuantity());
+
+        amendAcked(2, 104, 80);
+        assertEquals(1, orders.children().size());
+        assertEquals(104, child.getPrice());
+        assertEquals(80, child.getQuantity());
+        assertEquals(1, orders.getOpenOrderCount());
+
+        // rejected, e.g. the order filled before the amend reached the venue
+        new AmendChildOrder(child, 103, 90).apply(orders::onMessage);
+        final UnsafeBuffer reject = buffer();
+        new AmendRejectedOrderEncoder().wrapAndApplyHeader(reject, 0, orderHeader).orderId(2);
+        orders.onMessage(reject);
+        assertEquals(104, child.getPrice());
+        assertEquals(80, child.getQuantity());
+
+        // below what has filled, so nothing is left to fill
+        amendAcked(2, 104, 10);
+
+        assertEquals(30, child.getQuantity());
+        assertTrue(child.isFullyFilled());
+        assertEquals(0, orders.getOpenOrderCount());
+    }
+}
@@ -0,0 +1,127 @@
+package codingblackfemales.service;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sotw.Position;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.CancelAckedOrderEncoder;
+import messages.order.CancelOrderEncoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderEncoder;
+import messages.order.PartialFillOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PositionServiceTest {
+
+    private final messages.order.MessageHeaderEncoder orderHeader = new messages.order.MessageHeaderEncoder();
+    private final MarketDataService marketDataService = new MarketDataService(new RunTrigger());
+    private final PositionService positions = new PositionService(marketDataService);
+
+    private UnsafeBuffer buffer() {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+    }
+
+    private void create(final long orderId, final long instrumentId, final Side side) {
+        final UnsafeBuffer create = buffer();
+        new CreateOrderEncoder().wrapAndApplyHeader(create, 0, orderHeader).orderId(orderId).instrumentId(instrumentId).side(side).price(10).quantity(1000);
+        positions.onMessage(create);
+    }
+
+    private void fill(final long orderId, final long quantity, final long price) {
+        final UnsafeBuffer fill = buffer();
+        new FillOrderEncoder().wrapAndApplyHeader(fill, 0, orderHeader).orderId(orderId).quantity(quantity).price(price);
+        positions.onMessage(fill);
+    }
+
+    private void partialFill(final long orderId, final long quantity, final long price) {
+        final UnsafeBuffer fill = buffer();
+        new PartialFillOrderEncoder().wrapAndApplyHeader(fill, 0, orderHeader).orderId(orderId).quantity(quantity).price(price);
+        positions.onMessage(fill);
+    }
+
+    private void mid(final long bid, final long ask) {
+        final UnsafeBuffer book = buffer();
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(book, 0, new MessageHeaderEncoder()).instrumentId(1);
+        encoder.bidBookCount(1).next().price(bid).size(100);
+        encoder.askBookCount(1).next().price(ask).size(100);
+        marketDataService.onMessage(book);
+    }
+
+    @Test
+    public void averagesInAndRealisesOut() {
+        create(2, 1, Side.BUY);
+        create(3, 1, Side.SELL);
+
+        partialFill(2, 100, 10);
+        fill(2, 100, 12);
+        final Position position = positions.getPosition(1);
+        assertEquals(200, position.getQuantity());
+        assertEquals(11.0, position.getAveragePrice(), 1e-9);
+
+        partialFill(3, 150, 13);
+        assertEquals(50, position.getQuantity());
+        assertEquals(300.0, position.getRealisedPnl(), 1e-9);
+        assertEquals(11.0, position.getAveragePrice(), 1e-9);
+
+        // selling through flat opens a short at the fill price
+        fill(3, 100, 9);
+        assertEquals(-50, position.getQuantity());
+        assertEquals(200.0, position.getRealisedPnl(), 1e-9);
+        assertEquals(9.0, position.getAveragePrice(), 1e-9);
+        assertEquals(200, position.getBoughtQuantity());
+        assertEquals(250, position.getSoldQuantity());
+        assertEquals(4, position.getFillCount());
+    }
+
+    @Test
+    public void unrealisedPnlIsMarkedToTheMid() {
+        create(2, 1, Side.BUY);
+        fill(2, 100, 10);
+        assertEquals(0.0, positions.getUnrealisedPnl(), 0.0);
+
+        mid(11, 13);
+        assertEquals(200.0, positions.getUnrealisedPnl(), 1e-9);
+        mid(8, 10);
+        assertEquals(-100.0, positions.getPosition(1).getTotalPnl(), 1e-9);
+    }
+
+    @Test
+    public void fillsForOrdersItDidNotSeeCreatedAreIgnored() {
+        fill(7, 100, 10);
+        assertNull(positions.getPosition(0));
+        assertEquals(0.0, positions.getRealisedPnl(), 0.0);
+    }
+
+    @Test
+    public void forgetsOrdersOnceFilledOrCancelled() {
+        create(2, 1, Side.BUY);
+        create(3, 1, Side.BUY);
+        create(4, 1, Side.SELL);
+        create(5, 1, Side.SELL);
+        assertEquals(4, positions.getTrackedOrderCount());
+
+        partialFill(2, 400, 10);
+        fill(2, 600, 10);
+        final UnsafeBuffer cancel = buffer();
+        new CancelOrderEncoder().wrapAndApplyHeader(cancel, 0, orderHeader).orderId(3);
+        positions.onMessage(cancel);
+        final UnsafeBuffer cancelAck = buffer();
+        new CancelAckedOrderEncoder().wrapAndApplyHeader(cancelAck, 0, orderHeader).orderId(4);
+        positions.onMessage(cancelAck);
+        assertEquals(1, positions.getTrackedOrderCount());
+
+        // a late fill for an order already forgotten leaves the position alone
+        fill(2, 100, 10);
+        fill(5, 1000, 11);
+        assertEquals(0, positions.getTrackedOrderCount());
+        assertEquals(0, positions.getPosition(1).getQuantity());
+        assertEquals(1000.0, positions.getRealisedPnl(), 1e-9);
+    }
+}
@@ -0,0 +1,79 @@
+package codingblackfemales.service;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.sequencer.snapshot.CompositeSnapshot;
+import codingblackfemales.sequencer.snapshot.SnapshotReader;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import codingblackfemales.sotw.ChildOrder;
+import codingblackfemales.sotw.OrderState;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.AckedOrderEncoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.PartialFillOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ServiceSnapshotTest {
+
+    private final messages.order.MessageHeaderEncoder orderHeader = new messages.order.MessageHeaderEncoder();
+
+    private UnsafeBuffer buffer() {
+        return new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+    }
+
+    @Test
+    public void restoresBooksChildrenAndFills() {
+        final RunTrigger runTrigger = new RunTrigger();
+        final MarketDataService marketDataService = new MarketDataService(runTrigger);
+        final OrderService orderService = new OrderService(runTrigger);
+
+        final UnsafeBuffer book = buffer();
+        final BookUpdateEncoder bookEncoder = new BookUpdateEncoder().wrapAndApplyHeader(book, 0, new MessageHeaderEncoder()).instrumentId(7);
+        bookEncoder.bidBookCount(2).next().price(98).size(100).next().price(97).size(200);
+        bookEncoder.askBookCount(1).next().price(101).size(300);
+        marketDataService.onMessage(book);
+
+        final UnsafeBuffer create = buffer();
+        new CreateOrderEncoder().wrapAndApplyHeader(create, 0, orderHeader).orderId(2).side(Side.BUY).price(98).quantity(100);
+        orderService.onMessage(create);
+        final UnsafeBuffer acked = buffer();
+        new AckedOrderEncoder().wrapAndApplyHeader(acked, 0, orderHeader).orderId(2);
+        orderService.onMessage(acked);
+        final UnsafeBuffer fill = buffer();
+        new PartialFillOrderEncoder().wrapAndApplyHeader(fill, 0, orderHeader).orderId(2).quantity(40).price(98);
+        orderService.onMessage(fill);
+
+        final CompositeSnapshot state = new CompositeSnapshot(marketDataService, orderService);
+        final SnapshotWriter writer = new SnapshotWriter().begin(5).write(state);
+        final byte[] bytes = new byte[writer.length()];
+        writer.buffer().getBytes(0, bytes);
+
+        final RunTrigger restoredTrigger = new RunTrigger();
+        final MarketDataService restoredMarketData = new MarketDataService(restoredTrigger);
+        final OrderService restoredOrders = new OrderService(restoredTrigger);
+        new SnapshotReader(bytes).read(new CompositeSnapshot(restoredMarketData, restoredOrders));
+
+        assertEquals(7, restoredMarketData.getInstrumentId());
+        assertEquals(2, restoredMarketData.getBidLength());
+        assertEquals(97, restoredMarketData.getBidLevel(1).getPrice());
+        assertEquals(200, restoredMarketData.getBidLevel(1).getQuantity());
+        assertEquals(1, restoredMarketData.getAskLength());
+        assertEquals(101, restoredMarketData.getAskLevel(0).getPrice());
+        assertNull(restoredMarketData.getAskLevel(1));
+
+        assertEquals(1, restoredOrders.children().size());
+        final ChildOrder child = restoredOrders.children().get(0);
+        assertEquals(2, child.getOrderId());
+        assertEquals(Side.BUY, child.getSide());
+        assertEquals(OrderState.ACKED, child.getState());
+        assertEquals(40, child.getFilledQuantity());
+        assertEquals(1, child.getFills().size());
+    }
+}
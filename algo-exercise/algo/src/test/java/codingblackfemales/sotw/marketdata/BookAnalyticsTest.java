@@ -0,0 +1,80 @@
+package codingblackfemales.sotw.marketdata;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import codingblackfemales.sotw.SimpleAlgoStateImpl;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BookAnalyticsTest {
+
+    private static final long[] BID_PRICES = {100, 99, 98};
+    private static final long[] BID_QUANTITIES = {100, 200, 300};
+    private static final long[] ASK_PRICES = {102, 103, 104};
+    private static final long[] ASK_QUANTITIES = {50, 50, 400};
+
+    @Test
+    public void quantityToAPrice() {
+        assertEquals(300, BookAnalytics.bidQuantityAtOrAbove(BID_PRICES, BID_QUANTITIES, 3, 99));
+        assertEquals(0, BookAnalytics.bidQuantityAtOrAbove(BID_PRICES, BID_QUANTITIES, 3, 101));
+        assertEquals(100, BookAnalytics.askQuantityAtOrBelow(ASK_PRICES, ASK_QUANTITIES, 3, 103));
+        assertEquals(500, BookAnalytics.askQuantityAtOrBelow(ASK_PRICES, ASK_QUANTITIES, 3, 200));
+    }
+
+    @Test
+    public void priceToFill() {
+        assertEquals(102, BookAnalytics.priceToFill(ASK_PRICES, ASK_QUANTITIES, 3, 50));
+        assertEquals(104, BookAnalytics.priceToFill(ASK_PRICES, ASK_QUANTITIES, 3, 101));
+        assertEquals(BookAnalytics.NO_PRICE, BookAnalytics.priceToFill(ASK_PRICES, ASK_QUANTITIES, 3, 501));
+        assertEquals((50 * 102 + 50 * 103 + 100 * 104) / 200.0, BookAnalytics.averagePriceToFill(ASK_PRICES, ASK_QUANTITIES, 3, 200), 1e-9);
+        assertTrue(Double.isNaN(BookAnalytics.averagePriceToFill(ASK_PRICES, ASK_QUANTITIES, 3, 501)));
+    }
+
+    @Test
+    public void depthWeightedMidLeansTowardsTheThinnerSide() {
+        // one level: (100 x 50 + 102 x 100) / 150
+        assertEquals(101.333333, BookAnalytics.depthWeightedMid(BID_PRICES, BID_QUANTITIES, 3, ASK_PRICES, ASK_QUANTITIES, 3, 1), 1e-6);
+        assertTrue(Double.isNaN(BookAnalytics.depthWeightedMid(BID_PRICES, BID_QUANTITIES, 0, ASK_PRICES, ASK_QUANTITIES, 3, 1)));
+
+        assertEquals((100 - 50) / 150.0, BookAnalytics.imbalance(BID_QUANTITIES, 3, ASK_QUANTITIES, 3, 1), 1e-9);
+        assertEquals((600 - 500) / 1100.0, BookAnalytics.imbalance(BID_QUANTITIES, 3, ASK_QUANTITIES, 3, 10), 1e-9);
+        assertEquals(0.0, BookAnalytics.imbalance(BID_QUANTITIES, 0, ASK_QUANTITIES, 0, 10), 0.0);
+    }
+
+    @Test
+    public void marketDataServiceKeepsDeepBooksAsArrays() {
+        final MarketDataService marketDataService = new MarketDataService(new RunTrigger());
+        final UnsafeBuffer book = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(book, 0, new MessageHeaderEncoder()).instrumentId(1);
+        final BookUpdateEncoder.BidBookEncoder bids = encoder.bidBookCount(40);
+        for (int i = 0; i < 40; i++) {
+            bids.next().price(1000 - i).size(10);
+        }
+        encoder.askBookCount(1).next().price(1001).size(400);
+        marketDataService.onMessage(book);
+
+        final SimpleAlgoStateImpl state = new SimpleAlgoStateImpl(marketDataService, new OrderService(new RunTrigger()));
+        assertEquals(40, state.getBidLevels());
+        assertEquals(961, state.getBidAt(39).getPrice());
+        assertEquals(961, state.getBidPrices()[39]);
+        assertEquals(971, BookAnalytics.priceToSell(state, 300));
+        assertEquals(1001, BookAnalytics.priceToBuy(state, 400));
+        assertEquals(0.0, BookAnalytics.imbalance(state, 40), 0.0);
+
+        // an update without bids leaves none, rather than the previous book's length
+        encoder.wrapAndApplyHeader(book, 0, new MessageHeaderEncoder()).instrumentId(1).bidBookCount(0);
+        encoder.askBookCount(1).next().price(1001).size(400);
+        marketDataService.onMessage(book);
+        assertEquals(0, state.getBidLevels());
+        assertArrayEquals(new long[]{1001}, java.util.Arrays.copyOf(state.getAskPrices(), state.getAskLevels()));
+    }
+}
@@ -0,0 +1,74 @@
+package codingblackfemales.sotw.marketdata;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.service.MarketDataService;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BookSignalsTest {
+
+    @Test
+    public void ewmaMidAndImbalanceFollowTheTopOfBook() {
+        final BookSignals signals = new BookSignals(0.5, 10);
+        assertTrue(Double.isNaN(signals.getMid()));
+
+        signals.onTopOfBook(98, 300, 102, 100);
+        assertEquals(100.0, signals.getEwmaMid(), 0.0);
+        assertEquals(4, signals.getSpread());
+        assertEquals(0.5, signals.getTopOfBookImbalance(), 1e-9);
+
+        signals.onTopOfBook(100, 100, 104, 100);
+        assertEquals(102.0, signals.getMid(), 0.0);
+        assertEquals(101.0, signals.getEwmaMid(), 0.0);
+        assertEquals(0.0, signals.getTopOfBookImbalance(), 0.0);
+    }
+
+    @Test
+    public void realisedVolatilityOnlyCoversTheWindow() {
+        final BookSignals signals = new BookSignals(0.5, 2);
+        signals.onTopOfBook(99, 100, 101, 100);
+        assertEquals(0.0, signals.getRealisedVolatility(), 0.0);
+
+        // a jump, then the mid sits still for a full window
+        signals.onTopOfBook(109, 100, 111, 100);
+        assertEquals(Math.log(110.0 / 100.0), signals.getRealisedVolatility(), 1e-12);
+        signals.onTopOfBook(109, 100, 111, 100);
+        signals.onTopOfBook(109, 100, 111, 100);
+        assertEquals(0.0, signals.getRealisedVolatility(), 0.0);
+    }
+
+    @Test
+    public void countsTradeThroughs() {
+        final BookSignals signals = new BookSignals();
+        signals.onTopOfBook(99, 100, 101, 100);
+        signals.onTopOfBook(101, 100, 103, 100);
+        signals.onTopOfBook(100, 100, 102, 100);
+        signals.onTopOfBook(97, 100, 100, 100);
+
+        assertEquals(1, signals.getTradeThroughsUp());
+        assertEquals(1, signals.getTradeThroughsDown());
+        assertEquals(4, signals.getUpdateCount());
+    }
+
+    @Test
+    public void marketDataServiceUpdatesSignalsOnEachBook() {
+        final MarketDataService marketDataService = new MarketDataService(new RunTrigger());
+        final UnsafeBuffer book = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        for (int i = 0; i < 3; i++) {
+            final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(book, 0, new MessageHeaderEncoder()).instrumentId(1);
+            encoder.bidBookCount(1).next().price(98 + i).size(100);
+            encoder.askBookCount(1).next().price(102 + i).size(100);
+            marketDataService.onMessage(book);
+        }
+
+        assertEquals(3, marketDataService.getSignals().getUpdateCount());
+        assertEquals(102.0, marketDataService.getSignals().getMid(), 0.0);
+    }
+}
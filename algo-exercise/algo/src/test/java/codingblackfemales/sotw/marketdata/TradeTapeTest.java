@@ -0,0 +1,82 @@
+package codingblackfemales.sotw.marketdata;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.TradeTapeService;
+import messages.marketdata.AggressorSide;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.marketdata.TradeEncoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TradeTapeTest {
+
+    @Test
+    public void vwapAndVolumeOnlyCoverTheWindow() {
+        final TradeTape tape = new TradeTape(2);
+        assertTrue(Double.isNaN(tape.getVwap()));
+
+        tape.onTrade(1, 100, 10, true);
+        tape.onTrade(2, 110, 30, false);
+        assertEquals(107.5, tape.getVwap(), 0.0);
+        assertEquals(40, tape.getWindowVolume());
+        assertEquals(0.25, tape.getBuyVolumeRatio(), 0.0);
+
+        // the first trade drops out of the window but stays in the totals
+        tape.onTrade(3, 120, 10, true);
+        assertEquals(112.5, tape.getVwap(), 0.0);
+        assertEquals(40, tape.getWindowVolume());
+        assertEquals(2, tape.getWindowTradeCount());
+        assertEquals(120, tape.getLastPrice());
+        assertEquals(3, tape.getTradeCount());
+        assertEquals(50, tape.getTotalVolume());
+    }
+
+    @Test
+    public void countsMissedTrades() {
+        final TradeTape tape = new TradeTape();
+        tape.onTrade(1, 100, 10, true);
+        tape.onTrade(4, 100, 10, true);
+        tape.onTrade(5, 100, 10, true);
+
+        assertEquals(2, tape.getMissedTrades());
+        assertEquals(5, tape.getLastSequence());
+
+        tape.reset();
+        assertEquals(0, tape.getTradeCount());
+        assertTrue(Double.isNaN(tape.getVwap()));
+    }
+
+    @Test
+    public void servicesKeepATapePerInstrument() {
+        final RunTrigger runTrigger = new RunTrigger();
+        final MarketDataService marketDataService = new MarketDataService(runTrigger);
+        final TradeTapeService tradeTapeService = new TradeTapeService();
+
+        marketDataService.onMessage(trade(1, 1, 100, 50, AggressorSide.BUY));
+        tradeTapeService.onMessage(trade(1, 1, 100, 50, AggressorSide.BUY));
+        tradeTapeService.onMessage(trade(2, 1, 200, 20, AggressorSide.SELL));
+
+        assertTrue(runTrigger.shouldRun());
+        assertEquals(100.0, marketDataService.getTradeTape().getVwap(), 0.0);
+        assertEquals(1.0, marketDataService.getTradeTape().getBuyVolumeRatio(), 0.0);
+        assertEquals(50, tradeTapeService.getTape(1).getTotalVolume());
+        assertEquals(200, tradeTapeService.getTape(2).getLastPrice());
+        assertSame(tradeTapeService.getTape(2), tradeTapeService.getTape(2));
+    }
+
+    private static UnsafeBuffer trade(final long instrumentId, final long sequence, final long price, final long size, final AggressorSide side) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(new byte[MessageHeaderEncoder.ENCODED_LENGTH + TradeEncoder.BLOCK_LENGTH]);
+        new TradeEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId)
+                .sequence(sequence)
+                .price(price)
+                .size(size)
+                .aggressorSide(side);
+        return buffer;
+    }
+}
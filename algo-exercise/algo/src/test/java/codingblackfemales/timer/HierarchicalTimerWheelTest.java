@@ -0,0 +1,176 @@
+package codingblackfemales.timer;
+
+import codingblackfemales.action.NoAction;
+import codingblackfemales.container.Actioner;
+import codingblackfemales.container.AlgoContainer;
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.service.MarketDataService;
+import codingblackfemales.service.OrderService;
+import codingblackfemales.sotw.SimpleAlgoStateImpl;
+import org.agrona.concurrent.CachedEpochClock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HierarchicalTimerWheelTest {
+
+    private final CachedEpochClock clock = new CachedEpochClock();
+    private final List<long[]> fired = new ArrayList<>();
+    private final TimerHandler recorder = (timerId, correlationId, now) -> fired.add(new long[]{correlationId, now});
+
+    private HierarchicalTimerWheel wheel;
+
+    @Before
+    public void setUp() {
+        clock.update(1_000);
+        wheel = new HierarchicalTimerWheel(clock, 1, 4);
+    }
+
+    @Test
+    public void firesAtDeadlineAndNotBefore() {
+        wheel.scheduleAfter(10, recorder, 42);
+
+        clock.advance(9);
+        assertEquals(0, wheel.poll());
+
+        clock.advance(1);
+        assertEquals(1, wheel.poll());
+        assertEquals(42, fired.get(0)[0]);
+        assertEquals(1_010, fired.get(0)[1]);
+        assertEquals(0, wheel.timerCount());
+    }
+
+    @Test
+    public void cancelledTimerDoesNotFire() {
+        final long timerId = wheel.scheduleAfter(5, recorder, 1);
+        wheel.scheduleAfter(5, recorder, 2);
+
+        assertTrue(wheel.cancelTimer(timerId));
+        assertFalse(wheel.cancelTimer(timerId));
+
+        clock.advance(5);
+        assertEquals(1, wheel.poll());
+        assertEquals(2, fired.get(0)[0]);
+    }
+
+    @Test
+    public void staleTimerIdCannotCancelReusedSlot() {
+        final long first = wheel.scheduleAfter(1, recorder, 1);
+        clock.advance(1);
+        wheel.poll();
+
+        final long second = wheel.scheduleAfter(1, recorder, 2);
+        assertFalse(wheel.cancelTimer(first));
+        assertEquals(1, wheel.timerCount());
+        assertTrue(wheel.cancelTimer(second));
+    }
+
+    @Test
+    public void pastDeadlineFiresOnNextPoll() {
+        wheel.scheduleTimer(clock.time() - 100, recorder, 7);
+        assertEquals(1, wheel.poll());
+        assertEquals(7, fired.get(0)[0]);
+    }
+
+    @Test
+    public void cascadesFromOuterWheelsAndOverflow() {
+        final long[] delays = {63, 64, 65, 4_095, 4_096, 262_144, 16_777_216, 40_000_000};
+        for (long delay : delays) {
+            wheel.scheduleAfter(delay, recorder, delay);
+        }
+
+        for (long delay : delays) {
+            clock.update(1_000 + delay - 1);
+            wheel.poll();
+            assertEquals("early fire for " + delay, 0, countFired(delay));
+
+            clock.update(1_000 + delay);
+            wheel.poll();
+            assertEquals("missed fire for " + delay, 1, countFired(delay));
+        }
+        assertEquals(0, wheel.timerCount());
+    }
+
+    @Test
+    public void handlerCanRescheduleAndCancel() {
+        final long toCancel = wheel.scheduleAfter(20, recorder, 99);
+        wheel.scheduleAfter(10, (timerId, correlationId, now) -> {
+            wheel.cancelTimer(toCancel);
+            wheel.scheduleTimer(1_015, recorder, 3);
+        }, 0);
+
+        clock.advance(30);
+        assertEquals(2, wheel.poll());
+        assertEquals(1, fired.size());
+        assertEquals(3, fired.get(0)[0]);
+    }
+
+    @Test
+    public void growsPoolAndFiresEveryTimerInDeadlineOrder() {
+        final Random random = new Random(17);
+        final int timers = 5_000;
+        for (int i = 0; i < timers; i++) {
+            final long delay = random.nextInt(100_000);
+            wheel.scheduleAfter(delay, recorder, 1_000 + delay);
+        }
+        assertEquals(timers, wheel.timerCount());
+
+        for (int i = 0; i < 100; i++) {
+            clock.advance(1_000);
+            wheel.poll();
+        }
+
+        assertEquals(timers, fired.size());
+        long last = Long.MIN_VALUE;
+        for (long[] timer : fired) {
+            assertTrue(timer[0] >= last);
+            assertTrue(timer[0] <= timer[1]);
+            last = timer[0];
+        }
+    }
+
+    private int countFired(final long correlationId) {
+        int found = 0;
+        for (long[] timer : fired) {
+            if (timer[0] == correlationId) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void containerTimersRunOnItsClockAndFireWhenItPolls() {
+        final RunTrigger runTrigger = new RunTrigger();
+        final AlgoContainer container = new AlgoContainer(new MarketDataService(runTrigger), new OrderService(runTrigger), runTrigger, new Actioner(command -> { }), clock);
+        container.setLogic(state -> {
+            if (state.getTimerService().timerCount() == 0 && fired.isEmpty()) {
+                state.getTimerService().scheduleAfter(50, recorder, 7);
+            }
+            return NoAction.NoAction;
+        });
+
+        runTrigger.triggerRun();
+        container.pollTimers();
+        assertEquals(1, container.getState().getTimerService().timerCount());
+
+        clock.update(1_050);
+        container.pollTimers();
+        assertEquals(1, fired.size());
+        assertEquals(7, fired.get(0)[0]);
+        assertEquals(1_050, fired.get(0)[1]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void stateOutsideAContainerHasNoTimers() {
+        final RunTrigger runTrigger = new RunTrigger();
+        new SimpleAlgoStateImpl(new MarketDataService(runTrigger), new OrderService(runTrigger)).getTimerService().scheduleAfter(50, recorder, 7);
+    }
+}
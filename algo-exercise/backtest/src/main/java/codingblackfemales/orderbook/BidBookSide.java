@@ -1,8 +1,5 @@
 package codingblackfemales.orderbook;
 
-import codingblackfemales.orderbook.visitor.FilteringOrderBookVisitor;
-import codingblackfemales.orderbook.visitor.MutatingAddOrderVisitor;
-import codingblackfemales.orderbook.visitor.OrderBookVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -0,0 +1,223 @@
+package codingblackfemales.orderbook;
+
+import messages.marketdata.*;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+
+/**
+ * The BookUpdate the {@link OrderBook} publishes, kept encoded and changed in place as its levels change rather than
+ * re-encoded from every level on each publish.
+ *
+ * The buffer is the only copy of the levels: each side's entries are sorted best price first, so a level is found by a
+ * binary search over the encoded prices and a new quantity is one write. A new or emptied level shifts the bytes after
+ * it along by one entry in a single copy. Empty levels are not published.
+ *
+ * Each change is also appended to a BookDelta, so the book can publish just the levels which changed since it last
+ * published instead of the whole update.
+ */
+public class EncodedBookUpdate {
+
+    private static final int BID_GROUP_OFFSET = MessageHeaderEncoder.ENCODED_LENGTH + BookUpdateEncoder.BLOCK_LENGTH;
+    private static final int GROUP_HEADER = BookUpdateEncoder.BidBookEncoder.sbeHeaderSize();
+    private static final int NUM_IN_GROUP = GroupSizeEncodingEncoder.numInGroupEncodingOffset();
+    private static final int ENTRY = BookUpdateEncoder.BidBookEncoder.sbeBlockLength();
+    private static final int PRICE = BookUpdateEncoder.BidBookEncoder.priceEncodingOffset();
+    private static final int SIZE = BookUpdateEncoder.BidBookEncoder.sizeEncodingOffset();
+
+    private static final int DELTA_GROUP_OFFSET = MessageHeaderEncoder.ENCODED_LENGTH + BookDeltaEncoder.BLOCK_LENGTH;
+    private static final int DELTA_ENTRIES = DELTA_GROUP_OFFSET + BookDeltaEncoder.LevelsEncoder.sbeHeaderSize();
+    private static final int DELTA_ENTRY = BookDeltaEncoder.LevelsEncoder.sbeBlockLength();
+    private static final int DELTA_SIDE = BookDeltaEncoder.LevelsEncoder.sideEncodingOffset();
+    private static final int DELTA_ACTION = BookDeltaEncoder.LevelsEncoder.actionEncodingOffset();
+    private static final int DELTA_PRICE = BookDeltaEncoder.LevelsEncoder.priceEncodingOffset();
+    private static final int DELTA_SIZE = BookDeltaEncoder.LevelsEncoder.sizeEncodingOffset();
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final BookUpdateEncoder encoder = new BookUpdateEncoder();
+    private final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
+
+    private final BookDeltaEncoder deltaEncoder = new BookDeltaEncoder();
+    private final ExpandableDirectByteBuffer deltaBuffer = new ExpandableDirectByteBuffer(256);
+    private int deltaCount;
+
+    private int bidCount;
+    private int askCount;
+
+    private InstrumentStatus instrumentStatus = InstrumentStatus.CONTINUOUS;
+
+    public EncodedBookUpdate() {
+        clear();
+    }
+
+    public void clear() {
+        encoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        encoder.venue(Venue.XLON);
+        encoder.instrumentId(123L);
+        encoder.instrumentStatus(instrumentStatus);
+        encoder.source(Source.ORDERBOOK);
+        encoder.bidBookCount(0);
+        encoder.askBookCount(0);
+        bidCount = 0;
+        askCount = 0;
+        clearDelta();
+    }
+
+    /**
+     * The trading phase sent with the book and any delta, kept when the book is cleared.
+     */
+    public void setInstrumentStatus(final InstrumentStatus instrumentStatus) {
+        this.instrumentStatus = instrumentStatus;
+        encoder.instrumentStatus(instrumentStatus);
+        deltaEncoder.instrumentStatus(instrumentStatus);
+    }
+
+    /**
+     * Forget the changes recorded so far, e.g. once they have been published.
+     */
+    public void clearDelta() {
+        deltaEncoder.wrapAndApplyHeader(deltaBuffer, 0, headerEncoder);
+        deltaEncoder.venue(Venue.XLON);
+        deltaEncoder.instrumentId(123L);
+        deltaEncoder.instrumentStatus(instrumentStatus);
+        deltaEncoder.source(Source.ORDERBOOK);
+        deltaEncoder.levelsCount(0);
+        deltaCount = 0;
+    }
+
+    /**
+     * Set the quantity at a price level, a quantity of 0 removes the level.
+     */
+    public void setLevel(final boolean bid, final long price, final long quantity) {
+        final int entries = bid ? bidEntriesOffset() : askEntriesOffset();
+        final int count = bid ? bidCount : askCount;
+        final int index = search(entries, count, price, bid);
+
+        if (index >= 0) {
+            final int offset = entries + index * ENTRY;
+            if (quantity > 0) {
+                buffer.putLong(offset + SIZE, quantity, BookUpdateEncoder.BYTE_ORDER);
+                recordDelta(bid, DeltaAction.CHANGE, price, quantity);
+            } else {
+                buffer.putBytes(offset, buffer, offset + ENTRY, length() - offset - ENTRY);
+                setCount(bid, count - 1);
+                recordDelta(bid, DeltaAction.DELETE, price, 0);
+            }
+        } else if (quantity > 0) {
+            final int offset = entries + (-index - 1) * ENTRY;
+            buffer.putBytes(offset + ENTRY, buffer, offset, length() - offset);
+            buffer.putLong(offset + PRICE, price, BookUpdateEncoder.BYTE_ORDER);
+            buffer.putLong(offset + SIZE, quantity, BookUpdateEncoder.BYTE_ORDER);
+            setCount(bid, count + 1);
+            recordDelta(bid, DeltaAction.NEW, price, quantity);
+        }
+    }
+
+    private void recordDelta(final boolean bid, final DeltaAction action, final long price, final long quantity) {
+        final int offset = DELTA_ENTRIES + deltaCount * DELTA_ENTRY;
+        deltaBuffer.putByte(offset + DELTA_SIDE, (bid ? BookSide.BID : BookSide.ASK).value());
+        deltaBuffer.putByte(offset + DELTA_ACTION, action.value());
+        deltaBuffer.putLong(offset + DELTA_PRICE, price, BookDeltaEncoder.BYTE_ORDER);
+        deltaBuffer.putLong(offset + DELTA_SIZE, quantity, BookDeltaEncoder.BYTE_ORDER);
+        deltaBuffer.putShort(DELTA_GROUP_OFFSET + NUM_IN_GROUP, (short) ++deltaCount, BookDeltaEncoder.BYTE_ORDER);
+    }
+
+    /**
+     * @return the index of the price, or -(insertion point) - 1 if the side has no level at that price.
+     */
+    private int search(final int entries, final int count, final long price, final boolean bid) {
+        // most changes are fills and cancels at the touch
+        if (count > 0 && buffer.getLong(entries + PRICE, BookUpdateEncoder.BYTE_ORDER) == price) {
+            return 0;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midPrice = buffer.getLong(entries + mid * ENTRY + PRICE, BookUpdateEncoder.BYTE_ORDER);
+            if (midPrice == price) {
+                return mid;
+            }
+            // bids are best (highest) first, asks best (lowest) first
+            if (bid ? midPrice > price : midPrice < price) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void setCount(final boolean bid, final int count) {
+        if (bid) {
+            bidCount = count;
+            buffer.putShort(BID_GROUP_OFFSET + NUM_IN_GROUP, (short) count, BookUpdateEncoder.BYTE_ORDER);
+        } else {
+            askCount = count;
+            buffer.putShort(askGroupOffset() + NUM_IN_GROUP, (short) count, BookUpdateEncoder.BYTE_ORDER);
+        }
+    }
+
+    private int bidEntriesOffset() {
+        return BID_GROUP_OFFSET + GROUP_HEADER;
+    }
+
+    private int askGroupOffset() {
+        return bidEntriesOffset() + bidCount * ENTRY;
+    }
+
+    private int askEntriesOffset() {
+        return askGroupOffset() + GROUP_HEADER;
+    }
+
+    public int getBidCount() {
+        return bidCount;
+    }
+
+    public int getAskCount() {
+        return askCount;
+    }
+
+    /**
+     * @return the encoded length of the message, header included.
+     */
+    public int length() {
+        return askEntriesOffset() + askCount * ENTRY;
+    }
+
+    public DirectBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Copy the message to the start of the given buffer.
+     */
+    public void copyTo(final MutableDirectBuffer destination) {
+        destination.putBytes(0, buffer, 0, length());
+    }
+
+    /**
+     * @return the number of level changes recorded since the delta was last cleared.
+     */
+    public int getDeltaCount() {
+        return deltaCount;
+    }
+
+    /**
+     * @return the encoded length of the BookDelta, header included.
+     */
+    public int deltaLength() {
+        return DELTA_ENTRIES + deltaCount * DELTA_ENTRY;
+    }
+
+    public DirectBuffer deltaBuffer() {
+        return deltaBuffer;
+    }
+
+    /**
+     * Copy the BookDelta to the start of the given buffer.
+     */
+    public void copyDeltaTo(final MutableDirectBuffer destination) {
+        destination.putBytes(0, deltaBuffer, 0, deltaLength());
+    }
+}
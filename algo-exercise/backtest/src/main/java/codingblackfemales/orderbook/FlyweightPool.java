@@ -0,0 +1,43 @@
+package codingblackfemales.orderbook;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Levels and orders which have left the book, handed out again rather than allocating new ones, so a book which has
+ * grown to its working size allocates nothing. Like the book it is only used from one thread.
+ */
+final class FlyweightPool<T> {
+
+    private final Supplier<T> factory;
+    private Object[] free = new Object[16];
+    private int count = 0;
+
+    FlyweightPool(final Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    T acquire() {
+        if (count == 0) {
+            return factory.get();
+        }
+        final T flyweight = (T) free[--count];
+        free[count] = null;
+        return flyweight;
+    }
+
+    /**
+     * @param flyweight no longer used by the book or anything it was handed to.
+     */
+    void release(final T flyweight) {
+        if (count == free.length) {
+            free = Arrays.copyOf(free, count * 2);
+        }
+        free[count++] = flyweight;
+    }
+
+    int size() {
+        return count;
+    }
+}
@@ -2,38 +2,104 @@ package codingblackfemales.orderbook;
 
 import codingblackfemales.orderbook.channel.MarketDataChannel;
 import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
 import codingblackfemales.orderbook.order.LimitOrderFlyweight;
 import codingblackfemales.orderbook.order.MarketDataOrderFlyweight;
 import codingblackfemales.orderbook.visitor.CancelOrderVisitor;
 import codingblackfemales.orderbook.visitor.MutatingMatchOneMarketDataOrderVisitor;
-import codingblackfemales.orderbook.visitor.MutatingMatchOneOrderVisitor;
-import codingblackfemales.orderbook.visitor.ReadOnlyMarketDataChannelPublishVisitor;
+import codingblackfemales.sequencer.batch.BatchingSequencer;
 import codingblackfemales.sequencer.event.MarketDataEventListener;
+import codingblackfemales.sequencer.snapshot.SnapshotReader;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import codingblackfemales.sequencer.snapshot.Snapshottable;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
 import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.InstrumentStatus;
 import messages.marketdata.Source;
 import messages.order.Side;
+import messages.order.TimeInForce;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class OrderBook extends MarketDataEventListener {
+import java.util.Arrays;
+
+public class OrderBook extends MarketDataEventListener implements Snapshottable {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderBook.class);
 
+    private static final byte MARKET_DATA_ORDER = 0;
+    private static final byte LIMIT_ORDER = 1;
+    private static final long NO_UNCROSS = Long.MIN_VALUE;
+
     private final MarketDataChannel marketDataChannel;
     private final OrderChannel orderChannel;
+    private final BatchingSequencer batchingSequencer;
 
     public OrderBook(final MarketDataChannel marketDataChannel, final OrderChannel orderChannel) {
+        this(marketDataChannel, orderChannel, null);
+    }
+
+    /**
+     * @param batchingSequencer the sequencer the channels publish through, if given the fills from an order and the
+     *                          book update that follows them are sequenced as one batch.
+     */
+    public OrderBook(final MarketDataChannel marketDataChannel, final OrderChannel orderChannel, final BatchingSequencer batchingSequencer) {
         this.marketDataChannel = marketDataChannel;
         this.orderChannel = orderChannel;
+        this.batchingSequencer = batchingSequencer;
+    }
+
+    private void beginBatch(){
+        if(batchingSequencer != null){
+            batchingSequencer.begin();
+        }
+    }
+
+    private void flushBatch(){
+        if(batchingSequencer != null){
+            batchingSequencer.flush();
+        }
     }
 
-    private ReadOnlyMarketDataChannelPublishVisitor mktDataVisitor = new ReadOnlyMarketDataChannelPublishVisitor();
+    // kept up to date by the sides as their levels change, so publishing does not walk the book
+    private final EncodedBookUpdate bookUpdate = new EncodedBookUpdate();
+
+    // one buffer per level of re-entrant publishing: a consumer of a book update can lead to another being published
+    // before every consumer has seen the first
+    private MutableDirectBuffer[] publishBuffers = new MutableDirectBuffer[]{new ExpandableDirectByteBuffer(1024)};
+    private int publishDepth = 0;
+
+    // 0 publishes every change as a full BookUpdate
+    private int fullUpdateInterval = 0;
+    private int publishesSinceFullUpdate = 0;
+
+    private AskBookSide askBookSide = newAskBookSide();
+    private BidBookSide bidBookSide = newBidBookSide();
+
+    private AskBookSide newAskBookSide() {
+        final AskBookSide side = new AskBookSide();
+        side.setBookUpdate(bookUpdate);
+        return side;
+    }
+
+    private BidBookSide newBidBookSide() {
+        final BidBookSide side = new BidBookSide();
+        side.setBookUpdate(bookUpdate);
+        return side;
+    }
+
+    // passive limit orders by id, so a cancel or amend goes straight to the order and its level
+    private final Long2ObjectHashMap<LimitOrderFlyweight> limitOrders = new Long2ObjectHashMap<>();
+
+    // our orders which have left the book, handed out again by newLimitOrder
+    private final FlyweightPool<LimitOrderFlyweight> limitOrderPool = new FlyweightPool<>(() -> new LimitOrderFlyweight(Side.NULL_VAL, 0, 0, 0));
 
-    private AskBookSide askBookSide = new AskBookSide();
-    private BidBookSide bidBookSide = new BidBookSide();
+    private InstrumentStatus instrumentStatus = InstrumentStatus.CONTINUOUS;
 
     public AskBookSide getAskBookSide() {
         return askBookSide;
@@ -43,8 +109,14 @@ public class OrderBook extends MarketDataEventListener {
         return bidBookSide;
     }
 
+    /**
+     * @return true if an order at the price would trade now, never outside continuous trading.
+     */
     public boolean canMatch(final Side side, final long price){
         boolean canMatch = false;
+        if(instrumentStatus != InstrumentStatus.CONTINUOUS){
+            return false;
+        }
 
         if(side.equals(Side.BUY) && this.getAskBookSide().getFirstLevel() != null){
             canMatch = this.getAskBookSide().getFirstLevel().getPrice() <= price;
@@ -60,11 +132,20 @@ public class OrderBook extends MarketDataEventListener {
         //don't process updates from ourself.
         if(!bookUpdate.source().equals(Source.ORDERBOOK)){
             logger.info("[ORDERBOOK] Processing Mkt Data Update");
-            getBidBookSide().removeMarketDataOrders();
-            addOrMatchBidMarketDataOrders(bookUpdate);
+            beginBatch();
+            try {
+                // before the new orders are added, so they do not match once an auction has started
+                if(bookUpdate.instrumentStatus() != InstrumentStatus.NULL_VAL){
+                    setInstrumentStatus(bookUpdate.instrumentStatus());
+                }
+                getBidBookSide().removeMarketDataOrders();
+                addOrMatchBidMarketDataOrders(bookUpdate);
 
-            getAskBookSide().removeMarketDataOrders();
-            addOrMatchAskMarketDataOrders(bookUpdate);
+                getAskBookSide().removeMarketDataOrders();
+                addOrMatchAskMarketDataOrders(bookUpdate);
+            } finally {
+                flushBatch();
+            }
         }
     }
 
@@ -72,10 +153,11 @@ public class OrderBook extends MarketDataEventListener {
         for(BookUpdateDecoder.AskBookDecoder decoder : bookUpdateDecoder.askBook()) {
             final long price = decoder.price();
             final long quantity = decoder.size();
-            var marketOrder = new MarketDataOrderFlyweight(Side.SELL, price, quantity);
-            logger.debug("[ORDERBOOK] ASK: Adding order" + marketOrder);
+            var marketOrder = getAskBookSide().newMarketDataOrder(Side.SELL, price, quantity);
+            logger.debug("[ORDERBOOK] ASK: Adding order {}", marketOrder);
             if(canMatch(Side.SELL, price)){
                 matchMarketDataOrder(marketOrder);
+                getAskBookSide().releaseMarketDataOrder(marketOrder);
             }else{
                 getAskBookSide().addMarketDataOrder(marketOrder);
             }
@@ -86,10 +168,11 @@ public class OrderBook extends MarketDataEventListener {
         for(AskBookUpdateDecoder.AskBookDecoder decoder : askBookUpdateDecoder.askBook()) {
             final long price = decoder.price();
             final long quantity = decoder.size();
-            var marketOrder = new MarketDataOrderFlyweight(Side.BUY, price, quantity);
-            logger.debug("[ORDERBOOK] ASK: Adding order" + marketOrder);
+            var marketOrder = getAskBookSide().newMarketDataOrder(Side.SELL, price, quantity);
+            logger.debug("[ORDERBOOK] ASK: Adding order {}", marketOrder);
             if(canMatch(Side.SELL, price)){
                 matchMarketDataOrder(marketOrder);
+                getAskBookSide().releaseMarketDataOrder(marketOrder);
             }else{
                 getAskBookSide().addMarketDataOrder(marketOrder);
             }
@@ -100,10 +183,11 @@ public class OrderBook extends MarketDataEventListener {
         for(BidBookUpdateDecoder.BidBookDecoder decoder : bidBookUpdateDecoder.bidBook()) {
             final long price = decoder.price();
             final long quantity = decoder.size();
-            var marketOrder = new MarketDataOrderFlyweight(Side.SELL, price, quantity);
-            logger.debug("[ORDERBOOK] BUY: Adding order" + marketOrder); // changed from 'ASK' to 'BUY' which worked for BackTest
+            var marketOrder = getBidBookSide().newMarketDataOrder(Side.BUY, price, quantity);
+            logger.debug("[ORDERBOOK] BID: Adding order {}", marketOrder);
             if(canMatch(Side.BUY, price)){
                 matchMarketDataOrder(marketOrder);
+                getBidBookSide().releaseMarketDataOrder(marketOrder);
             }else{
                 getBidBookSide().addMarketDataOrder(marketOrder);
             }
@@ -111,13 +195,14 @@ public class OrderBook extends MarketDataEventListener {
     }
 
     private void addOrMatchBidMarketDataOrders(BookUpdateDecoder bookUpdateDecoder){
-        for(BookUpdateDecoder.AskBookDecoder decoder : bookUpdateDecoder.askBook()) {
+        for(BookUpdateDecoder.BidBookDecoder decoder : bookUpdateDecoder.bidBook()) {
             final long price = decoder.price();
             final long quantity = decoder.size();
-            var marketOrder = new MarketDataOrderFlyweight(Side.SELL, price, quantity);
-            logger.debug("[ORDERBOOK] BUY: Adding order" + marketOrder); // fixed the issue with log text
+            var marketOrder = getBidBookSide().newMarketDataOrder(Side.BUY, price, quantity);
+            logger.debug("[ORDERBOOK] BID: Adding order {}", marketOrder);
             if(canMatch(Side.BUY, price)){
                 matchMarketDataOrder(marketOrder);
+                getBidBookSide().releaseMarketDataOrder(marketOrder);
             }else{
                 getBidBookSide().addMarketDataOrder(marketOrder);
             }
@@ -137,16 +222,68 @@ public class OrderBook extends MarketDataEventListener {
     }
 
     public void matchOrder(final LimitOrderFlyweight limit) {
-        final MutatingMatchOneOrderVisitor visitor = new MutatingMatchOneOrderVisitor(limit, orderChannel);
-        if(limit.getSide().equals(Side.BUY)){
-            getAskBookSide().accept(visitor);
-        }else if(limit.getSide().equals(Side.SELL)){
-            getBidBookSide().accept(visitor);
+        matchOrder(limit, limit.getPrice());
+    }
+
+    /**
+     * Fill an aggressive order against the other side, best level first and each level in time priority, stopping as
+     * soon as it is filled or the next level is beyond the limit price. What is left is in the order's quantity.
+     * Each match publishes a fill for the order, a fill for the resting order too if it is one of ours rather than from
+     * market data, and a trade on the market data channel.
+     */
+    private void matchOrder(final LimitOrderFlyweight limit, final long limitPrice) {
+        final boolean buy = limit.getSide().equals(Side.BUY);
+        final OrderBookSide side = buy ? getAskBookSide() : getBidBookSide();
+        long remaining = limit.getQuantity();
+        logger.info("[ORDERBOOK] Matching {}", limit);
+
+        OrderBookLevel level = side.getFirstLevel();
+        while(level != null && remaining > 0 && crosses(buy, limitPrice, level.getPrice())){
+            final OrderBookLevel nextLevel = level.next();
+
+            DefaultOrderFlyweight order = level.getFirstOrder();
+            while(order != null && remaining > 0){
+                final DefaultOrderFlyweight nextOrder = order.next();
+                final long fillQuantity = Math.min(remaining, order.getQuantity());
+                remaining -= fillQuantity;
+                final long price = order.getPrice();
+                fillResting(level, order, fillQuantity, price);
+                orderChannel.publishFill(fillQuantity, price, limit);
+                marketDataChannel.publishTrade(limit.getSide(), price, fillQuantity);
+                order = nextOrder;
+            }
+
+            if(level.getQuantity() == 0){
+                level.remove();
+            }
+            level = nextLevel;
+        }
+
+        limit.setQuantity(remaining);
+    }
+
+    /**
+     * @return true if the whole of the order could fill against the other side now.
+     */
+    private boolean canFill(final LimitOrderFlyweight limit) {
+        final boolean buy = limit.getSide().equals(Side.BUY);
+        long available = 0;
+        for(OrderBookLevel level = (buy ? getAskBookSide() : getBidBookSide()).getFirstLevel();
+            level != null && crosses(buy, limit.getPrice(), level.getPrice()); level = level.next()){
+            available += level.getQuantity();
+            if(available >= limit.getQuantity()){
+                return true;
+            }
         }
+        return false;
+    }
+
+    private static boolean crosses(final boolean buy, final long limitPrice, final long levelPrice) {
+        return buy ? levelPrice <= limitPrice : levelPrice >= limitPrice;
     }
 
     public void matchMarketDataOrder(final MarketDataOrderFlyweight market) {
-        final MutatingMatchOneMarketDataOrderVisitor visitor = new MutatingMatchOneMarketDataOrderVisitor(market, orderChannel);
+        final MutatingMatchOneMarketDataOrderVisitor visitor = new MutatingMatchOneMarketDataOrderVisitor(market, orderChannel, marketDataChannel);
         if(market.getSide().equals(Side.BUY)){
             getAskBookSide().accept(visitor);
         }else if(market.getSide().equals(Side.SELL)){
@@ -156,42 +293,514 @@ public class OrderBook extends MarketDataEventListener {
 
     public void addLiquidity(final LimitOrderFlyweight limit) {
         if(limit.getSide().equals(Side.BUY)){
-            logger.info("[ORDERBOOK] Adding passive limit order to BID book" + limit);
+            logger.info("[ORDERBOOK] Adding passive limit order to BID book {}", limit);
             this.getBidBookSide().addLimitOrder(limit);
         }else{
-            logger.info("A[ORDERBOOK] dding passive limit order to ASK book" + limit);
+            logger.info("[ORDERBOOK] Adding passive limit order to ASK book {}", limit);
             this.getAskBookSide().addLimitOrder(limit);
         }
+        limitOrders.put(limit.getOrderId(), limit);
+    }
+
+    /**
+     * @return the passive limit order resting in the book, or null if it has filled, been cancelled or was never here.
+     */
+    public LimitOrderFlyweight getLimitOrder(final long orderId){
+        final LimitOrderFlyweight limit = limitOrders.get(orderId);
+        if(limit != null && limit.getLevel() == null){
+            limitOrders.remove(orderId);
+            return null;
+        }
+        return limit;
+    }
+
+    /**
+     * @return an order to give to {@link #onLimitOrder}, from a pool it goes back to once it has left the book, when it
+     * has filled or been cancelled, or when an amend has moved it to a new price. It must not be used after that.
+     */
+    public LimitOrderFlyweight newLimitOrder(final Side side, final long price, final long quantity, final long orderId){
+        return newLimitOrder(side, price, quantity, quantity, orderId);
+    }
+
+    private LimitOrderFlyweight newLimitOrder(final Side side, final long price, final long quantity, final long orderQuantity, final long orderId){
+        final LimitOrderFlyweight limit = limitOrderPool.acquire().set(side, price, quantity, orderQuantity, orderId);
+        limit.setPooled(true);
+        return limit;
+    }
+
+    /**
+     * Put an order which has left the book back in the pool, if it came from there and is not already back.
+     */
+    private void releaseLimitOrder(final LimitOrderFlyweight limit){
+        if(limit.isPooled() && !limit.isLinked()){
+            limit.setPooled(false);
+            limitOrderPool.release(limit);
+        }
+    }
+
+    private void removeFromLevel(final LimitOrderFlyweight limit){
+        final OrderBookLevel level = limit.getLevel();
+        level.removeOrder(limit);
+        level.setQuantity(level.getQuantity() - limit.getQuantity());
+        limit.setLevel(null);
+        if(level.getFirstOrder() == null){
+            level.remove();
+        }
     }
 
     public void onLimitOrder(final LimitOrderFlyweight limit) {
-        if(canMatch(limit.getSide(), limit.getPrice())){
-            matchOrder(limit);
-        }else{
-            addLiquidity(limit);
+        onLimitOrder(limit, TimeInForce.GTC);
+    }
+
+    /**
+     * Match the order against the other side, then rest what is left (GTC) or cancel it (IOC). A FOK order is cancelled
+     * without trading unless it can fill completely. A MARKET order matches whatever its price and cancels what is left,
+     * a POST_ONLY order is cancelled without trading if it would match and otherwise rests. The fills, any cancel and the
+     * book update go out as one batch.
+     *
+     * In an auction a GTC order rests without matching and any other order is cancelled, while closed every order is
+     * cancelled.
+     */
+    public void onLimitOrder(final LimitOrderFlyweight limit, final TimeInForce timeInForce) {
+        final long limitPrice = timeInForce == TimeInForce.MARKET ? marketPrice(limit.getSide()) : limit.getPrice();
+        boolean rested = false;
+        beginBatch();
+        try {
+            if(instrumentStatus == InstrumentStatus.CLOSED
+                    || (instrumentStatus == InstrumentStatus.AUCTION && timeInForce != TimeInForce.GTC)){
+                orderChannel.publishCancelAck(limit);
+            }else if(timeInForce == TimeInForce.FOK && !canFill(limit)){
+                orderChannel.publishCancelAck(limit);
+            }else if(timeInForce == TimeInForce.POST_ONLY && canMatch(limit.getSide(), limitPrice)){
+                orderChannel.publishCancelAck(limit);
+            }else{
+                if(canMatch(limit.getSide(), limitPrice)){
+                    matchOrder(limit, limitPrice);
+                }
+                if(limit.getQuantity() > 0){
+                    if(timeInForce == TimeInForce.IOC || timeInForce == TimeInForce.MARKET){
+                        orderChannel.publishCancelAck(limit);
+                    }else{
+                        addLiquidity(limit);
+                        rested = true;
+                    }
+                }
+            }
+
+            publishBook();
+        } finally {
+            flushBatch();
+        }
+        // once resting the book releases it when it fills or is cancelled
+        if(!rested){
+            releaseLimitOrder(limit);
         }
+    }
 
-        publishBook();
+    /**
+     * @return a limit price every level on the other side crosses.
+     */
+    private static long marketPrice(final Side side) {
+        return side == Side.BUY ? Long.MAX_VALUE : Long.MIN_VALUE;
     }
 
     public void onCancelOrder(final long orderIdToCancel){
-        logger.info("[ORDERBOOK] Cancelling order (id=:" + orderIdToCancel + ")");
-        var cancelVisitor = new CancelOrderVisitor(orderIdToCancel);
-        getAskBookSide().accept(cancelVisitor);
-        getBidBookSide().accept(cancelVisitor);
-        publishBook();
+        if(logger.isInfoEnabled()){
+            // only box the id when it is logged
+            logger.info("[ORDERBOOK] Cancelling order (id=:{})", orderIdToCancel);
+        }
+        beginBatch();
+        try {
+            final LimitOrderFlyweight limit = getLimitOrder(orderIdToCancel);
+            if(limit != null){
+                removeFromLevel(limit);
+                limitOrders.remove(orderIdToCancel);
+                releaseLimitOrder(limit);
+            }else{
+                // orders added to a side directly are not indexed
+                var cancelVisitor = new CancelOrderVisitor(orderIdToCancel);
+                getAskBookSide().accept(cancelVisitor);
+                getBidBookSide().accept(cancelVisitor);
+            }
+            publishBook();
+        } finally {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Change a resting order in place. Reducing the quantity at the same price keeps its place in the queue, a new price
+     * or a larger quantity takes it out of its level and enters it again at the back of the queue, matching if it now
+     * crosses. An applied amend is acked ahead of any fills it leads to. A quantity at or below what has filled cancels
+     * what is left, and an order the book does not have, e.g. one which filled first, has its amend rejected.
+     *
+     * @param quantity the new total quantity of the order, including what has filled already.
+     */
+    public void onAmendOrder(final long orderId, final long price, final long quantity){
+        final LimitOrderFlyweight limit = getLimitOrder(orderId);
+        if(limit == null){
+            logger.info("[ORDERBOOK] Rejecting amend of order not in the book (id=:" + orderId + ")");
+            orderChannel.publishAmendReject(orderId);
+            return;
+        }
+        logger.info("[ORDERBOOK] Amending order " + limit + " to " + quantity + "@" + price);
+
+        final long remaining = quantity - limit.getFilledQuantity();
+        beginBatch();
+        try {
+            if(remaining <= 0){
+                removeFromLevel(limit);
+                limitOrders.remove(orderId);
+                orderChannel.publishCancelAck(limit);
+                releaseLimitOrder(limit);
+            }else if(price == limit.getPrice() && remaining <= limit.getQuantity()){
+                final OrderBookLevel level = limit.getLevel();
+                level.setQuantity(level.getQuantity() - (limit.getQuantity() - remaining));
+                limit.setQuantity(remaining);
+                limit.setOrderQuantity(quantity);
+                orderChannel.publishAmendAck(limit);
+            }else{
+                removeFromLevel(limit);
+                limitOrders.remove(orderId);
+                // a fresh node, as an order's price is fixed
+                final var moved = newLimitOrder(limit.getSide(), price, remaining, quantity, orderId);
+                releaseLimitOrder(limit);
+                orderChannel.publishAmendAck(moved);
+                if(canMatch(moved.getSide(), moved.getPrice())){
+                    matchOrder(moved);
+                }
+                if(moved.getQuantity() > 0){
+                    addLiquidity(moved);
+                }else{
+                    releaseLimitOrder(moved);
+                }
+            }
+            publishBook();
+        } finally {
+            flushBatch();
+        }
+    }
+
+    public InstrumentStatus getInstrumentStatus(){
+        return instrumentStatus;
     }
 
+    /**
+     * Move the book to a new trading phase and publish it with the new status. In an auction orders rest without
+     * matching, so the book can cross, and the book is not published again until the auction ends; leaving the auction
+     * uncrosses it and publishes the result once. While closed new orders are cancelled.
+     */
+    public void setInstrumentStatus(final InstrumentStatus status){
+        if(status == instrumentStatus){
+            return;
+        }
+        logger.info("[ORDERBOOK] Instrument status " + instrumentStatus + " -> " + status);
+        final InstrumentStatus previous = instrumentStatus;
+        instrumentStatus = status;
+        bookUpdate.setInstrumentStatus(status);
 
+        beginBatch();
+        try {
+            if(previous == InstrumentStatus.AUCTION){
+                uncross();
+            }
+            // a status change alone is not a delta, send the whole book
+            publishesSinceFullUpdate = fullUpdateInterval;
+            publish();
+        } finally {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Match what accumulated in an auction in one pass: find the price which trades the most, then fill both sides at
+     * that price, best level first and each level in time priority. Each match with one of our orders publishes a fill
+     * for it and a trade with no aggressor.
+     */
+    private void uncross(){
+        final long price = findUncrossPrice();
+        if(price == NO_UNCROSS){
+            return;
+        }
+        final long volume = volumeAt(price);
+        logger.info("[ORDERBOOK] Uncrossing " + volume + "@" + price);
+
+        long remaining = volume;
+        OrderBookLevel bidLevel = getBidBookSide().getFirstLevel();
+        OrderBookLevel askLevel = getAskBookSide().getFirstLevel();
+        while(remaining > 0){
+            bidLevel = removeEmptyLevels(bidLevel);
+            askLevel = removeEmptyLevels(askLevel);
+            if(bidLevel == null || askLevel == null){
+                // only if the level quantities disagree with their orders, stop rather than fail half way
+                logger.warn("[ORDERBOOK] Ran out of orders uncrossing with " + remaining + " of " + volume + " left");
+                break;
+            }
+            final DefaultOrderFlyweight bid = bidLevel.getFirstOrder();
+            final DefaultOrderFlyweight ask = askLevel.getFirstOrder();
+            final long fillQuantity = Math.min(remaining, Math.min(bid.getQuantity(), ask.getQuantity()));
+            remaining -= fillQuantity;
+
+            fillResting(bidLevel, bid, fillQuantity, price);
+            fillResting(askLevel, ask, fillQuantity, price);
+            if(bid instanceof LimitOrderFlyweight || ask instanceof LimitOrderFlyweight){
+                marketDataChannel.publishTrade(Side.NULL_VAL, price, fillQuantity);
+            }
+        }
+        removeEmptyLevels(bidLevel);
+        removeEmptyLevels(askLevel);
+    }
+
+    /**
+     * @return the first level from this one on which still has orders, removing those before it.
+     */
+    private static OrderBookLevel removeEmptyLevels(OrderBookLevel level){
+        while(level != null && level.getFirstOrder() == null){
+            final OrderBookLevel next = level.next();
+            level.remove();
+            level = next;
+        }
+        return level;
+    }
+
+    /**
+     * Fill some or all of an order resting at the level, publishing a fill if it is one of ours. An order which has
+     * filled completely leaves the book and goes back to its pool.
+     */
+    private void fillResting(final OrderBookLevel level, final DefaultOrderFlyweight order, final long fillQuantity, final long price){
+        final boolean filled = fillQuantity == order.getQuantity();
+        if(filled){
+            level.removeOrder(order);
+            order.setLevel(null);
+        }else{
+            order.setQuantity(order.getQuantity() - fillQuantity);
+        }
+        level.setQuantity(level.getQuantity() - fillQuantity);
+        if(order instanceof LimitOrderFlyweight){
+            final LimitOrderFlyweight limit = (LimitOrderFlyweight) order;
+            orderChannel.publishFill(fillQuantity, price, limit);
+            if(filled && limit.getLevel() == null){
+                // one lookup for the usual case, the id is only indexed to another order if one reused it
+                final LimitOrderFlyweight indexed = limitOrders.remove(limit.getOrderId());
+                if(indexed != null && indexed != limit){
+                    limitOrders.put(limit.getOrderId(), indexed);
+                }
+                releaseLimitOrder(limit);
+            }
+        }else if(filled){
+            level.getSide().releaseMarketDataOrder((MarketDataOrderFlyweight) order);
+        }
+    }
+
+    /**
+     * Walk the price levels in the crossed range once, from the best bid down to the best ask, keeping the volume bid
+     * at or above and offered at or below each price as running sums. The price which trades the most wins, then the
+     * one leaving the least surplus on either side, then the highest.
+     *
+     * @return the uncrossing price, or NO_UNCROSS if the book is not crossed.
+     */
+    private long findUncrossPrice(){
+        final OrderBookLevel bestBid = getBidBookSide().getFirstLevel();
+        final OrderBookLevel bestAsk = getAskBookSide().getFirstLevel();
+        if(bestBid == null || bestAsk == null || bestBid.getPrice() < bestAsk.getPrice()){
+            return NO_UNCROSS;
+        }
+
+        // everything offered at or below the best bid, then taken off level by level as the price falls
+        long askVolume = 0;
+        OrderBookLevel ask = null;
+        for(OrderBookLevel level = bestAsk; level != null && level.getPrice() <= bestBid.getPrice(); level = level.next()){
+            askVolume += level.getQuantity();
+            ask = level;
+        }
+
+        long bidVolume = 0;
+        OrderBookLevel bid = bestBid;
+        long uncrossPrice = NO_UNCROSS;
+        long uncrossVolume = 0;
+        long surplus = Long.MAX_VALUE;
+
+        long price = bestBid.getPrice();
+        while(price >= bestAsk.getPrice()){
+            while(bid != null && bid.getPrice() >= price){
+                bidVolume += bid.getQuantity();
+                bid = bid.next();
+            }
+            while(ask != null && ask.getPrice() > price){
+                askVolume -= ask.getQuantity();
+                ask = ask.previous();
+            }
+
+            final long volume = Math.min(bidVolume, askVolume);
+            if(volume > uncrossVolume || (volume == uncrossVolume && volume > 0 && Math.abs(bidVolume - askVolume) < surplus)){
+                uncrossVolume = volume;
+                uncrossPrice = price;
+                surplus = Math.abs(bidVolume - askVolume);
+            }
+
+            // the next level price below this one on either side
+            long next = bid == null ? NO_UNCROSS : bid.getPrice();
+            final OrderBookLevel below = ask == null || ask.getPrice() < price ? ask : ask.previous();
+            if(below != null){
+                next = Math.max(next, below.getPrice());
+            }
+            price = next;
+        }
+        return uncrossVolume == 0 ? NO_UNCROSS : uncrossPrice;
+    }
+
+    /**
+     * @return the volume which trades at the price, the lesser of what is bid at or above it and offered at or below it.
+     */
+    private long volumeAt(final long price){
+        long bidVolume = 0;
+        for(OrderBookLevel level = getBidBookSide().getFirstLevel(); level != null && level.getPrice() >= price; level = level.next()){
+            bidVolume += level.getQuantity();
+        }
+        long askVolume = 0;
+        for(OrderBookLevel level = getAskBookSide().getFirstLevel(); level != null && level.getPrice() <= price; level = level.next()){
+            askVolume += level.getQuantity();
+        }
+        return Math.min(bidVolume, askVolume);
+    }
+
+    /**
+     * Publish a BookDelta of just the levels which changed instead of the whole book, with a full BookUpdate every
+     * fullUpdateInterval publishes (and first) for consumers which join late or lose their place. A change which leaves
+     * every level as it was publishes nothing in between full updates.
+     *
+     * @param fullUpdateInterval publishes between full updates, 0 to publish a full update every time as by default.
+     */
+    public void setDeltaPublishing(final int fullUpdateInterval){
+        this.fullUpdateInterval = fullUpdateInterval;
+        this.publishesSinceFullUpdate = fullUpdateInterval;
+    }
+
+    /**
+     * Publish the book, unless in an auction where the changes are held until it ends.
+     */
     public void publishBook(){
-        final var messageBuffer = getBookUpdateMessage();
-        marketDataChannel.publish(messageBuffer);
+        if(instrumentStatus == InstrumentStatus.AUCTION){
+            // the end of the auction sends the whole book, so the delta need not grow meanwhile
+            bookUpdate.clearDelta();
+            return;
+        }
+        publish();
+    }
+
+    private void publish(){
+        final boolean fullUpdate = publishesSinceFullUpdate >= fullUpdateInterval;
+        if(!fullUpdate && bookUpdate.getDeltaCount() == 0){
+            return;
+        }
+        publishesSinceFullUpdate = fullUpdate ? 1 : publishesSinceFullUpdate + 1;
+
+        if(publishDepth == publishBuffers.length){
+            publishBuffers = Arrays.copyOf(publishBuffers, publishDepth * 2);
+            for(int i = publishDepth; i < publishBuffers.length; i++){
+                publishBuffers[i] = new ExpandableDirectByteBuffer(1024);
+            }
+        }
+        final MutableDirectBuffer messageBuffer = publishBuffers[publishDepth++];
+        try {
+            if(fullUpdate){
+                bookUpdate.copyTo(messageBuffer);
+            }else{
+                bookUpdate.copyDeltaTo(messageBuffer);
+            }
+            // cleared before publishing, a consumer can change the book again before this returns
+            bookUpdate.clearDelta();
+            marketDataChannel.publish(messageBuffer);
+        } finally {
+            publishDepth--;
+        }
+    }
+
+    /**
+     * @return the book as it would be published now, only valid until the book next changes.
+     */
+    public DirectBuffer getBookUpdateMessage(){
+        return bookUpdate.buffer();
+    }
+
+    /**
+     * Stop publishing fills and book updates, e.g. while replaying the journal after a restore, since everything the
+     * book published the first time round was sequenced already.
+     */
+    public void setReplaying(final boolean replaying){
+        marketDataChannel.setMuted(replaying);
+        orderChannel.setMuted(replaying);
     }
 
-    public MutableDirectBuffer getBookUpdateMessage(){
-        mktDataVisitor.start();
-        getBidBookSide().accept(mktDataVisitor);
-        getAskBookSide().accept(mktDataVisitor);
-        return mktDataVisitor.end();
+    @Override
+    public void writeSnapshot(final SnapshotWriter writer) {
+        writer.putByte(instrumentStatus.value());
+        writeSide(writer, getBidBookSide());
+        writeSide(writer, getAskBookSide());
+    }
+
+    private static void writeSide(final SnapshotWriter writer, final OrderBookSide side) {
+        int levelCount = 0;
+        for (OrderBookLevel level = side.getFirstLevel(); level != null; level = level.next()) {
+            levelCount++;
+        }
+        writer.putInt(levelCount);
+
+        for (OrderBookLevel level = side.getFirstLevel(); level != null; level = level.next()) {
+            writer.putLong(level.getPrice()).putInt(level.getOrderCount());
+
+            for (DefaultOrderFlyweight order = level.getFirstOrder(); order != null; order = order.next()) {
+                final Side orderSide = order.getSide() == null ? Side.NULL_VAL : order.getSide();
+                if (order instanceof LimitOrderFlyweight) {
+                    final LimitOrderFlyweight limit = (LimitOrderFlyweight) order;
+                    writer.putByte(LIMIT_ORDER).putLong(limit.getOrderId()).putLong(limit.getOrderQuantity());
+                } else {
+                    writer.putByte(MARKET_DATA_ORDER);
+                }
+                writer.putByte(orderSide.value()).putLong(order.getPrice()).putLong(order.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Rebuild both sides of the book from a snapshot, keeping the time priority of the orders at each level.
+     */
+    @Override
+    public void readSnapshot(final SnapshotReader reader) {
+        bookUpdate.clear();
+        publishesSinceFullUpdate = fullUpdateInterval;
+        askBookSide = newAskBookSide();
+        bidBookSide = newBidBookSide();
+        limitOrders.clear();
+        instrumentStatus = InstrumentStatus.get(reader.getByte());
+        bookUpdate.setInstrumentStatus(instrumentStatus);
+
+        readSide(reader, getBidBookSide());
+        readSide(reader, getAskBookSide());
+    }
+
+    private void readSide(final SnapshotReader reader, final OrderBookSide side) {
+        final int levelCount = reader.getInt();
+        for (int i = 0; i < levelCount; i++) {
+            reader.getLong(); // level price, taken from its orders
+            final int orderCount = reader.getInt();
+
+            for (int j = 0; j < orderCount; j++) {
+                final byte type = reader.getByte();
+                final long orderId = type == LIMIT_ORDER ? reader.getLong() : 0;
+                final long orderQuantity = type == LIMIT_ORDER ? reader.getLong() : 0;
+                final Side orderSide = Side.get(reader.getByte());
+                final long price = reader.getLong();
+                final long quantity = reader.getLong();
+
+                if (type == LIMIT_ORDER) {
+                    final LimitOrderFlyweight limit = new LimitOrderFlyweight(orderSide, price, quantity, orderQuantity, orderId);
+                    side.addLimitOrder(limit);
+                    limitOrders.put(orderId, limit);
+                } else {
+                    side.addMarketDataOrder(new MarketDataOrderFlyweight(orderSide, price, quantity));
+                }
+            }
+        }
     }
 }
@@ -1,20 +1,24 @@
 package codingblackfemales.orderbook;
 
-import codingblackfemales.collection.intrusive.IntrusiveLinkedListNode;
+import codingblackfemales.collection.intrusive.IntrusiveList;
+import codingblackfemales.collection.intrusive.IntrusiveListNode;
 import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
 import codingblackfemales.orderbook.order.MarketDataOrderFlyweight;
 import codingblackfemales.orderbook.visitor.OrderBookVisitor;
 
-public class OrderBookLevel extends IntrusiveLinkedListNode<OrderBookLevel> {
+public class OrderBookLevel extends IntrusiveListNode<OrderBookLevel> {
 
     private long price;
     private long quantity;
 
-    private DefaultOrderFlyweight firstOrder;
+    // in time priority, so taking an order out from anywhere in the queue does not walk it
+    private final IntrusiveList<DefaultOrderFlyweight> orders = new IntrusiveList<>();
+
+    // the side the level is in, told of every change to keep its published book up to date
+    private OrderBookSide side;
 
 
     public OrderBookLevel() {
-        super();
     }
 
     public long getPrice() {
@@ -31,34 +35,71 @@ public class OrderBookLevel extends IntrusiveLinkedListNode<OrderBookLevel> {
 
     public void setQuantity(long quantity) {
         this.quantity = quantity;
+        if (side != null) {
+            side.onLevelChanged(this);
+        }
+    }
+
+    void setSide(OrderBookSide side) {
+        this.side = side;
     }
 
-    public void setFirstOrder(final DefaultOrderFlyweight order){
-        this.firstOrder = order;
+    OrderBookSide getSide() {
+        return side;
+    }
+
+    /**
+     * Take the level out of its side.
+     */
+    public void remove() {
+        if (side != null) {
+            side.removeLevel(this);
+        }
+    }
+
+    /**
+     * Add the order at the back of the queue.
+     */
+    public void addOrder(final DefaultOrderFlyweight order){
+        orders.addLast(order);
+    }
+
+    /**
+     * Take the order out of the queue, wherever it is. The level's quantity is left to the caller.
+     */
+    public void removeOrder(final DefaultOrderFlyweight order){
+        orders.remove(order);
     }
 
     public DefaultOrderFlyweight getFirstOrder(){
-        return this.firstOrder;
+        return orders.first();
+    }
+
+    public int getOrderCount(){
+        return orders.size();
     }
 
     public void removeMarketDataOrder(){
-        var order = this.firstOrder;
+        var order = orders.first();
         while(order != null){
+            final var next = order.next();
             if(order instanceof MarketDataOrderFlyweight){
-                var marketDataOrder = (MarketDataOrderFlyweight) order;
-                this.firstOrder = marketDataOrder.remove();
+                orders.remove(order);
             }
-            order = order.next();
+            order = next;
         }
     }
 
     public void accept(OrderBookVisitor visitor, OrderBookSide side){
         visitor.visitLevel(side, this);
 
-        DefaultOrderFlyweight order = firstOrder;
+        DefaultOrderFlyweight order = orders.first();
 
-        if(firstOrder == null){
-            firstOrder = visitor.onNoFirstOrder();
+        if(order == null){
+            final DefaultOrderFlyweight first = visitor.onNoFirstOrder();
+            if(first != null){
+                orders.addLast(first);
+            }
             return;
         }
 
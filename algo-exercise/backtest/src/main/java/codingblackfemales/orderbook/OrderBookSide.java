@@ -1,30 +1,58 @@
 package codingblackfemales.orderbook;
 
+import codingblackfemales.collection.intrusive.IntrusiveList;
+import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
 import codingblackfemales.orderbook.order.LimitOrderFlyweight;
 import codingblackfemales.orderbook.order.MarketDataOrderFlyweight;
 import codingblackfemales.orderbook.visitor.FilteringOrderBookVisitor;
-import codingblackfemales.orderbook.visitor.MutatingAddOrderVisitor;
-import codingblackfemales.orderbook.visitor.MutatingRemoveAllMarketDataOrdersVisitor;
 import codingblackfemales.orderbook.visitor.OrderBookVisitor;
+import messages.order.Side;
 
+import java.util.Arrays;
 import java.util.Comparator;
 
+/**
+ * One side of the book. The levels are a list, best price first, to walk when matching or publishing, and a primitive
+ * price ladder, worst price first so the best level leaves in O(1), to find a price's level by binary search rather
+ * than walking the list. Levels and market data orders which leave the side are pooled and handed out again.
+ */
 public abstract class OrderBookSide {
-    private OrderBookLevel firstLevel;
-    private final MutatingAddOrderVisitor addOrderVisitor = new MutatingAddOrderVisitor();
+    private static final int INITIAL_LEVELS = 64;
 
-    private final MutatingRemoveAllMarketDataOrdersVisitor removeMarketDataOrderVisitor = new MutatingRemoveAllMarketDataOrdersVisitor();
+    // best price first
+    private final IntrusiveList<OrderBookLevel> levels = new IntrusiveList<>();
+
+    // the same levels by price, worst first
+    private long[] ladderPrices = new long[INITIAL_LEVELS];
+    private OrderBookLevel[] ladderLevels = new OrderBookLevel[INITIAL_LEVELS];
+    private int ladderCount = 0;
+
+    private final FlyweightPool<OrderBookLevel> levelPool = new FlyweightPool<>(OrderBookLevel::new);
+    private final FlyweightPool<MarketDataOrderFlyweight> marketDataOrderPool =
+            new FlyweightPool<>(() -> new MarketDataOrderFlyweight(Side.NULL_VAL, 0, 0));
+
+    private final boolean bid = this instanceof BidBookSide;
+
+    private EncodedBookUpdate bookUpdate;
 
     public boolean canMatch(OrderBookSide side, long quantity, long price){
         return false;
     }
 
     public OrderBookLevel getFirstLevel() {
-        return firstLevel;
+        return levels.first();
     }
 
-    public void setFirstLevel(OrderBookLevel level) {
-        firstLevel = level;
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * @return the level at the price, or null if there are no orders at it.
+     */
+    public OrderBookLevel getLevel(final long price) {
+        final int index = find(price);
+        return index < 0 ? null : ladderLevels[index];
     }
 
     private final Comparator<Long> comparator;
@@ -33,6 +61,38 @@ public abstract class OrderBookSide {
         this.comparator = comparator;
     }
 
+    /**
+     * Keep the levels of this side in the given book update as they change.
+     */
+    void setBookUpdate(EncodedBookUpdate bookUpdate) {
+        this.bookUpdate = bookUpdate;
+    }
+
+    void onLevelChanged(OrderBookLevel level) {
+        if (bookUpdate != null) {
+            bookUpdate.setLevel(bid, level.getPrice(), level.getQuantity());
+        }
+    }
+
+    void removeLevel(OrderBookLevel level) {
+        if (bookUpdate != null) {
+            bookUpdate.setLevel(bid, level.getPrice(), 0);
+        }
+        levels.remove(level);
+        level.setSide(null);
+
+        final int index = find(level.getPrice());
+        if (index >= 0 && ladderLevels[index] == level) {
+            System.arraycopy(ladderPrices, index + 1, ladderPrices, index, ladderCount - index - 1);
+            System.arraycopy(ladderLevels, index + 1, ladderLevels, index, ladderCount - index - 1);
+            ladderLevels[--ladderCount] = null;
+        }
+        if (level.getFirstOrder() == null) {
+            level.setQuantity(0);
+            levelPool.release(level);
+        }
+    }
+
     public void accept(final OrderBookVisitor visitor){
 
         visitor.visitSide(this);
@@ -43,22 +103,19 @@ public abstract class OrderBookSide {
         if(isNewFirstLevel(levelToVisit, visitor)){
             OrderBookLevel level = visitor.onNoFirstLevel();
             if(level != null) {
-                if(levelToVisit != null) {
-                    levelToVisit.insertFirst(levelToVisit, level);
-                }
-                setFirstLevel(level);
+                level.setSide(this);
+                levels.addFirst(level);
+                addToLadder(level);
                 level.accept(visitor, this);
             }
             return;
-        }else {
-            visitOneLevel(visitor, levelToVisit, levelToVisit.next());
         }
 
-        levelToVisit = levelToVisit.next();
-
         while(levelToVisit != null){
-            visitOneLevel(visitor, levelToVisit, levelToVisit.next());
-            levelToVisit = levelToVisit.next();
+            final OrderBookLevel nextLevel = levelToVisit.next();
+            visitOneLevel(visitor, levelToVisit, nextLevel);
+            // a level inserted after this one is visited next, one which has just emptied and left the side has no next
+            levelToVisit = levelToVisit.isLinked() ? levelToVisit.next() : nextLevel;
         }
     }
 
@@ -71,20 +128,20 @@ public abstract class OrderBookSide {
                 levelToVisit.accept(visitor, this);
             } else if (isBetweenLevels(levelToVisit, nextLevel, priceToFind)) {
                 OrderBookLevel level = visitor.missingBookLevel(levelToVisit, nextLevel, priceToFind);
-                levelToVisit.insertAfter(levelToVisit,level, nextLevel);
+                level.setSide(this);
+                levels.insertAfter(levelToVisit, level);
+                addToLadder(level);
             } else if (isNewDeepestLevel(levelToVisit, nextLevel, priceToFind)) {
                 OrderBookLevel level = visitor.missingBookLevel(levelToVisit, nextLevel, priceToFind);
-                levelToVisit.last().add(level);
+                level.setSide(this);
+                levels.addLast(level);
+                addToLadder(level);
             }
         }else{
             levelToVisit.accept(visitor, this);
         }
     }
 
-    MutatingAddOrderVisitor getAddOrderVisitor() {
-        return addOrderVisitor;
-    }
-
     boolean isNewFirstLevel(OrderBookLevel currentFirst, OrderBookVisitor visitor) {
         if(currentFirst == null) {
             return true;
@@ -105,19 +162,141 @@ public abstract class OrderBookSide {
         return previous != null && next == null && comparator.compare(previous.getPrice(), price) == -1;
     }
 
+    /**
+     * @return true if price a is worse than price b on this side, a lower bid or a higher ask.
+     */
+    private boolean isWorse(final long a, final long b) {
+        return bid ? a < b : a > b;
+    }
+
+    /**
+     * @return the index of the price in the ladder, or -(insertion point) - 1 if it has no level.
+     */
+    private int find(final long price) {
+        int low = 0;
+        int high = ladderCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midPrice = ladderPrices[mid];
+            if (midPrice == price) {
+                return mid;
+            }
+            if (isWorse(midPrice, price)) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void addToLadder(final OrderBookLevel level) {
+        final int index = find(level.getPrice());
+        if (index >= 0) {
+            throw new IllegalStateException("Two levels at " + level.getPrice());
+        }
+        insertIntoLadder(-index - 1, level);
+    }
 
+    private void insertIntoLadder(final int index, final OrderBookLevel level) {
+        if (ladderCount == ladderPrices.length) {
+            ladderPrices = Arrays.copyOf(ladderPrices, ladderCount * 2);
+            ladderLevels = Arrays.copyOf(ladderLevels, ladderCount * 2);
+        }
+        System.arraycopy(ladderPrices, index, ladderPrices, index + 1, ladderCount - index);
+        System.arraycopy(ladderLevels, index, ladderLevels, index + 1, ladderCount - index);
+        ladderPrices[index] = level.getPrice();
+        ladderLevels[index] = level;
+        ladderCount++;
+    }
+
+    /**
+     * @return the level at the price, a new one put in its place in the list and the ladder if there was none.
+     */
+    private OrderBookLevel levelFor(final long price) {
+        int index = find(price);
+        if (index >= 0) {
+            return ladderLevels[index];
+        }
+        index = -index - 1;
+
+        final OrderBookLevel level = levelPool.acquire();
+        level.setPrice(price);
+        // the level it goes in front of in the ladder is the next better price, so the one before it in the list
+        if (index == ladderCount) {
+            levels.addFirst(level);
+        } else {
+            levels.insertAfter(ladderLevels[index], level);
+        }
+        insertIntoLadder(index, level);
+        level.setSide(this);
+        return level;
+    }
+
+    /**
+     * Add the order at the back of the queue at its price.
+     */
+    private void addOrder(final DefaultOrderFlyweight order) {
+        final OrderBookLevel level = levelFor(order.getPrice());
+        level.addOrder(order);
+        order.setLevel(level);
+        level.setQuantity(level.getQuantity() + order.getQuantity());
+    }
+
+    /**
+     * Take every market data order out of the side, keeping our orders where they are, and remove the levels left
+     * empty.
+     */
     void removeMarketDataOrders(){
-        this.accept(removeMarketDataOrderVisitor);
+        OrderBookLevel level = getFirstLevel();
+        while (level != null) {
+            final OrderBookLevel next = level.next();
+            long removed = 0;
+            DefaultOrderFlyweight order = level.getFirstOrder();
+            while (order != null) {
+                final DefaultOrderFlyweight nextOrder = order.next();
+                if (order instanceof MarketDataOrderFlyweight) {
+                    level.removeOrder(order);
+                    order.setLevel(null);
+                    removed += order.getQuantity();
+                    releaseMarketDataOrder((MarketDataOrderFlyweight) order);
+                }
+                order = nextOrder;
+            }
+            if (level.getFirstOrder() == null) {
+                level.remove();
+            } else if (removed > 0) {
+                level.setQuantity(level.getQuantity() - removed);
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * @return a market data order from the side's pool, to go back to it once it has left the book.
+     */
+    MarketDataOrderFlyweight newMarketDataOrder(final Side side, final long price, final long quantity) {
+        final MarketDataOrderFlyweight order = marketDataOrderPool.acquire().set(side, price, quantity);
+        order.setPooled(true);
+        return order;
+    }
+
+    /**
+     * Put a market data order which has left the book back in the pool, if it came from there and is not already back.
+     */
+    void releaseMarketDataOrder(final MarketDataOrderFlyweight order) {
+        if (order.isPooled() && !order.isLinked()) {
+            order.setPooled(false);
+            marketDataOrderPool.release(order);
+        }
     }
 
     void addMarketDataOrder(MarketDataOrderFlyweight order){
-        this.getAddOrderVisitor().setOrderToAdd(order);
-        this.accept(this.getAddOrderVisitor());
+        addOrder(order);
     }
 
     void addLimitOrder(LimitOrderFlyweight order){
-        this.getAddOrderVisitor().setOrderToAdd(order);
-        this.accept(this.getAddOrderVisitor());
+        addOrder(order);
     }
 
 }
@@ -1,22 +1,96 @@
 package codingblackfemales.orderbook.channel;
 
 import codingblackfemales.sequencer.Sequencer;
+import messages.marketdata.AggressorSide;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.marketdata.TradeEncoder;
+import messages.marketdata.Venue;
+import messages.order.Side;
 import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+
 public class MarketDataChannel {
 
     private static final Logger logger = LoggerFactory.getLogger(MarketDataChannel.class);
 
     private final Sequencer sequencer;
 
+    private boolean muted = false;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final TradeEncoder tradeEncoder = new TradeEncoder();
+
+    // one buffer per level of re-entrant publishing, a consumer of a trade can lead to another trade being published
+    // before every consumer has seen the first
+    private MutableDirectBuffer[] tradeBuffers = new MutableDirectBuffer[]{newTradeBuffer()};
+    private int tradeDepth = 0;
+    private long tradeSequence = 0;
+
     public MarketDataChannel(Sequencer sequencer) {
         this.sequencer = sequencer;
     }
 
+    /**
+     * Stop publishing, e.g. while the order book is rebuilt from the journal and its output was sequenced already.
+     */
+    public void setMuted(boolean muted){
+        this.muted = muted;
+    }
+
     public void publish(DirectBuffer buffer){
+        if(muted){
+            return;
+        }
         logger.info("[ORDERBOOK] Sending market data update...");
         sequencer.onCommand(buffer);
     }
+
+    /**
+     * Publish a match between an aggressive order and one resting in the book. Trades are counted while muted too, so
+     * a book rebuilt by replaying the journal carries on the same sequence.
+     *
+     * @param aggressorSide the side of the order which crossed the spread, {@link Side#NULL_VAL} for an auction uncross.
+     */
+    public void publishTrade(final Side aggressorSide, final long price, final long size){
+        final long sequence = ++tradeSequence;
+        if(muted){
+            return;
+        }
+
+        if(tradeDepth == tradeBuffers.length){
+            tradeBuffers = Arrays.copyOf(tradeBuffers, tradeDepth * 2);
+            for(int i = tradeDepth; i < tradeBuffers.length; i++){
+                tradeBuffers[i] = newTradeBuffer();
+            }
+        }
+        final MutableDirectBuffer buffer = tradeBuffers[tradeDepth++];
+        try {
+            tradeEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                    .instrumentId(123L)
+                    .venue(Venue.XLON)
+                    .sequence(sequence)
+                    .price(price)
+                    .size(size)
+                    .aggressorSide(aggressorSide(aggressorSide));
+            sequencer.onCommand(buffer);
+        } finally {
+            tradeDepth--;
+        }
+    }
+
+    private static AggressorSide aggressorSide(final Side side){
+        if(side == Side.BUY){
+            return AggressorSide.BUY;
+        }
+        return side == Side.SELL ? AggressorSide.SELL : AggressorSide.NONE;
+    }
+
+    private static MutableDirectBuffer newTradeBuffer(){
+        return new UnsafeBuffer(new byte[MessageHeaderEncoder.ENCODED_LENGTH + TradeEncoder.BLOCK_LENGTH]);
+    }
 }
@@ -2,42 +2,142 @@ package codingblackfemales.orderbook.channel;
 
 import codingblackfemales.orderbook.order.LimitOrderFlyweight;
 import codingblackfemales.sequencer.Sequencer;
+import messages.order.AmendAckedOrderEncoder;
+import messages.order.AmendRejectedOrderEncoder;
+import messages.order.CancelAckedOrderEncoder;
 import messages.order.FillOrderEncoder;
 import messages.order.MessageHeaderEncoder;
+import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class OrderChannel {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderChannel.class);
 
+    // fills and amend acks are the largest messages the book publishes
+    private static final int BUFFER_LENGTH = MessageHeaderEncoder.ENCODED_LENGTH + FillOrderEncoder.BLOCK_LENGTH;
+
     private final Sequencer sequencer;
 
+    private boolean muted = false;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final FillOrderEncoder fillEncoder = new FillOrderEncoder();
+    private final CancelAckedOrderEncoder cancelAckedEncoder = new CancelAckedOrderEncoder();
+    private final AmendAckedOrderEncoder amendAckedEncoder = new AmendAckedOrderEncoder();
+    private final AmendRejectedOrderEncoder amendRejectedEncoder = new AmendRejectedOrderEncoder();
+
+    // one buffer per level of re-entrant publishing, a consumer of a fill can lead to another message being published
+    // before every consumer has seen the first
+    private MutableDirectBuffer[] buffers = new MutableDirectBuffer[]{newBuffer()};
+    private int depth = 0;
+
     public OrderChannel(Sequencer sequencer) {
         this.sequencer = sequencer;
     }
 
+    /**
+     * Stop publishing, e.g. while the order book is rebuilt from the journal and its output was sequenced already.
+     */
+    public void setMuted(boolean muted){
+        this.muted = muted;
+    }
+
     public void publishFill(final long fillQuantity, final long price, final LimitOrderFlyweight limit){
+        if(muted){
+            return;
+        }
 
-        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(1024);
-        final UnsafeBuffer directBuffer = new UnsafeBuffer(byteBuffer);
-        final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+        final MutableDirectBuffer buffer = claim();
+        try {
+            fillEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                    .orderId(limit.getOrderId())
+                    .quantity(fillQuantity)
+                    .price(price);
+            logger.info("[ORDERBOOK] publishing fill to stream: {}", fillEncoder);
+            sequencer.onCommand(buffer);
+        } finally {
+            depth--;
+        }
+    }
 
-        final FillOrderEncoder fillEncoder = new FillOrderEncoder();
-        //write the encoded output to the direct buffer
-        fillEncoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
+    /**
+     * Tell the owner of an order that what was left of it has been cancelled by the book, e.g. an IOC order's remainder.
+     */
+    public void publishCancelAck(final LimitOrderFlyweight limit){
+        if(muted){
+            return;
+        }
 
+        final MutableDirectBuffer buffer = claim();
+        try {
+            cancelAckedEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                    .orderId(limit.getOrderId());
+            logger.info("[ORDERBOOK] publishing cancel ack to stream: {}", cancelAckedEncoder);
+            sequencer.onCommand(buffer);
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * Tell the owner of an order that its amend has been applied, with the order's new price and total quantity.
+     */
+    public void publishAmendAck(final LimitOrderFlyweight limit){
+        if(muted){
+            return;
+        }
+
+        final MutableDirectBuffer buffer = claim();
+        try {
+            amendAckedEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                    .orderId(limit.getOrderId())
+                    .price(limit.getPrice())
+                    .quantity(limit.getOrderQuantity());
+            logger.info("[ORDERBOOK] publishing amend ack to stream: {}", amendAckedEncoder);
+            sequencer.onCommand(buffer);
+        } finally {
+            depth--;
+        }
+    }
 
-        fillEncoder.orderId(limit.getOrderId());
-        fillEncoder.quantity(fillQuantity);
-        fillEncoder.price(price);
+    /**
+     * Tell the owner of an order that it could not be amended, as the book no longer has it.
+     */
+    public void publishAmendReject(final long orderId){
+        if(muted){
+            return;
+        }
 
-        logger.info("[ORDERBOOK] publishing fill to stream: " + fillEncoder);
+        final MutableDirectBuffer buffer = claim();
+        try {
+            amendRejectedEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                    .orderId(orderId);
+            logger.info("[ORDERBOOK] publishing amend reject to stream: {}", amendRejectedEncoder);
+            sequencer.onCommand(buffer);
+        } finally {
+            depth--;
+        }
+    }
 
-        this.sequencer.onCommand(directBuffer);
+    /**
+     * @return the buffer for this level of publishing, released by decrementing depth once it has been sent.
+     */
+    private MutableDirectBuffer claim(){
+        if(depth == buffers.length){
+            buffers = Arrays.copyOf(buffers, depth * 2);
+            for(int i = depth; i < buffers.length; i++){
+                buffers[i] = newBuffer();
+            }
+        }
+        return buffers[depth++];
     }
 
+    private static MutableDirectBuffer newBuffer(){
+        return new UnsafeBuffer(new byte[BUFFER_LENGTH]);
+    }
 }
@@ -1,7 +1,6 @@
 package codingblackfemales.orderbook.consumer;
 
 import codingblackfemales.orderbook.OrderBook;
-import codingblackfemales.orderbook.order.LimitOrderFlyweight;
 import codingblackfemales.sequencer.event.OrderEventListener;
 import messages.order.*;
 import org.slf4j.Logger;
@@ -19,9 +18,9 @@ public class OrderBookInboundOrderConsumer extends OrderEventListener {
 
     @Override
     public void onCreateOrder(CreateOrderDecoder create) {
-        final var limit = new LimitOrderFlyweight(create.side(), create.price(), create.quantity(), create.orderId());
+        final var limit = book.newLimitOrder(create.side(), create.price(), create.quantity(), create.orderId());
         //logger.info("Adding limit Order:" + limit + " to book");
-        book.onLimitOrder(limit);
+        book.onLimitOrder(limit, create.timeInForce());
     }
 
     @Override
@@ -29,6 +28,11 @@ public class OrderBookInboundOrderConsumer extends OrderEventListener {
         book.onCancelOrder(cancel.orderId());
     }
 
+    @Override
+    public void onAmendOrder(AmendOrderDecoder amend) {
+        book.onAmendOrder(amend.orderId(), amend.price(), amend.quantity());
+    }
+
     @Override
     public void onAckedOrder(AckedOrderDecoder acked) {
 
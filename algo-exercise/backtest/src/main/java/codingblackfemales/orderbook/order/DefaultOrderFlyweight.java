@@ -7,6 +7,12 @@ import messages.order.Side;
 
 public class DefaultOrderFlyweight extends ParentOrderFlyweight<DefaultOrderFlyweight>{
 
+    // the level the order rests at, or null once it has left the book
+    private OrderBookLevel level;
+
+    // handed out by the book, so it goes back to the book's pool once it has left the book
+    private boolean pooled;
+
     @Override
     public void accept(OrderBookVisitor visitor, OrderBookSide side, OrderBookLevel level, boolean isLast) {
         visitor.visitOrder(this, side, level, isLast);
@@ -14,6 +20,22 @@ public class DefaultOrderFlyweight extends ParentOrderFlyweight<DefaultOrderFlyw
 
     public void setQuantity(long quantity){}
 
+    public OrderBookLevel getLevel() {
+        return level;
+    }
+
+    public void setLevel(OrderBookLevel level) {
+        this.level = level;
+    }
+
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
 
     public Side getSide() {
         return null;
@@ -7,13 +7,35 @@ public class LimitOrderFlyweight extends DefaultOrderFlyweight {
     private Side side;
     private long price;
     private long quantity;
+    private long orderQuantity;
     private long orderId;
 
     public LimitOrderFlyweight(Side side, long price, long quantity, long orderId) {
+        this(side, price, quantity, quantity, orderId);
+    }
+
+    /**
+     * @param quantity what is left to fill.
+     * @param orderQuantity the total quantity of the order, including what has filled.
+     */
+    public LimitOrderFlyweight(Side side, long price, long quantity, long orderQuantity, long orderId) {
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.orderQuantity = orderQuantity;
+        this.orderId = orderId;
+    }
+
+    /**
+     * Reuse the flyweight for another order.
+     */
+    public LimitOrderFlyweight set(Side side, long price, long quantity, long orderQuantity, long orderId) {
         this.side = side;
         this.price = price;
         this.quantity = quantity;
+        this.orderQuantity = orderQuantity;
         this.orderId = orderId;
+        return this;
     }
 
     public Side getSide() {
@@ -34,6 +56,18 @@ public class LimitOrderFlyweight extends DefaultOrderFlyweight {
         this.quantity = quantity;
     }
 
+    public long getOrderQuantity() {
+        return orderQuantity;
+    }
+
+    public void setOrderQuantity(long orderQuantity) {
+        this.orderQuantity = orderQuantity;
+    }
+
+    public long getFilledQuantity() {
+        return orderQuantity - quantity;
+    }
+
     public long getOrderId() {
         return orderId;
     }
@@ -14,6 +14,16 @@ public class MarketDataOrderFlyweight extends DefaultOrderFlyweight {
         this.quantity = quantity;
     }
 
+    /**
+     * Reuse the flyweight for another market data order.
+     */
+    public MarketDataOrderFlyweight set(Side side, long price, long quantity) {
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        return this;
+    }
+
     @Override
     public Side getSide() {
         return side;
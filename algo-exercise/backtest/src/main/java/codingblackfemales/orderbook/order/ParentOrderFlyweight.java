@@ -1,8 +1,8 @@
 package codingblackfemales.orderbook.order;
 
-import codingblackfemales.collection.intrusive.IntrusiveLinkedListNode;
+import codingblackfemales.collection.intrusive.IntrusiveListNode;
 
-public abstract class ParentOrderFlyweight<TYPE extends IntrusiveLinkedListNode<TYPE>> extends IntrusiveLinkedListNode<TYPE> implements Order{
+public abstract class ParentOrderFlyweight<TYPE extends IntrusiveListNode<TYPE>> extends IntrusiveListNode<TYPE> implements Order{
 
     @Override
     public long getPrice() {
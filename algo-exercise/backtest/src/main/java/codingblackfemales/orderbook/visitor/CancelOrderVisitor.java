@@ -31,7 +31,8 @@ public class CancelOrderVisitor implements OrderBookVisitor{
             LimitOrderFlyweight limit = (LimitOrderFlyweight) order;
             if(limit.getOrderId() == orderId){
                 logger.info("[ORDERBOOK] Cancelling order: " + limit);
-                level.setFirstOrder(limit.remove());
+                level.removeOrder(limit);
+                limit.setLevel(null);
                 level.setQuantity(level.getQuantity() - limit.getQuantity());
             }
         }
@@ -2,6 +2,7 @@ package codingblackfemales.orderbook.visitor;
 
 import codingblackfemales.orderbook.OrderBookLevel;
 import codingblackfemales.orderbook.OrderBookSide;
+import codingblackfemales.orderbook.channel.MarketDataChannel;
 import codingblackfemales.orderbook.channel.OrderChannel;
 import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
 import codingblackfemales.orderbook.order.LimitOrderFlyweight;
@@ -20,12 +21,18 @@ public class MutatingMatchOneMarketDataOrderVisitor implements OrderBookVisitor{
     private boolean isFullyFilled = false;
 
     private final OrderChannel orderChannel;
+    private final MarketDataChannel marketDataChannel;
 
-    public MutatingMatchOneMarketDataOrderVisitor(final MarketDataOrderFlyweight orderToMatch, final OrderChannel orderChannel) {
+    /**
+     * @param marketDataChannel where a match with one of our orders is published as a trade, market data orders only
+     *                          cross each other while the book is refreshed so those are not trades.
+     */
+    public MutatingMatchOneMarketDataOrderVisitor(final MarketDataOrderFlyweight orderToMatch, final OrderChannel orderChannel, final MarketDataChannel marketDataChannel) {
         this.filledQuantity = 0;
         this.orderToMatch = orderToMatch;
         this.remainingQuantity = orderToMatch.getQuantity();
         this.orderChannel = orderChannel;
+        this.marketDataChannel = marketDataChannel;
     }
 
     @Override
@@ -45,7 +52,8 @@ public class MutatingMatchOneMarketDataOrderVisitor implements OrderBookVisitor{
                 long fillQuantity = order.getQuantity();
                 remainingQuantity -= fillQuantity;
                 filledQuantity += fillQuantity;
-                level.setFirstOrder(order.remove());
+                level.removeOrder(order);
+                order.setLevel(null);
                 if(order instanceof LimitOrderFlyweight){
                     logger.info("Filled:" + fillQuantity + "@" + orderToMatch.getPrice());
                     publishFill(fillQuantity, orderToMatch.getPrice(),(LimitOrderFlyweight) order);
@@ -74,6 +82,7 @@ public class MutatingMatchOneMarketDataOrderVisitor implements OrderBookVisitor{
     private void publishFill(final long quantity, final long price, LimitOrderFlyweight orderFlyweight){
         logger.info("[ORDERBOOK] Filled " + quantity + "@" + price + " for order:" + orderFlyweight);
         orderChannel.publishFill(quantity, price, orderFlyweight);
+        marketDataChannel.publishTrade(orderToMatch.getSide(), price, quantity);
     }
 
     private boolean priceIsEqualOrMoreAggressive(final DefaultOrderFlyweight bookOrder, final DefaultOrderFlyweight orderToMatch){
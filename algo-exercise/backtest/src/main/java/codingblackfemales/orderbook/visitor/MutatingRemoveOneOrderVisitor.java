@@ -32,7 +32,8 @@ public class MutatingRemoveOneOrderVisitor implements OrderBookVisitor{
 
             if(limit.getOrderId() == getOrderIdToRemove()){
                 System.out.println("yes it is....");
-                level.setFirstOrder(order.remove());
+                level.removeOrder(order);
+                order.setLevel(null);
                 level.setQuantity(level.getQuantity() - limit.getQuantity());
             }
         }
@@ -20,13 +20,10 @@ public class ReadOnlyMarketDataChannelPublishVisitor implements OrderBookVisitor
     private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
     private final BookUpdateEncoder encoder = new BookUpdateEncoder();
 
-    private ByteBuffer byteBuffer; //= ByteBuffer.allocateDirect(1024);
-    private UnsafeBuffer directBuffer; //= new UnsafeBuffer(byteBuffer);
+    // reused from one start() to the next, the caller must be done with one message before starting the next
+    private final UnsafeBuffer directBuffer = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
 
     public void start(){
-        byteBuffer = ByteBuffer.allocateDirect(1024);
-        directBuffer = new UnsafeBuffer(byteBuffer);
-
         encoder.wrapAndApplyHeader(directBuffer, 0, headerEncoder);
         //set the fields to desired valus
         encoder.venue(Venue.XLON);
@@ -50,7 +47,7 @@ public class ReadOnlyMarketDataChannelPublishVisitor implements OrderBookVisitor
                 return;
             }
 
-            final var size = side.getFirstLevel().size();
+            final var size = side.getLevelCount();
             logger.debug("Bid Side Size: " + size);
             var bidBookEncoder = encoder.bidBookCount(size);
             OrderBookLevel level = side.getFirstLevel();
@@ -63,7 +60,7 @@ public class ReadOnlyMarketDataChannelPublishVisitor implements OrderBookVisitor
             if(side.getFirstLevel() == null){
                 return;
             }
-            final var size = side.getFirstLevel().size();
+            final var size = side.getLevelCount();
             logger.debug("Ask Side Size: " + size);
             var askBookEncoder = encoder.askBookCount(size);
             OrderBookLevel level = side.getFirstLevel();
@@ -0,0 +1,99 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.Source;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EncodedBookUpdateTest {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder decoder = new BookUpdateDecoder();
+
+    @Test
+    public void keepsEachSideSortedBestFirst() {
+        final EncodedBookUpdate update = new EncodedBookUpdate();
+        update.setLevel(true, 98, 100);
+        update.setLevel(false, 101, 10);
+        update.setLevel(true, 99, 50);
+        update.setLevel(false, 103, 30);
+        update.setLevel(true, 95, 20);
+        update.setLevel(false, 102, 20);
+        update.setLevel(true, 98, 0);
+        update.setLevel(false, 102, 25);
+        update.setLevel(true, 97, 0);
+
+        assertEquals("bid=[99x50, 95x20] ask=[101x10, 102x25, 103x30]", decode(update.buffer()));
+        assertEquals(update.length(), header.encodedLength() + decoder.encodedLength());
+        assertEquals(Source.ORDERBOOK, decoder.source());
+    }
+
+    @Test
+    public void matchesTheBookAfterRandomOrders() {
+        final List<DirectBuffer> published = new ArrayList<>();
+        final MarketDataChannel channel = new MarketDataChannel(published::add);
+        final OrderBook book = new OrderBook(channel, Mockito.mock(OrderChannel.class));
+        final Random random = new Random(42);
+
+        long orderId = 1;
+        final List<Long> live = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                final Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                // mostly passive, sometimes through the touch
+                final long price = side == Side.BUY ? 90 + random.nextInt(12) : 99 + random.nextInt(12);
+                book.onLimitOrder(new LimitOrderFlyweight(side, price, 1 + random.nextInt(100), orderId));
+                live.add(orderId++);
+            } else {
+                final long id = live.remove(random.nextInt(live.size()));
+                if (random.nextBoolean()) {
+                    book.onCancelOrder(id);
+                } else {
+                    book.onAmendOrder(id, 90 + random.nextInt(20), 1 + random.nextInt(100));
+                }
+            }
+            assertEquals(walk(book), decode(published.get(published.size() - 1)));
+        }
+    }
+
+    private static String walk(final OrderBook book) {
+        return "bid=" + walk(book.getBidBookSide()) + " ask=" + walk(book.getAskBookSide());
+    }
+
+    private static String walk(final OrderBookSide side) {
+        final StringBuilder builder = new StringBuilder("[");
+        for (OrderBookLevel level = side.getFirstLevel(); level != null; level = level.next()) {
+            if (level.getQuantity() > 0) {
+                builder.append(builder.length() > 1 ? ", " : "").append(level.getPrice()).append('x').append(level.getQuantity());
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+    private String decode(final DirectBuffer buffer) {
+        header.wrap(buffer, 0);
+        decoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+
+        final StringBuilder builder = new StringBuilder("bid=[");
+        for (BookUpdateDecoder.BidBookDecoder bid : decoder.bidBook()) {
+            builder.append(builder.length() > 5 ? ", " : "").append(bid.price()).append('x').append(bid.size());
+        }
+        final int askStart = builder.append("] ask=[").length();
+        for (BookUpdateDecoder.AskBookDecoder ask : decoder.askBook()) {
+            builder.append(builder.length() > askStart ? ", " : "").append(ask.price()).append('x').append(ask.size());
+        }
+        return builder.append(']').toString();
+    }
+}
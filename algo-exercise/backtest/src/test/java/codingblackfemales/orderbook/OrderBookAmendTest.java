@@ -0,0 +1,118 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import codingblackfemales.sequencer.snapshot.SnapshotReader;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import messages.order.Side;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class OrderBookAmendTest {
+
+    private final MarketDataChannel marketDataChannel = Mockito.mock(MarketDataChannel.class);
+    private final OrderChannel orderChannel = Mockito.mock(OrderChannel.class);
+    private final OrderBook book = new OrderBook(marketDataChannel, orderChannel);
+
+    @Test
+    public void reducingQuantityKeepsQueuePriority() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 100, 1));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 50, 2));
+
+        book.onAmendOrder(1, 98, 60);
+
+        final OrderBookLevel bid = book.getBidBookSide().getFirstLevel();
+        assertEquals(110, bid.getQuantity());
+        assertOrder(bid.getFirstOrder(), 1, 60);
+        assertOrder(bid.getFirstOrder().next(), 2, 50);
+        Mockito.verify(orderChannel).publishAmendAck(Mockito.argThat(limit -> limit.getOrderId() == 1 && limit.getOrderQuantity() == 60));
+    }
+
+    @Test
+    public void repricingOrIncreasingMovesToTheBackOfTheQueue() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 100, 1));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 50, 2));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 10, 3));
+
+        book.onAmendOrder(1, 97, 100);
+        book.onAmendOrder(2, 98, 80);
+
+        final OrderBookLevel bid = book.getBidBookSide().getFirstLevel();
+        assertEquals(98, bid.getPrice());
+        assertEquals(90, bid.getQuantity());
+        assertOrder(bid.getFirstOrder(), 3, 10);
+        assertOrder(bid.getFirstOrder().next(), 2, 80);
+        assertNull(bid.getFirstOrder().next().next());
+
+        assertEquals(97, bid.next().getPrice());
+        assertEquals(100, bid.next().getQuantity());
+        assertOrder(bid.next().getFirstOrder(), 1, 100);
+    }
+
+    @Test
+    public void amendingThroughTheTouchMatches() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 105, 20, 4));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 20, 1));
+
+        book.onAmendOrder(1, 105, 20);
+
+        // acked before the fill, so the owner has the new price and quantity when the fill arrives
+        final InOrder inOrder = Mockito.inOrder(orderChannel);
+        inOrder.verify(orderChannel).publishAmendAck(Mockito.argThat(limit -> limit.getOrderId() == 1 && limit.getPrice() == 105));
+        inOrder.verify(orderChannel).publishFill(eq(20L), eq(105L), Mockito.argThat(limit -> limit.getOrderId() == 4));
+        inOrder.verify(orderChannel).publishFill(eq(20L), eq(105L), Mockito.argThat(limit -> limit.getOrderId() == 1));
+        assertNull(book.getLimitOrder(1));
+        assertNull(book.getLimitOrder(4));
+    }
+
+    @Test
+    public void amendingBelowTheFilledQuantityCancelsTheRest() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 100, 1));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 98, 40, 5));
+        assertEquals(40, book.getLimitOrder(1).getFilledQuantity());
+
+        // survives a snapshot, which keeps the total order quantity
+        final SnapshotWriter writer = new SnapshotWriter().begin(1).write(book);
+        final byte[] bytes = new byte[writer.length()];
+        writer.buffer().getBytes(0, bytes);
+        final OrderBook restored = new OrderBook(marketDataChannel, orderChannel);
+        new SnapshotReader(bytes).read(restored);
+        assertEquals(40, restored.getLimitOrder(1).getFilledQuantity());
+
+        restored.onAmendOrder(1, 98, 70);
+        assertEquals(30, restored.getBidBookSide().getFirstLevel().getQuantity());
+
+        restored.onAmendOrder(1, 98, 40);
+        assertNull(restored.getLimitOrder(1));
+        assertNull(restored.getBidBookSide().getFirstLevel());
+        Mockito.verify(orderChannel).publishCancelAck(Mockito.argThat(limit -> limit.getOrderId() == 1));
+    }
+
+    @Test
+    public void amendingAnOrderNotInTheBookIsRejected() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 100, 1));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 98, 100, 5));
+
+        book.onAmendOrder(1, 98, 50);
+        book.onAmendOrder(99, 98, 10);
+
+        Mockito.verify(orderChannel).publishAmendReject(1);
+        Mockito.verify(orderChannel).publishAmendReject(99);
+        Mockito.verify(orderChannel, Mockito.never()).publishAmendAck(any(LimitOrderFlyweight.class));
+    }
+
+    private static void assertOrder(final DefaultOrderFlyweight order, final long orderId, final long quantity) {
+        assertTrue(order instanceof LimitOrderFlyweight);
+        assertEquals(orderId, ((LimitOrderFlyweight) order).getOrderId());
+        assertEquals(quantity, order.getQuantity());
+    }
+}
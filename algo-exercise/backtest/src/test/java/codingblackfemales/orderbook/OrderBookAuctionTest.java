@@ -0,0 +1,156 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import codingblackfemales.service.MarketDataService;
+import messages.marketdata.AggressorSide;
+import messages.marketdata.InstrumentStatus;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.TradeDecoder;
+import messages.order.Side;
+import messages.order.TimeInForce;
+import org.agrona.DirectBuffer;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+public class OrderBookAuctionTest {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final TradeDecoder trade = new TradeDecoder();
+    private final MarketDataService marketData = new MarketDataService(new RunTrigger());
+    private final List<String> trades = new ArrayList<>();
+    private int bookUpdates = 0;
+
+    private final MarketDataChannel marketDataChannel = new MarketDataChannel(buffer -> {
+        recordTrade(buffer);
+        marketData.onMessage(buffer);
+    });
+    private final OrderChannel orderChannel = Mockito.mock(OrderChannel.class);
+    private final OrderBook book = new OrderBook(marketDataChannel, orderChannel);
+
+    private void recordTrade(final DirectBuffer buffer) {
+        header.wrap(buffer, 0);
+        if (header.templateId() == TradeDecoder.TEMPLATE_ID) {
+            trade.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            assertEquals(AggressorSide.NONE, trade.aggressorSide());
+            trades.add(trade.size() + "@" + trade.price());
+        } else {
+            bookUpdates++;
+        }
+    }
+
+    @Test
+    public void accumulatesWithoutMatchingThenUncrossesAtTheMaximumVolumePrice() {
+        book.setInstrumentStatus(InstrumentStatus.AUCTION);
+        assertEquals(InstrumentStatus.AUCTION, marketData.getInstrumentStatus());
+
+        final LimitOrderFlyweight bid1 = new LimitOrderFlyweight(Side.BUY, 103, 100, 1);
+        final LimitOrderFlyweight bid2 = new LimitOrderFlyweight(Side.BUY, 102, 100, 2);
+        final LimitOrderFlyweight ask4 = new LimitOrderFlyweight(Side.SELL, 99, 150, 4);
+        final LimitOrderFlyweight ask5 = new LimitOrderFlyweight(Side.SELL, 101, 100, 5);
+        book.onLimitOrder(bid1);
+        book.onLimitOrder(bid2);
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 100, 200, 3));
+        book.onLimitOrder(ask4);
+        book.onLimitOrder(ask5);
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 103, 300, 6));
+        final LimitOrderFlyweight ioc = new LimitOrderFlyweight(Side.BUY, 110, 10, 7);
+        book.onLimitOrder(ioc, TimeInForce.IOC);
+
+        // only the book with the new status went out, the orders are held until the auction ends
+        assertEquals(1, bookUpdates);
+        Mockito.verify(orderChannel, Mockito.never()).publishFill(anyLong(), anyLong(), any());
+        Mockito.verify(orderChannel).publishCancelAck(ioc);
+        assertEquals(103, book.getBidBookSide().getFirstLevel().getPrice());
+        assertEquals(99, book.getAskBookSide().getFirstLevel().getPrice());
+
+        // 200 trades at 102 or 101, 102 leaves the smaller surplus (50 offered over 200 bid)
+        book.setInstrumentStatus(InstrumentStatus.CONTINUOUS);
+
+        final InOrder fills = Mockito.inOrder(orderChannel);
+        fills.verify(orderChannel).publishFill(100, 102, bid1);
+        fills.verify(orderChannel).publishFill(100, 102, ask4);
+        fills.verify(orderChannel).publishFill(50, 102, bid2);
+        fills.verify(orderChannel).publishFill(50, 102, ask4);
+        fills.verify(orderChannel).publishFill(50, 102, bid2);
+        fills.verify(orderChannel).publishFill(50, 102, ask5);
+        assertEquals(List.of("100@102", "50@102", "50@102"), trades);
+        assertEquals(2, bookUpdates);
+
+        assertEquals(InstrumentStatus.CONTINUOUS, marketData.getInstrumentStatus());
+        assertEquals(100, marketData.getBidPrices()[0]);
+        assertEquals(200, marketData.getBidQuantities()[0]);
+        assertEquals(101, marketData.getAskPrices()[0]);
+        assertEquals(50, marketData.getAskQuantities()[0]);
+    }
+
+    @Test
+    public void closedBookCancelsNewOrders() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 101, 100, 1));
+        book.setInstrumentStatus(InstrumentStatus.CLOSED);
+
+        final LimitOrderFlyweight buy = new LimitOrderFlyweight(Side.BUY, 101, 100, 2);
+        book.onLimitOrder(buy);
+
+        Mockito.verify(orderChannel).publishCancelAck(buy);
+        Mockito.verify(orderChannel, Mockito.never()).publishFill(anyLong(), anyLong(), any());
+        assertNull(book.getBidBookSide().getFirstLevel());
+        assertEquals(InstrumentStatus.CLOSED, marketData.getInstrumentStatus());
+    }
+
+    /**
+     * Fills hundreds of random orders in an auction and checks the uncross trades the most any single price could,
+     * found by trying every price, and leaves a book which is no longer crossed.
+     */
+    @Test
+    public void uncrossTradesTheMostAnyPriceCould() {
+        final Random random = new Random(5);
+        // trades only, no market data service logging every level of the book
+        final MarketDataChannel tradesOnly = new MarketDataChannel(this::recordTrade);
+        for (int round = 0; round < 10; round++) {
+            final OrderBook auction = new OrderBook(tradesOnly, orderChannel);
+            auction.setInstrumentStatus(InstrumentStatus.AUCTION);
+
+            final long[] bidAt = new long[120];
+            final long[] askAt = new long[120];
+            for (int orderId = 1; orderId <= 500; orderId++) {
+                final boolean buy = random.nextBoolean();
+                final int price = 90 + random.nextInt(20) + (buy ? 0 : 5);
+                final int quantity = 1 + random.nextInt(100);
+                auction.onLimitOrder(new LimitOrderFlyweight(buy ? Side.BUY : Side.SELL, price, quantity, orderId));
+                (buy ? bidAt : askAt)[price] += quantity;
+            }
+
+            long maxVolume = 0;
+            for (int price = 0; price < 120; price++) {
+                long bidVolume = 0;
+                long askVolume = 0;
+                for (int other = 0; other < 120; other++) {
+                    bidVolume += other >= price ? bidAt[other] : 0;
+                    askVolume += other <= price ? askAt[other] : 0;
+                }
+                maxVolume = Math.max(maxVolume, Math.min(bidVolume, askVolume));
+            }
+
+            trades.clear();
+            auction.setInstrumentStatus(InstrumentStatus.CONTINUOUS);
+
+            assertEquals(maxVolume, trades.stream().mapToLong(traded -> Long.parseLong(traded.substring(0, traded.indexOf('@')))).sum());
+            assertEquals(1, trades.stream().map(traded -> traded.substring(traded.indexOf('@'))).distinct().count());
+            assertTrue(auction.getBidBookSide().getFirstLevel().getPrice() < auction.getAskBookSide().getFirstLevel().getPrice());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.container.RunTrigger;
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import codingblackfemales.sequencer.snapshot.SnapshotReader;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import codingblackfemales.service.MarketDataService;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.order.Side;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrderBookDeltaTest {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final MarketDataService marketData = new MarketDataService(new RunTrigger());
+
+    private int fullUpdates = 0;
+    private int deltas = 0;
+
+    private final MarketDataChannel channel = new MarketDataChannel(buffer -> {
+        header.wrap(buffer, 0);
+        if (header.templateId() == BookUpdateDecoder.TEMPLATE_ID) {
+            fullUpdates++;
+        } else if (header.templateId() == BookDeltaDecoder.TEMPLATE_ID) {
+            deltas++;
+        }
+        marketData.onMessage(buffer);
+    });
+
+    private final OrderBook book = new OrderBook(channel, Mockito.mock(OrderChannel.class));
+
+    @Test
+    public void consumerRebuildsTheBookFromDeltas() {
+        book.setDeltaPublishing(50);
+        final Random random = new Random(7);
+
+        long orderId = 1;
+        final List<Long> live = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                final Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                final long price = side == Side.BUY ? 90 + random.nextInt(12) : 99 + random.nextInt(12);
+                book.onLimitOrder(new LimitOrderFlyweight(side, price, 1 + random.nextInt(100), orderId));
+                live.add(orderId++);
+            } else {
+                final long id = live.remove(random.nextInt(live.size()));
+                if (random.nextBoolean()) {
+                    book.onCancelOrder(id);
+                } else {
+                    book.onAmendOrder(id, 90 + random.nextInt(20), 1 + random.nextInt(100));
+                }
+            }
+            assertEquals(walk(book), received());
+        }
+
+        // the first of every 50 publishes is a full update
+        assertEquals((fullUpdates + deltas + 49) / 50, fullUpdates);
+        assertTrue(deltas > 400);
+    }
+
+    @Test
+    public void firstPublishAndOneAfterARestoreAreFullUpdates() {
+        book.setDeltaPublishing(100);
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 100, 1));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 102, 100, 2));
+        assertEquals(1, fullUpdates);
+        assertEquals(1, deltas);
+
+        // nothing changed, nothing to publish
+        book.onCancelOrder(99);
+        assertEquals(1, deltas);
+
+        final SnapshotWriter writer = new SnapshotWriter().begin(1).write(book);
+        final byte[] bytes = new byte[writer.length()];
+        writer.buffer().getBytes(0, bytes);
+        new SnapshotReader(bytes).read(book);
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 99, 10, 3));
+
+        assertEquals(2, fullUpdates);
+        assertEquals("bid=[99x10, 98x100] ask=[102x100]", received());
+    }
+
+    private String received() {
+        final StringBuilder builder = new StringBuilder("bid=[");
+        for (int i = 0; i < marketData.getBidLength(); i++) {
+            builder.append(i > 0 ? ", " : "").append(marketData.getBidPrices()[i]).append('x').append(marketData.getBidQuantities()[i]);
+        }
+        builder.append("] ask=[");
+        for (int i = 0; i < marketData.getAskLength(); i++) {
+            builder.append(i > 0 ? ", " : "").append(marketData.getAskPrices()[i]).append('x').append(marketData.getAskQuantities()[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    private static String walk(final OrderBook book) {
+        return "bid=" + walk(book.getBidBookSide()) + " ask=" + walk(book.getAskBookSide());
+    }
+
+    private static String walk(final OrderBookSide side) {
+        final StringBuilder builder = new StringBuilder("[");
+        for (OrderBookLevel level = side.getFirstLevel(); level != null; level = level.next()) {
+            if (level.getQuantity() > 0) {
+                builder.append(builder.length() > 1 ? ", " : "").append(level.getPrice()).append('x').append(level.getQuantity());
+            }
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,106 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.marketdata.Source;
+import messages.marketdata.Venue;
+import messages.order.Side;
+import messages.order.TimeInForce;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class OrderBookLadderTest {
+
+    private final OrderBook book = new OrderBook(Mockito.mock(MarketDataChannel.class), Mockito.mock(OrderChannel.class));
+
+    @Test
+    public void levelsAreKeptInPriceOrderAndFoundByPrice() {
+        final long[] prices = {97, 99, 95, 98, 96, 99};
+        for (int i = 0; i < prices.length; i++) {
+            book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, prices[i], 10, i + 1));
+            book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, prices[i] + 10, 10, i + 11));
+        }
+
+        long expected = 99;
+        for (OrderBookLevel level = book.getBidBookSide().getFirstLevel(); level != null; level = level.next()) {
+            assertEquals(expected--, level.getPrice());
+        }
+        expected = 105;
+        for (OrderBookLevel level = book.getAskBookSide().getFirstLevel(); level != null; level = level.next()) {
+            assertEquals(expected++, level.getPrice());
+        }
+
+        assertEquals(20, book.getBidBookSide().getLevel(99).getQuantity());
+        assertEquals(2, book.getBidBookSide().getLevel(99).getOrderCount());
+        assertNull(book.getBidBookSide().getLevel(100));
+
+        book.onCancelOrder(3);
+        assertNull(book.getBidBookSide().getLevel(95));
+        assertEquals(96, book.getBidBookSide().getLevel(96).getPrice());
+    }
+
+    @Test
+    public void levelsAndOrdersWhichLeaveTheBookAreReused() {
+        final LimitOrderFlyweight resting = book.newLimitOrder(Side.SELL, 101, 10, 1);
+        book.onLimitOrder(resting);
+        final OrderBookLevel level = book.getAskBookSide().getFirstLevel();
+
+        // still resting, so a new order is not the same flyweight
+        assertNotSame(resting, book.newLimitOrder(Side.BUY, 90, 10, 2));
+
+        final LimitOrderFlyweight buy = book.newLimitOrder(Side.BUY, 101, 10, 3);
+        book.onLimitOrder(buy, TimeInForce.IOC);
+        assertNull(book.getLimitOrder(1));
+        assertNull(book.getAskBookSide().getFirstLevel());
+
+        final LimitOrderFlyweight reused = book.newLimitOrder(Side.SELL, 102, 5, 4);
+        assertSame(buy, reused);
+        assertEquals(4, reused.getOrderId());
+        assertEquals(5, reused.getQuantity());
+        assertSame(resting, book.newLimitOrder(Side.SELL, 103, 5, 5));
+
+        book.onLimitOrder(reused);
+        assertSame(level, book.getAskBookSide().getFirstLevel());
+        assertEquals(102, level.getPrice());
+        assertEquals(5, level.getQuantity());
+    }
+
+    @Test
+    public void marketDataOrdersAreReusedOnEveryBookUpdate() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 10, 1));
+        book.onMessage(bookUpdate(98, 100));
+        final OrderBookLevel bid = book.getBidBookSide().getFirstLevel();
+        final var marketDataOrder = bid.getFirstOrder().next();
+
+        book.onMessage(bookUpdate(98, 100));
+
+        // our order keeps its place ahead of the market data, which replaced the last update's rather than adding to it
+        assertSame(bid, book.getBidBookSide().getFirstLevel());
+        assertEquals(1, ((LimitOrderFlyweight) bid.getFirstOrder()).getOrderId());
+        assertSame(marketDataOrder, bid.getFirstOrder().next());
+        assertEquals(2, bid.getOrderCount());
+        assertEquals(110, bid.getQuantity());
+    }
+
+    private static UnsafeBuffer bookUpdate(final long bestBid, final long bestAsk) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .venue(Venue.XLON)
+                .instrumentId(123L)
+                .source(Source.STREAM);
+        encoder.bidBookCount(1).next().price(bestBid).size(100);
+        encoder.askBookCount(1).next().price(bestAsk).size(100);
+        return buffer;
+    }
+}
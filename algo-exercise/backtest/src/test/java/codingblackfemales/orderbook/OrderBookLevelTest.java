@@ -1,5 +1,6 @@
 package codingblackfemales.orderbook;
 
+import codingblackfemales.collection.intrusive.IntrusiveList;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -21,40 +22,41 @@ public class OrderBookLevelTest {
         level4.setQuantity(200_000);
         level4.setPrice(96);
 
-        level1.add(level2)
-              .add(level3)
-              .add(level4);
+        final IntrusiveList<OrderBookLevel> levels = new IntrusiveList<>();
+        levels.addLast(level1);
+        levels.addLast(level2);
+        levels.addLast(level3);
+        levels.addLast(level4);
 
-        Assert.assertEquals(level1.last(), level4);
+        Assert.assertEquals(levels.last(), level4);
         Assert.assertNull(level1.previous());
         Assert.assertEquals(level1.next(), level2);
 
-        Assert.assertEquals(level2.first(), level1);
+        Assert.assertEquals(levels.first(), level1);
         Assert.assertEquals(level2.next(), level3);
         Assert.assertEquals(level2.previous(), level1);
-        Assert.assertEquals(level2.last(), level4);
 
         Assert.assertEquals(level3.next(), level4);
         Assert.assertEquals(level3.previous(), level2);
-        Assert.assertEquals(level3.last(), level4);
 
         Assert.assertNull(level4.next());
         Assert.assertEquals(level4.previous(), level3);
-        Assert.assertEquals(level4.last(), level4);
 
         System.out.println(level1.toString());
 
-        var existingLevel1 = level3.remove();
+        levels.remove(level3);
 
-        Assert.assertEquals(existingLevel1, level1);
+        Assert.assertEquals(levels.first(), level1);
+        Assert.assertEquals(level2.next(), level4);
 
         System.out.println(level1.toString());
 
-        var newLevel1 = level1.remove();
+        levels.remove(level1);
 
-        System.out.println(newLevel1.toString());
+        System.out.println(levels.first().toString());
 
-        Assert.assertEquals(newLevel1, level2);
+        Assert.assertEquals(levels.first(), level2);
+        Assert.assertEquals(2, levels.size());
     }
 
 }
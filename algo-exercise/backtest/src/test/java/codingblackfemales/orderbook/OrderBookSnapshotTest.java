@@ -0,0 +1,84 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.DefaultOrderFlyweight;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.snapshot.SnapshotReader;
+import codingblackfemales.sequencer.snapshot.SnapshotWriter;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrderBookSnapshotTest {
+
+    private final MarketDataChannel marketDataChannel = Mockito.mock(MarketDataChannel.class);
+    private final OrderChannel orderChannel = Mockito.mock(OrderChannel.class);
+
+    @Test
+    public void restoresBothSidesWithRestingOrdersInTimePriority() {
+        final OrderBook book = new OrderBook(marketDataChannel, orderChannel);
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 100, 1));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 98, 50, 2));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 95, 10, 3));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 105, 20, 4));
+
+        final SnapshotWriter writer = new SnapshotWriter().begin(42).write(book);
+        final byte[] bytes = new byte[writer.length()];
+        writer.buffer().getBytes(0, bytes);
+
+        final OrderBook restored = new OrderBook(Mockito.mock(MarketDataChannel.class), Mockito.mock(OrderChannel.class));
+        final SnapshotReader reader = new SnapshotReader(bytes).read(restored);
+
+        assertEquals(42, reader.sequence());
+
+        final OrderBookLevel bid = restored.getBidBookSide().getFirstLevel();
+        assertEquals(98, bid.getPrice());
+        assertEquals(150, bid.getQuantity());
+        assertOrder(bid.getFirstOrder(), 1, 100);
+        assertOrder(bid.getFirstOrder().next(), 2, 50);
+        assertNull(bid.getFirstOrder().next().next());
+
+        assertEquals(95, bid.next().getPrice());
+        assertOrder(bid.next().getFirstOrder(), 3, 10);
+        assertNull(bid.next().next());
+
+        final OrderBookLevel ask = restored.getAskBookSide().getFirstLevel();
+        assertEquals(105, ask.getPrice());
+        assertOrder(ask.getFirstOrder(), 4, 20);
+        assertNull(ask.next());
+    }
+
+    @Test
+    public void replayingBookDoesNotPublish() {
+        final List<DirectBuffer> published = new ArrayList<>();
+        final Sequencer sequencer = published::add;
+        final OrderBook book = new OrderBook(new MarketDataChannel(sequencer), new OrderChannel(sequencer));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 100, 100, 1));
+
+        book.setReplaying(true);
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 100, 40, 2));
+        assertEquals(1, published.size());
+        assertEquals(60, book.getAskBookSide().getFirstLevel().getFirstOrder().getQuantity());
+
+        book.setReplaying(false);
+        book.onLimitOrder(new LimitOrderFlyweight(Side.BUY, 100, 10, 3));
+        // a fill for each order, the trade and the book
+        assertEquals(5, published.size());
+    }
+
+    private static void assertOrder(final DefaultOrderFlyweight order, final long orderId, final long quantity) {
+        assertTrue(order instanceof LimitOrderFlyweight);
+        assertEquals(orderId, ((LimitOrderFlyweight) order).getOrderId());
+        assertEquals(quantity, order.getQuantity());
+    }
+}
@@ -0,0 +1,138 @@
+package codingblackfemales.orderbook;
+
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import messages.order.Side;
+import messages.order.TimeInForce;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class OrderBookSweepTest {
+
+    private final MarketDataChannel marketDataChannel = Mockito.mock(MarketDataChannel.class);
+    private final OrderChannel orderChannel = Mockito.mock(OrderChannel.class);
+    private final OrderBook book = new OrderBook(marketDataChannel, orderChannel);
+
+    @Before
+    public void setUp() {
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 101, 30, 1));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 101, 20, 2));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 102, 50, 3));
+        book.onLimitOrder(new LimitOrderFlyweight(Side.SELL, 104, 50, 4));
+    }
+
+    @Test
+    public void sweepsToTheLimitPriceAndRestsTheRemainder() {
+        final LimitOrderFlyweight buy = new LimitOrderFlyweight(Side.BUY, 102, 120, 10);
+        book.onLimitOrder(buy);
+
+        final InOrder fills = Mockito.inOrder(orderChannel);
+        fills.verify(orderChannel).publishFill(30, 101, buy);
+        fills.verify(orderChannel).publishFill(20, 101, buy);
+        fills.verify(orderChannel).publishFill(50, 102, buy);
+        Mockito.verify(orderChannel, Mockito.never()).publishFill(anyLong(), eq(104L), any());
+
+        final InOrder trades = Mockito.inOrder(marketDataChannel);
+        trades.verify(marketDataChannel).publishTrade(Side.BUY, 101, 30);
+        trades.verify(marketDataChannel).publishTrade(Side.BUY, 101, 20);
+        trades.verify(marketDataChannel).publishTrade(Side.BUY, 102, 50);
+
+        assertEquals(104, book.getAskBookSide().getFirstLevel().getPrice());
+        final OrderBookLevel bid = book.getBidBookSide().getFirstLevel();
+        assertEquals(102, bid.getPrice());
+        assertEquals(20, bid.getQuantity());
+        assertEquals(100, book.getLimitOrder(10).getFilledQuantity());
+    }
+
+    @Test
+    public void restingOrdersAreFilledToo() {
+        final LimitOrderFlyweight first = book.getLimitOrder(1);
+        final LimitOrderFlyweight second = book.getLimitOrder(2);
+        final LimitOrderFlyweight buy = new LimitOrderFlyweight(Side.BUY, 101, 40, 10);
+        book.onLimitOrder(buy);
+
+        final InOrder fills = Mockito.inOrder(orderChannel);
+        fills.verify(orderChannel).publishFill(30, 101, first);
+        fills.verify(orderChannel).publishFill(30, 101, buy);
+        fills.verify(orderChannel).publishFill(10, 101, second);
+        fills.verify(orderChannel).publishFill(10, 101, buy);
+
+        assertNull(book.getLimitOrder(1));
+        assertEquals(10, book.getLimitOrder(2).getFilledQuantity());
+        assertEquals(10, book.getAskBookSide().getFirstLevel().getQuantity());
+        assertNull(book.getLimitOrder(10));
+    }
+
+    @Test
+    public void iocCancelsWhatDoesNotFill() {
+        final LimitOrderFlyweight buy = new LimitOrderFlyweight(Side.BUY, 101, 80, 10);
+        book.onLimitOrder(buy, TimeInForce.IOC);
+
+        Mockito.verify(orderChannel).publishFill(30, 101, buy);
+        Mockito.verify(orderChannel).publishFill(20, 101, buy);
+        Mockito.verify(orderChannel).publishCancelAck(buy);
+        assertNull(book.getBidBookSide().getFirstLevel());
+        assertEquals(102, book.getAskBookSide().getFirstLevel().getPrice());
+    }
+
+    @Test
+    public void fokOnlyTradesIfItFillsCompletely() {
+        final LimitOrderFlyweight tooBig = new LimitOrderFlyweight(Side.BUY, 102, 101, 10);
+        book.onLimitOrder(tooBig, TimeInForce.FOK);
+
+        Mockito.verify(orderChannel, Mockito.never()).publishFill(anyLong(), anyLong(), any());
+        Mockito.verify(marketDataChannel, Mockito.never()).publishTrade(any(), anyLong(), anyLong());
+        Mockito.verify(orderChannel).publishCancelAck(tooBig);
+        assertEquals(50, book.getAskBookSide().getFirstLevel().getQuantity());
+
+        final LimitOrderFlyweight fits = new LimitOrderFlyweight(Side.BUY, 102, 100, 11);
+        book.onLimitOrder(fits, TimeInForce.FOK);
+
+        Mockito.verify(orderChannel).publishFill(50, 102, fits);
+        Mockito.verify(orderChannel, Mockito.never()).publishCancelAck(fits);
+        assertEquals(104, book.getAskBookSide().getFirstLevel().getPrice());
+    }
+
+    @Test
+    public void marketOrderTradesAtAnyPriceAndCancelsTheRest() {
+        final LimitOrderFlyweight buy = new LimitOrderFlyweight(Side.BUY, 0, 200, 10);
+        book.onLimitOrder(buy, TimeInForce.MARKET);
+
+        final InOrder fills = Mockito.inOrder(orderChannel);
+        fills.verify(orderChannel).publishFill(30, 101, buy);
+        fills.verify(orderChannel).publishFill(20, 101, buy);
+        fills.verify(orderChannel).publishFill(50, 102, buy);
+        fills.verify(orderChannel).publishFill(50, 104, buy);
+        fills.verify(orderChannel).publishCancelAck(buy);
+        assertEquals(50, buy.getQuantity());
+        assertNull(book.getAskBookSide().getFirstLevel());
+        assertNull(book.getBidBookSide().getFirstLevel());
+    }
+
+    @Test
+    public void postOnlyRestsOrIsCancelledWithoutTrading() {
+        final LimitOrderFlyweight crossing = new LimitOrderFlyweight(Side.BUY, 101, 10, 10);
+        book.onLimitOrder(crossing, TimeInForce.POST_ONLY);
+
+        Mockito.verify(orderChannel, Mockito.never()).publishFill(anyLong(), anyLong(), any());
+        Mockito.verify(marketDataChannel, Mockito.never()).publishTrade(any(), anyLong(), anyLong());
+        Mockito.verify(orderChannel).publishCancelAck(crossing);
+        assertEquals(50, book.getAskBookSide().getFirstLevel().getQuantity());
+
+        final LimitOrderFlyweight passive = new LimitOrderFlyweight(Side.BUY, 100, 10, 11);
+        book.onLimitOrder(passive, TimeInForce.POST_ONLY);
+
+        Mockito.verify(orderChannel, Mockito.never()).publishCancelAck(passive);
+        assertEquals(100, book.getBidBookSide().getFirstLevel().getPrice());
+        assertEquals(passive, book.getLimitOrder(11));
+    }
+}
@@ -0,0 +1,127 @@
+package codingblackfemales.benchmarks;
+
+import codingblackfemales.sotw.marketdata.AskLevel;
+import codingblackfemales.sotw.marketdata.BidLevel;
+import codingblackfemales.sotw.marketdata.BookAnalytics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BookAnalytics} scans over primitive arrays against the same calculations walking the {@link BidLevel} and
+ * {@link AskLevel} objects algos get from {@code getBidAt(i)}, from a normal book to very deep ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookAnalyticsBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int depth;
+
+    long[] bidPrices;
+    long[] bidQuantities;
+    long[] askPrices;
+    long[] askQuantities;
+    BidLevel[] bids;
+    AskLevel[] asks;
+
+    long limitPrice;
+    long sizeToFill;
+
+    @Setup
+    public void setup() {
+        bidPrices = new long[depth];
+        bidQuantities = new long[depth];
+        askPrices = new long[depth];
+        askQuantities = new long[depth];
+        bids = new BidLevel[depth];
+        asks = new AskLevel[depth];
+
+        for (int i = 0; i < depth; i++) {
+            bidPrices[i] = 100_000 - i;
+            bidQuantities[i] = 100 + (i * 37) % 500;
+            askPrices[i] = 100_001 + i;
+            askQuantities[i] = 100 + (i * 53) % 500;
+
+            bids[i] = new BidLevel();
+            bids[i].setPrice(bidPrices[i]);
+            bids[i].setQuantity(bidQuantities[i]);
+            asks[i] = new AskLevel();
+            asks[i].setPrice(askPrices[i]);
+            asks[i].setQuantity(askQuantities[i]);
+        }
+
+        // a price and size reaching three quarters of the way down the book
+        limitPrice = bidPrices[depth * 3 / 4];
+        sizeToFill = BookAnalytics.totalQuantity(askQuantities, depth * 3 / 4);
+    }
+
+    @Benchmark
+    public double depthWeightedMid() {
+        return BookAnalytics.depthWeightedMid(bidPrices, bidQuantities, depth, askPrices, askQuantities, depth, depth);
+    }
+
+    @Benchmark
+    public double depthWeightedMidLevelObjects() {
+        long bidQuantity = 0, bidNotional = 0, askQuantity = 0, askNotional = 0;
+        for (int i = 0; i < depth; i++) {
+            bidQuantity += bids[i].getQuantity();
+            bidNotional += bids[i].getPrice() * bids[i].getQuantity();
+            askQuantity += asks[i].getQuantity();
+            askNotional += asks[i].getPrice() * asks[i].getQuantity();
+        }
+        final double bidVwap = (double) bidNotional / bidQuantity;
+        final double askVwap = (double) askNotional / askQuantity;
+        return (bidVwap * askQuantity + askVwap * bidQuantity) / (bidQuantity + askQuantity);
+    }
+
+    @Benchmark
+    public long bidQuantityAtOrAbove() {
+        return BookAnalytics.bidQuantityAtOrAbove(bidPrices, bidQuantities, depth, limitPrice);
+    }
+
+    @Benchmark
+    public long bidQuantityAtOrAboveLevelObjects() {
+        long total = 0;
+        for (int i = 0; i < depth && bids[i].getPrice() >= limitPrice; i++) {
+            total += bids[i].getQuantity();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long priceToFill() {
+        return BookAnalytics.priceToFill(askPrices, askQuantities, depth, sizeToFill);
+    }
+
+    @Benchmark
+    public long priceToFillLevelObjects() {
+        long remaining = sizeToFill;
+        for (int i = 0; i < depth; i++) {
+            remaining -= asks[i].getQuantity();
+            if (remaining <= 0) {
+                return asks[i].getPrice();
+            }
+        }
+        return BookAnalytics.NO_PRICE;
+    }
+
+    @Benchmark
+    public double imbalance() {
+        return BookAnalytics.imbalance(bidQuantities, depth, askQuantities, depth, depth);
+    }
+}
@@ -0,0 +1,116 @@
+package codingblackfemales.benchmarks;
+
+import codingblackfemales.collection.intrusive.IntrusiveLinkedListNode;
+import codingblackfemales.collection.intrusive.IntrusiveList;
+import codingblackfemales.collection.intrusive.IntrusiveListNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IntrusiveList} against {@link IntrusiveLinkedListNode}, which keeps its first, last and size on the head node:
+ * taking the head off a queue and putting it back on the end, as a fully filled order leaves the front of its level,
+ * and taking a node out of the middle and putting it back, as a cancel and re-add does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntrusiveListBenchmark {
+
+    static final class Node extends IntrusiveListNode<Node> {
+    }
+
+    static final class LinkedNode extends IntrusiveLinkedListNode<LinkedNode> {
+        // the old list leaves a removed node's links in place, reset them so it can be added again without allocating
+        void reset() {
+            next = null;
+            previous = null;
+            first = this;
+            last = this;
+            size = 1;
+        }
+
+        void lastNode(final LinkedNode node) {
+            last = node;
+        }
+    }
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    IntrusiveList<Node> list;
+    Node middle;
+
+    LinkedNode head;
+    LinkedNode linkedMiddle;
+
+    @Setup
+    public void setup() {
+        list = new IntrusiveList<>();
+        for (int i = 0; i < size; i++) {
+            final Node node = new Node();
+            list.addLast(node);
+            if (i == size / 2) {
+                middle = node;
+            }
+        }
+
+        head = new LinkedNode();
+        for (int i = 1; i < size; i++) {
+            final LinkedNode node = new LinkedNode();
+            head.add(node);
+            if (i == size / 2) {
+                linkedMiddle = node;
+            }
+        }
+    }
+
+    @Benchmark
+    public Node rotateHead() {
+        final Node node = list.removeFirst();
+        list.addLast(node);
+        return node;
+    }
+
+    @Benchmark
+    public LinkedNode rotateHeadLinkedListNode() {
+        final LinkedNode node = head;
+        final LinkedNode tail = head.last();
+        head = node.remove();
+        // the new head does not inherit the last node, without it the next add would link after a stale tail
+        head.lastNode(tail);
+        node.reset();
+        head.add(node);
+        return head;
+    }
+
+    @Benchmark
+    public Node removeAndReinsertMiddle() {
+        final Node previous = middle.previous();
+        list.remove(middle);
+        list.insertAfter(previous, middle);
+        return middle;
+    }
+
+    @Benchmark
+    public LinkedNode removeAndReinsertMiddleLinkedListNode() {
+        final LinkedNode previous = linkedMiddle.previous();
+        final LinkedNode next = linkedMiddle.next();
+        head = linkedMiddle.remove();
+        previous.insertAfter(previous, linkedMiddle, next);
+        return head;
+    }
+}
@@ -0,0 +1,96 @@
+package codingblackfemales.benchmarks;
+
+import codingblackfemales.orderbook.OrderBook;
+import codingblackfemales.orderbook.channel.MarketDataChannel;
+import codingblackfemales.orderbook.channel.OrderChannel;
+import codingblackfemales.orderbook.order.LimitOrderFlyweight;
+import codingblackfemales.sequencer.Sequencer;
+import messages.order.Side;
+import messages.order.TimeInForce;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderBook} throughput over a book of ten levels a side, in order operations (a new order or a cancel) per
+ * second, publishing every fill, cancel and book to a sequencer which only consumes them. Orders come from the book's
+ * pool, as they do from the inbound order consumer.
+ *
+ * The scenarios: resting a passive order and cancelling it, as an algo quoting behind the touch does; IOC and market
+ * orders sweeping three ask levels which are then put back; and a post-only order which would cross, so is cancelled,
+ * followed by one which rests and is cancelled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+
+    private static final int LEVELS = 10;
+
+    OrderBook book;
+    long orderId = 0;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        final Sequencer sequencer = blackhole::consume;
+        book = new OrderBook(new MarketDataChannel(sequencer), new OrderChannel(sequencer));
+        for (int level = 0; level < LEVELS; level++) {
+            book.onLimitOrder(book.newLimitOrder(Side.BUY, 99 - level, 100, ++orderId));
+            book.onLimitOrder(book.newLimitOrder(Side.SELL, 101 + level, 100, ++orderId));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public LimitOrderFlyweight addAndCancel() {
+        final long id = ++orderId;
+        book.onLimitOrder(book.newLimitOrder(Side.BUY, 90 + id % LEVELS, 10, id));
+        book.onCancelOrder(id);
+        return book.getLimitOrder(id);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public long sweepAndReplenish() {
+        book.onLimitOrder(book.newLimitOrder(Side.BUY, 103, 300, ++orderId), TimeInForce.IOC);
+        return replenish();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public long marketSweepAndReplenish() {
+        book.onLimitOrder(book.newLimitOrder(Side.BUY, 0, 300, ++orderId), TimeInForce.MARKET);
+        return replenish();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public LimitOrderFlyweight postOnly() {
+        book.onLimitOrder(book.newLimitOrder(Side.BUY, 101, 10, ++orderId), TimeInForce.POST_ONLY);
+        final long id = ++orderId;
+        book.onLimitOrder(book.newLimitOrder(Side.BUY, 100, 10, id), TimeInForce.POST_ONLY);
+        book.onCancelOrder(id);
+        return book.getLimitOrder(id);
+    }
+
+    private long replenish() {
+        book.onLimitOrder(book.newLimitOrder(Side.SELL, 101, 100, ++orderId));
+        book.onLimitOrder(book.newLimitOrder(Side.SELL, 102, 100, ++orderId));
+        book.onLimitOrder(book.newLimitOrder(Side.SELL, 103, 100, ++orderId));
+        return book.getAskBookSide().getFirstLevel().getPrice();
+    }
+}
@@ -0,0 +1,124 @@
+package codingblackfemales.benchmarks;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.RealSequencer;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained throughput of {@link RealSequencer} with producers on several threads, against a single threaded
+ * {@link DefaultSequencer} baseline. Producers block when the ring buffer is full, so once warmed up the producer
+ * rate is the rate the writer thread sequences and dispatches at.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RealSequencerBenchmark {
+
+    static UnsafeBuffer bookUpdate() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(1);
+        encoder.bidBookCount(2).next().price(98).size(100).next().price(97).size(200);
+        encoder.askBookCount(2).next().price(100).size(100).next().price(101).size(200);
+        return buffer;
+    }
+
+    @State(Scope.Group)
+    public static class Sequencer {
+
+        @Param({"BUSY_SPIN", "YIELD", "BACKOFF"})
+        public String idleStrategy;
+
+        RealSequencer sequencer;
+
+        // written by the writer thread and read back on the benchmark threads, a Blackhole may only be used on the
+        // thread JMH gave it to
+        volatile long lastDispatched;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            sequencer = new RealSequencer(buffer -> lastDispatched = buffer.getLong(0));
+            sequencer.start(idleStrategy(idleStrategy));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            sequencer.close();
+        }
+
+        private static IdleStrategy idleStrategy(final String name) {
+            switch (name) {
+                case "BUSY_SPIN":
+                    return new BusySpinIdleStrategy();
+                case "YIELD":
+                    return new YieldingIdleStrategy();
+                default:
+                    return new BackoffIdleStrategy();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        final UnsafeBuffer command = bookUpdate();
+    }
+
+    @State(Scope.Thread)
+    public static class SingleThreaded {
+        DefaultSequencer sequencer;
+        final UnsafeBuffer command = bookUpdate();
+        long lastDispatched;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            sequencer = new DefaultSequencer(buffer -> lastDispatched = buffer.getLong(0));
+        }
+    }
+
+    @Benchmark
+    @Group("threeProducers")
+    @GroupThreads(3)
+    public long realSequencerThreeProducers(final Sequencer state, final Producer producer) {
+        state.sequencer.onCommand(producer.command);
+        return state.lastDispatched;
+    }
+
+    @Benchmark
+    @Group("oneProducer")
+    @GroupThreads(1)
+    public long realSequencerOneProducer(final Sequencer state, final Producer producer) {
+        state.sequencer.onCommand(producer.command);
+        return state.lastDispatched;
+    }
+
+    @Benchmark
+    public long defaultSequencer(final SingleThreaded state) {
+        state.sequencer.onCommand(state.command);
+        return state.lastDispatched;
+    }
+}
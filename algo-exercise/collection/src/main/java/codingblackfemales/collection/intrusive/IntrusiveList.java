@@ -0,0 +1,192 @@
+package codingblackfemales.collection.intrusive;
+
+/**
+ * A doubly linked list of {@link IntrusiveListNode}s with its first, last and size kept in this header, so every
+ * insert, remove and move is O(1): nothing walks the list and nodes are compared by identity only.
+ *
+ * Unlike {@link IntrusiveLinkedListNode}, removing the first node needs no new head to be handed back and a removed node
+ * keeps no stale links. Each node points back at the list it is in, so adding a node which is already in a list, or
+ * removing or positioning relative to a node of another list, throws rather than corrupting both lists. Splicing has
+ * to repoint every node it moves, so it walks the other list.
+ *
+ * @param <TYPEOF> the concrete node type
+ */
+public class IntrusiveList<TYPEOF extends IntrusiveListNode<TYPEOF>> {
+
+    private TYPEOF first = null;
+    private TYPEOF last = null;
+    private int size = 0;
+
+    public TYPEOF first() {
+        return first;
+    }
+
+    public TYPEOF last() {
+        return last;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void addFirst(final TYPEOF node) {
+        link(node);
+        node.next = first;
+        if (first == null) {
+            last = node;
+        } else {
+            first.previous = node;
+        }
+        first = node;
+    }
+
+    public void addLast(final TYPEOF node) {
+        link(node);
+        node.previous = last;
+        if (last == null) {
+            first = node;
+        } else {
+            last.next = node;
+        }
+        last = node;
+    }
+
+    /**
+     * Add the node straight after one already in this list.
+     */
+    public void insertAfter(final TYPEOF existing, final TYPEOF node) {
+        checkInThisList(existing);
+        if (existing == last) {
+            addLast(node);
+            return;
+        }
+        link(node);
+        node.previous = existing;
+        node.next = existing.next;
+        existing.next.previous = node;
+        existing.next = node;
+    }
+
+    /**
+     * Add the node straight before one already in this list.
+     */
+    public void insertBefore(final TYPEOF existing, final TYPEOF node) {
+        checkInThisList(existing);
+        if (existing == first) {
+            addFirst(node);
+            return;
+        }
+        link(node);
+        node.next = existing;
+        node.previous = existing.previous;
+        existing.previous.next = node;
+        existing.previous = node;
+    }
+
+    /**
+     * Take a node out of this list, leaving it unlinked.
+     */
+    public void remove(final TYPEOF node) {
+        checkInThisList(node);
+        if (node.previous == null) {
+            first = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            last = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+        node.next = null;
+        node.previous = null;
+        node.list = null;
+        size--;
+    }
+
+    /**
+     * @return the first node, removed, or null if the list is empty.
+     */
+    public TYPEOF removeFirst() {
+        final TYPEOF node = first;
+        if (node != null) {
+            remove(node);
+        }
+        return node;
+    }
+
+    public void moveToFront(final TYPEOF node) {
+        checkInThisList(node);
+        if (node != first) {
+            remove(node);
+            addFirst(node);
+        }
+    }
+
+    public void moveToBack(final TYPEOF node) {
+        checkInThisList(node);
+        if (node != last) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    /**
+     * Move every node of the other list onto the end of this one, leaving the other list empty.
+     */
+    public void splice(final IntrusiveList<TYPEOF> other) {
+        if (other == this || other.first == null) {
+            return;
+        }
+        for (TYPEOF node = other.first; node != null; node = node.next) {
+            node.list = this;
+        }
+        if (last == null) {
+            first = other.first;
+        } else {
+            last.next = other.first;
+            other.first.previous = last;
+        }
+        last = other.last;
+        size += other.size;
+
+        other.first = null;
+        other.last = null;
+        other.size = 0;
+    }
+
+    /**
+     * Unlink every node, so each can be added to a list again. Unlike the other operations this walks the list.
+     */
+    public void clear() {
+        TYPEOF node = first;
+        while (node != null) {
+            final TYPEOF next = node.next;
+            node.next = null;
+            node.previous = null;
+            node.list = null;
+            node = next;
+        }
+        first = null;
+        last = null;
+        size = 0;
+    }
+
+    private void link(final TYPEOF node) {
+        if (node.list != null) {
+            throw new IllegalStateException(node + " is already in a list");
+        }
+        node.list = this;
+        size++;
+    }
+
+    private void checkInThisList(final TYPEOF node) {
+        if (node.list != this) {
+            throw new IllegalStateException(node + (node.list == null ? " is not in a list" : " is in another list"));
+        }
+    }
+}
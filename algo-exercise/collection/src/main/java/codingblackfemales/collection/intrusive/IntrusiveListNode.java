@@ -0,0 +1,39 @@
+package codingblackfemales.collection.intrusive;
+
+/**
+ * A node of an {@link IntrusiveList}. The links live in the node itself, so adding and removing never allocates, and
+ * the list they belong to lives in the {@link IntrusiveList} header rather than in every node.
+ *
+ * A node is in at most one list at a time and knows which, so a list only ever unlinks its own nodes. It is unlinked
+ * (both links and its list null) once removed, so it can be added again.
+ *
+ * @param <TYPEOF> the concrete node type
+ */
+public abstract class IntrusiveListNode<TYPEOF extends IntrusiveListNode<TYPEOF>> {
+
+    TYPEOF next = null;
+    TYPEOF previous = null;
+    IntrusiveList<TYPEOF> list = null;
+
+    public TYPEOF next() {
+        return next;
+    }
+
+    public TYPEOF previous() {
+        return previous;
+    }
+
+    /**
+     * @return true while the node is in a list.
+     */
+    public boolean isLinked() {
+        return list != null;
+    }
+
+    /**
+     * @return true while the node is in the given list.
+     */
+    public boolean isIn(final IntrusiveList<TYPEOF> list) {
+        return this.list == list;
+    }
+}
@@ -0,0 +1,211 @@
+package codingblackfemales.collection.intrusive;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs random sequences of operations against an {@link IntrusiveList} and an ArrayList of the same nodes, checking
+ * after every step that the links agree with the model in both directions.
+ */
+public class IntrusiveListTest {
+
+    static class ExampleNode extends IntrusiveListNode<ExampleNode> {
+        private final int i;
+
+        ExampleNode(int i) {
+            this.i = i;
+        }
+
+        @Override
+        public String toString() {
+            return "ExampleNode(" + i + ")";
+        }
+    }
+
+    @Test
+    public void matchesAnArrayListUnderRandomOperations() {
+        for (int seed = 0; seed < 50; seed++) {
+            runRandomOperations(new Random(seed), 500);
+        }
+    }
+
+    private static void runRandomOperations(final Random random, final int steps) {
+        final IntrusiveList<ExampleNode> list = new IntrusiveList<>();
+        final IntrusiveList<ExampleNode> other = new IntrusiveList<>();
+        final List<ExampleNode> model = new ArrayList<>();
+        final List<ExampleNode> otherModel = new ArrayList<>();
+        // removed nodes are added again, a removed node must carry no stale links
+        final List<ExampleNode> free = new ArrayList<>();
+        int nextId = 0;
+
+        for (int step = 0; step < steps; step++) {
+            final ExampleNode node = free.isEmpty() || random.nextBoolean() ? new ExampleNode(nextId++) : free.remove(free.size() - 1);
+            final ExampleNode existing = model.isEmpty() ? null : model.get(random.nextInt(model.size()));
+
+            switch (random.nextInt(10)) {
+                case 0:
+                    list.addFirst(node);
+                    model.add(0, node);
+                    break;
+                case 1:
+                    list.addLast(node);
+                    model.add(node);
+                    break;
+                case 2:
+                    if (existing == null) {
+                        free.add(node);
+                        break;
+                    }
+                    list.insertAfter(existing, node);
+                    model.add(model.indexOf(existing) + 1, node);
+                    break;
+                case 3:
+                    if (existing == null) {
+                        free.add(node);
+                        break;
+                    }
+                    list.insertBefore(existing, node);
+                    model.add(model.indexOf(existing), node);
+                    break;
+                case 4:
+                case 5:
+                    free.add(node);
+                    if (existing != null) {
+                        list.remove(existing);
+                        model.remove(existing);
+                        free.add(existing);
+                    }
+                    break;
+                case 6:
+                    free.add(node);
+                    final ExampleNode removed = list.removeFirst();
+                    assertSame(model.isEmpty() ? null : model.remove(0), removed);
+                    if (removed != null) {
+                        free.add(removed);
+                    }
+                    break;
+                case 7:
+                    free.add(node);
+                    if (existing != null) {
+                        list.moveToFront(existing);
+                        model.remove(existing);
+                        model.add(0, existing);
+                    }
+                    break;
+                case 8:
+                    free.add(node);
+                    if (existing != null) {
+                        list.moveToBack(existing);
+                        model.remove(existing);
+                        model.add(existing);
+                    }
+                    break;
+                default:
+                    other.addLast(node);
+                    otherModel.add(node);
+                    if (random.nextInt(4) == 0) {
+                        list.splice(other);
+                        model.addAll(otherModel);
+                        otherModel.clear();
+                    }
+                    break;
+            }
+
+            assertMatches(model, list);
+            assertMatches(otherModel, other);
+            for (final ExampleNode unlinked : free) {
+                assertFalse(unlinked.isLinked());
+                assertNull(unlinked.next());
+                assertNull(unlinked.previous());
+            }
+        }
+
+        list.clear();
+        assertMatches(Collections.emptyList(), list);
+        for (final ExampleNode node : model) {
+            assertFalse(node.isLinked());
+        }
+    }
+
+    private static void assertMatches(final List<ExampleNode> expected, final IntrusiveList<ExampleNode> list) {
+        assertEquals(expected.size(), list.size());
+        assertEquals(expected.isEmpty(), list.isEmpty());
+
+        final List<ExampleNode> forwards = new ArrayList<>();
+        for (ExampleNode node = list.first(); node != null; node = node.next()) {
+            assertTrue(node.isIn(list));
+            forwards.add(node);
+        }
+        assertEquals(expected, forwards);
+
+        final List<ExampleNode> backwards = new ArrayList<>();
+        for (ExampleNode node = list.last(); node != null; node = node.previous()) {
+            backwards.add(node);
+        }
+        Collections.reverse(backwards);
+        assertEquals(expected, backwards);
+    }
+
+    @Test
+    public void nodeCanOnlyBeInOneListAtATime() {
+        final IntrusiveList<ExampleNode> list = new IntrusiveList<>();
+        final ExampleNode node = new ExampleNode(1);
+        list.addLast(node);
+
+        try {
+            new IntrusiveList<ExampleNode>().addFirst(node);
+            fail("a linked node was added to a second list");
+        } catch (IllegalStateException expected) {
+            assertEquals(1, list.size());
+        }
+
+        list.remove(node);
+        try {
+            list.remove(node);
+            fail("an unlinked node was removed");
+        } catch (IllegalStateException expected) {
+            assertTrue(list.isEmpty());
+        }
+    }
+
+    @Test
+    public void aListOnlyTouchesItsOwnNodes() {
+        final IntrusiveList<ExampleNode> list = new IntrusiveList<>();
+        final IntrusiveList<ExampleNode> other = new IntrusiveList<>();
+        final ExampleNode node = new ExampleNode(1);
+        final ExampleNode otherNode = new ExampleNode(2);
+        list.addLast(node);
+        other.addLast(otherNode);
+
+        try {
+            list.remove(otherNode);
+            fail("a node of another list was removed");
+        } catch (IllegalStateException expected) {
+            assertMatches(List.of(node), list);
+            assertMatches(List.of(otherNode), other);
+        }
+
+        try {
+            list.insertAfter(otherNode, new ExampleNode(3));
+            fail("a node was inserted next to one in another list");
+        } catch (IllegalStateException expected) {
+            assertMatches(List.of(node), list);
+            assertMatches(List.of(otherNode), other);
+        }
+
+        list.splice(other);
+        list.remove(otherNode);
+        assertMatches(List.of(node), list);
+    }
+}
@@ -1,6 +1,7 @@
 package codingblackfemales.gettingstarted;
 
 import codingblackfemales.action.Action; // The Action interface is fundamental to how the algo communicates its trading decisions
+import codingblackfemales.action.ActionSink;
 import codingblackfemales.action.CancelChildOrder;
 import codingblackfemales.action.CreateChildOrder;
 import codingblackfemales.action.NoAction;
@@ -41,6 +42,9 @@ import java.util.stream.Collectors;
  * My algorithm prioritises risk management (cancellations) over profit-taking (sells)
  * and new order creation (buys). It uses mid-price as a reference point for decision-making
  * and includes safety checks for market data integrity.
+ *
+ * When the market moves away from my quotes I re-quote in one evaluation: every stale buy is cancelled and the
+ * replacement buy is placed in the same batch, so there is no window with the old quotes still working.
  */
 
 public class MarketMakingAlgo implements AlgoLogic {
@@ -103,15 +107,7 @@ public class MarketMakingAlgo implements AlgoLogic {
                 }
             } else {
                 // If we don't have any active buy orders - check if we can create one
-                long buyPrice = bidNearTouch.price + 1;
-                double priceDistance = Math.abs(buyPrice - midPrice) / midPrice;
-
-                if (priceDistance <= MAX_PRICE_DISTANCE_PERCENT) {
-                    logger.info("[MYALGO] Creating new buy order at price: {}", buyPrice);
-                    return new CreateChildOrder(Side.BUY,
-                            Math.min(100, askFarTouch.quantity),
-                            buyPrice);
-                }
+                return newBuyOrder(askFarTouch, bidNearTouch, midPrice);
             }
 
             logger.info("[MYALGO] No action needed");
@@ -121,4 +117,57 @@ public class MarketMakingAlgo implements AlgoLogic {
             return NoAction.NoAction; // Fallback to no action on error
         }
     }
+
+    @Override
+    public void evaluate(SimpleAlgoState state, ActionSink actions) {
+        try {
+            final AskLevel askFarTouch = state.getAskAt(0);
+            final BidLevel bidNearTouch = state.getBidAt(0);
+            if (state.getChildOrders().size() > MAX_TOTAL_ORDERS || askFarTouch == null || bidNearTouch == null) {
+                actions.add(evaluate(state));
+                return;
+            }
+
+            // Cancel every buy too far from the mid, rather than one per evaluation
+            double midPrice = (askFarTouch.price + bidNearTouch.price) / 2.0;
+            List<ChildOrder> staleBuyOrders = state.getActiveChildOrders().stream()
+                    .filter(order -> order.getSide() == Side.BUY)
+                    .filter(order -> Math.abs(order.getPrice() - midPrice) / midPrice > MAX_PRICE_DISTANCE_PERCENT)
+                    .collect(Collectors.toList());
+            long liveBuyOrders = state.getActiveChildOrders().stream()
+                    .filter(order -> order.getSide() == Side.BUY)
+                    .count();
+
+            if (staleBuyOrders.isEmpty()) {
+                actions.add(evaluate(state));
+                return;
+            }
+
+            for (ChildOrder buyOrder : staleBuyOrders) {
+                logger.info("[MYALGO] Cancelling order too far from mid price: {}", buyOrder.getOrderId());
+                actions.add(new CancelChildOrder(buyOrder));
+            }
+
+            // Once all my buys are cancelled, replace them at the new touch in the same batch
+            if (staleBuyOrders.size() == liveBuyOrders) {
+                actions.add(newBuyOrder(askFarTouch, bidNearTouch, midPrice));
+            }
+        } catch (Exception e) {
+            logger.error("[MYALGO] An error occurred during evaluation: ", e);
+        }
+    }
+
+    private Action newBuyOrder(AskLevel askFarTouch, BidLevel bidNearTouch, double midPrice) {
+        long buyPrice = bidNearTouch.price + 1;
+        double priceDistance = Math.abs(buyPrice - midPrice) / midPrice;
+
+        if (priceDistance <= MAX_PRICE_DISTANCE_PERCENT) {
+            logger.info("[MYALGO] Creating new buy order at price: {}", buyPrice);
+            return new CreateChildOrder(Side.BUY,
+                    Math.min(100, askFarTouch.quantity),
+                    buyPrice);
+        }
+        logger.info("[MYALGO] No action needed");
+        return NoAction.NoAction;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package codingblackfemales.gettingstarted;
 
 import codingblackfemales.action.Action; // <EXPLAIN: WHY USE THIS?>
+import codingblackfemales.action.AmendChildOrder;
 import codingblackfemales.action.CancelChildOrder;
 import codingblackfemales.action.CreateChildOrder;
 import codingblackfemales.action.NoAction;
@@ -40,7 +41,7 @@ import java.util.Map;
  *    - Creates sell orders for fully filled buy orders
  *    - Targets minimum 2 tick profit
  *    - Dynamically adjusts sell prices based on market movement
- *    - Cancels and replaces sell orders when better prices are available
+ *    - Amends sell orders in place when better prices are available
  *
  * 4. Order Cancellation Logic:
  *    - Cancels unfilled/partial buy orders if market moves significantly
@@ -96,9 +97,9 @@ public class ProfitableAlgoLogic implements AlgoLogic {
                     if (hasOpenSellOrder(activeOrders, buyOrder)) {
                         ChildOrder existingSellOrder = orderPairs.get(buyOrder);
                         if (existingSellOrder.getPrice() < bestBid.price + PROFIT_TICKS) {
-                            logger.info("[MYALGO] Cancelling existing sell {} and creating new sell for buy order {} at profit target",
+                            logger.info("[MYALGO] Amending existing sell {} for buy order {} to profit target",
                                     existingSellOrder.getOrderId(), buyOrder.getOrderId());
-                            return cancelAndCreateSellOrder(buyOrder);
+                            return amendSellOrder(buyOrder, bestBid);
                         }
                     } else {
                         // This is where I adjust the sell price
@@ -175,11 +176,11 @@ public class ProfitableAlgoLogic implements AlgoLogic {
         return false;
     }
 
-    private Action cancelAndCreateSellOrder(ChildOrder buyOrder) {
+    private Action amendSellOrder(ChildOrder buyOrder, BidLevel bestBid) {
         ChildOrder existingSellOrder = orderPairs.get(buyOrder);
-        orderPairs.remove(buyOrder); // Remove the old sell order
 
-        return new CancelChildOrder(existingSellOrder); // Cancel the old sell order
+        // One amend rather than a cancel and a new sell, the pair stays as it is
+        return new AmendChildOrder(existingSellOrder, bestBid.price + PROFIT_TICKS, existingSellOrder.getQuantity());
     }
 
     private long calculateAdjustedSellPrice(long buyPrice, long currentBestBid) {
@@ -1,11 +1,19 @@
 package codingblackfemales.gettingstarted;
 
+import codingblackfemales.action.Action;
+import codingblackfemales.action.CancelChildOrder;
+import codingblackfemales.action.CreateChildOrder;
 import codingblackfemales.algo.AlgoLogic;
 import codingblackfemales.sotw.ChildOrder;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
 import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.junit.Test;
 import org.junit.Before;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -155,5 +163,26 @@ public class MyAlgoTest extends AbstractAlgoTest {
                 container.getState().getActiveChildOrders().size() == 1);
     }
 
-
+    @Test
+    public void testRequoteCancelsTheStaleBuyAndReplacesItInOneEvaluation() throws Exception {
+        send(createTick());
+        final List<ChildOrder> buys = container.getState().getActiveChildOrders();
+        assertEquals("Expected one buy at 99", 1, buys.size());
+
+        // the market moves up without the algo being run, the buy is now more than 5% below the mid of 111
+        final UnsafeBuffer tick = new UnsafeBuffer(ByteBuffer.allocateDirect(1024));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(tick, 0, new MessageHeaderEncoder()).instrumentId(123L);
+        encoder.bidBookCount(1).next().price(110L).size(100L);
+        encoder.askBookCount(1).next().price(112L).size(100L);
+        container.getMarketDataService().onMessage(tick);
+
+        final List<Action> actions = new ArrayList<>();
+        new MarketMakingAlgo().evaluate(container.getState(), actions::add);
+
+        assertEquals(2, actions.size());
+        assertTrue(actions.get(0) instanceof CancelChildOrder);
+        final CreateChildOrder requote = (CreateChildOrder) actions.get(1);
+        assertEquals(Side.BUY, requote.getSide());
+        assertEquals(111, requote.getPrice());
+    }
 }
@@ -1,11 +1,15 @@
 package codingblackfemales.sequencer;
 
+import codingblackfemales.sequencer.batch.MessageBatch;
 import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.recovery.RetransmitBuffer;
+import codingblackfemales.sequencer.util.MessageLength;
 import messages.marketdata.MessageHeaderDecoder;
 import messages.marketdata.MessageHeaderEncoder;
 import messages.order.CreateOrderDecoder;
 import messages.order.CreateOrderEncoder;
 import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 
 import java.nio.ByteBuffer;
@@ -26,17 +30,37 @@ public class DefaultSequencer implements Sequencer {
     private final ByteBuffer businessByteBuffer = ByteBuffer.allocateDirect(1024);
     private final UnsafeBuffer businessMutableBuffer = new UnsafeBuffer(businessByteBuffer);
 
+    private final MessageBatch sequenced = new MessageBatch();
+    // commands sent while a batch is being dispatched, sequenced once it has been so numbers follow delivery order
+    private final MessageBatch deferred = new MessageBatch();
+    private final MessageLength messageLength = new MessageLength();
+    private boolean dispatchingBatch = false;
+
     long sequencerNumber = 0L;
 
     private final Network network;
+    private final RetransmitBuffer retransmitBuffer;
 
     public DefaultSequencer(Network network) {
+        this(network, null);
+    }
+
+    /**
+     * @param retransmitBuffer keeps the most recent messages so consumers can recover from gaps, may be null.
+     */
+    public DefaultSequencer(Network network, RetransmitBuffer retransmitBuffer) {
         this.network = network;
+        this.retransmitBuffer = retransmitBuffer;
     }
 
     @Override
     public void onCommand(DirectBuffer bb) {
 
+        if(dispatchingBatch){
+            deferred.add(bb, 0, messageLength.of(bb));
+            return;
+        }
+
         headerDecoder.wrap(bb, 0);
 
         int schemaId = headerDecoder.schemaId();
@@ -53,20 +77,100 @@ public class DefaultSequencer implements Sequencer {
     }
 
     public DirectBuffer processModelCommand(final DirectBuffer byteBuffer, final int schemaId, final MessageHeaderDecoder header){
+        encodeModelCommand(byteBuffer, 0, header, businessMutableBuffer, 0);
+        return businessMutableBuffer;
+    }
+
+    /**
+     * Re-encode a CreateOrder at sourceOffset into target, assigning it a new order id.
+     *
+     * @return the encoded length of the new message.
+     */
+    private int encodeModelCommand(final DirectBuffer source, final int sourceOffset, final MessageHeaderDecoder header,
+                                   final MutableDirectBuffer target, final int targetOffset){
 
         final int actingBlockLength = header.blockLength();
         final int actingVersion = header.version();
-        final int bufferOffset = header.encodedLength();
+        final int bufferOffset = sourceOffset + header.encodedLength();
 
-        createOrderDecoder.wrap(byteBuffer, bufferOffset, actingBlockLength, actingVersion);
+        createOrderDecoder.wrap(source, bufferOffset, actingBlockLength, actingVersion);
 
 
-        createOrderEncoder.wrapAndApplyHeader(businessMutableBuffer, 0, businessHeaderEncoder);
+        createOrderEncoder.wrapAndApplyHeader(target, targetOffset, businessHeaderEncoder);
+        createOrderEncoder.instrumentId(createOrderDecoder.instrumentId());
         createOrderEncoder.price(createOrderDecoder.price());
         createOrderEncoder.quantity(createOrderDecoder.quantity());
         createOrderEncoder.side(createOrderDecoder.side());
         createOrderEncoder.orderId(newOrderId());
-        return businessMutableBuffer;
+        createOrderEncoder.parentOrderId(createOrderDecoder.parentOrderId());
+        createOrderEncoder.timeInForce(createOrderDecoder.timeInForce());
+        return businessHeaderEncoder.encodedLength() + createOrderEncoder.encodedLength();
+    }
+
+    /**
+     * Sequence a batch of commands with consecutive sequence numbers, copying them into one contiguous batch which is
+     * dispatched to the network in one go.
+     *
+     * Commands sent while the batch is being dispatched, e.g. an algo reacting to a fill, are held until every message
+     * in it has been, then sequenced and dispatched as the next batch. Numbering them straight away would deliver them
+     * ahead of messages in the batch with lower sequence numbers.
+     */
+    @Override
+    public void onCommands(final MessageBatch batch) {
+        if(dispatchingBatch){
+            batch.forEach(command -> deferred.add(command, 0, messageLength.of(command)));
+            return;
+        }
+
+        try {
+            sequence(batch);
+            dispatchSequenced();
+            while(!deferred.isEmpty()){
+                sequence(deferred);
+                deferred.clear();
+                dispatchSequenced();
+            }
+        } finally {
+            deferred.clear();
+        }
+    }
+
+    private void sequence(final MessageBatch batch){
+        final MutableDirectBuffer target = sequenced.buffer();
+        for (int position = batch.first(); position != MessageBatch.END; position = batch.next(position)) {
+            final int offset = batch.messageOffset(position);
+            final int length = batch.messageLength(position);
+
+            headerDecoder.wrap(batch.buffer(), offset);
+
+            final int messageOffset;
+            if(isModelMessage(headerDecoder.schemaId(), headerDecoder.templateId())){
+                messageOffset = sequenced.claim(headerDecoder.encodedLength() + CreateOrderEncoder.BLOCK_LENGTH);
+                sequenced.commit(encodeModelCommand(batch.buffer(), offset, headerDecoder, target, messageOffset));
+            }else{
+                messageOffset = sequenced.claim(length);
+                target.putBytes(messageOffset, batch.buffer(), offset, length);
+                sequenced.commit(length);
+            }
+
+            sequencerNumber += 1;
+            headerEncoder.wrap(target, messageOffset);
+            headerEncoder.sequencerNumber(sequencerNumber);
+
+            if(retransmitBuffer != null){
+                retransmitBuffer.record(target, messageOffset);
+            }
+        }
+    }
+
+    private void dispatchSequenced(){
+        dispatchingBatch = true;
+        try {
+            network.dispatchBatch(sequenced);
+        } finally {
+            dispatchingBatch = false;
+            sequenced.clear();
+        }
     }
 
     private long orderId = 1;
@@ -88,6 +192,10 @@ public class DefaultSequencer implements Sequencer {
 
         headerEncoder.sequencerNumber(sequencerNumber);
 
+        if(retransmitBuffer != null){
+            retransmitBuffer.record(mutableBuffer, 0);
+        }
+
         dispatchToNetwork(mutableBuffer);
     }
 
@@ -1,35 +1,168 @@
 package codingblackfemales.sequencer;
 
-import codingblackfemales.sequencer.util.ByteBufferUtil;
+import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.util.MessageLength;
+import messages.marketdata.MessageHeaderDecoder;
 import messages.marketdata.MessageHeaderEncoder;
+import messages.order.CreateOrderEncoder;
+import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
 import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 
-public class RealSequencer {
+/**
+ * A sequencer which can be fed from many threads at once, e.g. several gateways and the order book.
+ *
+ * Producers copy their commands into a many-to-one ring buffer. A single writer thread, running this as an
+ * {@link Agent}, reads them off in the order they were claimed, stamps each with the next sequence number (and each
+ * CreateOrder with the next order id) in place in the ring buffer, and dispatches it to the {@link Network}. Network
+ * consumers therefore run on the writer thread, one message at a time, as they do with {@link DefaultSequencer}.
+ *
+ * How the writer thread waits when there is nothing to sequence is up to the {@link IdleStrategy} it is started
+ * with: {@link BusySpinIdleStrategy} for the lowest latency at the cost of a core, a
+ * {@link org.agrona.concurrent.YieldingIdleStrategy} to share the core, or a
+ * {@link org.agrona.concurrent.BackoffIdleStrategy} which parks once it has spun and yielded for a while.
+ *
+ * A producer which finds the ring buffer full spins until there is space. A consumer on the writer thread which
+ * sends a command (an algo acting on a message) cannot wait for itself, so in that case a full ring buffer is an
+ * error and the ring buffer must be sized for the largest burst.
+ */
+public class RealSequencer implements Sequencer, Agent, AutoCloseable {
 
-    final ByteBuffer sequenced = ByteBuffer.allocateDirect(1024);
-    final UnsafeBuffer directBuffer = new UnsafeBuffer();
-    final MessageHeaderEncoder encoder = new MessageHeaderEncoder();
+    private static final Logger logger = LoggerFactory.getLogger(RealSequencer.class);
 
-    final long sequenceNumber = 0L;
+    public static final int DEFAULT_CAPACITY = 1 << 22;
+    public static final int DEFAULT_READ_LIMIT = 256;
+    private static final int COMMAND_MSG_TYPE_ID = 1;
 
-    public void processMessage(DirectBuffer buffer){
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final ThreadLocal<MessageLength> messageLengths = ThreadLocal.withInitial(MessageLength::new);
 
-        ByteBufferUtil.cloneInto(buffer.byteBuffer(), sequenced);
+    private final Network network;
+    private final RingBuffer commands;
+    private final int readLimit;
+    private final UnsafeBuffer sequenced = new UnsafeBuffer(0, 0);
+    private final MessageHandler onCommand = this::sequenceAndDispatch;
 
-        directBuffer.wrap(sequenced);
+    private volatile Thread writerThread;
+    private AgentRunner runner;
 
-        encoder.wrap(directBuffer, 0);
+    private long sequenceNumber = 0L;
+    private long orderId = 1L;
 
-        encoder.sequencerNumber(sequenceNumber);
+    public RealSequencer(final Network network) {
+        this(network, DEFAULT_CAPACITY, DEFAULT_READ_LIMIT);
+    }
+
+    /**
+     * @param capacity of the command ring buffer in bytes, must be a power of two.
+     * @param readLimit most commands sequenced per duty cycle.
+     */
+    public RealSequencer(final Network network, final int capacity, final int readLimit) {
+        this.network = network;
+        this.commands = new ManyToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH)));
+        this.readLimit = readLimit;
+    }
+
+    /**
+     * Start the writer thread.
+     */
+    public RealSequencer start(final IdleStrategy idleStrategy) {
+        if (runner != null) {
+            throw new IllegalStateException("Sequencer already started");
+        }
+        runner = new AgentRunner(idleStrategy, this::onError, null, this);
+        AgentRunner.startOnThread(runner);
+        return this;
+    }
+
+    /**
+     * Queue a command to be sequenced. Safe to call from any thread.
+     */
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        final int length = messageLengths.get().of(buffer);
+        while (!commands.write(COMMAND_MSG_TYPE_ID, buffer, 0, length)) {
+            if (Thread.currentThread() == writerThread) {
+                throw new IllegalStateException("Command ring buffer full when sending from the sequencer thread");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Queue a command without waiting for space.
+     *
+     * @return false if the ring buffer is full.
+     */
+    public boolean offer(final DirectBuffer buffer) {
+        return commands.write(COMMAND_MSG_TYPE_ID, buffer, 0, messageLengths.get().of(buffer));
+    }
+
+    @Override
+    public void onStart() {
+        writerThread = Thread.currentThread();
+    }
 
-        dispatch(directBuffer);
+    /**
+     * Sequence and dispatch up to the read limit of queued commands. Only call from one thread, normally the writer
+     * thread started by {@link #start(IdleStrategy)}.
+     */
+    @Override
+    public int doWork() {
+        return commands.read(onCommand, readLimit);
     }
 
-    public void dispatch(UnsafeBuffer buffer){
-        //TODO: Implement
+    private void sequenceAndDispatch(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        headerDecoder.wrap(buffer, index);
+        if (headerDecoder.schemaId() == CreateOrderEncoder.SCHEMA_ID && headerDecoder.templateId() == CreateOrderEncoder.TEMPLATE_ID) {
+            orderId += 1;
+            buffer.putLong(index + headerDecoder.encodedLength() + CreateOrderEncoder.orderIdEncodingOffset(), orderId, CreateOrderEncoder.BYTE_ORDER);
+        }
+
+        sequenceNumber += 1;
+        headerEncoder.wrap(buffer, index).sequencerNumber(sequenceNumber);
+
+        // the command is stamped where it sits in the ring buffer, the space is only reused once the read completes
+        sequenced.wrap(buffer, index, length);
+        network.dispatch(sequenced);
+    }
+
+    /**
+     * The sequence number last assigned, only exact when read from the writer thread.
+     */
+    public long sequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public int queuedBytes() {
+        return commands.size();
     }
 
+    @Override
+    public String roleName() {
+        return "sequencer";
+    }
+
+    private void onError(final Throwable throwable) {
+        logger.error("[SEQUENCER] Error sequencing command", throwable);
+    }
+
+    @Override
+    public void close() {
+        CloseHelper.close(runner);
+    }
 }
@@ -1,7 +1,16 @@
 package codingblackfemales.sequencer;
 
+import codingblackfemales.sequencer.batch.MessageBatch;
 import org.agrona.DirectBuffer;
 
 public interface Sequencer {
     public void onCommand(final DirectBuffer byteBuffer);
+
+    /**
+     * Sequence a batch of commands. Sequencers which can should give them consecutive sequence numbers and dispatch
+     * them together, by default each command is sequenced on its own.
+     */
+    public default void onCommands(final MessageBatch batch) {
+        batch.forEach(this::onCommand);
+    }
 }
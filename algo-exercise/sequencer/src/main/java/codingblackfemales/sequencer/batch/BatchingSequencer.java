@@ -0,0 +1,75 @@
+package codingblackfemales.sequencer.batch;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.util.MessageLength;
+import org.agrona.DirectBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Collects the commands sent between {@link #begin()} and {@link #flush()} into a {@link MessageBatch} and hands them
+ * to the underlying sequencer in one go, e.g. all the fills from one match followed by the book update. Outside a
+ * begin/flush pair commands go straight through.
+ *
+ * begin/flush pairs can nest, only the outermost flush sends the batch. Flushing can dispatch messages which lead to
+ * further batches (an algo reacting to a fill), so each level of flushing collects into its own batch.
+ */
+public class BatchingSequencer implements Sequencer {
+
+    private final Sequencer sequencer;
+    private final MessageLength messageLength = new MessageLength();
+
+    private MessageBatch[] batches = new MessageBatch[]{new MessageBatch()};
+    private int flushDepth = 0;
+    private int beginDepth = 0;
+
+    public BatchingSequencer(final Sequencer sequencer) {
+        this.sequencer = sequencer;
+    }
+
+    public void begin() {
+        beginDepth++;
+    }
+
+    public void flush() {
+        if (beginDepth == 0) {
+            throw new IllegalStateException("flush() without begin()");
+        }
+        if (--beginDepth > 0) {
+            return;
+        }
+
+        final MessageBatch batch = batches[flushDepth];
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        flushDepth++;
+        if (flushDepth == batches.length) {
+            batches = Arrays.copyOf(batches, flushDepth * 2);
+            for (int i = flushDepth; i < batches.length; i++) {
+                batches[i] = new MessageBatch();
+            }
+        }
+        try {
+            sequencer.onCommands(batch);
+        } finally {
+            flushDepth--;
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        if (beginDepth == 0) {
+            sequencer.onCommand(buffer);
+        } else {
+            batches[flushDepth].add(buffer, 0, messageLength.of(buffer));
+        }
+    }
+
+    @Override
+    public void onCommands(final MessageBatch batch) {
+        sequencer.onCommands(batch);
+    }
+}
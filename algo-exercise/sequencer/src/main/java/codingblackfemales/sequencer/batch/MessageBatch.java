@@ -0,0 +1,131 @@
+package codingblackfemales.sequencer.batch;
+
+import codingblackfemales.sequencer.net.Consumer;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * A run of encoded messages held back to back in one contiguous buffer, each frame being a 4 byte length followed by
+ * the message, aligned to 8 bytes.
+ *
+ * Messages can be copied in with {@link #add(DirectBuffer, int, int)}, or encoded in place by claiming space with
+ * {@link #claim(int)}, encoding at the returned offset in {@link #buffer()} and then calling {@link #commit(int)}.
+ * Frames are read back in order with {@link #forEach(Consumer)} or the {@link #first()} / {@link #next(int)} cursor.
+ *
+ * The batch is reused after {@link #clear()}, growing as needed, so steady state use does not allocate.
+ */
+public class MessageBatch {
+
+    public static final int LENGTH_PREFIX = BitUtil.SIZE_OF_INT;
+    public static final int FRAME_ALIGNMENT = BitUtil.SIZE_OF_LONG;
+    public static final int END = -1;
+
+    private final ExpandableDirectByteBuffer buffer;
+    private final UnsafeBuffer frameView = new UnsafeBuffer(0, 0);
+
+    private int limit = 0;
+    private int count = 0;
+    private int claimOffset = END;
+
+    public MessageBatch() {
+        this(4096);
+    }
+
+    public MessageBatch(final int initialCapacity) {
+        this.buffer = new ExpandableDirectByteBuffer(initialCapacity);
+    }
+
+    public MutableDirectBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Reserve space for a message of up to maxLength bytes.
+     *
+     * @return the offset in {@link #buffer()} to encode the message at.
+     */
+    public int claim(final int maxLength) {
+        if (claimOffset != END) {
+            throw new IllegalStateException("Previous claim has not been committed");
+        }
+        buffer.checkLimit(limit + LENGTH_PREFIX + maxLength);
+        claimOffset = limit;
+        return claimOffset + LENGTH_PREFIX;
+    }
+
+    /**
+     * Complete the last claim with the number of bytes actually encoded.
+     */
+    public void commit(final int length) {
+        if (claimOffset == END) {
+            throw new IllegalStateException("Nothing has been claimed");
+        }
+        buffer.putInt(claimOffset, length);
+        limit = BitUtil.align(claimOffset + LENGTH_PREFIX + length, FRAME_ALIGNMENT);
+        claimOffset = END;
+        count++;
+    }
+
+    public void add(final DirectBuffer source, final int offset, final int length) {
+        final int messageOffset = claim(length);
+        buffer.putBytes(messageOffset, source, offset, length);
+        commit(length);
+    }
+
+    public void clear() {
+        limit = 0;
+        count = 0;
+        claimOffset = END;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the number of bytes used by the frames in the batch.
+     */
+    public int byteLength() {
+        return limit;
+    }
+
+    /**
+     * @return the position of the first frame, or {@link #END} if the batch is empty.
+     */
+    public int first() {
+        return limit == 0 ? END : 0;
+    }
+
+    /**
+     * @return the position of the frame after the one at position, or {@link #END}.
+     */
+    public int next(final int position) {
+        final int next = BitUtil.align(position + LENGTH_PREFIX + buffer.getInt(position), FRAME_ALIGNMENT);
+        return next >= limit ? END : next;
+    }
+
+    public int messageOffset(final int position) {
+        return position + LENGTH_PREFIX;
+    }
+
+    public int messageLength(final int position) {
+        return buffer.getInt(position);
+    }
+
+    /**
+     * Pass each message in the batch to the consumer, wrapped so it starts at offset 0.
+     */
+    public void forEach(final Consumer consumer) {
+        for (int position = first(); position != END; position = next(position)) {
+            frameView.wrap(buffer, messageOffset(position), messageLength(position));
+            consumer.onMessage(frameView);
+        }
+    }
+}
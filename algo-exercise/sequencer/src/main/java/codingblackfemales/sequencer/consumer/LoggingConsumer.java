@@ -1,11 +1,13 @@
 package codingblackfemales.sequencer.consumer;
 
-import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.dispatch.DispatchingConsumer;
+import codingblackfemales.sequencer.dispatch.HandlerRegistry;
+import codingblackfemales.sequencer.dispatch.MessageDispatcher;
 import messages.marketdata.BookUpdateDecoder;
 import messages.marketdata.MessageHeaderDecoder;
+import messages.order.AmendOrderDecoder;
 import messages.order.CancelOrderDecoder;
 import messages.order.CreateOrderDecoder;
-import messages.order.CreateOrderEncoder;
 import messages.order.FillOrderDecoder;
 import org.agrona.DirectBuffer;
 import org.slf4j.Logger;
@@ -13,47 +15,59 @@ import org.slf4j.LoggerFactory;
 
 import static codingblackfemales.sequencer.util.MessageUtil.bookUpdateToString;
 
-public class LoggingConsumer implements Consumer {
+public class LoggingConsumer implements DispatchingConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingConsumer.class);
 
-    private final MessageHeaderDecoder decoder = new MessageHeaderDecoder();
     private final BookUpdateDecoder bookUpdateDecoder = new BookUpdateDecoder();
     private final CreateOrderDecoder createOrderDecoder = new CreateOrderDecoder();
     private final FillOrderDecoder fillDecoder = new FillOrderDecoder();
 
     private final CancelOrderDecoder cancelDecoder = new CancelOrderDecoder();
+    private final AmendOrderDecoder amendDecoder = new AmendOrderDecoder();
+
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
+
+    public LoggingConsumer() {
+        registerHandlers(dispatcher);
+    }
 
     @Override
     public void onMessage(final DirectBuffer buffer) {
+        dispatcher.dispatch(buffer);
+    }
+
+    @Override
+    public void registerHandlers(final HandlerRegistry registry) {
+        registry.register(BookUpdateDecoder.SCHEMA_ID, BookUpdateDecoder.TEMPLATE_ID, this::onBookUpdate);
+        registry.register(CreateOrderDecoder.SCHEMA_ID, CreateOrderDecoder.TEMPLATE_ID, this::onCreateOrder);
+        registry.register(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID, this::onFill);
+        registry.register(CancelOrderDecoder.SCHEMA_ID, CancelOrderDecoder.TEMPLATE_ID, this::onCancelOrder);
+        registry.register(AmendOrderDecoder.SCHEMA_ID, AmendOrderDecoder.TEMPLATE_ID, this::onAmendOrder);
+    }
+
+    private void onBookUpdate(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+        bookUpdateDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        logger.info("[" + header.sequencerNumber() + "] \n" + bookUpdateToString(bookUpdateDecoder));
+    }
+
+    private void onCreateOrder(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+        createOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        logger.info("[" + header.sequencerNumber() + "] " + createOrderDecoder);
+    }
+
+    private void onFill(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+        fillDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        logger.info("[" + header.sequencerNumber() + "] " + fillDecoder);
+    }
+
+    private void onCancelOrder(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+        cancelDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        logger.info("[" + header.sequencerNumber() + "] " + cancelDecoder);
+    }
 
-        decoder.wrap(buffer, 0);
-
-        if (decoder.schemaId() == BookUpdateDecoder.SCHEMA_ID && decoder.templateId() == BookUpdateDecoder.TEMPLATE_ID) {
-            final int actingBlockLength = decoder.blockLength();
-            final int actingVersion = decoder.version();
-            int bufferOffset = decoder.encodedLength();
-            bookUpdateDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-            logger.info("[" + decoder.sequencerNumber() + "] \n" + bookUpdateToString(bookUpdateDecoder));
-        } else if (decoder.schemaId() == CreateOrderEncoder.SCHEMA_ID && decoder.templateId() == CreateOrderDecoder.TEMPLATE_ID) {
-            final int actingBlockLength = decoder.blockLength();
-            final int actingVersion = decoder.version();
-
-            int bufferOffset = decoder.encodedLength();
-            createOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-            logger.info("[" + decoder.sequencerNumber() + "] " + createOrderDecoder);
-        } else if (decoder.schemaId() == FillOrderDecoder.SCHEMA_ID && decoder.templateId() == FillOrderDecoder.TEMPLATE_ID) {
-            final int actingBlockLength = decoder.blockLength();
-            final int actingVersion = decoder.version();
-            int bufferOffset = decoder.encodedLength();
-            fillDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-            logger.info("[" + decoder.sequencerNumber() + "] " + fillDecoder);
-        }else if (decoder.schemaId() == CancelOrderDecoder.SCHEMA_ID && decoder.templateId() == CancelOrderDecoder.TEMPLATE_ID) {
-            final int actingBlockLength = decoder.blockLength();
-            final int actingVersion = decoder.version();
-            int bufferOffset = decoder.encodedLength();
-            cancelDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-            logger.info("[" + decoder.sequencerNumber() + "] " + cancelDecoder);
-        }
+    private void onAmendOrder(final DirectBuffer buffer, final MessageHeaderDecoder header) {
+        amendDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        logger.info("[" + header.sequencerNumber() + "] " + amendDecoder);
     }
 }
@@ -0,0 +1,11 @@
+package codingblackfemales.sequencer.dispatch;
+
+import codingblackfemales.sequencer.net.Consumer;
+
+/**
+ * A consumer which declares up front which messages it handles, so a network using a {@link MessageDispatcher} only
+ * calls it for those messages and never for the rest.
+ */
+public interface DispatchingConsumer extends Consumer {
+    public void registerHandlers(final HandlerRegistry registry);
+}
@@ -0,0 +1,14 @@
+package codingblackfemales.sequencer.dispatch;
+
+public interface HandlerRegistry {
+
+    /**
+     * Register a handler for one message type. Handlers for the same message are called in the order registered.
+     */
+    public void register(final int schemaId, final int templateId, final MessageHandler handler);
+
+    /**
+     * Register a handler called for every message, e.g. for a consumer which does not declare its interest.
+     */
+    public void registerForAll(final MessageHandler handler);
+}
@@ -0,0 +1,345 @@
+package codingblackfemales.sequencer.dispatch;
+
+import codingblackfemales.sequencer.batch.MessageBatch;
+import codingblackfemales.sequencer.net.BatchConsumer;
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.Subscription;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.TradeDecoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.PendingOrderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static codingblackfemales.sequencer.net.Subscription.ANY;
+
+/**
+ * Decodes the header of each message once and calls only the handlers registered for its (schemaId, templateId),
+ * found through a jump table indexed by schema and template id. Handlers can also be narrowed to one instrument, in
+ * which case the instrumentId is read from the message body once and compared before calling them.
+ *
+ * Handlers are called in registration order, including handlers registered for all messages, so consumers see
+ * messages in the order they were added. Dispatch is re-entrant: a handler may cause another message to be
+ * dispatched (e.g. an algo sending an order), and each level of nesting gets its own header decoder.
+ *
+ * A batch is dispatched a message at a time, except to {@link BatchConsumer}s added without subscriptions, which are
+ * given the whole batch once every other handler has seen each of its messages.
+ *
+ * Registration rebuilds the table and is meant for setup time only.
+ */
+public class MessageDispatcher implements HandlerRegistry {
+
+    private static final long NO_INSTRUMENT = Long.MIN_VALUE;
+    private static final int NO_OFFSET = -1;
+    private static final Route NO_ROUTE = new Route(new ArrayList<>());
+
+    private final List<Registration> registrations = new ArrayList<>();
+    private final List<BatchConsumer> batchConsumers = new ArrayList<>();
+
+    private Route[][] routesBySchemaAndTemplate = new Route[0][];
+    private Route[] routesBySchema = new Route[0];
+    private Route routeForAll = NO_ROUTE;
+
+    private int[][] instrumentIdOffsets = new int[0][];
+
+    private MessageHeaderDecoder[] headers = new MessageHeaderDecoder[]{new MessageHeaderDecoder()};
+    private int depth = 0;
+
+    private UnsafeBuffer[] frames = new UnsafeBuffer[]{new UnsafeBuffer(0, 0)};
+    private int frameDepth = 0;
+
+    public MessageDispatcher() {
+        registerInstrumentIdField(BookUpdateDecoder.SCHEMA_ID, BookUpdateDecoder.TEMPLATE_ID, BookUpdateDecoder.instrumentIdEncodingOffset());
+        registerInstrumentIdField(AskBookUpdateDecoder.SCHEMA_ID, AskBookUpdateDecoder.TEMPLATE_ID, AskBookUpdateDecoder.instrumentIdEncodingOffset());
+        registerInstrumentIdField(BidBookUpdateDecoder.SCHEMA_ID, BidBookUpdateDecoder.TEMPLATE_ID, BidBookUpdateDecoder.instrumentIdEncodingOffset());
+        registerInstrumentIdField(BookDeltaDecoder.SCHEMA_ID, BookDeltaDecoder.TEMPLATE_ID, BookDeltaDecoder.instrumentIdEncodingOffset());
+        registerInstrumentIdField(TradeDecoder.SCHEMA_ID, TradeDecoder.TEMPLATE_ID, TradeDecoder.instrumentIdEncodingOffset());
+        registerInstrumentIdField(CreateOrderDecoder.SCHEMA_ID, CreateOrderDecoder.TEMPLATE_ID, CreateOrderDecoder.instrumentIdEncodingOffset());
+        registerInstrumentIdField(PendingOrderDecoder.SCHEMA_ID, PendingOrderDecoder.TEMPLATE_ID, PendingOrderDecoder.instrumentIdEncodingOffset());
+    }
+
+    /**
+     * Add a consumer, registering its handlers if it declares them or calling it for every message otherwise.
+     */
+    public void add(final Consumer consumer) {
+        if (consumer instanceof DispatchingConsumer) {
+            ((DispatchingConsumer) consumer).registerHandlers(this);
+        } else if (consumer instanceof BatchConsumer) {
+            batchConsumers.add((BatchConsumer) consumer);
+            registrations.add(new Registration(ANY, ANY, ANY, adapter(consumer), true));
+            rebuild();
+        } else {
+            registerForAll(adapter(consumer));
+        }
+    }
+
+    /**
+     * Add a consumer which only receives messages matching one of the subscriptions. A consumer which declares its
+     * handlers keeps only those handlers the subscriptions match. Subscriptions should not overlap, a message matching
+     * two of them is delivered twice.
+     */
+    public void add(final Consumer consumer, final Subscription... subscriptions) {
+        if (subscriptions.length == 0) {
+            add(consumer);
+        } else if (consumer instanceof DispatchingConsumer) {
+            ((DispatchingConsumer) consumer).registerHandlers(new HandlerRegistry() {
+                @Override
+                public void register(final int schemaId, final int templateId, final MessageHandler handler) {
+                    for (Subscription subscription : subscriptions) {
+                        if (subscription.matches(schemaId, templateId)) {
+                            MessageDispatcher.this.register(schemaId, templateId, subscription.getInstrumentId(), handler);
+                        }
+                    }
+                }
+
+                @Override
+                public void registerForAll(final MessageHandler handler) {
+                    for (Subscription subscription : subscriptions) {
+                        MessageDispatcher.this.register(subscription.getSchemaId(), subscription.getTemplateId(), subscription.getInstrumentId(), handler);
+                    }
+                }
+            });
+        } else {
+            final MessageHandler handler = adapter(consumer);
+            for (Subscription subscription : subscriptions) {
+                register(subscription.getSchemaId(), subscription.getTemplateId(), subscription.getInstrumentId(), handler);
+            }
+        }
+    }
+
+    private static MessageHandler adapter(final Consumer consumer) {
+        return (buffer, header) -> consumer.onMessage(buffer);
+    }
+
+    @Override
+    public void register(final int schemaId, final int templateId, final MessageHandler handler) {
+        if (schemaId < 0 || templateId < 0) {
+            throw new IllegalArgumentException("schemaId and templateId must not be negative: " + schemaId + "/" + templateId);
+        }
+        register(schemaId, templateId, ANY, handler);
+    }
+
+    @Override
+    public void registerForAll(final MessageHandler handler) {
+        register(ANY, ANY, ANY, handler);
+    }
+
+    /**
+     * Register a handler, using {@link Subscription#ANY} for any schema, template or instrument. A template can only be
+     * given with its schema, as template ids are only unique within a schema.
+     */
+    public void register(final int schemaId, final int templateId, final long instrumentId, final MessageHandler handler) {
+        if (schemaId == ANY && templateId != ANY) {
+            throw new IllegalArgumentException("templateId " + templateId + " given without a schemaId");
+        }
+        registrations.add(new Registration(schemaId, templateId, instrumentId, handler, false));
+        rebuild();
+    }
+
+    /**
+     * Tell the dispatcher where the instrumentId of a message is, relative to the start of its body, so handlers can
+     * subscribe to it by instrument.
+     */
+    public void registerInstrumentIdField(final int schemaId, final int templateId, final int offset) {
+        if (schemaId >= instrumentIdOffsets.length) {
+            instrumentIdOffsets = Arrays.copyOf(instrumentIdOffsets, schemaId + 1);
+        }
+        int[] offsets = instrumentIdOffsets[schemaId];
+        if (offsets == null || templateId >= offsets.length) {
+            final int oldLength = offsets == null ? 0 : offsets.length;
+            offsets = offsets == null ? new int[templateId + 1] : Arrays.copyOf(offsets, templateId + 1);
+            Arrays.fill(offsets, oldLength, offsets.length, NO_OFFSET);
+            instrumentIdOffsets[schemaId] = offsets;
+        }
+        offsets[templateId] = offset;
+    }
+
+    public void dispatch(final DirectBuffer buffer) {
+        dispatch(buffer, false);
+    }
+
+    private void dispatch(final DirectBuffer buffer, final boolean inBatch) {
+        final MessageHeaderDecoder header = pushHeader();
+        try {
+            header.wrap(buffer, 0);
+
+            final int schemaId = header.schemaId();
+            final int templateId = header.templateId();
+            final Route route = routeFor(schemaId, templateId);
+            final MessageHandler[] handlers = route.handlers;
+
+            if (route.filtered || (inBatch && route.batched)) {
+                final long instrumentId = route.filtered ? instrumentId(buffer, header, schemaId, templateId) : NO_INSTRUMENT;
+                final long[] instrumentIds = route.instrumentIds;
+                final boolean[] takesBatches = route.takesBatches;
+                for (int i = 0; i < handlers.length; i++) {
+                    if ((instrumentIds[i] == ANY || instrumentIds[i] == instrumentId) && !(inBatch && takesBatches[i])) {
+                        handlers[i].onMessage(buffer, header);
+                    }
+                }
+            } else {
+                for (int i = 0; i < handlers.length; i++) {
+                    handlers[i].onMessage(buffer, header);
+                }
+            }
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * Dispatch each message of a batch in order, without copying it out of the batch, then hand the whole batch to the
+     * batch consumers.
+     */
+    public void dispatchBatch(final MessageBatch batch) {
+        final UnsafeBuffer frame = pushFrame();
+        try {
+            for (int position = batch.first(); position != MessageBatch.END; position = batch.next(position)) {
+                frame.wrap(batch.buffer(), batch.messageOffset(position), batch.messageLength(position));
+                dispatch(frame, true);
+            }
+        } finally {
+            frameDepth--;
+        }
+        for (int i = 0; i < batchConsumers.size(); i++) {
+            batchConsumers.get(i).onBatch(batch);
+        }
+    }
+
+    private UnsafeBuffer pushFrame() {
+        if (frameDepth == frames.length) {
+            frames = Arrays.copyOf(frames, frameDepth * 2);
+            for (int i = frameDepth; i < frames.length; i++) {
+                frames[i] = new UnsafeBuffer(0, 0);
+            }
+        }
+        return frames[frameDepth++];
+    }
+
+    public boolean hasHandlers(final int schemaId, final int templateId) {
+        return routeFor(schemaId, templateId).handlers.length > 0;
+    }
+
+    private Route routeFor(final int schemaId, final int templateId) {
+        if (schemaId < routesBySchemaAndTemplate.length) {
+            final Route[] routesByTemplate = routesBySchemaAndTemplate[schemaId];
+            if (routesByTemplate != null && templateId < routesByTemplate.length && routesByTemplate[templateId] != null) {
+                return routesByTemplate[templateId];
+            }
+            if (routesBySchema[schemaId] != null) {
+                return routesBySchema[schemaId];
+            }
+        }
+        return routeForAll;
+    }
+
+    private long instrumentId(final DirectBuffer buffer, final MessageHeaderDecoder header, final int schemaId, final int templateId) {
+        if (schemaId < instrumentIdOffsets.length) {
+            final int[] offsets = instrumentIdOffsets[schemaId];
+            if (offsets != null && templateId < offsets.length && offsets[templateId] != NO_OFFSET) {
+                return buffer.getLong(header.encodedLength() + offsets[templateId], ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return NO_INSTRUMENT;
+    }
+
+    private MessageHeaderDecoder pushHeader() {
+        if (depth == headers.length) {
+            headers = Arrays.copyOf(headers, depth * 2);
+            for (int i = depth; i < headers.length; i++) {
+                headers[i] = new MessageHeaderDecoder();
+            }
+        }
+        return headers[depth++];
+    }
+
+    private void rebuild() {
+        int maxSchemaId = -1;
+        int maxTemplateId = -1;
+        for (Registration registration : registrations) {
+            maxSchemaId = Math.max(maxSchemaId, registration.schemaId);
+            maxTemplateId = Math.max(maxTemplateId, registration.templateId);
+        }
+
+        final Route[][] routes = new Route[maxSchemaId + 1][];
+        final Route[] schemaRoutes = new Route[maxSchemaId + 1];
+        for (Registration registration : registrations) {
+            final int schemaId = registration.schemaId;
+            if (schemaId == ANY) {
+                continue;
+            }
+            if (routes[schemaId] == null) {
+                routes[schemaId] = new Route[maxTemplateId + 1];
+                schemaRoutes[schemaId] = collect(schemaId, ANY);
+            }
+            if (registration.templateId != ANY && routes[schemaId][registration.templateId] == null) {
+                routes[schemaId][registration.templateId] = collect(schemaId, registration.templateId);
+            }
+        }
+
+        routesBySchemaAndTemplate = routes;
+        routesBySchema = schemaRoutes;
+        routeForAll = collect(ANY, ANY);
+    }
+
+    private Route collect(final int schemaId, final int templateId) {
+        final List<Registration> matching = new ArrayList<>();
+        for (Registration registration : registrations) {
+            if ((registration.schemaId == ANY || registration.schemaId == schemaId)
+                    && (registration.templateId == ANY || registration.templateId == templateId)) {
+                matching.add(registration);
+            }
+        }
+        return new Route(matching);
+    }
+
+    private static final class Registration {
+        private final int schemaId;
+        private final int templateId;
+        private final long instrumentId;
+        private final MessageHandler handler;
+        private final boolean takesBatches;
+
+        private Registration(final int schemaId, final int templateId, final long instrumentId, final MessageHandler handler, final boolean takesBatches) {
+            this.schemaId = schemaId;
+            this.templateId = templateId;
+            this.instrumentId = instrumentId;
+            this.handler = handler;
+            this.takesBatches = takesBatches;
+        }
+    }
+
+    private static final class Route {
+        private final MessageHandler[] handlers;
+        private final long[] instrumentIds;
+        private final boolean[] takesBatches;
+        private final boolean filtered;
+        private final boolean batched;
+
+        private Route(final List<Registration> registrations) {
+            handlers = new MessageHandler[registrations.size()];
+            instrumentIds = new long[registrations.size()];
+            takesBatches = new boolean[registrations.size()];
+            boolean anyFiltered = false;
+            boolean anyBatched = false;
+            for (int i = 0; i < handlers.length; i++) {
+                handlers[i] = registrations.get(i).handler;
+                instrumentIds[i] = registrations.get(i).instrumentId;
+                takesBatches[i] = registrations.get(i).takesBatches;
+                anyFiltered |= instrumentIds[i] != ANY;
+                anyBatched |= takesBatches[i];
+            }
+            filtered = anyFiltered;
+            batched = anyBatched;
+        }
+    }
+}
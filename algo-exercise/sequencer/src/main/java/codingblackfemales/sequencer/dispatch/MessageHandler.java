@@ -0,0 +1,13 @@
+package codingblackfemales.sequencer.dispatch;
+
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Handles one (schemaId, templateId) of message. The header has already been decoded by the dispatcher, so the handler
+ * only needs to wrap its body decoder at {@code header.encodedLength()}.
+ */
+@FunctionalInterface
+public interface MessageHandler {
+    public void onMessage(final DirectBuffer buffer, final MessageHeaderDecoder header);
+}
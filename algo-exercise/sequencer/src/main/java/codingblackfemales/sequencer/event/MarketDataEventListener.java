@@ -1,41 +1,85 @@
 package codingblackfemales.sequencer.event;
 
-import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.dispatch.DispatchingConsumer;
+import codingblackfemales.sequencer.dispatch.HandlerRegistry;
+import codingblackfemales.sequencer.dispatch.MessageDispatcher;
+import codingblackfemales.sequencer.dispatch.MessageHandler;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
 import messages.marketdata.BookUpdateDecoder;
-import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.TradeDecoder;
 import org.agrona.DirectBuffer;
 
-public abstract class MarketDataEventListener implements Consumer {
+public abstract class MarketDataEventListener implements DispatchingConsumer {
 
-    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
     private final BookUpdateDecoder book = new BookUpdateDecoder();
     private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
     private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+    private final TradeDecoder trade = new TradeDecoder();
+
+    private final MessageHandler bookHandler = (buffer, header) -> {
+        book.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onBookUpdate(book);
+    };
+
+    private final MessageHandler askHandler = (buffer, header) -> {
+        ask.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onAskBook(ask);
+    };
+
+    private final MessageHandler bidHandler = (buffer, header) -> {
+        bid.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onBidBook(bid);
+    };
+
+    private final MessageHandler deltaHandler = (buffer, header) -> {
+        delta.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onBookDelta(delta);
+    };
+
+    private final MessageHandler tradeHandler = (buffer, header) -> {
+        trade.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onTrade(trade);
+    };
+
+    // used when this listener is called directly rather than through a dispatching network
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
+
+    protected MarketDataEventListener() {
+        registerHandlers(dispatcher);
+    }
 
     @Override
     public void onMessage(final DirectBuffer buffer) {
-        header.wrap(buffer, 0);
-
-        final int actingBlockLength = header.blockLength();
-        final int actingVersion = header.version();
-        final int bufferOffset = header.encodedLength();
-
-        if(header.templateId() == BookUpdateDecoder.TEMPLATE_ID){
-            book.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-            onBookUpdate(book);
-        }else if(header.templateId() == AskBookUpdateDecoder.TEMPLATE_ID){
-            ask.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-            onAskBook(ask);
-        }else if(header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID){
-            bid.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-            onBidBook(bid);
-        }
+        dispatcher.dispatch(buffer);
+    }
+
+    @Override
+    public void registerHandlers(final HandlerRegistry registry) {
+        registry.register(BookUpdateDecoder.SCHEMA_ID, BookUpdateDecoder.TEMPLATE_ID, bookHandler);
+        registry.register(AskBookUpdateDecoder.SCHEMA_ID, AskBookUpdateDecoder.TEMPLATE_ID, askHandler);
+        registry.register(BidBookUpdateDecoder.SCHEMA_ID, BidBookUpdateDecoder.TEMPLATE_ID, bidHandler);
+        registry.register(BookDeltaDecoder.SCHEMA_ID, BookDeltaDecoder.TEMPLATE_ID, deltaHandler);
+        registry.register(TradeDecoder.SCHEMA_ID, TradeDecoder.TEMPLATE_ID, tradeHandler);
     }
 
     public abstract void onBookUpdate(BookUpdateDecoder bookUpdate);
     public abstract void onAskBook(AskBookUpdateDecoder askBook);
     public abstract void onBidBook(BidBookUpdateDecoder bidBook);
 
+    /**
+     * Levels which changed since the previous book message. Not abstract, listeners which only want full books can
+     * ignore deltas as long as the publisher also sends full books.
+     */
+    public void onBookDelta(BookDeltaDecoder bookDelta) {
+    }
+
+    /**
+     * A match in the book. Not abstract, listeners which only want the book can ignore trades.
+     */
+    public void onTrade(TradeDecoder trade) {
+    }
+
 }
@@ -1,62 +1,124 @@
 package codingblackfemales.sequencer.event;
 
-import codingblackfemales.sequencer.net.Consumer;
-import messages.marketdata.MessageHeaderDecoder;
+import codingblackfemales.sequencer.dispatch.DispatchingConsumer;
+import codingblackfemales.sequencer.dispatch.HandlerRegistry;
+import codingblackfemales.sequencer.dispatch.MessageDispatcher;
+import codingblackfemales.sequencer.dispatch.MessageHandler;
 import messages.order.*;
 import org.agrona.DirectBuffer;
 
-public abstract class OrderEventListener implements Consumer {
-
-    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+public abstract class OrderEventListener implements DispatchingConsumer {
 
     private final CreateOrderDecoder createOrderDecoder = new CreateOrderDecoder();
     private final CancelOrderDecoder cancelOrderDecoder = new CancelOrderDecoder();
+    private final AmendOrderDecoder amendOrderDecoder = new AmendOrderDecoder();
+    private final AmendAckedOrderDecoder amendAckedOrderDecoder = new AmendAckedOrderDecoder();
+    private final AmendRejectedOrderDecoder amendRejectedOrderDecoder = new AmendRejectedOrderDecoder();
     private final AckedOrderDecoder ackedOrderDecoder = new AckedOrderDecoder();
     private final CancelAckedOrderDecoder cancelAckedOrderDecoder = new CancelAckedOrderDecoder();
     private final PendingOrderDecoder pendingOrderDecoder = new PendingOrderDecoder();
     private final PartialFillOrderDecoder partialFillOrderDecoder = new PartialFillOrderDecoder();
     private final FillOrderDecoder fillOrderDecoder = new FillOrderDecoder();
 
+    private final MessageHandler createOrderHandler = (buffer, header) -> {
+        createOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onCreateOrder(createOrderDecoder);
+    };
+
+    private final MessageHandler cancelOrderHandler = (buffer, header) -> {
+        cancelOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onCancelOrder(cancelOrderDecoder);
+    };
+
+    private final MessageHandler amendOrderHandler = (buffer, header) -> {
+        amendOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onAmendOrder(amendOrderDecoder);
+    };
+
+    private final MessageHandler amendAckedOrderHandler = (buffer, header) -> {
+        amendAckedOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onAmendAckedOrder(amendAckedOrderDecoder);
+    };
+
+    private final MessageHandler amendRejectedOrderHandler = (buffer, header) -> {
+        amendRejectedOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onAmendRejectedOrder(amendRejectedOrderDecoder);
+    };
+
+    private final MessageHandler ackedOrderHandler = (buffer, header) -> {
+        ackedOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onAckedOrder(ackedOrderDecoder);
+    };
+
+    private final MessageHandler cancelAckedOrderHandler = (buffer, header) -> {
+        cancelAckedOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onCancelAckedOrder(cancelAckedOrderDecoder);
+    };
+
+    private final MessageHandler pendingOrderHandler = (buffer, header) -> {
+        pendingOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onPendingOrder(pendingOrderDecoder);
+    };
+
+    private final MessageHandler partialFillHandler = (buffer, header) -> {
+        partialFillOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onPartialFill(partialFillOrderDecoder);
+    };
+
+    private final MessageHandler fillHandler = (buffer, header) -> {
+        fillOrderDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+        onFill(fillOrderDecoder);
+    };
+
+    // used when this listener is called directly rather than through a dispatching network
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
+
+    protected OrderEventListener() {
+        registerHandlers(dispatcher);
+    }
+
     @Override
     public void onMessage(DirectBuffer buffer){
+        dispatcher.dispatch(buffer);
+    }
 
-        header.wrap(buffer, 0);
-
-        final int actingBlockLength = header.blockLength();
-        final int actingVersion = header.version();
-        final int bufferOffset = header.encodedLength();
-
-        if(header.schemaId() == CreateOrderEncoder.SCHEMA_ID) {
-
-            if (header.templateId() == CreateOrderDecoder.TEMPLATE_ID) {
-                createOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-                onCreateOrder(createOrderDecoder);
-            } else if (header.templateId() == CancelOrderDecoder.TEMPLATE_ID) {
-                cancelOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-                onCancelOrder(cancelOrderDecoder);
-            } else if (header.templateId() == AckedOrderDecoder.TEMPLATE_ID) {
-                ackedOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-                onAckedOrder(ackedOrderDecoder);
-            } else if (header.templateId() == CancelAckedOrderDecoder.TEMPLATE_ID) {
-                cancelAckedOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-                onCancelAckedOrder(cancelAckedOrderDecoder);
-            } else if (header.templateId() == PendingOrderDecoder.TEMPLATE_ID) {
-                pendingOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-                onPendingOrder(pendingOrderDecoder);
-            } else if (header.templateId() == PartialFillOrderDecoder.TEMPLATE_ID) {
-                partialFillOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-                onPartialFill(partialFillOrderDecoder);
-            } else if (header.templateId() == FillOrderDecoder.TEMPLATE_ID) {
-                fillOrderDecoder.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
-                onFill(fillOrderDecoder);
-            }
-        }
+    @Override
+    public void registerHandlers(final HandlerRegistry registry) {
+        registry.register(CreateOrderDecoder.SCHEMA_ID, CreateOrderDecoder.TEMPLATE_ID, createOrderHandler);
+        registry.register(CancelOrderDecoder.SCHEMA_ID, CancelOrderDecoder.TEMPLATE_ID, cancelOrderHandler);
+        registry.register(AmendOrderDecoder.SCHEMA_ID, AmendOrderDecoder.TEMPLATE_ID, amendOrderHandler);
+        registry.register(AmendAckedOrderDecoder.SCHEMA_ID, AmendAckedOrderDecoder.TEMPLATE_ID, amendAckedOrderHandler);
+        registry.register(AmendRejectedOrderDecoder.SCHEMA_ID, AmendRejectedOrderDecoder.TEMPLATE_ID, amendRejectedOrderHandler);
+        registry.register(AckedOrderDecoder.SCHEMA_ID, AckedOrderDecoder.TEMPLATE_ID, ackedOrderHandler);
+        registry.register(CancelAckedOrderDecoder.SCHEMA_ID, CancelAckedOrderDecoder.TEMPLATE_ID, cancelAckedOrderHandler);
+        registry.register(PendingOrderDecoder.SCHEMA_ID, PendingOrderDecoder.TEMPLATE_ID, pendingOrderHandler);
+        registry.register(PartialFillOrderDecoder.SCHEMA_ID, PartialFillOrderDecoder.TEMPLATE_ID, partialFillHandler);
+        registry.register(FillOrderDecoder.SCHEMA_ID, FillOrderDecoder.TEMPLATE_ID, fillHandler);
     }
 
     public abstract void onCreateOrder(final CreateOrderDecoder create);
 
     public abstract void onCancelOrder(final CancelOrderDecoder cancel);
 
+    /**
+     * A request to change an order's price and total quantity in place, not applied until the venue acks it. Not
+     * abstract, as most listeners have nothing to do.
+     */
+    public void onAmendOrder(final AmendOrderDecoder amend) {
+    }
+
+    /**
+     * The venue has applied an amend, the order now has this price and total quantity.
+     */
+    public void onAmendAckedOrder(final AmendAckedOrderDecoder amendAcked) {
+    }
+
+    /**
+     * The venue did not have the order to amend, e.g. it filled or was cancelled first, so it is as it was.
+     */
+    public void onAmendRejectedOrder(final AmendRejectedOrderDecoder amendRejected) {
+    }
+
     public abstract void onAckedOrder(final AckedOrderDecoder acked);
 
     public abstract void onCancelAckedOrder(final CancelAckedOrderDecoder cancelAcked);
@@ -0,0 +1,16 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.batch.MessageBatch;
+
+/**
+ * A consumer which is given a batch of sequenced messages as a whole, e.g. to apply every fill from a match and the
+ * book update after them before acting once. Messages sequenced on their own still arrive through
+ * {@link #onMessage(org.agrona.DirectBuffer)}.
+ */
+public interface BatchConsumer extends Consumer {
+
+    /**
+     * @param batch the sequenced messages in order, only valid until this returns.
+     */
+    public void onBatch(final MessageBatch batch);
+}
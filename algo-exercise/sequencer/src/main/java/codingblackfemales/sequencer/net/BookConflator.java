@@ -0,0 +1,416 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.util.BookLevels;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.AskBookUpdateEncoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateEncoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookSide;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.DeltaAction;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.OneToOneConcurrentArrayQueue;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The book conflation shared by {@link ConflatingConsumer} and the {@link SlowConsumerPolicy#CONFLATE} policy of
+ * {@link QueuedConsumer}: BookUpdate, BidBookUpdate, AskBookUpdate and BookDelta messages are merged into a slot per
+ * instrument on the sequencer thread, last value wins per side, and {@link #deliver(Consumer)} on the delivery thread
+ * hands each slot waiting for delivery to the consumer once, as a BookUpdate if both sides (or the status) changed,
+ * otherwise as an update for the side which did.
+ *
+ * A slot keeps every level it is given, so a level pushed below the delivered depth by a delta comes back when the
+ * levels above it go. Only the best maxDepth levels per side are delivered, deeper ones are cut off and counted.
+ * Slots are allocated up front for a fixed number of instruments with room for maxDepth levels per side, and only
+ * allocate when a side grows deeper than that. Updates for instruments beyond that number are dropped and counted.
+ */
+final class BookConflator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookConflator.class);
+
+    static final int NOT_MERGED = -1;
+    static final int MERGED = 0;
+    static final int WAITING = 1;
+
+    private static final long NO_SLOT = -1;
+    private static final int BODY_OFFSET = MessageHeaderEncoder.ENCODED_LENGTH;
+
+    private final String name;
+    private final int maxDepth;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final BookUpdateEncoder bookEncoder = new BookUpdateEncoder();
+    private final BidBookUpdateEncoder bidEncoder = new BidBookUpdateEncoder();
+    private final AskBookUpdateEncoder askEncoder = new AskBookUpdateEncoder();
+    private final UnsafeBuffer encoded;
+
+    // only touched on the sequencer thread
+    private final Long2LongHashMap slotByInstrumentId = new Long2LongHashMap(NO_SLOT);
+    private final Slot[] slots;
+    private int slotCount = 0;
+    private Slot lastMerged;
+
+    // slots waiting for delivery, each is queued at most once so it can never be full
+    private final OneToOneConcurrentArrayQueue<Slot> changed;
+
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong conflatedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong truncatedCount = new AtomicLong();
+
+    BookConflator(final String name, final int maxInstruments, final int maxDepth) {
+        this.name = name;
+        this.maxDepth = maxDepth;
+        this.slots = new Slot[maxInstruments];
+        for (int i = 0; i < maxInstruments; i++) {
+            slots[i] = new Slot(maxDepth);
+        }
+        this.changed = new OneToOneConcurrentArrayQueue<>(maxInstruments);
+        this.encoded = new UnsafeBuffer(ByteBuffer.allocateDirect(MessageHeaderEncoder.ENCODED_LENGTH
+                + BookUpdateEncoder.BLOCK_LENGTH + 2 * (4 + maxDepth * 16)));
+    }
+
+    /**
+     * Called on the sequencer thread: merge a book message into its instrument's slot.
+     *
+     * @param queue whether the slot should wait for delivery, it stays waiting if it already was.
+     * @return {@link #WAITING} if the slot is now waiting for delivery, {@link #MERGED} if it is only kept up to date,
+     * for {@link #queueLastMerged()} or the next delta, or {@link #NOT_MERGED} if the message is not a book or there is
+     * no slot left for its instrument.
+     */
+    int merge(final DirectBuffer buffer, final boolean queue) {
+        header.wrap(buffer, 0);
+        if (header.schemaId() != BookUpdateDecoder.SCHEMA_ID) {
+            return NOT_MERGED;
+        }
+
+        final int templateId = header.templateId();
+        final int actingBlockLength = header.blockLength();
+        final int actingVersion = header.version();
+        final int bufferOffset = header.encodedLength();
+
+        final Slot slot;
+        if (templateId == BookUpdateDecoder.TEMPLATE_ID) {
+            book.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+            slot = slotFor(book.instrumentId());
+        } else if (templateId == BidBookUpdateDecoder.TEMPLATE_ID) {
+            bid.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+            slot = slotFor(bid.instrumentId());
+        } else if (templateId == AskBookUpdateDecoder.TEMPLATE_ID) {
+            ask.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+            slot = slotFor(ask.instrumentId());
+        } else if (templateId == BookDeltaDecoder.TEMPLATE_ID) {
+            delta.wrap(buffer, bufferOffset, actingBlockLength, actingVersion);
+            slot = slotFor(delta.instrumentId());
+        } else {
+            return NOT_MERGED;
+        }
+        if (slot == null) {
+            return NOT_MERGED;
+        }
+
+        synchronized (slot) {
+            if (!slot.queued) {
+                // anything changed before was delivered already, or went to the consumer some other way
+                slot.statusChanged = false;
+                slot.bidChanged = false;
+                slot.askChanged = false;
+            }
+            if (templateId == BookUpdateDecoder.TEMPLATE_ID) {
+                slot.venue = book.venueRaw();
+                slot.status = book.instrumentStatusRaw();
+                slot.source = book.sourceRaw();
+                slot.statusChanged = true;
+                copyBids(slot, book.bidBook());
+                copyAsks(slot, book.askBook());
+            } else if (templateId == BidBookUpdateDecoder.TEMPLATE_ID) {
+                slot.venue = bid.venueRaw();
+                copyBids(slot, bid.bidBook());
+            } else if (templateId == AskBookUpdateDecoder.TEMPLATE_ID) {
+                slot.venue = ask.venueRaw();
+                copyAsks(slot, ask.askBook());
+            } else {
+                applyDelta(slot);
+            }
+            slot.sequenceNumber = header.sequencerNumber();
+            lastMerged = slot;
+
+            if (slot.queued) {
+                increment(conflatedCount);
+                return WAITING;
+            }
+            if (queue) {
+                slot.queued = true;
+                changed.offer(slot);
+                return WAITING;
+            }
+            return MERGED;
+        }
+    }
+
+    /**
+     * Called on the sequencer thread: have the slot of the message last merged wait for delivery after all.
+     */
+    void queueLastMerged() {
+        final Slot slot = lastMerged;
+        synchronized (slot) {
+            if (!slot.queued) {
+                slot.queued = true;
+                changed.offer(slot);
+            }
+        }
+    }
+
+    private void applyDelta(final Slot slot) {
+        slot.venue = delta.venueRaw();
+        if (slot.status != delta.instrumentStatusRaw() || slot.source != delta.sourceRaw()) {
+            slot.status = delta.instrumentStatusRaw();
+            slot.source = delta.sourceRaw();
+            slot.statusChanged = true;
+        }
+        for (final BookDeltaDecoder.LevelsDecoder level : delta.levels()) {
+            final boolean delete = level.actionRaw() == DeltaAction.DELETE.value();
+            if (level.sideRaw() == BookSide.BID.value()) {
+                if (slot.bidCount == slot.bidPrices.length) {
+                    slot.growBids();
+                }
+                slot.bidCount = BookLevels.apply(slot.bidPrices, slot.bidSizes, slot.bidCount, true, delete, level.price(), level.size());
+                slot.bidChanged = true;
+            } else {
+                if (slot.askCount == slot.askPrices.length) {
+                    slot.growAsks();
+                }
+                slot.askCount = BookLevels.apply(slot.askPrices, slot.askSizes, slot.askCount, false, delete, level.price(), level.size());
+                slot.askChanged = true;
+            }
+        }
+    }
+
+    private void copyBids(final Slot slot, final BookUpdateDecoder.BidBookDecoder levels) {
+        slot.ensureBidCapacity(levels.count());
+        int count = 0;
+        for (final BookUpdateDecoder.BidBookDecoder level : levels) {
+            slot.bidPrices[count] = level.price();
+            slot.bidSizes[count++] = level.size();
+        }
+        slot.bidCount = count;
+        slot.bidChanged = true;
+    }
+
+    private void copyAsks(final Slot slot, final BookUpdateDecoder.AskBookDecoder levels) {
+        slot.ensureAskCapacity(levels.count());
+        int count = 0;
+        for (final BookUpdateDecoder.AskBookDecoder level : levels) {
+            slot.askPrices[count] = level.price();
+            slot.askSizes[count++] = level.size();
+        }
+        slot.askCount = count;
+        slot.askChanged = true;
+    }
+
+    private void copyBids(final Slot slot, final BidBookUpdateDecoder.BidBookDecoder levels) {
+        slot.ensureBidCapacity(levels.count());
+        int count = 0;
+        for (final BidBookUpdateDecoder.BidBookDecoder level : levels) {
+            slot.bidPrices[count] = level.price();
+            slot.bidSizes[count++] = level.size();
+        }
+        slot.bidCount = count;
+        slot.bidChanged = true;
+    }
+
+    private void copyAsks(final Slot slot, final AskBookUpdateDecoder.AskBookDecoder levels) {
+        slot.ensureAskCapacity(levels.count());
+        int count = 0;
+        for (final AskBookUpdateDecoder.AskBookDecoder level : levels) {
+            slot.askPrices[count] = level.price();
+            slot.askSizes[count++] = level.size();
+        }
+        slot.askCount = count;
+        slot.askChanged = true;
+    }
+
+    private Slot slotFor(final long instrumentId) {
+        increment(receivedCount);
+        final long index = slotByInstrumentId.get(instrumentId);
+        if (index != NO_SLOT) {
+            return slots[(int) index];
+        }
+        if (slotCount == slots.length) {
+            if (droppedCount.get() == 0) {
+                logger.warn("[CONFLATE] " + name + " has no slot left for instrument " + instrumentId + ", dropping its updates");
+            }
+            increment(droppedCount);
+            return null;
+        }
+        final Slot slot = slots[slotCount];
+        slot.instrumentId = instrumentId;
+        slotByInstrumentId.put(instrumentId, slotCount++);
+        return slot;
+    }
+
+    boolean hasWaiting() {
+        return !changed.isEmpty();
+    }
+
+    /**
+     * Called on the delivery thread: deliver the latest book of each slot waiting for delivery.
+     */
+    int deliver(final Consumer consumer) {
+        int work = 0;
+        Slot slot;
+        while ((slot = changed.poll()) != null) {
+            synchronized (slot) {
+                // encode under the lock, so the consumer works on a copy while the sequencer thread merges the next one
+                encode(slot);
+                slot.queued = false;
+                slot.statusChanged = false;
+                slot.bidChanged = false;
+                slot.askChanged = false;
+            }
+            consumer.onMessage(encoded);
+            increment(deliveredCount);
+            work++;
+        }
+        return work;
+    }
+
+    private void encode(final Slot slot) {
+        final int bidCount = Math.min(slot.bidCount, maxDepth);
+        final int askCount = Math.min(slot.askCount, maxDepth);
+        if (slot.statusChanged || (slot.bidChanged && slot.askChanged)) {
+            bookEncoder.wrapAndApplyHeader(encoded, 0, headerEncoder).instrumentId(slot.instrumentId);
+            encoded.putInt(BODY_OFFSET + BookUpdateEncoder.venueEncodingOffset(), slot.venue, BookUpdateEncoder.BYTE_ORDER);
+            encoded.putByte(BODY_OFFSET + BookUpdateEncoder.instrumentStatusEncodingOffset(), slot.status);
+            encoded.putInt(BODY_OFFSET + BookUpdateEncoder.sourceEncodingOffset(), slot.source, BookUpdateEncoder.BYTE_ORDER);
+            final BookUpdateEncoder.BidBookEncoder bids = bookEncoder.bidBookCount(bidCount);
+            for (int i = 0; i < bidCount; i++) {
+                bids.next().price(slot.bidPrices[i]).size(slot.bidSizes[i]);
+            }
+            final BookUpdateEncoder.AskBookEncoder asks = bookEncoder.askBookCount(askCount);
+            for (int i = 0; i < askCount; i++) {
+                asks.next().price(slot.askPrices[i]).size(slot.askSizes[i]);
+            }
+            countTruncated(slot.bidCount > maxDepth || slot.askCount > maxDepth);
+        } else if (slot.bidChanged) {
+            bidEncoder.wrapAndApplyHeader(encoded, 0, headerEncoder).instrumentId(slot.instrumentId);
+            encoded.putInt(BODY_OFFSET + BidBookUpdateEncoder.venueEncodingOffset(), slot.venue, BidBookUpdateEncoder.BYTE_ORDER);
+            final BidBookUpdateEncoder.BidBookEncoder bids = bidEncoder.bidBookCount(bidCount);
+            for (int i = 0; i < bidCount; i++) {
+                bids.next().price(slot.bidPrices[i]).size(slot.bidSizes[i]);
+            }
+            countTruncated(slot.bidCount > maxDepth);
+        } else {
+            askEncoder.wrapAndApplyHeader(encoded, 0, headerEncoder).instrumentId(slot.instrumentId);
+            encoded.putInt(BODY_OFFSET + AskBookUpdateEncoder.venueEncodingOffset(), slot.venue, AskBookUpdateEncoder.BYTE_ORDER);
+            final AskBookUpdateEncoder.AskBookEncoder asks = askEncoder.askBookCount(askCount);
+            for (int i = 0; i < askCount; i++) {
+                asks.next().price(slot.askPrices[i]).size(slot.askSizes[i]);
+            }
+            countTruncated(slot.askCount > maxDepth);
+        }
+        headerEncoder.sequencerNumber(slot.sequenceNumber);
+    }
+
+    private void countTruncated(final boolean truncated) {
+        if (truncated) {
+            increment(truncatedCount);
+        }
+    }
+
+    private static void increment(final AtomicLong counter) {
+        // each counter has a single writer, so an ordered store is enough for readers on other threads
+        counter.lazySet(counter.get() + 1);
+    }
+
+    long receivedCount() {
+        return receivedCount.get();
+    }
+
+    long conflatedCount() {
+        return conflatedCount.get();
+    }
+
+    long deliveredCount() {
+        return deliveredCount.get();
+    }
+
+    long droppedCount() {
+        return droppedCount.get();
+    }
+
+    long truncatedCount() {
+        return truncatedCount.get();
+    }
+
+    private static final class Slot {
+        private long[] bidPrices;
+        private long[] bidSizes;
+        private long[] askPrices;
+        private long[] askSizes;
+
+        private long instrumentId;
+        private long sequenceNumber;
+        // raw values, the enums reject values a publisher left unset
+        private int venue;
+        private byte status;
+        private int source;
+        private int bidCount;
+        private int askCount;
+
+        private boolean queued;
+        private boolean statusChanged;
+        private boolean bidChanged;
+        private boolean askChanged;
+
+        private Slot(final int maxDepth) {
+            this.bidPrices = new long[maxDepth];
+            this.bidSizes = new long[maxDepth];
+            this.askPrices = new long[maxDepth];
+            this.askSizes = new long[maxDepth];
+        }
+
+        // a delta can insert a level into a full side, the worst level is kept rather than pushed out
+        private void growBids() {
+            bidPrices = Arrays.copyOf(bidPrices, Math.max(8, bidPrices.length * 2));
+            bidSizes = Arrays.copyOf(bidSizes, bidPrices.length);
+        }
+
+        private void growAsks() {
+            askPrices = Arrays.copyOf(askPrices, Math.max(8, askPrices.length * 2));
+            askSizes = Arrays.copyOf(askSizes, askPrices.length);
+        }
+
+        private void ensureBidCapacity(final int count) {
+            if (count > bidPrices.length) {
+                bidPrices = new long[count];
+                bidSizes = new long[count];
+            }
+        }
+
+        private void ensureAskCapacity(final int count) {
+            if (count > askPrices.length) {
+                askPrices = new long[count];
+                askSizes = new long[count];
+            }
+        }
+    }
+}
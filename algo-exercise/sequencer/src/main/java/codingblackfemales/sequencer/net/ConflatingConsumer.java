@@ -0,0 +1,120 @@
+package codingblackfemales.sequencer.net;
+
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.IdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A market data subscription which only delivers the latest book per instrument, for consumers such as the UI and
+ * logging which have no use for every intermediate update.
+ *
+ * Every BookUpdate, BidBookUpdate, AskBookUpdate and BookDelta is merged into the instrument's slot by the same
+ * {@link BookConflator} the {@link SlowConsumerPolicy#CONFLATE} policy of {@link QueuedConsumer} uses, only here
+ * without a queue in front of it, so updates are conflated whenever the consumer is busy rather than only once a queue
+ * has filled. The delivery thread, started with {@link #start(IdleStrategy)} or run as an {@link Agent}, delivers each
+ * changed slot once, so however many updates arrive while the consumer is busy, it is given one message per
+ * instrument, and only ever whole sides.
+ *
+ * Slots are allocated up front for a fixed number of instruments and levels per side. Updates for instruments beyond
+ * that number are dropped and levels beyond the depth are not delivered, both are counted.
+ * Messages other than book updates are ignored, subscribe to them separately.
+ */
+public class ConflatingConsumer implements Consumer, Agent, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConflatingConsumer.class);
+
+    public static final int DEFAULT_MAX_INSTRUMENTS = 1024;
+    public static final int DEFAULT_MAX_DEPTH = 64;
+
+    private final String name;
+    private final Consumer consumer;
+    private final BookConflator conflator;
+
+    private AgentRunner runner;
+
+    public ConflatingConsumer(final String name, final Consumer consumer) {
+        this(name, consumer, DEFAULT_MAX_INSTRUMENTS, DEFAULT_MAX_DEPTH);
+    }
+
+    public ConflatingConsumer(final String name, final Consumer consumer, final int maxInstruments, final int maxDepth) {
+        this.name = name;
+        this.consumer = consumer;
+        this.conflator = new BookConflator(name, maxInstruments, maxDepth);
+    }
+
+    public ConflatingConsumer start(final IdleStrategy idleStrategy) {
+        if (runner != null) {
+            throw new IllegalStateException(name + " already started");
+        }
+        runner = new AgentRunner(idleStrategy, this::onError, null, this);
+        AgentRunner.startOnThread(runner);
+        return this;
+    }
+
+    /**
+     * Called on the sequencer thread: merge the update into its instrument's slot.
+     */
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        conflator.merge(buffer, true);
+    }
+
+    /**
+     * Called on the delivery thread: deliver the latest book of each instrument which changed since the last call.
+     */
+    @Override
+    public int doWork() {
+        return conflator.deliver(consumer);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Book updates received, including those dropped for want of a slot.
+     */
+    public long receivedCount() {
+        return conflator.receivedCount();
+    }
+
+    /**
+     * Book updates merged into one the consumer had not been given yet, i.e. never delivered on their own.
+     */
+    public long conflatedCount() {
+        return conflator.conflatedCount();
+    }
+
+    public long deliveredCount() {
+        return conflator.deliveredCount();
+    }
+
+    public long droppedCount() {
+        return conflator.droppedCount();
+    }
+
+    /**
+     * Books delivered without some of their levels, for having more than the depth on a side.
+     */
+    public long truncatedCount() {
+        return conflator.truncatedCount();
+    }
+
+    @Override
+    public String roleName() {
+        return "conflating-consumer-" + name;
+    }
+
+    private void onError(final Throwable throwable) {
+        logger.error("[CONFLATE] Error delivering to " + name, throwable);
+    }
+
+    @Override
+    public void close() {
+        CloseHelper.close(runner);
+    }
+}
@@ -1,7 +1,15 @@
 package codingblackfemales.sequencer.net;
 
+import codingblackfemales.sequencer.batch.MessageBatch;
 import org.agrona.DirectBuffer;
 
 public interface Network {
     public void dispatch(final DirectBuffer buffer);
+
+    /**
+     * Dispatch a batch of sequenced messages, by default one at a time in order.
+     */
+    public default void dispatchBatch(final MessageBatch batch) {
+        batch.forEach(this::dispatch);
+    }
 }
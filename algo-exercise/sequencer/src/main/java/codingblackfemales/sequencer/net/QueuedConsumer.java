@@ -0,0 +1,259 @@
+package codingblackfemales.sequencer.net;
+
+import codingblackfemales.sequencer.util.MessageLength;
+import org.agrona.CloseHelper;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives a consumer its own bounded queue and delivery thread, so a slow consumer (logging, the UI) cannot delay the
+ * sequencer thread and the consumers on it (the order book, the algos). Add the queued consumer to the network in
+ * place of the consumer it wraps.
+ *
+ * The sequencer thread copies each message into the queue; the delivery thread, started with
+ * {@link #start(IdleStrategy)} or run as an {@link Agent}, takes them off and calls the wrapped consumer. What
+ * happens when the queue is full is set by the {@link SlowConsumerPolicy}. The counters can be read from any thread.
+ *
+ * A blocked sequencer thread waits only as long as the delivery thread keeps taking messages off the queue. If nothing
+ * is delivered for the stall timeout, the consumer is disconnected and the message it was waiting to queue fails with
+ * an {@link IllegalStateException}, rather than the sequencer hanging on a consumer which will never catch up.
+ *
+ * Conflated books are merged per instrument by a {@link BookConflator}, the same one a {@link ConflatingConsumer}
+ * uses, which sees every book update so a conflated book stays whole even if a BookDelta is what found the queue full.
+ * They are delivered once the queue has drained, so they stay in order with other books but may arrive after order
+ * events which were sequenced after them.
+ */
+public class QueuedConsumer implements Consumer, Agent, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueuedConsumer.class);
+
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    public static final long DEFAULT_STALL_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MESSAGE_MSG_TYPE_ID = 1;
+    private static final int READ_LIMIT = 64;
+
+    private final String name;
+    private final Consumer consumer;
+    private final SlowConsumerPolicy policy;
+    private final RingBuffer queue;
+    private final long stallTimeoutNanos;
+
+    private final MessageLength messageLength = new MessageLength();
+    private final UnsafeBuffer delivered = new UnsafeBuffer(0, 0);
+    private final MessageHandler onQueued = this::onQueued;
+    private final Consumer onConflated = this::deliver;
+    // only for the CONFLATE policy
+    private final BookConflator conflator;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong conflatedCount = new AtomicLong();
+    private final AtomicLong queueFullCount = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    private volatile boolean disconnected = false;
+    private AgentRunner runner;
+
+    public QueuedConsumer(final String name, final Consumer consumer, final SlowConsumerPolicy policy) {
+        this(name, consumer, policy, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity of the queue in bytes, must be a power of two.
+     */
+    public QueuedConsumer(final String name, final Consumer consumer, final SlowConsumerPolicy policy, final int capacity) {
+        this(name, consumer, policy, capacity, DEFAULT_STALL_TIMEOUT_NANOS);
+    }
+
+    /**
+     * @param capacity of the queue in bytes, must be a power of two.
+     * @param stallTimeoutNanos how long a blocked sequencer thread waits without anything being delivered.
+     */
+    public QueuedConsumer(final String name, final Consumer consumer, final SlowConsumerPolicy policy, final int capacity, final long stallTimeoutNanos) {
+        this.name = name;
+        this.consumer = consumer;
+        this.policy = policy;
+        this.queue = new OneToOneRingBuffer(new UnsafeBuffer(ByteBuffer.allocateDirect(capacity + RingBufferDescriptor.TRAILER_LENGTH)));
+        this.stallTimeoutNanos = stallTimeoutNanos;
+        this.conflator = policy == SlowConsumerPolicy.CONFLATE
+                ? new BookConflator(name, ConflatingConsumer.DEFAULT_MAX_INSTRUMENTS, ConflatingConsumer.DEFAULT_MAX_DEPTH) : null;
+    }
+
+    public QueuedConsumer start(final IdleStrategy idleStrategy) {
+        if (runner != null) {
+            throw new IllegalStateException(name + " already started");
+        }
+        runner = new AgentRunner(idleStrategy, this::onError, null, this);
+        AgentRunner.startOnThread(runner);
+        return this;
+    }
+
+    /**
+     * Called on the sequencer thread: queue the message for the delivery thread.
+     */
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        if (disconnected) {
+            increment(droppedCount);
+            return;
+        }
+
+        // once a book is waiting to be conflated, later ones for the instrument are merged into it rather than overtake it
+        final int merged = conflator == null ? BookConflator.NOT_MERGED : conflator.merge(buffer, false);
+        if (merged == BookConflator.WAITING) {
+            increment(conflatedCount);
+            return;
+        }
+
+        final int length = messageLength.of(buffer);
+        if (queue.write(MESSAGE_MSG_TYPE_ID, buffer, 0, length)) {
+            increment(enqueuedCount);
+            return;
+        }
+
+        increment(queueFullCount);
+        switch (policy) {
+            case DROP:
+                increment(droppedCount);
+                break;
+            case DISCONNECT:
+                disconnected = true;
+                increment(droppedCount);
+                logger.warn("[QUEUE] Disconnecting slow consumer " + name);
+                break;
+            case CONFLATE:
+                if (merged == BookConflator.MERGED) {
+                    conflator.queueLastMerged();
+                    increment(conflatedCount);
+                    break;
+                }
+                // fall through, only book updates can be conflated
+            case BLOCK:
+            default:
+                waitForSpace(buffer, length);
+        }
+    }
+
+    private void waitForSpace(final DirectBuffer buffer, final int length) {
+        final long start = System.nanoTime();
+        long lastProgress = start;
+        long lastDelivered = deliveredCount.get();
+        while (!queue.write(MESSAGE_MSG_TYPE_ID, buffer, 0, length)) {
+            final long now = System.nanoTime();
+            final long delivered = deliveredCount.get();
+            if (delivered != lastDelivered) {
+                lastDelivered = delivered;
+                lastProgress = now;
+            } else if (now - lastProgress > stallTimeoutNanos) {
+                blockedNanos.lazySet(blockedNanos.get() + now - start);
+                disconnected = true;
+                increment(droppedCount);
+                logger.error("[QUEUE] Disconnecting stalled consumer " + name + ", nothing delivered for " + TimeUnit.NANOSECONDS.toMillis(now - lastProgress) + "ms");
+                throw new IllegalStateException(name + " stalled, message not queued");
+            }
+            Thread.onSpinWait();
+        }
+        blockedNanos.lazySet(blockedNanos.get() + System.nanoTime() - start);
+        increment(enqueuedCount);
+    }
+
+    /**
+     * Called on the delivery thread: deliver queued messages, then any conflated books.
+     */
+    @Override
+    public int doWork() {
+        int work = queue.read(onQueued, READ_LIMIT);
+        // only once the queue has been drained, so a conflated book never overtakes an older one still queued
+        if (work < READ_LIMIT && conflator != null && conflator.hasWaiting()) {
+            work += conflator.deliver(onConflated);
+        }
+        return work;
+    }
+
+    private void onQueued(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        delivered.wrap(buffer, index, length);
+        deliver(delivered);
+    }
+
+    private void deliver(final DirectBuffer buffer) {
+        consumer.onMessage(buffer);
+        increment(deliveredCount);
+    }
+
+    private static void increment(final AtomicLong counter) {
+        // each counter has a single writer, so an ordered store is enough for readers on other threads
+        counter.lazySet(counter.get() + 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    public long enqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    public long deliveredCount() {
+        return deliveredCount.get();
+    }
+
+    public long droppedCount() {
+        return droppedCount.get();
+    }
+
+    public long conflatedCount() {
+        return conflatedCount.get();
+    }
+
+    public long queueFullCount() {
+        return queueFullCount.get();
+    }
+
+    public long blockedNanos() {
+        return blockedNanos.get();
+    }
+
+    /**
+     * Bytes waiting in the queue.
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public String roleName() {
+        return "queued-consumer-" + name;
+    }
+
+    private void onError(final Throwable throwable) {
+        logger.error("[QUEUE] Error delivering to " + name, throwable);
+    }
+
+    @Override
+    public void close() {
+        CloseHelper.close(runner);
+    }
+}
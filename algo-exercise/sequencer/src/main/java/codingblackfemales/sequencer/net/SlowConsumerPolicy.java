@@ -0,0 +1,30 @@
+package codingblackfemales.sequencer.net;
+
+/**
+ * What a {@link QueuedConsumer} does with a message when its queue is full because the consumer has fallen behind.
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Wait for space. The consumer sees every message but can hold up the sequencer, so only use it for consumers
+     * which must not miss anything and keep up, e.g. a journal. A consumer which stops taking messages altogether is
+     * disconnected after the stall timeout and the message being queued fails.
+     */
+    BLOCK,
+
+    /**
+     * Drop the message and count it.
+     */
+    DROP,
+
+    /**
+     * Merge book updates and deltas into the latest book per instrument until there is space, and deliver that.
+     * Anything which is not a book update waits for space as with {@link #BLOCK}, so order events are never lost.
+     */
+    CONFLATE,
+
+    /**
+     * Stop delivering to the consumer altogether, it has to be re-added (and resynchronised) to receive again.
+     */
+    DISCONNECT
+}
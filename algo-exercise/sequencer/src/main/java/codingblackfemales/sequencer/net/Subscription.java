@@ -0,0 +1,66 @@
+package codingblackfemales.sequencer.net;
+
+/**
+ * What a consumer wants delivered from the network: a schema, optionally narrowed to one template and/or one
+ * instrument. {@link #ANY} matches every value.
+ *
+ * Instrument filters apply to messages carrying an instrumentId (book updates, CreateOrder, PendingOrder); a
+ * subscription to a single instrument does not receive messages without one.
+ */
+public final class Subscription {
+
+    public static final int ANY = -1;
+
+    private static final Subscription ALL = new Subscription(ANY, ANY, ANY);
+
+    private final int schemaId;
+    private final int templateId;
+    private final long instrumentId;
+
+    private Subscription(final int schemaId, final int templateId, final long instrumentId) {
+        this.schemaId = schemaId;
+        this.templateId = templateId;
+        this.instrumentId = instrumentId;
+    }
+
+    public static Subscription all() {
+        return ALL;
+    }
+
+    public static Subscription schema(final int schemaId) {
+        return new Subscription(schemaId, ANY, ANY);
+    }
+
+    public static Subscription template(final int schemaId, final int templateId) {
+        return new Subscription(schemaId, templateId, ANY);
+    }
+
+    public static Subscription instrument(final int schemaId, final int templateId, final long instrumentId) {
+        return new Subscription(schemaId, templateId, instrumentId);
+    }
+
+    public Subscription forInstrument(final long instrumentId) {
+        return new Subscription(schemaId, templateId, instrumentId);
+    }
+
+    public int getSchemaId() {
+        return schemaId;
+    }
+
+    public int getTemplateId() {
+        return templateId;
+    }
+
+    public long getInstrumentId() {
+        return instrumentId;
+    }
+
+    public boolean matches(final int schemaId, final int templateId) {
+        return (this.schemaId == ANY || this.schemaId == schemaId) && (this.templateId == ANY || this.templateId == templateId);
+    }
+
+    @Override
+    public String toString() {
+        return "Subscription(schemaId=" + schemaId + ",templateId=" + templateId + ",instrumentId=" + instrumentId + ")";
+    }
+}
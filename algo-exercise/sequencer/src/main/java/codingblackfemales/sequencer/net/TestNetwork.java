@@ -1,23 +1,43 @@
 package codingblackfemales.sequencer.net;
 
+import codingblackfemales.sequencer.batch.MessageBatch;
+import codingblackfemales.sequencer.dispatch.MessageDispatcher;
+import messages.marketdata.BookUpdateDecoder;
 import org.agrona.DirectBuffer;
 
-import java.util.LinkedList;
-import java.util.List;
-
 public class TestNetwork implements Network{
 
-    private final List<Consumer> consumers = new LinkedList<>();
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
 
     @Override
     public void dispatch(DirectBuffer buffer){
-        for (Consumer consumer: consumers) {
-            consumer.onMessage(buffer);
-        }
+        dispatcher.dispatch(buffer);
+    }
+
+    @Override
+    public void dispatchBatch(MessageBatch batch){
+        dispatcher.dispatchBatch(batch);
     }
 
     public void addConsumer(Consumer consumer){
-        consumers.add(consumer);
+        dispatcher.add(consumer);
+    }
+
+    /**
+     * Add a consumer which is only called for messages matching one of the subscriptions.
+     */
+    public void addConsumer(Consumer consumer, Subscription... subscriptions){
+        dispatcher.add(consumer, subscriptions);
+    }
+
+    /**
+     * Add a consumer which is given only the latest book per instrument, on the delivery thread of the returned
+     * {@link ConflatingConsumer}, which must be started (or polled) for it to receive anything.
+     */
+    public ConflatingConsumer addConflatingConsumer(String name, Consumer consumer){
+        final ConflatingConsumer conflating = new ConflatingConsumer(name, consumer);
+        dispatcher.add(conflating, Subscription.schema(BookUpdateDecoder.SCHEMA_ID));
+        return conflating;
     }
 
 }
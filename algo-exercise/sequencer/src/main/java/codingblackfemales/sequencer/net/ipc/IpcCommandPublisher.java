@@ -0,0 +1,58 @@
+package codingblackfemales.sequencer.net.ipc;
+
+import codingblackfemales.sequencer.Sequencer;
+import codingblackfemales.sequencer.util.MessageLength;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+/**
+ * The {@link Sequencer} seen by a component running in another process, e.g. an algo or the backtest exchange.
+ * Commands are written to a ring buffer in a memory-mapped file shared with the sequencer's
+ * {@link IpcCommandReceiver}, which sequences them. Any number of processes can publish to the same file.
+ *
+ * If the ring buffer is full the caller idles until the sequencer has caught up.
+ */
+public class IpcCommandPublisher implements Sequencer, AutoCloseable {
+
+    private final MessageLength messageLength = new MessageLength();
+    private final MappedByteBuffer mappedBuffer;
+    private final RingBuffer ringBuffer;
+    private final IdleStrategy idleStrategy;
+
+    private boolean closed = false;
+
+    public IpcCommandPublisher(final File file) {
+        this(file, new BusySpinIdleStrategy());
+    }
+
+    public IpcCommandPublisher(final File file, final IdleStrategy idleStrategy) {
+        this.mappedBuffer = IoUtil.mapExistingFile(file, "ipc commands");
+        this.ringBuffer = new ManyToOneRingBuffer(new UnsafeBuffer(mappedBuffer));
+        this.idleStrategy = idleStrategy;
+    }
+
+    @Override
+    public void onCommand(final DirectBuffer buffer) {
+        final int length = messageLength.of(buffer);
+        idleStrategy.reset();
+        while (!ringBuffer.write(IpcCommandReceiver.COMMAND_MSG_TYPE_ID, buffer, 0, length)) {
+            idleStrategy.idle();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package codingblackfemales.sequencer.net.ipc;
+
+import codingblackfemales.sequencer.Sequencer;
+import org.agrona.IoUtil;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Runs on the sequencer's thread and sequences the commands other processes write through an
+ * {@link IpcCommandPublisher}. Creating the receiver creates (or zeroes) the file, so start it before any publishers.
+ *
+ * The sequencer is single threaded, so anything else in this process which sends it commands must do so from the
+ * same thread that calls {@link #poll()}.
+ */
+public class IpcCommandReceiver implements Agent, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    static final int COMMAND_MSG_TYPE_ID = 1;
+
+    private final Sequencer sequencer;
+    private final MappedByteBuffer mappedBuffer;
+    private final RingBuffer ringBuffer;
+
+    private final UnsafeBuffer commandView = new UnsafeBuffer(0, 0);
+    private final MessageHandler onCommand = this::onCommand;
+
+    private boolean closed = false;
+
+    public IpcCommandReceiver(final File file, final Sequencer sequencer) {
+        this(file, sequencer, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity of the ring buffer in bytes, must be a power of two.
+     */
+    public IpcCommandReceiver(final File file, final Sequencer sequencer, final int capacity) {
+        this.sequencer = sequencer;
+        this.mappedBuffer = IoUtil.mapNewFile(file, capacity + RingBufferDescriptor.TRAILER_LENGTH);
+        this.ringBuffer = new ManyToOneRingBuffer(new UnsafeBuffer(mappedBuffer));
+    }
+
+    /**
+     * Sequence the commands written since the last poll.
+     *
+     * @return the number of commands sequenced.
+     */
+    public int poll() {
+        return ringBuffer.read(onCommand);
+    }
+
+    private void onCommand(final int msgTypeId, final MutableDirectBuffer buffer, final int index, final int length) {
+        commandView.wrap(buffer, index, length);
+        sequencer.onCommand(commandView);
+    }
+
+    @Override
+    public int doWork() {
+        return poll();
+    }
+
+    @Override
+    public String roleName() {
+        return "ipc-command-receiver";
+    }
+
+    @Override
+    public void onClose() {
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package codingblackfemales.sequencer.net.ipc;
+
+import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.util.MessageLength;
+import org.agrona.DirectBuffer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.broadcast.BroadcastBufferDescriptor;
+import org.agrona.concurrent.broadcast.BroadcastTransmitter;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+/**
+ * A {@link Network} which publishes sequenced messages to other processes on the same box, through a broadcast
+ * buffer in a memory-mapped file. Read them with an {@link IpcSubscriber} mapping the same file.
+ *
+ * The sequencer never waits for subscribers: a subscriber which falls a whole buffer behind is lapped and skips
+ * ahead to the latest message, and subscribers can attach and detach (e.g. the UI or a strategy restarting) while
+ * the sequencer keeps running. Size the buffer for the largest gap a subscriber is allowed to fall behind by, and
+ * put the file on a tmpfs such as /dev/shm so writes never touch the disk.
+ *
+ * Creating the network creates (or zeroes) the file, so start it before any subscribers.
+ */
+public class IpcNetwork implements Network, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 22;
+    static final int MESSAGE_MSG_TYPE_ID = 1;
+
+    private final MessageLength messageLength = new MessageLength();
+    private final MappedByteBuffer mappedBuffer;
+    private final BroadcastTransmitter transmitter;
+
+    private boolean closed = false;
+
+    public IpcNetwork(final File file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity of the broadcast buffer in bytes, must be a power of two.
+     */
+    public IpcNetwork(final File file, final int capacity) {
+        this.mappedBuffer = IoUtil.mapNewFile(file, capacity + BroadcastBufferDescriptor.TRAILER_LENGTH);
+        this.transmitter = new BroadcastTransmitter(new UnsafeBuffer(mappedBuffer));
+    }
+
+    @Override
+    public void dispatch(final DirectBuffer buffer) {
+        transmitter.transmit(MESSAGE_MSG_TYPE_ID, buffer, 0, messageLength.of(buffer));
+    }
+
+    public int maxMessageLength() {
+        return transmitter.maxMsgLength();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+}
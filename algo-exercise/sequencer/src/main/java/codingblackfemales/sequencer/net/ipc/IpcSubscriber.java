@@ -0,0 +1,115 @@
+package codingblackfemales.sequencer.net.ipc;
+
+import codingblackfemales.sequencer.dispatch.MessageDispatcher;
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.Subscription;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.IoUtil;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.broadcast.BroadcastReceiver;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Receives the messages an {@link IpcNetwork} in another process publishes and dispatches them to its consumers,
+ * the same way {@link codingblackfemales.sequencer.net.TestNetwork} does in process.
+ *
+ * Each message is copied out of the broadcast buffer before it is dispatched, and dropped if the sequencer
+ * overwrote it while it was being copied. A subscriber which falls behind by more than the buffer's capacity skips
+ * ahead to the latest message; {@link #lappedCount()} and {@link #droppedCount()} say how often that happened, so a
+ * consumer which needs every message can detect the gap from the sequence numbers and resynchronise.
+ *
+ * Not thread safe: poll from one thread, e.g. by running it as an {@link Agent}.
+ */
+public class IpcSubscriber implements Agent, AutoCloseable {
+
+    public static final int DEFAULT_POLL_LIMIT = 64;
+
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
+    private final ExpandableDirectByteBuffer message = new ExpandableDirectByteBuffer(1024);
+    private final MappedByteBuffer mappedBuffer;
+    private final BroadcastReceiver receiver;
+    private final int pollLimit;
+
+    private long droppedCount = 0;
+    private boolean closed = false;
+
+    public IpcSubscriber(final File file) {
+        this(file, DEFAULT_POLL_LIMIT);
+    }
+
+    public IpcSubscriber(final File file, final int pollLimit) {
+        this.mappedBuffer = IoUtil.mapExistingFile(file, "ipc network");
+        this.receiver = new BroadcastReceiver(new UnsafeBuffer(mappedBuffer));
+        this.pollLimit = pollLimit;
+    }
+
+    public void addConsumer(final Consumer consumer) {
+        dispatcher.add(consumer);
+    }
+
+    /**
+     * Add a consumer which is only called for messages matching one of the subscriptions.
+     */
+    public void addConsumer(final Consumer consumer, final Subscription... subscriptions) {
+        dispatcher.add(consumer, subscriptions);
+    }
+
+    /**
+     * Dispatch up to the poll limit of messages published since the last poll.
+     *
+     * @return the number of messages dispatched.
+     */
+    public int poll() {
+        int dispatched = 0;
+        while (dispatched < pollLimit && receiver.receiveNext()) {
+            if (receiver.typeId() != IpcNetwork.MESSAGE_MSG_TYPE_ID) {
+                continue;
+            }
+
+            final int length = receiver.length();
+            message.putBytes(0, receiver.buffer(), receiver.offset(), length);
+            if (!receiver.validate()) {
+                droppedCount++;
+                continue;
+            }
+
+            dispatcher.dispatch(message);
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    public long lappedCount() {
+        return receiver.lappedCount();
+    }
+
+    public long droppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public int doWork() {
+        return poll();
+    }
+
+    @Override
+    public String roleName() {
+        return "ipc-subscriber";
+    }
+
+    @Override
+    public void onClose() {
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            IoUtil.unmap(mappedBuffer);
+        }
+    }
+}
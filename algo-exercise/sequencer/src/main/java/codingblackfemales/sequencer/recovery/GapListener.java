@@ -0,0 +1,10 @@
+package codingblackfemales.sequencer.recovery;
+
+/**
+ * Told when a {@link SequenceTracker} gives up on a gap, i.e. the messages in it are lost and anything built from
+ * them (a book, the state of an order) may be wrong until it is rebuilt.
+ */
+@FunctionalInterface
+public interface GapListener {
+    void onUnrecoverableGap(final long fromSequence, final long toSequence);
+}
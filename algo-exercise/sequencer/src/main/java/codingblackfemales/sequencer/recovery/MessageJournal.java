@@ -0,0 +1,223 @@
+package codingblackfemales.sequencer.recovery;
+
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.util.MessageLength;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An append-only file of every sequenced message, added to the network as a consumer. Each message is written as its
+ * length followed by its bytes, in sequence order. Opening an existing journal carries on appending to it.
+ *
+ * Together with a snapshot it lets state be recovered by replaying only the messages after the snapshot, see
+ * {@link codingblackfemales.sequencer.snapshot.SnapshotRecovery}. The file position of each message is kept in memory
+ * by sequence number, so a replay seeks straight to the first message asked for rather than reading from the start.
+ * Replay still reads from disk, so it is meant for recovery rather than for filling small gaps, which the
+ * {@link RetransmitBuffer} is better at.
+ */
+public class MessageJournal implements Consumer, RetransmitSource, AutoCloseable {
+
+    private static final long NONE = -1;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final MessageLength messageLength = new MessageLength();
+    private final File file;
+    private final DataOutputStream out;
+
+    private byte[] scratch = new byte[1024];
+    // separate from scratch, a replayed message can lead to another being appended
+    private byte[] readScratch = new byte[1024];
+    private long firstSequence = NONE;
+    private long lastSequence = NONE;
+
+    // the sequence number and file position of each message, in the order written
+    private long[] indexSequences = new long[1024];
+    private long[] indexPositions = new long[1024];
+    private int indexSize = 0;
+    private long writePosition = 0;
+
+    public MessageJournal(final File file) {
+        this.file = file;
+        try {
+            if (file.exists()) {
+                scan(0, (sequence, position, bytes, length) -> {
+                    index(sequence, position);
+                    writePosition = position + Integer.BYTES + length;
+                    return true;
+                });
+                if (writePosition < file.length()) {
+                    // the last frame was cut short by a crash, drop it so appends follow the last good one
+                    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                        channel.truncate(writePosition);
+                    }
+                }
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal " + file, e);
+        }
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        final long sequence = header.wrap(buffer, 0).sequencerNumber();
+        final int length = messageLength.of(buffer);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.getBytes(0, scratch, 0, length);
+
+        try {
+            out.writeInt(length);
+            out.write(scratch, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to journal " + file, e);
+        }
+
+        index(sequence, writePosition);
+        writePosition += Integer.BYTES + length;
+    }
+
+    private void index(final long sequence, final long position) {
+        if (indexSize == indexSequences.length) {
+            indexSequences = Arrays.copyOf(indexSequences, indexSize * 2);
+            indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+        }
+        indexSequences[indexSize] = sequence;
+        indexPositions[indexSize] = position;
+        indexSize++;
+
+        if (firstSequence == NONE) {
+            firstSequence = sequence;
+        }
+        lastSequence = sequence;
+    }
+
+    /**
+     * @return the file position of the first message numbered fromSequence or later.
+     */
+    private long positionOf(final long fromSequence) {
+        final int found = Arrays.binarySearch(indexSequences, 0, indexSize, fromSequence);
+        return indexPositions[found >= 0 ? found : -found - 1];
+    }
+
+    @Override
+    public boolean retransmit(final long fromSequence, final long toSequence, final Consumer target) {
+        if (firstSequence == NONE || fromSequence < firstSequence || toSequence > lastSequence || fromSequence > toSequence) {
+            return false;
+        }
+
+        final UnsafeBuffer view = new UnsafeBuffer(0, 0);
+        try {
+            flush();
+            scan(positionOf(fromSequence), (sequence, position, bytes, length) -> {
+                if (sequence > toSequence) {
+                    return false;
+                }
+                view.wrap(bytes, 0, length);
+                target.onMessage(view);
+                return true;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read journal " + file, e);
+        }
+        return true;
+    }
+
+    /**
+     * Replay everything after the given sequence number, e.g. the sequence a snapshot was taken at.
+     *
+     * @return the number of messages replayed.
+     */
+    public long replayFrom(final long afterSequence, final Consumer target) {
+        final long from = Math.max(afterSequence + 1, firstSequence);
+        if (lastSequence == NONE || from > lastSequence) {
+            return 0;
+        }
+        retransmit(from, lastSequence, target);
+        return lastSequence - from + 1;
+    }
+
+    public long firstSequence() {
+        return firstSequence;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not flush journal " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close journal " + file, e);
+        }
+    }
+
+    private interface FrameHandler {
+        /**
+         * @return false to stop reading.
+         */
+        boolean onFrame(long sequence, long position, byte[] bytes, int length);
+    }
+
+    /**
+     * Read the frames from a position to the end of the file, or until the handler stops. The bytes passed to the
+     * handler are only valid until it returns.
+     */
+    private void scan(final long fromPosition, final FrameHandler handler) throws IOException {
+        final UnsafeBuffer view = new UnsafeBuffer(0, 0);
+        final MessageHeaderDecoder frameHeader = new MessageHeaderDecoder();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(fromPosition)), 64 * 1024))) {
+            long position = fromPosition;
+            while (true) {
+                final int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException end) {
+                    return;
+                }
+                if (readScratch.length < length) {
+                    readScratch = new byte[Math.max(length, readScratch.length * 2)];
+                }
+                final byte[] bytes = readScratch;
+                try {
+                    in.readFully(bytes, 0, length);
+                } catch (EOFException truncated) {
+                    // the last frame was cut short by a crash, everything before it is good
+                    return;
+                }
+                view.wrap(bytes, 0, length);
+                if (!handler.onFrame(frameHeader.wrap(view, 0).sequencerNumber(), position, bytes, length)) {
+                    return;
+                }
+                position += Integer.BYTES + length;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package codingblackfemales.sequencer.recovery;
+
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.util.MessageLength;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A bounded ring of the most recently sequenced messages, kept by the sequencer so consumers which detect a gap can
+ * have it replayed. Message n is kept in slot n modulo the capacity until message n + capacity overwrites it.
+ *
+ * Slots are a fixed size, messages longer than that are not kept and a request for them fails as if they had
+ * already been overwritten.
+ *
+ * Replay is synchronous, on the calling thread, so it must be the thread the sequencer runs on.
+ */
+public class RetransmitBuffer implements RetransmitSource {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_SLOT_LENGTH = 1024;
+    private static final long EMPTY = -1;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final MessageLength messageLength = new MessageLength();
+    private final UnsafeBuffer slots;
+    private final long[] sequences;
+    private final int[] lengths;
+    private final int mask;
+    private final int slotLength;
+
+    public RetransmitBuffer() {
+        this(DEFAULT_CAPACITY, DEFAULT_SLOT_LENGTH);
+    }
+
+    /**
+     * @param capacity number of messages kept, must be a power of two.
+     * @param slotLength longest message kept, in bytes.
+     */
+    public RetransmitBuffer(final int capacity, final int slotLength) {
+        if (!BitUtil.isPowerOfTwo(capacity)) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.slotLength = BitUtil.align(slotLength, BitUtil.SIZE_OF_LONG);
+        this.slots = new UnsafeBuffer(ByteBuffer.allocateDirect(capacity * this.slotLength));
+        this.sequences = new long[capacity];
+        this.lengths = new int[capacity];
+        Arrays.fill(sequences, EMPTY);
+    }
+
+    /**
+     * Keep a copy of a sequenced message, called by the sequencer before it is dispatched.
+     */
+    public void record(final DirectBuffer buffer, final int offset) {
+        final long sequence = header.wrap(buffer, offset).sequencerNumber();
+        final int slot = (int) sequence & mask;
+        final int length = messageLength.of(buffer, offset);
+
+        if (length > slotLength) {
+            sequences[slot] = EMPTY;
+            return;
+        }
+
+        slots.putBytes(slot * slotLength, buffer, offset, length);
+        lengths[slot] = length;
+        sequences[slot] = sequence;
+    }
+
+    public boolean contains(final long fromSequence, final long toSequence) {
+        for (long sequence = fromSequence; sequence <= toSequence; sequence++) {
+            if (sequences[(int) sequence & mask] != sequence) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean retransmit(final long fromSequence, final long toSequence, final Consumer target) {
+        if (fromSequence > toSequence || !contains(fromSequence, toSequence)) {
+            return false;
+        }
+
+        // a view per replay, a consumer handling a replayed message can cause another replay
+        final UnsafeBuffer view = new UnsafeBuffer(0, 0);
+        for (long sequence = fromSequence; sequence <= toSequence; sequence++) {
+            final int slot = (int) sequence & mask;
+            view.wrap(slots, slot * slotLength, lengths[slot]);
+            target.onMessage(view);
+        }
+        return true;
+    }
+
+    public int capacity() {
+        return sequences.length;
+    }
+}
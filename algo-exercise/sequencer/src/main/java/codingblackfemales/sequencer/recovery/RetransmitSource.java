@@ -0,0 +1,18 @@
+package codingblackfemales.sequencer.recovery;
+
+import codingblackfemales.sequencer.net.Consumer;
+
+/**
+ * Somewhere a consumer can ask for sequenced messages it missed, e.g. the sequencer's {@link RetransmitBuffer} or a
+ * journal.
+ */
+public interface RetransmitSource {
+
+    /**
+     * Send the messages numbered fromSequence to toSequence (inclusive) to the target, in order. A source may send
+     * them before returning or later on.
+     *
+     * @return false if the source no longer holds the whole range, in which case nothing is sent.
+     */
+    boolean retransmit(final long fromSequence, final long toSequence, final Consumer target);
+}
@@ -0,0 +1,220 @@
+package codingblackfemales.sequencer.recovery;
+
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.util.MessageLength;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sits in front of a consumer and makes sure it sees every sequenced message exactly once and in order, using the
+ * sequencerNumber in the message header.
+ *
+ * Duplicates (anything numbered below the next expected message) are dropped. A message from further ahead means a
+ * gap: delivery pauses, later messages are held back, and the missing range is asked for from the
+ * {@link RetransmitSource}. Once the replayed messages arrive the held back ones are delivered after them. If the
+ * source no longer has the range, or too many messages are held back waiting for it, the gap is reported to the
+ * {@link GapListener} and delivery carries on from the next message held.
+ *
+ * Held back messages are kept ordered by sequence number, so finding the next one to deliver or the lowest one held
+ * is logarithmic in the number held rather than a scan of them all. Their buffers are reused once delivered.
+ *
+ * Until the first message arrives the tracker does not know where the stream starts, and takes whatever arrives
+ * first as the start, unless told otherwise with {@link #expect(long)}.
+ */
+public class SequenceTracker implements Consumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceTracker.class);
+
+    public static final int DEFAULT_MAX_PENDING = 1024;
+    private static final long UNKNOWN = -1;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final MessageLength messageLength = new MessageLength();
+    // only messages not yet delivered, by sequence number
+    private final TreeMap<Long, ExpandableDirectByteBuffer> pending = new TreeMap<>();
+    private final ArrayDeque<ExpandableDirectByteBuffer> freeBuffers = new ArrayDeque<>();
+
+    private final Consumer consumer;
+    private final RetransmitSource source;
+    private final GapListener gapListener;
+    private final int maxPending;
+
+    private long expected = UNKNOWN;
+    private long requestedUpTo = UNKNOWN;
+    private boolean draining = false;
+
+    private long duplicateCount = 0;
+    private long gapCount = 0;
+    private long lostCount = 0;
+
+    public SequenceTracker(final Consumer consumer, final RetransmitSource source) {
+        this(consumer, source, (from, to) -> logger.warn("[SEQUENCE] Lost messages " + from + " to " + to), DEFAULT_MAX_PENDING);
+    }
+
+    public SequenceTracker(final Consumer consumer, final RetransmitSource source, final GapListener gapListener, final int maxPending) {
+        this.consumer = consumer;
+        this.source = source;
+        this.gapListener = gapListener;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Set the sequence number of the next message the consumer should see, e.g. 1 for a consumer which must see the
+     * stream from the start.
+     */
+    public void expect(final long sequence) {
+        expected = sequence;
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        final long sequence = header.wrap(buffer, 0).sequencerNumber();
+        if (expected == UNKNOWN) {
+            expected = sequence;
+        }
+
+        if (sequence < expected) {
+            duplicateCount++;
+        } else if (sequence == expected) {
+            deliver(buffer, sequence);
+            if (!pending.isEmpty() && !draining) {
+                drainPending();
+            }
+        } else {
+            holdBack(buffer, sequence);
+        }
+    }
+
+    private void deliver(final DirectBuffer buffer, final long sequence) {
+        expected = sequence + 1;
+        if (!pending.isEmpty()) {
+            // arrived again before the copy held back was delivered
+            release(pending.remove(sequence));
+        }
+        consumer.onMessage(buffer);
+    }
+
+    private void holdBack(final DirectBuffer buffer, final long sequence) {
+        if (pending.containsKey(sequence)) {
+            duplicateCount++;
+            return;
+        }
+        if (pending.isEmpty()) {
+            gapCount++;
+        }
+        final ExpandableDirectByteBuffer copy = freeBuffers.isEmpty() ? new ExpandableDirectByteBuffer(1024) : freeBuffers.poll();
+        copy.putBytes(0, buffer, 0, messageLength.of(buffer));
+        pending.put(sequence, copy);
+
+        if (draining) {
+            return;
+        }
+        if (pending.size() > maxPending) {
+            giveUpOnGap();
+            drainPending();
+        } else if (requestedUpTo < expected) {
+            // only ask once per gap, a source which replays later will fill it without being asked again
+            requestMissing(sequence - 1);
+        }
+    }
+
+    private void requestMissing(final long toSequence) {
+        requestedUpTo = toSequence;
+        final long from = expected;
+        draining = true;
+        final boolean replaying;
+        try {
+            replaying = source.retransmit(from, toSequence, this);
+        } finally {
+            draining = false;
+        }
+
+        if (!replaying) {
+            giveUpOnGap();
+        }
+        drainPending();
+    }
+
+    private void giveUpOnGap() {
+        final long lowest = lowestPending();
+        if (lowest > expected) {
+            lostCount += lowest - expected;
+            gapListener.onUnrecoverableGap(expected, lowest - 1);
+            expected = lowest;
+        }
+    }
+
+    /**
+     * Deliver held back messages which are now next in line, and ask for whatever is still missing before the rest.
+     */
+    private void drainPending() {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        try {
+            while (deliverNextPending()) {
+                // keep going while the next message is held
+            }
+        } finally {
+            draining = false;
+        }
+
+        final long lowest = lowestPending();
+        if (lowest != UNKNOWN && requestedUpTo < lowest - 1) {
+            requestMissing(lowest - 1);
+        }
+    }
+
+    private boolean deliverNextPending() {
+        // taken out before delivery, the consumer can cause more messages to be held back
+        final ExpandableDirectByteBuffer next = pending.remove(expected);
+        if (next == null) {
+            return false;
+        }
+        deliver(next, expected);
+        release(next);
+        return true;
+    }
+
+    private long lowestPending() {
+        Map.Entry<Long, ExpandableDirectByteBuffer> lowest;
+        while ((lowest = pending.firstEntry()) != null && lowest.getKey() < expected) {
+            release(pending.pollFirstEntry().getValue());
+        }
+        return lowest == null ? UNKNOWN : lowest.getKey();
+    }
+
+    private void release(final ExpandableDirectByteBuffer buffer) {
+        if (buffer != null) {
+            freeBuffers.push(buffer);
+        }
+    }
+
+    public long expectedSequence() {
+        return expected;
+    }
+
+    public boolean isRecovering() {
+        return !pending.isEmpty();
+    }
+
+    public long duplicateCount() {
+        return duplicateCount;
+    }
+
+    public long gapCount() {
+        return gapCount;
+    }
+
+    public long lostCount() {
+        return lostCount;
+    }
+}
@@ -0,0 +1,28 @@
+package codingblackfemales.sequencer.snapshot;
+
+/**
+ * Several pieces of state snapshotted together, e.g. the market data and order services of one algo, written and
+ * read in the order given.
+ */
+public class CompositeSnapshot implements Snapshottable {
+
+    private final Snapshottable[] parts;
+
+    public CompositeSnapshot(final Snapshottable... parts) {
+        this.parts = parts;
+    }
+
+    @Override
+    public void writeSnapshot(final SnapshotWriter writer) {
+        for (Snapshottable part : parts) {
+            part.writeSnapshot(writer);
+        }
+    }
+
+    @Override
+    public void readSnapshot(final SnapshotReader reader) {
+        for (Snapshottable part : parts) {
+            part.readSnapshot(reader);
+        }
+    }
+}
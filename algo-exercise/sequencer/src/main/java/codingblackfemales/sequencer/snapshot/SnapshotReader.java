@@ -0,0 +1,79 @@
+package codingblackfemales.sequencer.snapshot;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import static codingblackfemales.sequencer.snapshot.SnapshotWriter.BYTE_ORDER;
+
+/**
+ * Reads back a snapshot written by a {@link SnapshotWriter}, in the order it was written.
+ */
+public class SnapshotReader {
+
+    private final DirectBuffer buffer;
+    private final int length;
+    private final long sequence;
+    private int position = 0;
+
+    public SnapshotReader(final byte[] bytes) {
+        this(new UnsafeBuffer(bytes), bytes.length);
+    }
+
+    public SnapshotReader(final DirectBuffer buffer, final int length) {
+        this.buffer = buffer;
+        this.length = length;
+
+        if (length < SnapshotWriter.HEADER_LENGTH || getInt() != SnapshotWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a snapshot");
+        }
+        final int version = getInt();
+        if (version != SnapshotWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+        this.sequence = getLong();
+    }
+
+    /**
+     * The sequencerNumber of the last message applied to the state in this snapshot.
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    public SnapshotReader read(final Snapshottable snapshottable) {
+        snapshottable.readSnapshot(this);
+        return this;
+    }
+
+    public byte getByte() {
+        checkRemaining(BitUtil.SIZE_OF_BYTE);
+        final byte value = buffer.getByte(position);
+        position += BitUtil.SIZE_OF_BYTE;
+        return value;
+    }
+
+    public int getInt() {
+        checkRemaining(BitUtil.SIZE_OF_INT);
+        final int value = buffer.getInt(position, BYTE_ORDER);
+        position += BitUtil.SIZE_OF_INT;
+        return value;
+    }
+
+    public long getLong() {
+        checkRemaining(BitUtil.SIZE_OF_LONG);
+        final long value = buffer.getLong(position, BYTE_ORDER);
+        position += BitUtil.SIZE_OF_LONG;
+        return value;
+    }
+
+    public boolean hasRemaining() {
+        return position < length;
+    }
+
+    private void checkRemaining(final int bytes) {
+        if (position + bytes > length) {
+            throw new IllegalStateException("Snapshot truncated at " + position + " of " + length + " bytes");
+        }
+    }
+}
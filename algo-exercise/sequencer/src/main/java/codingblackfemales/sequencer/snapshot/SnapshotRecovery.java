@@ -0,0 +1,43 @@
+package codingblackfemales.sequencer.snapshot;
+
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.recovery.MessageJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rebuilds state after a restart: loads the latest snapshot, then replays from the journal only the messages
+ * sequenced after it.
+ *
+ * Replay goes to the consumers which build the state (e.g. the market data and order services), not to anything
+ * which acts on it, so an algo does not send its orders again and an order book does not publish its fills again.
+ */
+public class SnapshotRecovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotRecovery.class);
+
+    /**
+     * @return the sequencerNumber of the last message applied, 0 if there was no snapshot and nothing to replay.
+     */
+    public static long recover(final SnapshotStore store,
+                               final Snapshottable state,
+                               final MessageJournal journal,
+                               final Consumer replayTo) {
+        final SnapshotReader snapshot = store.loadLatest();
+
+        long lastSequence = 0;
+        if (snapshot != null) {
+            snapshot.read(state);
+            lastSequence = snapshot.sequence();
+        }
+
+        if (journal.firstSequence() > lastSequence + 1) {
+            throw new IllegalStateException("Journal starts at " + journal.firstSequence() + " but the state is only recovered up to " + lastSequence);
+        }
+
+        final long replayed = journal.replayFrom(lastSequence, replayTo);
+        logger.info("[SNAPSHOT] Recovered from snapshot at sequence " + lastSequence + " and " + replayed + " journalled messages");
+
+        return Math.max(lastSequence, journal.lastSequence());
+    }
+}
@@ -0,0 +1,116 @@
+package codingblackfemales.sequencer.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Keeps snapshots as files in a directory, named by the sequencerNumber they were taken at so the latest sorts last.
+ * A snapshot is written to a temporary file, forced to disk and then moved into place, so a crash while saving never
+ * leaves a half written snapshot behind, nor a snapshot whose name survived without its contents. Only the most recent
+ * few are kept.
+ */
+public class SnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    public static final int DEFAULT_RETAINED = 3;
+
+    private final File directory;
+    private final int retained;
+
+    public SnapshotStore(final File directory) {
+        this(directory, DEFAULT_RETAINED);
+    }
+
+    public SnapshotStore(final File directory, final int retained) {
+        if (retained <= 0) {
+            throw new IllegalArgumentException("retained must be positive: " + retained);
+        }
+        this.directory = directory;
+        this.retained = retained;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Could not create snapshot directory " + directory);
+        }
+    }
+
+    public File save(final SnapshotWriter writer) {
+        final byte[] bytes = new byte[writer.length()];
+        writer.buffer().getBytes(0, bytes);
+
+        final File target = new File(directory, String.format("%s%020d%s", PREFIX, writer.sequence(), SUFFIX));
+        try {
+            final Path temp = Files.createTempFile(directory.toPath(), PREFIX, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                final ByteBuffer contents = ByteBuffer.wrap(bytes);
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save snapshot " + target, e);
+        }
+        logger.info("[SNAPSHOT] Saved snapshot at sequence " + writer.sequence() + " (" + bytes.length + " bytes)");
+
+        deleteOldSnapshots();
+        return target;
+    }
+
+    // so the rename is on disk too, not every platform can open a directory to do this
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("[SNAPSHOT] Could not force snapshot directory " + directory, e);
+        }
+    }
+
+    /**
+     * @return the most recent snapshot, or null if there are none.
+     */
+    public SnapshotReader loadLatest() {
+        final File[] snapshots = snapshots();
+        if (snapshots.length == 0) {
+            return null;
+        }
+        final File latest = snapshots[snapshots.length - 1];
+        try {
+            return new SnapshotReader(Files.readAllBytes(latest.toPath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load snapshot " + latest, e);
+        }
+    }
+
+    public File[] snapshots() {
+        final File[] snapshots = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (snapshots == null) {
+            return new File[0];
+        }
+        Arrays.sort(snapshots);
+        return snapshots;
+    }
+
+    private void deleteOldSnapshots() {
+        final File[] snapshots = snapshots();
+        for (int i = 0; i < snapshots.length - retained; i++) {
+            if (!snapshots[i].delete()) {
+                logger.warn("[SNAPSHOT] Could not delete old snapshot " + snapshots[i]);
+            }
+        }
+    }
+}
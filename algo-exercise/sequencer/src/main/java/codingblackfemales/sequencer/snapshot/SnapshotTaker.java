@@ -0,0 +1,157 @@
+package codingblackfemales.sequencer.snapshot;
+
+import codingblackfemales.sequencer.net.Consumer;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes a snapshot of some state every N sequenced messages. Add it to the network after the consumers which build
+ * the state, so that by the time it sees a message the state includes it and the snapshot can be tagged with that
+ * message's sequencerNumber.
+ *
+ * A consumer can cause another message to be sequenced and dispatched before the one it is handling reaches the
+ * taker, so the taker keeps the highest sequencerNumber it has seen rather than the last one.
+ *
+ * The state is encoded on the dispatch thread, as only that thread may read it, but writing the encoded snapshot and
+ * forcing it to disk is handed to a saver thread, so the message path never waits on the disk. There are two encode
+ * buffers, one can be saving while the other waits its turn. If both are still in flight when a snapshot is due, it is
+ * put off to the next message rather than waiting, and counted.
+ */
+public class SnapshotTaker implements Consumer, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotTaker.class);
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final SnapshotWriter[] writers = {new SnapshotWriter(), new SnapshotWriter()};
+    // set while a writer's snapshot is waiting for or being saved, cleared by the saver thread
+    private final AtomicBoolean[] inFlight = {new AtomicBoolean(), new AtomicBoolean()};
+
+    private final Snapshottable state;
+    private final SnapshotStore store;
+    private final int messagesPerSnapshot;
+    private final Executor saver;
+    // only when the taker started the saver thread itself
+    private final ExecutorService ownedSaver;
+
+    private long lastSequence = 0;
+    private int messagesSinceSnapshot = 0;
+    private int nextWriter = 0;
+    private long deferredCount = 0;
+
+    public SnapshotTaker(final Snapshottable state, final SnapshotStore store, final int messagesPerSnapshot) {
+        this(state, store, messagesPerSnapshot, newSaverThread());
+    }
+
+    private SnapshotTaker(final Snapshottable state, final SnapshotStore store, final int messagesPerSnapshot, final ExecutorService saver) {
+        this(state, store, messagesPerSnapshot, saver, saver);
+    }
+
+    /**
+     * @param saver runs the saves, in the order they are given to it. Runnable::run saves on the dispatch thread.
+     */
+    public SnapshotTaker(final Snapshottable state, final SnapshotStore store, final int messagesPerSnapshot, final Executor saver) {
+        this(state, store, messagesPerSnapshot, saver, null);
+    }
+
+    private SnapshotTaker(final Snapshottable state, final SnapshotStore store, final int messagesPerSnapshot,
+                          final Executor saver, final ExecutorService ownedSaver) {
+        if (messagesPerSnapshot <= 0) {
+            throw new IllegalArgumentException("messagesPerSnapshot must be positive: " + messagesPerSnapshot);
+        }
+        this.state = state;
+        this.store = store;
+        this.messagesPerSnapshot = messagesPerSnapshot;
+        this.saver = saver;
+        this.ownedSaver = ownedSaver;
+    }
+
+    private static ExecutorService newSaverThread() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "snapshot-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onMessage(final DirectBuffer buffer) {
+        lastSequence = Math.max(lastSequence, header.wrap(buffer, 0).sequencerNumber());
+        if (++messagesSinceSnapshot >= messagesPerSnapshot) {
+            takeSnapshot();
+        }
+    }
+
+    /**
+     * Snapshot now, e.g. before a planned shutdown, and hand it to the saver.
+     *
+     * @return false if both encode buffers are still in flight, so the snapshot is put off to the next message.
+     */
+    public boolean takeSnapshot() {
+        final int index = nextWriter;
+        if (inFlight[index].get()) {
+            deferredCount++;
+            return false;
+        }
+
+        final SnapshotWriter writer = writers[index].begin(lastSequence).write(state);
+        inFlight[index].set(true);
+        nextWriter = index ^ 1;
+        messagesSinceSnapshot = 0;
+        saver.execute(() -> save(index, writer));
+        return true;
+    }
+
+    private void save(final int index, final SnapshotWriter writer) {
+        try {
+            store.save(writer);
+        } catch (RuntimeException e) {
+            logger.error("[SNAPSHOT] Could not save snapshot at sequence " + writer.sequence(), e);
+        } finally {
+            inFlight[index].set(false);
+        }
+    }
+
+    /**
+     * Carry on counting from a restored snapshot, see {@link SnapshotRecovery}.
+     */
+    public void setLastSequence(final long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return how many times a snapshot was due while the saver was still two behind.
+     */
+    public long getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * Wait for the snapshots handed over so far to be saved and stop the saver thread, if the taker started it.
+     */
+    @Override
+    public void close() {
+        if (ownedSaver == null) {
+            return;
+        }
+        ownedSaver.shutdown();
+        try {
+            if (!ownedSaver.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("[SNAPSHOT] Gave up waiting for snapshots to be saved");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
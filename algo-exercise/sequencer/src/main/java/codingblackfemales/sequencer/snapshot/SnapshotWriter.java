@@ -0,0 +1,76 @@
+package codingblackfemales.sequencer.snapshot;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+
+import java.nio.ByteOrder;
+
+/**
+ * Writes a snapshot into a growable buffer. A snapshot starts with a header holding a magic number, the format
+ * version and the sequencerNumber of the last message applied to the state, followed by whatever the
+ * {@link Snapshottable}s write. Reuse one writer, {@link #begin(long)} resets it.
+ */
+public class SnapshotWriter {
+
+    public static final int MAGIC = 0x43424653; // "CBFS"
+    public static final int VERSION = 1;
+    public static final int HEADER_LENGTH = BitUtil.SIZE_OF_INT * 2 + BitUtil.SIZE_OF_LONG;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final ExpandableDirectByteBuffer buffer;
+    private int position = 0;
+    private long sequence;
+
+    public SnapshotWriter() {
+        this(64 * 1024);
+    }
+
+    public SnapshotWriter(final int initialCapacity) {
+        this.buffer = new ExpandableDirectByteBuffer(initialCapacity);
+    }
+
+    public SnapshotWriter begin(final long sequence) {
+        this.sequence = sequence;
+        position = 0;
+        putInt(MAGIC);
+        putInt(VERSION);
+        putLong(sequence);
+        return this;
+    }
+
+    public SnapshotWriter write(final Snapshottable snapshottable) {
+        snapshottable.writeSnapshot(this);
+        return this;
+    }
+
+    public SnapshotWriter putByte(final byte value) {
+        buffer.putByte(position, value);
+        position += BitUtil.SIZE_OF_BYTE;
+        return this;
+    }
+
+    public SnapshotWriter putInt(final int value) {
+        buffer.putInt(position, value, BYTE_ORDER);
+        position += BitUtil.SIZE_OF_INT;
+        return this;
+    }
+
+    public SnapshotWriter putLong(final long value) {
+        buffer.putLong(position, value, BYTE_ORDER);
+        position += BitUtil.SIZE_OF_LONG;
+        return this;
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public DirectBuffer buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return position;
+    }
+}
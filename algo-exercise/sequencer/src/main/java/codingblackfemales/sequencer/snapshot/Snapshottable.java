@@ -0,0 +1,16 @@
+package codingblackfemales.sequencer.snapshot;
+
+/**
+ * State which can be written to a binary snapshot and later rebuilt from it, so recovering it only needs the
+ * messages sequenced after the snapshot rather than the whole day.
+ */
+public interface Snapshottable {
+
+    void writeSnapshot(final SnapshotWriter writer);
+
+    /**
+     * Replace the current state with the state read from the snapshot, reading exactly what
+     * {@link #writeSnapshot(SnapshotWriter)} wrote.
+     */
+    void readSnapshot(final SnapshotReader reader);
+}
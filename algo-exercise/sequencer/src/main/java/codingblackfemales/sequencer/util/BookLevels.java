@@ -0,0 +1,65 @@
+package codingblackfemales.sequencer.util;
+
+/**
+ * Finds and edits levels of one side of a book kept as parallel price and size arrays, best price first, as needed to
+ * apply a BookDelta without rebuilding the side.
+ */
+public final class BookLevels {
+
+    private BookLevels() {
+    }
+
+    /**
+     * @return the index of the level at the price, or -(insertion point) - 1 if there is none.
+     */
+    public static int search(final long[] prices, final int count, final long price, final boolean bid) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midPrice = prices[mid];
+            if (midPrice == price) {
+                return mid;
+            }
+            // bids are best (highest) first, asks best (lowest) first
+            if (bid ? midPrice > price : midPrice < price) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Set or remove the level at a price. The side holds at most the length of the arrays: a new level beyond that is
+     * ignored and one inserted above it pushes the worst level out.
+     *
+     * @param size the new size, 0 removes the level as delete does.
+     * @return the number of levels now on the side.
+     */
+    public static int apply(final long[] prices, final long[] sizes, final int count,
+                            final boolean bid, final boolean delete, final long price, final long size) {
+        final int index = search(prices, count, price, bid);
+        if (index >= 0) {
+            if (delete || size == 0) {
+                System.arraycopy(prices, index + 1, prices, index, count - index - 1);
+                System.arraycopy(sizes, index + 1, sizes, index, count - index - 1);
+                return count - 1;
+            }
+            sizes[index] = size;
+            return count;
+        }
+
+        final int insertAt = -index - 1;
+        if (delete || size == 0 || insertAt == prices.length) {
+            return count;
+        }
+        final int newCount = Math.min(count + 1, prices.length);
+        System.arraycopy(prices, insertAt, prices, insertAt + 1, newCount - insertAt - 1);
+        System.arraycopy(sizes, insertAt, sizes, insertAt + 1, newCount - insertAt - 1);
+        prices[insertAt] = price;
+        sizes[insertAt] = size;
+        return newCount;
+    }
+}
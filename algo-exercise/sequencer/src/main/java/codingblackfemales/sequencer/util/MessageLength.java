@@ -0,0 +1,51 @@
+package codingblackfemales.sequencer.util;
+
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.MessageHeaderDecoder;
+import org.agrona.DirectBuffer;
+
+/**
+ * Works out how many bytes an encoded message (header, block and any repeating groups) takes up in a buffer, so it
+ * can be copied into a ring buffer or a batch without copying the whole backing buffer.
+ *
+ * Holds its own decoders, so use one instance per thread.
+ */
+public class MessageLength {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder book = new BookUpdateDecoder();
+    private final AskBookUpdateDecoder ask = new AskBookUpdateDecoder();
+    private final BidBookUpdateDecoder bid = new BidBookUpdateDecoder();
+    private final BookDeltaDecoder delta = new BookDeltaDecoder();
+
+    public int of(final DirectBuffer buffer) {
+        return of(buffer, 0);
+    }
+
+    public int of(final DirectBuffer buffer, final int offset) {
+        header.wrap(buffer, offset);
+
+        final int headerLength = header.encodedLength();
+        final int bodyOffset = offset + headerLength;
+        final int actingBlockLength = header.blockLength();
+        final int actingVersion = header.version();
+
+        if (header.schemaId() == BookUpdateDecoder.SCHEMA_ID) {
+            if (header.templateId() == BookUpdateDecoder.TEMPLATE_ID) {
+                return headerLength + book.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            } else if (header.templateId() == AskBookUpdateDecoder.TEMPLATE_ID) {
+                return headerLength + ask.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            } else if (header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID) {
+                return headerLength + bid.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            } else if (header.templateId() == BookDeltaDecoder.TEMPLATE_ID) {
+                return headerLength + delta.wrap(buffer, bodyOffset, actingBlockLength, actingVersion).sbeDecodedLength();
+            }
+        }
+
+        // order messages and trades have no repeating groups
+        return headerLength + actingBlockLength;
+    }
+}
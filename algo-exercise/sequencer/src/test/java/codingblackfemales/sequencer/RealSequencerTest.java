@@ -0,0 +1,123 @@
+package codingblackfemales.sequencer;
+
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RealSequencerTest {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateEncoder bookEncoder = new BookUpdateEncoder();
+
+    @Test
+    public void sequencesCommandsFromManyProducersOnOneThread() throws Exception {
+        final int producers = 4;
+        final int commandsPerProducer = 20_000;
+        final List<Long> sequenceNumbers = new ArrayList<>();
+        final long[] lastPerProducer = new long[producers];
+        final boolean[] inOrder = {true};
+        final List<Thread> dispatchThreads = new ArrayList<>();
+
+        try (RealSequencer sequencer = new RealSequencer(buffer -> {
+            header.wrap(buffer, 0);
+            sequenceNumbers.add(header.sequencerNumber());
+            if (dispatchThreads.isEmpty()) {
+                dispatchThreads.add(Thread.currentThread());
+            }
+            // each producer puts its id in instrumentId and a running count in the best bid
+            final int producer = (int) buffer.getLong(header.encodedLength() + BookUpdateEncoder.instrumentIdEncodingOffset(), BookUpdateEncoder.BYTE_ORDER);
+            final long count = buffer.getLong(header.encodedLength() + BookUpdateEncoder.BLOCK_LENGTH + BookUpdateEncoder.BidBookEncoder.sbeHeaderSize(), BookUpdateEncoder.BYTE_ORDER);
+            inOrder[0] &= count == lastPerProducer[producer] + 1;
+            lastPerProducer[producer] = count;
+        }, 1 << 16, 64)) {
+            sequencer.start(new YieldingIdleStrategy());
+
+            final List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                final Thread thread = new Thread(() -> {
+                    final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+                    final BookUpdateEncoder encoder = new BookUpdateEncoder();
+                    for (int i = 1; i <= commandsPerProducer; i++) {
+                        encoder.wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(producer);
+                        encoder.bidBookCount(1).next().price(i).size(1);
+                        encoder.askBookCount(0);
+                        sequencer.onCommand(buffer);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sequencer.queuedBytes() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+
+        assertEquals(producers * commandsPerProducer, sequenceNumbers.size());
+        for (int i = 0; i < sequenceNumbers.size(); i++) {
+            assertEquals(i + 1, (long) sequenceNumbers.get(i));
+        }
+        assertTrue("each producer's commands kept their order", inOrder[0]);
+        assertEquals(1, dispatchThreads.size());
+    }
+
+    @Test
+    public void assignsOrderIdsToCreateOrders() {
+        final List<Long> orderIds = new ArrayList<>();
+        final CreateOrderDecoder decoder = new CreateOrderDecoder();
+        final RealSequencer sequencer = new RealSequencer(buffer -> {
+            header.wrap(buffer, 0);
+            decoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            orderIds.add(decoder.orderId());
+        }, 1 << 12, 16);
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new CreateOrderEncoder().wrapAndApplyHeader(buffer, 0, new messages.order.MessageHeaderEncoder())
+                .instrumentId(1).price(100).quantity(10).side(Side.BUY);
+        sequencer.onCommand(buffer);
+        sequencer.onCommand(buffer);
+
+        assertEquals(2, sequencer.doWork());
+        assertEquals(List.of(2L, 3L), orderIds);
+        assertEquals(2, sequencer.sequenceNumber());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void writerThreadCannotWaitForItself() {
+        final RealSequencer[] self = new RealSequencer[1];
+        self[0] = new RealSequencer(buffer -> {
+            // an algo sending far more than the ring buffer holds in reaction to one message
+            for (int i = 0; i < 1_000; i++) {
+                self[0].onCommand(buffer);
+            }
+        }, 1 << 12, 16);
+
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        bookEncoder.wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(1);
+        bookEncoder.bidBookCount(0);
+        bookEncoder.askBookCount(0);
+        self[0].onCommand(buffer);
+        self[0].onStart();
+        self[0].doWork();
+    }
+}
@@ -0,0 +1,189 @@
+package codingblackfemales.sequencer.batch;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.BatchConsumer;
+import codingblackfemales.sequencer.net.Network;
+import codingblackfemales.sequencer.net.TestNetwork;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderEncoder;
+import messages.order.Side;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchSequencingTest {
+
+    private final List<Long> sequenceNumbers = new ArrayList<>();
+    private final List<Integer> templateIds = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+    private final Network network = new Network() {
+        @Override
+        public void dispatch(final DirectBuffer buffer) {
+            header.wrap(buffer, 0);
+            sequenceNumbers.add(header.sequencerNumber());
+            templateIds.add(header.templateId());
+        }
+
+        @Override
+        public void dispatchBatch(final MessageBatch batch) {
+            batchSizes.add(batch.size());
+            batch.forEach(this::dispatch);
+        }
+    };
+
+    private UnsafeBuffer book() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(123);
+        encoder.bidBookCount(2).next().price(98).size(100).next().price(97).size(200);
+        encoder.askBookCount(1).next().price(100).size(100);
+        return buffer;
+    }
+
+    private UnsafeBuffer createOrder() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new CreateOrderEncoder().wrapAndApplyHeader(buffer, 0, new messages.order.MessageHeaderEncoder())
+                .instrumentId(123).price(98).quantity(100).side(Side.BUY).parentOrderId(7);
+        return buffer;
+    }
+
+    private UnsafeBuffer fill() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new FillOrderEncoder().wrapAndApplyHeader(buffer, 0, new messages.order.MessageHeaderEncoder()).orderId(2).quantity(100).price(98);
+        return buffer;
+    }
+
+    @Test
+    public void sequencesBatchWithConsecutiveNumbersAndDispatchesItOnce() {
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        sequencer.onCommand(fill());
+
+        final MessageBatch batch = new MessageBatch(64);
+        batch.add(book(), 0, 200);
+        batch.add(createOrder(), 0, 64);
+        batch.add(fill(), 0, 64);
+
+        sequencer.onCommands(batch);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), sequenceNumbers);
+        assertEquals(List.of(FillOrderEncoder.TEMPLATE_ID, BookUpdateEncoder.TEMPLATE_ID, CreateOrderEncoder.TEMPLATE_ID, FillOrderEncoder.TEMPLATE_ID), templateIds);
+        assertEquals(List.of(3), batchSizes);
+    }
+
+    @Test
+    public void createOrderInBatchIsGivenAnOrderId() {
+        final List<Long> orderIds = new ArrayList<>();
+        final CreateOrderDecoder decoder = new CreateOrderDecoder();
+        final DefaultSequencer sequencer = new DefaultSequencer(new Network() {
+            @Override
+            public void dispatch(final DirectBuffer buffer) {
+                header.wrap(buffer, 0);
+                decoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+                orderIds.add(decoder.orderId());
+                assertEquals(7, decoder.parentOrderId());
+                assertEquals(123, decoder.instrumentId());
+            }
+        });
+
+        final MessageBatch batch = new MessageBatch();
+        batch.add(createOrder(), 0, 64);
+        batch.add(createOrder(), 0, 64);
+        sequencer.onCommands(batch);
+
+        assertEquals(List.of(2L, 3L), orderIds);
+    }
+
+    @Test
+    public void batchingSequencerHoldsCommandsUntilOutermostFlush() {
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        final BatchingSequencer batching = new BatchingSequencer(sequencer);
+
+        batching.begin();
+        batching.onCommand(fill());
+        batching.begin();
+        batching.onCommand(book());
+        batching.flush();
+        assertEquals(0, sequenceNumbers.size());
+
+        batching.flush();
+        assertEquals(List.of(1L, 2L), sequenceNumbers);
+        assertEquals(List.of(2), batchSizes);
+
+        batching.onCommand(fill());
+        assertEquals(List.of(1L, 2L, 3L), sequenceNumbers);
+    }
+
+    @Test
+    public void commandSentMidBatchIsSequencedAfterTheBatch() {
+        final TestNetwork testNetwork = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(testNetwork);
+        testNetwork.addConsumer(buffer -> {
+            header.wrap(buffer, 0);
+            sequenceNumbers.add(header.sequencerNumber());
+            templateIds.add(header.templateId());
+            // reacting to the book at the start of the batch, before the fills after it have been delivered
+            if (header.templateId() == BookUpdateEncoder.TEMPLATE_ID) {
+                sequencer.onCommand(fill());
+            }
+        });
+        testNetwork.addConsumer(new BatchConsumer() {
+            @Override
+            public void onBatch(final MessageBatch batch) {
+                batchSizes.add(batch.size());
+            }
+
+            @Override
+            public void onMessage(final DirectBuffer buffer) {
+            }
+        });
+
+        final MessageBatch batch = new MessageBatch();
+        batch.add(book(), 0, 200);
+        batch.add(fill(), 0, 64);
+        batch.add(fill(), 0, 64);
+        sequencer.onCommands(batch);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), sequenceNumbers);
+        assertEquals(List.of(BookUpdateEncoder.TEMPLATE_ID, FillOrderEncoder.TEMPLATE_ID, FillOrderEncoder.TEMPLATE_ID, FillOrderEncoder.TEMPLATE_ID), templateIds);
+        assertEquals(List.of(3, 1), batchSizes);
+    }
+
+    @Test
+    public void batchConsumerIsGivenTheWholeBatchAfterOtherConsumers() {
+        final TestNetwork testNetwork = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(testNetwork);
+        final List<String> calls = new ArrayList<>();
+
+        testNetwork.addConsumer(buffer -> calls.add("message"));
+        testNetwork.addConsumer(new BatchConsumer() {
+            @Override
+            public void onBatch(final MessageBatch batch) {
+                calls.add("batch of " + batch.size());
+            }
+
+            @Override
+            public void onMessage(final DirectBuffer buffer) {
+                calls.add("single");
+            }
+        });
+
+        final MessageBatch batch = new MessageBatch();
+        batch.add(book(), 0, 200);
+        batch.add(fill(), 0, 64);
+        sequencer.onCommands(batch);
+        sequencer.onCommand(fill());
+
+        assertEquals(List.of("message", "message", "batch of 2", "message", "single"), calls);
+    }
+}
@@ -0,0 +1,154 @@
+package codingblackfemales.sequencer.dispatch;
+
+import codingblackfemales.sequencer.event.MarketDataEventListener;
+import codingblackfemales.sequencer.net.Subscription;
+import messages.marketdata.AskBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateEncoder;
+import messages.marketdata.BookDeltaEncoder;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.marketdata.TradeEncoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.FillOrderEncoder;
+import messages.order.PartialFillOrderEncoder;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageDispatcherTest {
+
+    private final MessageDispatcher dispatcher = new MessageDispatcher();
+    private final List<String> calls = new ArrayList<>();
+
+    private UnsafeBuffer header(final int schemaId, final int templateId) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(64));
+        new MessageHeaderEncoder().wrap(buffer, 0).schemaId(schemaId).templateId(templateId);
+        return buffer;
+    }
+
+    @Test
+    public void routesOnSchemaAndTemplateOnly() {
+        dispatcher.register(BidBookUpdateEncoder.SCHEMA_ID, BidBookUpdateEncoder.TEMPLATE_ID, (buffer, header) -> calls.add("bid"));
+        dispatcher.register(PartialFillOrderEncoder.SCHEMA_ID, PartialFillOrderEncoder.TEMPLATE_ID, (buffer, header) -> calls.add("partialFill"));
+
+        // both templates have id 9, only the schema tells them apart
+        dispatcher.dispatch(header(PartialFillOrderEncoder.SCHEMA_ID, PartialFillOrderEncoder.TEMPLATE_ID));
+        dispatcher.dispatch(header(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID));
+
+        assertEquals(Arrays.asList("partialFill"), calls);
+        assertFalse(dispatcher.hasHandlers(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID));
+        assertTrue(dispatcher.hasHandlers(BidBookUpdateEncoder.SCHEMA_ID, BidBookUpdateEncoder.TEMPLATE_ID));
+    }
+
+    @Test
+    public void callsHandlersInRegistrationOrderIncludingConsumersWithoutRegistrations() {
+        dispatcher.add(buffer -> calls.add("first"));
+        dispatcher.register(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID, (buffer, header) -> calls.add("second"));
+        dispatcher.add(buffer -> calls.add("third"));
+
+        dispatcher.dispatch(header(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID));
+        dispatcher.dispatch(header(PartialFillOrderEncoder.SCHEMA_ID, PartialFillOrderEncoder.TEMPLATE_ID));
+
+        assertEquals(Arrays.asList("first", "second", "third", "first", "third"), calls);
+    }
+
+    @Test
+    public void nestedDispatchDoesNotDisturbOuterHeader() {
+        final UnsafeBuffer fill = header(PartialFillOrderEncoder.SCHEMA_ID, PartialFillOrderEncoder.TEMPLATE_ID);
+
+        dispatcher.register(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID, (buffer, header) -> dispatcher.dispatch(fill));
+        dispatcher.registerForAll((buffer, header) -> calls.add(header.schemaId() + "/" + header.templateId()));
+
+        dispatcher.dispatch(header(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID));
+
+        assertEquals(Arrays.asList("2/9", "1/1"), calls);
+    }
+
+    private UnsafeBuffer book(final long instrumentId) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(instrumentId);
+        return buffer;
+    }
+
+    @Test
+    public void subscriptionsFilterBySchemaTemplateAndInstrument() {
+        dispatcher.add(buffer -> calls.add("orders"), Subscription.schema(CreateOrderEncoder.SCHEMA_ID));
+        dispatcher.add(buffer -> calls.add("fills"), Subscription.template(FillOrderEncoder.SCHEMA_ID, FillOrderEncoder.TEMPLATE_ID));
+        dispatcher.add(buffer -> calls.add("book-123"), Subscription.instrument(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID, 123));
+
+        dispatcher.dispatch(book(123));
+        dispatcher.dispatch(book(456));
+        dispatcher.dispatch(header(FillOrderEncoder.SCHEMA_ID, FillOrderEncoder.TEMPLATE_ID));
+        dispatcher.dispatch(header(PartialFillOrderEncoder.SCHEMA_ID, PartialFillOrderEncoder.TEMPLATE_ID));
+
+        assertEquals(Arrays.asList("book-123", "orders", "fills", "orders"), calls);
+    }
+
+    private UnsafeBuffer delta(final long instrumentId) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new BookDeltaEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(instrumentId).levelsCount(0);
+        return buffer;
+    }
+
+    @Test
+    public void instrumentSubscriptionsFilterBookDeltas() {
+        dispatcher.add(buffer -> calls.add("delta-123"), Subscription.instrument(BookDeltaEncoder.SCHEMA_ID, BookDeltaEncoder.TEMPLATE_ID, 123));
+        dispatcher.add(buffer -> calls.add("delta-456"), Subscription.instrument(BookDeltaEncoder.SCHEMA_ID, BookDeltaEncoder.TEMPLATE_ID, 456));
+
+        dispatcher.dispatch(delta(456));
+        dispatcher.dispatch(delta(123));
+
+        assertEquals(Arrays.asList("delta-456", "delta-123"), calls);
+    }
+
+    private UnsafeBuffer trade(final long instrumentId) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(64));
+        new TradeEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(instrumentId);
+        return buffer;
+    }
+
+    @Test
+    public void instrumentSubscriptionsFilterTrades() {
+        dispatcher.add(buffer -> calls.add("trade-123"), Subscription.instrument(TradeEncoder.SCHEMA_ID, TradeEncoder.TEMPLATE_ID, 123));
+
+        dispatcher.dispatch(trade(456));
+        dispatcher.dispatch(trade(123));
+
+        assertEquals(Arrays.asList("trade-123"), calls);
+    }
+
+    @Test
+    public void subscriptionNarrowsDeclaredHandlers() {
+        final MarketDataEventListener listener = new MarketDataEventListener() {
+            @Override
+            public void onBookUpdate(final BookUpdateDecoder bookUpdate) {
+                calls.add("book-" + bookUpdate.instrumentId());
+            }
+
+            @Override
+            public void onAskBook(final AskBookUpdateDecoder askBook) {
+            }
+
+            @Override
+            public void onBidBook(final BidBookUpdateDecoder bidBook) {
+            }
+        };
+        dispatcher.add(listener, Subscription.schema(BookUpdateEncoder.SCHEMA_ID).forInstrument(456));
+
+        dispatcher.dispatch(book(123));
+        dispatcher.dispatch(book(456));
+
+        assertEquals(Arrays.asList("book-456"), calls);
+        assertFalse(dispatcher.hasHandlers(FillOrderEncoder.SCHEMA_ID, FillOrderEncoder.TEMPLATE_ID));
+    }
+}
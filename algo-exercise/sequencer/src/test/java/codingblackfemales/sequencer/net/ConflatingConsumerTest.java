@@ -0,0 +1,171 @@
+package codingblackfemales.sequencer.net;
+
+import messages.marketdata.AskBookUpdateEncoder;
+import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BidBookUpdateEncoder;
+import messages.marketdata.BookDeltaEncoder;
+import messages.marketdata.BookSide;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.DeltaAction;
+import messages.marketdata.InstrumentStatus;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.marketdata.Venue;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the delivery side by hand with doWork() to stand in for a consumer which is busy while updates arrive.
+ */
+public class ConflatingConsumerTest {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder bookDecoder = new BookUpdateDecoder();
+    private final BidBookUpdateDecoder bidDecoder = new BidBookUpdateDecoder();
+    private final List<String> received = new ArrayList<>();
+
+    // records each message as template:instrument:bids/asks, e.g. "1:7:100/102"
+    private final Consumer recorder = buffer -> {
+        header.wrap(buffer, 0);
+        if (header.templateId() == BookUpdateDecoder.TEMPLATE_ID) {
+            bookDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            final StringBuilder levels = new StringBuilder(header.templateId() + ":" + bookDecoder.instrumentId() + ":");
+            bookDecoder.bidBook().forEach(level -> levels.append(level.price()).append(','));
+            levels.append('/');
+            bookDecoder.askBook().forEach(level -> levels.append(level.price()).append(','));
+            received.add(levels.toString());
+        } else if (header.templateId() == BidBookUpdateDecoder.TEMPLATE_ID) {
+            bidDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            final StringBuilder levels = new StringBuilder(header.templateId() + ":" + bidDecoder.instrumentId() + ":");
+            bidDecoder.bidBook().forEach(level -> levels.append(level.price()).append(','));
+            received.add(levels.toString());
+        } else {
+            received.add(String.valueOf(header.templateId()));
+        }
+    };
+
+    private static DirectBuffer book(final long instrumentId, final long bid, final long ask) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON).instrumentStatus(InstrumentStatus.CONTINUOUS);
+        encoder.bidBookCount(1).next().price(bid).size(100);
+        encoder.askBookCount(1).next().price(ask).size(100);
+        return buffer;
+    }
+
+    private static DirectBuffer bids(final long instrumentId, final long... prices) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BidBookUpdateEncoder encoder = new BidBookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON);
+        final BidBookUpdateEncoder.BidBookEncoder levels = encoder.bidBookCount(prices.length);
+        for (final long price : prices) {
+            levels.next().price(price).size(100);
+        }
+        return buffer;
+    }
+
+    private static DirectBuffer asks(final long instrumentId, final long price) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new AskBookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON).askBookCount(1).next().price(price).size(100);
+        return buffer;
+    }
+
+    private static DirectBuffer delta(final long instrumentId, final BookSide side, final DeltaAction action, final long price) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new BookDeltaEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder())
+                .instrumentId(instrumentId).venue(Venue.XLON).instrumentStatus(InstrumentStatus.CONTINUOUS)
+                .levelsCount(1).next().side(side).action(action).price(price).size(100);
+        return buffer;
+    }
+
+    @Test
+    public void busyConsumerIsGivenOnlyTheLatestBookPerInstrument() {
+        final ConflatingConsumer conflating = new ConflatingConsumer("ui", recorder);
+        for (int i = 1; i <= 1_000; i++) {
+            conflating.onMessage(book(1, 100 + i, 200 + i));
+            conflating.onMessage(book(2, 300 + i, 400 + i));
+        }
+
+        assertEquals(2, conflating.doWork());
+        assertEquals(List.of("1:1:1100,/1200,", "1:2:1300,/1400,"), received);
+        assertEquals(2_000, conflating.receivedCount());
+        assertEquals(1_998, conflating.conflatedCount());
+        assertEquals(0, conflating.doWork());
+    }
+
+    @Test
+    public void sideUpdatesMergeLastValueWinsPerSide() {
+        final ConflatingConsumer conflating = new ConflatingConsumer("ui", recorder);
+
+        conflating.onMessage(bids(1, 99, 98));
+        conflating.onMessage(bids(1, 101, 100));
+        conflating.doWork();
+
+        conflating.onMessage(book(1, 100, 102));
+        conflating.onMessage(bids(1, 101));
+        conflating.doWork();
+
+        conflating.onMessage(bids(1, 97));
+        conflating.onMessage(asks(1, 103));
+        conflating.doWork();
+
+        assertEquals(List.of("9:1:101,100,", "1:1:101,/102,", "1:1:97,/103,"), received);
+    }
+
+    @Test
+    public void deltasAreAppliedToTheSlotAndDeliveredAsWholeSides() {
+        final ConflatingConsumer conflating = new ConflatingConsumer("ui", recorder, 4, 2);
+
+        conflating.onMessage(book(1, 100, 102));
+        conflating.doWork();
+
+        conflating.onMessage(delta(1, BookSide.BID, DeltaAction.NEW, 101));
+        conflating.onMessage(delta(1, BookSide.BID, DeltaAction.NEW, 99));
+        conflating.doWork();
+
+        // 99 was below the depth, it is delivered again once 101 goes
+        conflating.onMessage(delta(1, BookSide.BID, DeltaAction.DELETE, 101));
+        conflating.onMessage(delta(1, BookSide.ASK, DeltaAction.NEW, 103));
+        conflating.doWork();
+
+        assertEquals(List.of("1:1:100,/102,", "9:1:101,100,", "1:1:100,99,/102,103,"), received);
+        assertEquals(1, conflating.truncatedCount());
+    }
+
+    @Test
+    public void levelsAndInstrumentsBeyondThePreallocatedSlotsAreCounted() {
+        final ConflatingConsumer conflating = new ConflatingConsumer("ui", recorder, 1, 2);
+
+        conflating.onMessage(bids(1, 101, 100, 99));
+        conflating.onMessage(book(2, 100, 102));
+        conflating.doWork();
+
+        assertEquals(List.of("9:1:101,100,"), received);
+        assertEquals(1, conflating.truncatedCount());
+        assertEquals(1, conflating.droppedCount());
+    }
+
+    @Test
+    public void testNetworkOnlyPassesBookUpdatesToTheConflatingConsumer() {
+        final TestNetwork network = new TestNetwork();
+        final ConflatingConsumer conflating = network.addConflatingConsumer("ui", recorder);
+
+        final UnsafeBuffer fill = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new messages.order.FillOrderEncoder().wrapAndApplyHeader(fill, 0, new messages.order.MessageHeaderEncoder()).orderId(1);
+        network.dispatch(fill);
+        network.dispatch(book(1, 100, 102));
+        network.dispatch(book(1, 101, 103));
+        conflating.doWork();
+
+        assertEquals(List.of("1:1:101,/103,"), received);
+    }
+}
@@ -0,0 +1,216 @@
+package codingblackfemales.sequencer.net;
+
+import messages.marketdata.BookDeltaEncoder;
+import messages.marketdata.BookSide;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.DeltaAction;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.FillOrderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the delivery side by hand with doWork() so a consumer which has fallen behind can be simulated exactly.
+ */
+public class QueuedConsumerTest {
+
+    private static final int CAPACITY = 1024;
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final BookUpdateDecoder bookDecoder = new BookUpdateDecoder();
+    private final List<Long> bestBids = new ArrayList<>();
+    private final List<Integer> templates = new ArrayList<>();
+
+    private final Consumer recorder = buffer -> {
+        header.wrap(buffer, 0);
+        templates.add(header.templateId());
+        if (header.schemaId() == BookUpdateDecoder.SCHEMA_ID && header.templateId() == BookUpdateDecoder.TEMPLATE_ID) {
+            bookDecoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            bestBids.add(bookDecoder.bidBook().next().price());
+        }
+    };
+
+    private static DirectBuffer book(final long instrumentId, final long bestBid) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(instrumentId);
+        encoder.bidBookCount(1).next().price(bestBid).size(100);
+        encoder.askBookCount(1).next().price(bestBid + 2).size(100);
+        return buffer;
+    }
+
+    private static DirectBuffer fill() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new FillOrderEncoder().wrapAndApplyHeader(buffer, 0, new messages.order.MessageHeaderEncoder()).orderId(1).quantity(10).price(100);
+        return buffer;
+    }
+
+    private static int fillQueue(final QueuedConsumer queued) {
+        int sent = 0;
+        while (queued.queueFullCount() == 0) {
+            queued.onMessage(book(1, ++sent));
+        }
+        return sent;
+    }
+
+    private static void drain(final QueuedConsumer queued) {
+        // a read can stop at the end of the ring buffer having only skipped padding, so go by what is left queued
+        while (queued.doWork() > 0 || queued.queueDepth() > 0) {
+            // deliver everything
+        }
+    }
+
+    @Test
+    public void dropPolicyCountsMessagesItCouldNotQueue() {
+        final QueuedConsumer queued = new QueuedConsumer("ui", recorder, SlowConsumerPolicy.DROP, CAPACITY);
+        final int sent = fillQueue(queued);
+        queued.onMessage(book(1, 1_000));
+
+        drain(queued);
+
+        assertEquals(2, queued.droppedCount());
+        assertEquals(sent - 1, queued.deliveredCount());
+        assertEquals(queued.enqueuedCount(), queued.deliveredCount());
+    }
+
+    @Test
+    public void disconnectPolicyStopsDeliveringOnceFull() {
+        final QueuedConsumer queued = new QueuedConsumer("logger", recorder, SlowConsumerPolicy.DISCONNECT, CAPACITY);
+        final int sent = fillQueue(queued);
+        assertTrue(queued.isDisconnected());
+
+        drain(queued);
+        queued.onMessage(book(1, 1_000));
+        drain(queued);
+
+        assertEquals(sent - 1, queued.deliveredCount());
+        assertEquals(2, queued.droppedCount());
+    }
+
+    @Test
+    public void conflatePolicyDeliversLatestBookPerInstrumentAfterQueuedOnes() {
+        final QueuedConsumer queued = new QueuedConsumer("ui", recorder, SlowConsumerPolicy.CONFLATE, CAPACITY);
+        final int sent = fillQueue(queued);
+        for (int i = 1; i <= 100; i++) {
+            queued.onMessage(book(1, 10_000 + i));
+        }
+
+        drain(queued);
+
+        assertEquals(101, queued.conflatedCount());
+        assertEquals(sent, bestBids.size());
+        assertEquals(10_100, (long) bestBids.get(bestBids.size() - 1));
+        for (int i = 1; i < bestBids.size(); i++) {
+            assertTrue(bestBids.get(i) > bestBids.get(i - 1));
+        }
+
+        // once delivered, books queue normally again
+        queued.onMessage(book(1, 20_000));
+        drain(queued);
+        assertEquals(20_000, (long) bestBids.get(bestBids.size() - 1));
+    }
+
+    @Test
+    public void conflatePolicyAppliesDeltasToTheWholeBook() {
+        final QueuedConsumer queued = new QueuedConsumer("ui", recorder, SlowConsumerPolicy.CONFLATE, CAPACITY);
+        final int sent = fillQueue(queued);
+        final UnsafeBuffer delta = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new BookDeltaEncoder().wrapAndApplyHeader(delta, 0, new MessageHeaderEncoder()).instrumentId(1)
+                .levelsCount(1).next().side(BookSide.BID).action(DeltaAction.NEW).price(sent + 1).size(100);
+        queued.onMessage(delta);
+
+        drain(queued);
+
+        // the delta is merged into the book waiting to be conflated, not queued ahead of it
+        assertEquals(2, queued.conflatedCount());
+        assertEquals(sent, bestBids.size());
+        assertEquals(sent + 1, (long) bestBids.get(bestBids.size() - 1));
+        assertEquals(BookUpdateDecoder.TEMPLATE_ID, (int) templates.get(templates.size() - 1));
+    }
+
+    @Test
+    public void conflatePolicyNeverDropsOrderEvents() throws Exception {
+        final QueuedConsumer queued = new QueuedConsumer("ui", recorder, SlowConsumerPolicy.CONFLATE, CAPACITY);
+        fillQueue(queued);
+
+        final Thread delivery = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                queued.doWork();
+            }
+        });
+        delivery.start();
+        for (int i = 0; i < 100; i++) {
+            queued.onMessage(fill());
+        }
+        while (queued.deliveredCount() < queued.enqueuedCount() + 1) {
+            Thread.sleep(1);
+        }
+        delivery.interrupt();
+        delivery.join();
+
+        assertEquals(100, templates.stream().filter(templateId -> templateId == FillOrderEncoder.TEMPLATE_ID).count());
+        assertEquals(0, queued.droppedCount());
+    }
+
+    @Test
+    public void blockPolicyDeliversEverythingOnItsOwnThread() throws Exception {
+        final List<Thread> deliveryThreads = new ArrayList<>();
+        final QueuedConsumer queued = new QueuedConsumer("journal", buffer -> {
+            if (deliveryThreads.isEmpty()) {
+                deliveryThreads.add(Thread.currentThread());
+            }
+            recorder.onMessage(buffer);
+        }, SlowConsumerPolicy.BLOCK, CAPACITY);
+        queued.start(new org.agrona.concurrent.YieldingIdleStrategy());
+
+        try {
+            for (int i = 1; i <= 1_000; i++) {
+                queued.onMessage(book(1, i));
+            }
+            while (queued.deliveredCount() < 1_000) {
+                Thread.sleep(1);
+            }
+        } finally {
+            queued.close();
+        }
+
+        assertEquals(1_000, bestBids.size());
+        assertEquals(0, queued.droppedCount());
+        assertFalse(deliveryThreads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void blockPolicyGivesUpOnAConsumerWhichStopsDelivering() {
+        final QueuedConsumer queued = new QueuedConsumer("journal", recorder, SlowConsumerPolicy.BLOCK, CAPACITY, TimeUnit.MILLISECONDS.toNanos(50));
+        int sent = 0;
+        try {
+            while (true) {
+                queued.onMessage(book(1, ++sent));
+            }
+        } catch (final IllegalStateException expected) {
+            // nothing is delivering, so the queue never gets any space
+        }
+
+        assertTrue(queued.isDisconnected());
+        assertEquals(1, queued.droppedCount());
+        assertEquals(sent - 1, queued.enqueuedCount());
+        assertTrue(queued.blockedNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        // later messages are dropped straight away rather than blocking again
+        queued.onMessage(book(1, 1_000));
+        assertEquals(2, queued.droppedCount());
+        drain(queued);
+        assertEquals(sent - 1, queued.deliveredCount());
+    }
+}
@@ -0,0 +1,133 @@
+package codingblackfemales.sequencer.net.ipc;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.Subscription;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import messages.order.CreateOrderDecoder;
+import messages.order.CreateOrderEncoder;
+import messages.order.Side;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IpcNetworkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+
+    private IpcNetwork network;
+    private IpcCommandReceiver receiver;
+    private File networkFile;
+    private File commandFile;
+
+    @Before
+    public void setUp() throws Exception {
+        networkFile = new File(folder.getRoot(), "network.dat");
+        commandFile = new File(folder.getRoot(), "commands.dat");
+        network = new IpcNetwork(networkFile, 64 * 1024);
+        receiver = new IpcCommandReceiver(commandFile, new DefaultSequencer(network), 64 * 1024);
+    }
+
+    @After
+    public void tearDown() {
+        receiver.close();
+        network.close();
+    }
+
+    private UnsafeBuffer book(final long instrumentId) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(instrumentId);
+        encoder.bidBookCount(1).next().price(98).size(100);
+        encoder.askBookCount(1).next().price(100).size(100);
+        return buffer;
+    }
+
+    private UnsafeBuffer createOrder() {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        new CreateOrderEncoder().wrapAndApplyHeader(buffer, 0, new messages.order.MessageHeaderEncoder())
+                .instrumentId(1).price(98).quantity(100).side(Side.BUY);
+        return buffer;
+    }
+
+    @Test
+    public void commandsFromPublisherAreSequencedAndBroadcastToSubscribers() {
+        final List<Long> orderIds = new ArrayList<>();
+        final List<Long> bookSequenceNumbers = new ArrayList<>();
+        final CreateOrderDecoder createOrder = new CreateOrderDecoder();
+
+        try (IpcSubscriber algoProcess = new IpcSubscriber(networkFile);
+             IpcSubscriber uiProcess = new IpcSubscriber(networkFile);
+             IpcCommandPublisher exchange = new IpcCommandPublisher(commandFile);
+             IpcCommandPublisher algo = new IpcCommandPublisher(commandFile)) {
+
+            algoProcess.addConsumer(buffer -> {
+                header.wrap(buffer, 0);
+                createOrder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+                orderIds.add(createOrder.orderId());
+            }, Subscription.template(CreateOrderDecoder.SCHEMA_ID, CreateOrderDecoder.TEMPLATE_ID));
+            uiProcess.addConsumer(buffer -> bookSequenceNumbers.add(header.wrap(buffer, 0).sequencerNumber()),
+                    Subscription.instrument(BookUpdateEncoder.SCHEMA_ID, BookUpdateEncoder.TEMPLATE_ID, 7));
+
+            exchange.onCommand(book(7));
+            algo.onCommand(createOrder());
+            exchange.onCommand(book(8));
+            algo.onCommand(createOrder());
+
+            assertEquals(4, receiver.poll());
+            assertEquals(4, algoProcess.poll());
+            assertEquals(4, uiProcess.poll());
+
+            assertEquals(List.of(2L, 3L), orderIds);
+            assertEquals(List.of(1L), bookSequenceNumbers);
+        }
+    }
+
+    @Test
+    public void slowSubscriberIsLappedWithoutBlockingTheSequencer() {
+        final List<Long> sequenceNumbers = new ArrayList<>();
+        try (IpcSubscriber subscriber = new IpcSubscriber(networkFile, 1_000_000)) {
+            subscriber.addConsumer(buffer -> sequenceNumbers.add(header.wrap(buffer, 0).sequencerNumber()));
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            final int messages = 10_000;
+            for (int i = 0; i < messages; i++) {
+                sequencer.onCommand(book(1));
+            }
+
+            subscriber.poll();
+            assertTrue(subscriber.lappedCount() > 0);
+            assertTrue(sequenceNumbers.size() < messages);
+            assertEquals(messages, (long) sequenceNumbers.get(sequenceNumbers.size() - 1));
+        }
+    }
+
+    @Test
+    public void subscriberCanAttachWhileSequencerIsRunning() {
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+        sequencer.onCommand(book(1));
+
+        final List<Long> sequenceNumbers = new ArrayList<>();
+        try (IpcSubscriber restarted = new IpcSubscriber(networkFile)) {
+            restarted.addConsumer(buffer -> sequenceNumbers.add(header.wrap(buffer, 0).sequencerNumber()));
+            restarted.poll();
+            sequencer.onCommand(book(1));
+            restarted.poll();
+        }
+        assertEquals(2L, (long) sequenceNumbers.get(sequenceNumbers.size() - 1));
+    }
+}
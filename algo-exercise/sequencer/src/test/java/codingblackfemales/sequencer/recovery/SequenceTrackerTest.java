@@ -0,0 +1,144 @@
+package codingblackfemales.sequencer.recovery;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.Consumer;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SequenceTrackerTest {
+
+    private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+    private final List<Long> delivered = new ArrayList<>();
+    private final List<long[]> gaps = new ArrayList<>();
+    private final Consumer recorder = buffer -> delivered.add(header.wrap(buffer, 0).sequencerNumber());
+
+    private final RetransmitBuffer retransmitBuffer = new RetransmitBuffer(8, 256);
+    private final List<DirectBuffer> sent = new ArrayList<>();
+    private final DefaultSequencer sequencer = new DefaultSequencer(buffer -> sent.add(copy(buffer)), retransmitBuffer);
+
+    private static DirectBuffer copy(final DirectBuffer buffer) {
+        final UnsafeBuffer copy = new UnsafeBuffer(new byte[256]);
+        copy.putBytes(0, buffer, 0, 256);
+        return copy;
+    }
+
+    private void sequence(final int messages) {
+        for (int i = 0; i < messages; i++) {
+            final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+            final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(1);
+            encoder.bidBookCount(1).next().price(98 + i).size(100);
+            encoder.askBookCount(0);
+            sequencer.onCommand(buffer);
+        }
+    }
+
+    private SequenceTracker tracker(final RetransmitSource source) {
+        final SequenceTracker tracker = new SequenceTracker(recorder, source, (from, to) -> gaps.add(new long[]{from, to}), 16);
+        tracker.expect(1);
+        return tracker;
+    }
+
+    @Test
+    public void deliversInOrderAndDropsDuplicates() {
+        sequence(3);
+        final SequenceTracker tracker = tracker(retransmitBuffer);
+
+        tracker.onMessage(sent.get(0));
+        tracker.onMessage(sent.get(1));
+        tracker.onMessage(sent.get(1));
+        tracker.onMessage(sent.get(2));
+        tracker.onMessage(sent.get(0));
+
+        assertEquals(List.of(1L, 2L, 3L), delivered);
+        assertEquals(2, tracker.duplicateCount());
+        assertEquals(0, tracker.gapCount());
+    }
+
+    @Test
+    public void replaysDroppedMessagesFromRetransmitBuffer() {
+        sequence(6);
+        final SequenceTracker tracker = tracker(retransmitBuffer);
+
+        tracker.onMessage(sent.get(0));
+        tracker.onMessage(sent.get(3));
+        tracker.onMessage(sent.get(5));
+        tracker.onMessage(sent.get(4));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), delivered);
+        assertEquals(2, tracker.gapCount());
+        assertEquals(1, tracker.duplicateCount());
+        assertFalse(tracker.isRecovering());
+        assertTrue(gaps.isEmpty());
+    }
+
+    @Test
+    public void holdsMessagesBackUntilAsynchronousReplayArrives() {
+        sequence(4);
+        final List<long[]> requests = new ArrayList<>();
+        final SequenceTracker tracker = tracker((from, to, target) -> requests.add(new long[]{from, to}));
+
+        tracker.onMessage(sent.get(0));
+        tracker.onMessage(sent.get(2));
+        tracker.onMessage(sent.get(3));
+        assertEquals(List.of(1L), delivered);
+        assertEquals(1, requests.size());
+        assertTrue(tracker.isRecovering());
+
+        tracker.onMessage(sent.get(1));
+        assertEquals(List.of(1L, 2L, 3L, 4L), delivered);
+        assertFalse(tracker.isRecovering());
+    }
+
+    @Test
+    public void reportsGapWhenRetransmitBufferHasMovedOn() {
+        sequence(12);
+        final SequenceTracker tracker = tracker(retransmitBuffer);
+
+        tracker.onMessage(sent.get(0));
+        tracker.onMessage(sent.get(11));
+
+        assertEquals(List.of(1L, 12L), delivered);
+        assertEquals(1, gaps.size());
+        assertEquals(2, gaps.get(0)[0]);
+        assertEquals(11, gaps.get(0)[1]);
+        assertEquals(10, tracker.lostCount());
+    }
+
+    @Test
+    public void onlyMessagesStillHeldCountTowardsTheLimit() {
+        sequence(21);
+        final SequenceTracker tracker = tracker((from, to, target) -> true);
+
+        tracker.onMessage(sent.get(0));
+        for (int i = 2; i < 15; i++) {
+            if (i != 4) {
+                tracker.onMessage(sent.get(i));
+            }
+        }
+        // 2 fills the first gap, 3 and 4 are delivered and 6 to 15 are still held
+        tracker.onMessage(sent.get(1));
+        assertEquals(List.of(1L, 2L, 3L, 4L), delivered);
+
+        for (int i = 15; i < 21; i++) {
+            tracker.onMessage(sent.get(i));
+        }
+        assertTrue(gaps.isEmpty());
+
+        tracker.onMessage(sent.get(4));
+        assertEquals(21, delivered.size());
+        assertEquals(22, tracker.expectedSequence());
+        assertFalse(tracker.isRecovering());
+    }
+}
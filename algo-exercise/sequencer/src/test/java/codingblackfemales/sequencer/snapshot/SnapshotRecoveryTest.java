@@ -0,0 +1,218 @@
+package codingblackfemales.sequencer.snapshot;
+
+import codingblackfemales.sequencer.DefaultSequencer;
+import codingblackfemales.sequencer.net.Consumer;
+import codingblackfemales.sequencer.net.TestNetwork;
+import codingblackfemales.sequencer.recovery.MessageJournal;
+import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.BookUpdateEncoder;
+import messages.marketdata.MessageHeaderDecoder;
+import messages.marketdata.MessageHeaderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SnapshotRecoveryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Sums the best bid price of every book update, so any message replayed twice or missed changes the total.
+     */
+    private static class BestBidTotal implements Consumer, Snapshottable {
+        private final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        private final BookUpdateDecoder book = new BookUpdateDecoder();
+        long total = 0;
+        int messages = 0;
+
+        @Override
+        public void onMessage(final DirectBuffer buffer) {
+            header.wrap(buffer, 0);
+            book.wrap(buffer, header.encodedLength(), header.blockLength(), header.version());
+            total += book.bidBook().next().price();
+            messages++;
+        }
+
+        @Override
+        public void writeSnapshot(final SnapshotWriter writer) {
+            writer.putLong(total).putInt(messages);
+        }
+
+        @Override
+        public void readSnapshot(final SnapshotReader reader) {
+            total = reader.getLong();
+            messages = reader.getInt();
+        }
+    }
+
+    private static UnsafeBuffer book(final long bestBid) {
+        final UnsafeBuffer buffer = new UnsafeBuffer(ByteBuffer.allocateDirect(256));
+        final BookUpdateEncoder encoder = new BookUpdateEncoder().wrapAndApplyHeader(buffer, 0, new MessageHeaderEncoder()).instrumentId(1);
+        encoder.bidBookCount(1).next().price(bestBid).size(100);
+        encoder.askBookCount(0);
+        return buffer;
+    }
+
+    @Test
+    public void restoresLatestSnapshotAndReplaysOnlyTheJournalTail() {
+        final File journalFile = new File(folder.getRoot(), "journal.dat");
+        final SnapshotStore store = new SnapshotStore(new File(folder.getRoot(), "snapshots"), 2);
+
+        final BestBidTotal live = new BestBidTotal();
+        try (MessageJournal journal = new MessageJournal(journalFile);
+             SnapshotTaker taker = new SnapshotTaker(live, store, 4)) {
+            final TestNetwork network = new TestNetwork();
+            network.addConsumer(journal);
+            network.addConsumer(live);
+            network.addConsumer(taker);
+
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            for (int i = 1; i <= 10; i++) {
+                sequencer.onCommand(book(i));
+            }
+        }
+        assertEquals(55, live.total);
+        assertEquals(2, store.snapshots().length);
+        assertEquals(8, store.loadLatest().sequence());
+
+        final BestBidTotal recovered = new BestBidTotal();
+        final Consumer counter = recovered::onMessage;
+        final int[] replayed = {0};
+        try (MessageJournal journal = new MessageJournal(journalFile)) {
+            final long lastSequence = SnapshotRecovery.recover(store, recovered, journal, buffer -> {
+                replayed[0]++;
+                counter.onMessage(buffer);
+            });
+            assertEquals(10, lastSequence);
+        }
+
+        assertEquals(55, recovered.total);
+        assertEquals(10, recovered.messages);
+        assertEquals(2, replayed[0]);
+    }
+
+    @Test
+    public void replaysWholeJournalWithoutSnapshot() {
+        final SnapshotStore store = new SnapshotStore(new File(folder.getRoot(), "empty"));
+        assertNull(store.loadLatest());
+
+        final File journalFile = new File(folder.getRoot(), "journal.dat");
+        try (MessageJournal journal = new MessageJournal(journalFile)) {
+            final TestNetwork network = new TestNetwork();
+            network.addConsumer(journal);
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            for (int i = 1; i <= 3; i++) {
+                sequencer.onCommand(book(i));
+            }
+
+            final BestBidTotal recovered = new BestBidTotal();
+            assertEquals(3, SnapshotRecovery.recover(store, recovered, journal, recovered));
+            assertEquals(6, recovered.total);
+        }
+    }
+
+    @Test
+    public void snapshotIsTaggedWithTheHighestSequenceApplied() {
+        final SnapshotStore store = new SnapshotStore(new File(folder.getRoot(), "nested"));
+        final BestBidTotal live = new BestBidTotal();
+        final TestNetwork network = new TestNetwork();
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+
+        network.addConsumer(live);
+        // sequences and dispatches another book before the first reaches the taker
+        network.addConsumer(buffer -> {
+            if (live.messages == 1) {
+                sequencer.onCommand(book(100));
+            }
+        });
+        try (SnapshotTaker taker = new SnapshotTaker(live, store, 2)) {
+            network.addConsumer(taker);
+            sequencer.onCommand(book(1));
+        }
+
+        assertEquals(101, live.total);
+        assertEquals(2, store.loadLatest().sequence());
+    }
+
+    @Test
+    public void snapshotsAreEncodedOnTheDispatchThreadAndSavedOnTheSaver() {
+        final SnapshotStore store = new SnapshotStore(new File(folder.getRoot(), "saver"), 5);
+        final BestBidTotal live = new BestBidTotal();
+        final ArrayDeque<Runnable> saves = new ArrayDeque<>();
+        final SnapshotTaker taker = new SnapshotTaker(live, store, 1, saves::add);
+        final TestNetwork network = new TestNetwork();
+        network.addConsumer(live);
+        network.addConsumer(taker);
+        final DefaultSequencer sequencer = new DefaultSequencer(network);
+
+        sequencer.onCommand(book(1));
+        sequencer.onCommand(book(2));
+        assertEquals(0, store.snapshots().length);
+
+        // both buffers are in flight, so the third is put off rather than waiting on the saver
+        sequencer.onCommand(book(3));
+        assertEquals(1, taker.getDeferredCount());
+        assertEquals(2, saves.size());
+
+        saves.poll().run();
+        assertEquals(1, store.loadLatest().sequence());
+        sequencer.onCommand(book(4));
+        assertEquals(2, saves.size());
+
+        while (!saves.isEmpty()) {
+            saves.poll().run();
+        }
+        final BestBidTotal restored = new BestBidTotal();
+        store.loadLatest().read(restored);
+        assertEquals(4, store.loadLatest().sequence());
+        assertEquals(10, restored.total);
+    }
+
+    @Test
+    public void journalSeeksToTheRangeAndAppendsAfterATornFrame() throws IOException {
+        final File journalFile = new File(folder.getRoot(), "torn.dat");
+        try (MessageJournal journal = new MessageJournal(journalFile)) {
+            final TestNetwork network = new TestNetwork();
+            network.addConsumer(journal);
+            final DefaultSequencer sequencer = new DefaultSequencer(network);
+            for (int i = 1; i <= 5; i++) {
+                sequencer.onCommand(book(i));
+            }
+        }
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(new byte[]{0, 0, 0, 100, 1, 2});
+        }
+
+        final List<Long> bestBids = new ArrayList<>();
+        final MessageHeaderDecoder header = new MessageHeaderDecoder();
+        final BookUpdateDecoder decoder = new BookUpdateDecoder();
+        final Consumer recorder = buffer -> {
+            header.wrap(buffer, 0);
+            bestBids.add(decoder.wrap(buffer, header.encodedLength(), header.blockLength(), header.version()).bidBook().next().price());
+        };
+        try (MessageJournal journal = new MessageJournal(journalFile)) {
+            assertEquals(5, journal.lastSequence());
+            final UnsafeBuffer sixth = book(6);
+            new MessageHeaderEncoder().wrap(sixth, 0).sequencerNumber(6);
+            journal.onMessage(sixth);
+
+            assertEquals(true, journal.retransmit(3, 4, recorder));
+            assertEquals(2, journal.replayFrom(4, recorder));
+        }
+        assertEquals(List.of(3L, 4L, 5L, 6L), bestBids);
+    }
+}
@@ -9,7 +9,10 @@ import codingblackfemales.sotw.marketdata.AskLevel;
 import codingblackfemales.sotw.marketdata.BidLevel;
 import messages.marketdata.AskBookUpdateDecoder;
 import messages.marketdata.BidBookUpdateDecoder;
+import messages.marketdata.BookDeltaDecoder;
+import messages.marketdata.BookSide;
 import messages.marketdata.BookUpdateDecoder;
+import messages.marketdata.DeltaAction;
 import org.agrona.DirectBuffer;
 import org.finos.toolbox.time.Clock;
 import org.finos.vuu.core.table.DataTable;
@@ -267,6 +270,86 @@ public class AlgoProvider extends MarketDataEventListener implements Provider {
         debugBidOfferCross();
     }
 
+    /**
+     * Apply just the levels which changed to the book shown, a level pushed below the last row drops off until the next
+     * full update.
+     */
+    @Override
+    public void onBookDelta(final BookDeltaDecoder bookDelta) {
+
+        instrumentId = bookDelta.instrumentId();
+
+        for(BookDeltaDecoder.LevelsDecoder decoder : bookDelta.levels()){
+            final long price = decoder.price();
+            final long quantity = decoder.action() == DeltaAction.DELETE ? 0 : decoder.size();
+
+            if(decoder.side() == BookSide.BID){
+                bidLength = applyBid(price, quantity);
+            }else{
+                askLength = applyAsk(price, quantity);
+            }
+            logger.debug("[ALGO] DELTA: " + decoder.side() + " " + decoder.action() + " price:" + price + " quantity:" + quantity);
+        }
+
+        updateBookTable();
+
+        debugBidOfferCross();
+    }
+
+    private int applyBid(final long price, final long quantity){
+        int length = 0;
+        while(length < bidBook.length && bidBook[length] != null){
+            length++;
+        }
+        int level = 0;
+        while(level < length && bidBook[level].price > price){
+            level++;
+        }
+
+        if(level < length && bidBook[level].price == price){
+            if(quantity == 0){
+                System.arraycopy(bidBook, level + 1, bidBook, level, length - level - 1);
+                bidBook[--length] = null;
+            }else{
+                bidBook[level].setQuantity(quantity);
+            }
+        }else if(quantity > 0 && level < bidBook.length){
+            length = Math.min(length + 1, bidBook.length);
+            System.arraycopy(bidBook, level, bidBook, level + 1, length - level - 1);
+            bidBook[level] = new BidLevel();
+            bidBook[level].setPrice(price);
+            bidBook[level].setQuantity(quantity);
+        }
+        return length;
+    }
+
+    private int applyAsk(final long price, final long quantity){
+        int length = 0;
+        while(length < askBook.length && askBook[length] != null){
+            length++;
+        }
+        int level = 0;
+        while(level < length && askBook[level].price < price){
+            level++;
+        }
+
+        if(level < length && askBook[level].price == price){
+            if(quantity == 0){
+                System.arraycopy(askBook, level + 1, askBook, level, length - level - 1);
+                askBook[--length] = null;
+            }else{
+                askBook[level].setQuantity(quantity);
+            }
+        }else if(quantity > 0 && level < askBook.length){
+            length = Math.min(length + 1, askBook.length);
+            System.arraycopy(askBook, level, askBook, level + 1, length - level - 1);
+            askBook[level] = new AskLevel();
+            askBook[level].setPrice(price);
+            askBook[level].setQuantity(quantity);
+        }
+        return length;
+    }
+
     @Override
     public void doStart() {
         network.addConsumer(this);